@@ -1,5 +1,10 @@
 package com.clfparser;
 
+import com.utils.ConversionUtils;
+import com.utils.SectionRegistry;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
 /**
@@ -20,10 +25,30 @@ import java.time.ZonedDateTime;
  * 200 is the HTTP status code returned to the client. 2xx is a successful
  * response, 3xx a redirection, 4xx a client error, and 5xx a server error. 2326
  * is the size of the object returned to the client, measured in bytes.
+ *
+ * Entries are kept in memory until they are aggregated, so they are stored in a compact form: the timestamp as epoch
+ * milliseconds and zone offset, the method and protocol as enum codes, the IPv4 address of the client packed in a
+ * number and the section as an id of the {@link SectionRegistry}. The getters rebuild the original values on demand;
+ * values which have no compact form (e.g. IPv6 addresses, unknown methods) are kept as text.
+ *
+ * @Note timestamps are kept with a millisecond precision and a fixed zone offset, as written in CLF log lines.
  */
 public class CLFLogEntry {
-    // IP address of the client (remote host) which made the request to the server.
-    private final String remoteHost;
+    // value of remoteAddress when the remote host is not a (canonical) IPv4 address.
+    private static final long NO_ADDRESS = -1;
+
+    // value of the codes when the method or protocol is not a known one.
+    private static final byte NO_CODE = -1;
+
+    // value of timestampMillis when there is no timestamp.
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    // IPv4 address of the client (remote host) which made the request to the server, packed in a number
+    // (NO_ADDRESS when remoteHostText holds the remote host).
+    private final long remoteAddress;
+
+    // the remote host, when it is not an IPv4 address (e.g. an IPv6 address or a host name).
+    private final String remoteHostText;
 
     // the RFC 1413 identity of the client. Usually "-".
     private final String userIdentifier;
@@ -33,22 +58,28 @@ public class CLFLogEntry {
     private final String userId;
 
     // the date, time, and time zone that the request was received, by default in
-    // strftime format %d/%b/%Y:%H:%M:%S %z (parsed from this format).
-    private final ZonedDateTime timestamp;
+    // strftime format %d/%b/%Y:%H:%M:%S %z (parsed from this format), as epoch milliseconds and zone offset.
+    private final long timestampMillis;
+    private final int zoneOffsetSeconds;
 
     /**
      * "GET /apache_pb.gif HTTP/1.0" is the request line from the client. The method
      * GET, /apache_pb.gif the resource requested, and HTTP/1.0 the HTTP protocol.
      */
-    // the HTTP method (GET in our above example).
-    private final String httpMethod;
+    // the code of the HTTP method (GET in our above example), or NO_CODE when httpMethodText holds the method.
+    private final byte httpMethodCode;
+    private final String httpMethodText;
 
     // the resource requested through the HTTP method (/apache_pb.gif in our above
     // example).
     private final String resource;
 
-    // the HTTP protocol (/apache_pb.gif in our above example).
-    private final String httpProtocol;
+    // the id of the website section of the resource (see SectionRegistry).
+    private final int sectionId;
+
+    // the code of the HTTP protocol (HTTP/1.0 in our above example), or NO_CODE when httpProtocolText holds the protocol.
+    private final byte httpProtocolCode;
+    private final String httpProtocolText;
 
     // the HTTP status code returned to the client. 2xx is a successful response,
     // 3xx a redirection, 4xx a client error, and 5xx a server error.
@@ -57,8 +88,19 @@ public class CLFLogEntry {
     // the size of the object returned to the client, measured in bytes.
     private final int responseSize;
 
+    // the log file the entry was read from (null when a single file is monitored).
+    private final String source;
+
     public String getRemoteHost() {
-        return remoteHost;
+        return remoteAddress != NO_ADDRESS ? ConversionUtils.formatIPv4(remoteAddress) : remoteHostText;
+    }
+
+    /**
+     * @return the IPv4 address of the client packed in a number (from 0 to 2^32 - 1), or -1 if the remote host is
+     * not an IPv4 address.
+     */
+    public long getRemoteAddress() {
+        return remoteAddress;
     }
 
     public String getUserIdentifier() {
@@ -70,34 +112,75 @@ public class CLFLogEntry {
     }
 
     public ZonedDateTime getTimestamp() {
-        return timestamp;
+        if (timestampMillis == NO_TIMESTAMP) {
+            return null;
+        }
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneOffset.ofTotalSeconds(zoneOffsetSeconds));
+    }
+
+    /**
+     * @return the timestamp in milliseconds since the epoch (without allocating a date object).
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
     }
 
     public String getHttpMethod() {
-        return httpMethod;
+        return httpMethodCode != NO_CODE ? HTTPMethod.fromCode(httpMethodCode).name() : httpMethodText;
+    }
+
+    /**
+     * @return the HTTP method, or null if it is not one of the known methods (see {@link #getHttpMethod()}).
+     */
+    public HTTPMethod getHttpMethodCode() {
+        return httpMethodCode != NO_CODE ? HTTPMethod.fromCode(httpMethodCode) : null;
     }
 
     public String getResource() {
         return resource;
     }
 
+    /**
+     * @return the website section of the resource (see {@link ConversionUtils#extractHTTPSectionFromRequest(String)}).
+     */
+    public String getSection() {
+        return sectionId != SectionRegistry.NO_ID ?
+                SectionRegistry.sectionOf(sectionId) : ConversionUtils.extractHTTPSectionFromRequest(resource);
+    }
+
+    /**
+     * @return the id of the website section in the {@link SectionRegistry}, or {@link SectionRegistry#NO_ID} if the
+     * section is not interned.
+     */
+    public int getSectionId() {
+        return sectionId;
+    }
+
     @Override
     public String toString() {
         return "CLFLogEntry{" +
-                "remoteHost='" + remoteHost + '\'' +
+                "remoteHost='" + getRemoteHost() + '\'' +
                 ", userIdentifier='" + userIdentifier + '\'' +
                 ", userId='" + userId + '\'' +
-                ", timestamp=" + timestamp +
-                ", httpMethod='" + httpMethod + '\'' +
+                ", timestamp=" + getTimestamp() +
+                ", httpMethod='" + getHttpMethod() + '\'' +
                 ", resource='" + resource + '\'' +
-                ", httpProtocol='" + httpProtocol + '\'' +
+                ", httpProtocol='" + getHttpProtocol() + '\'' +
                 ", httpStatusCode=" + httpStatusCode +
                 ", responseSize=" + responseSize +
+                ", source='" + source + '\'' +
                 '}';
     }
 
     public String getHttpProtocol() {
-        return httpProtocol;
+        return httpProtocolCode != NO_CODE ? HTTPProtocol.fromCode(httpProtocolCode).getText() : httpProtocolText;
+    }
+
+    /**
+     * @return the HTTP protocol, or null if it is not one of the known protocols (see {@link #getHttpProtocol()}).
+     */
+    public HTTPProtocol getHttpProtocolCode() {
+        return httpProtocolCode != NO_CODE ? HTTPProtocol.fromCode(httpProtocolCode) : null;
     }
 
     public int getHttpStatusCode() {
@@ -108,17 +191,62 @@ public class CLFLogEntry {
         return responseSize;
     }
 
+    public String getSource() {
+        return source;
+    }
+
     public CLFLogEntry(String remoteHost, String userIdentifier, String userId, ZonedDateTime timestamp,
             String httpMethod, String resource, String httpProtocol, int httpStatusCode, int responseSize) {
-        this.remoteHost = remoteHost;
+        this(remoteHost, userIdentifier, userId, timestamp, httpMethod, resource, httpProtocol, httpStatusCode,
+                responseSize, null);
+    }
+
+    public CLFLogEntry(String remoteHost, String userIdentifier, String userId, ZonedDateTime timestamp,
+            String httpMethod, String resource, String httpProtocol, int httpStatusCode, int responseSize,
+            String source) {
+        this(remoteHost == null ? NO_ADDRESS : ConversionUtils.parseIPv4(remoteHost, 0, remoteHost.length()),
+                remoteHost, userIdentifier, userId, timestamp,
+                httpMethod == null ? null : HTTPMethod.fromText(httpMethod, 0, httpMethod.length()), httpMethod,
+                resource,
+                resource == null ? SectionRegistry.NO_ID : SectionRegistry.idOfResourceSection(resource, 0, resource.length()),
+                httpProtocol == null ? null : HTTPProtocol.fromText(httpProtocol, 0, httpProtocol.length()), httpProtocol,
+                httpStatusCode, responseSize, source);
+    }
+
+    /**
+     * Constructor from already encoded values (used by the parser, which encodes them directly from the log line).
+     *
+     * @param remoteAddress the packed IPv4 address, or -1.
+     * @param remoteHost the remote host; only kept when it is not an IPv4 address.
+     * @param method the known method, or null.
+     * @param methodText the method; only kept when it is not a known one.
+     * @param sectionId the id of the resource's section.
+     * @param protocol the known protocol, or null.
+     * @param protocolText the protocol; only kept when it is not a known one.
+     */
+    CLFLogEntry(long remoteAddress, String remoteHost, String userIdentifier, String userId, ZonedDateTime timestamp,
+            HTTPMethod method, String methodText, String resource, int sectionId, HTTPProtocol protocol,
+            String protocolText, int httpStatusCode, int responseSize, String source) {
+        this.remoteAddress = remoteAddress;
+        this.remoteHostText = remoteAddress == NO_ADDRESS ? remoteHost : null;
         this.userIdentifier = userIdentifier;
         this.userId = userId;
-        this.timestamp = timestamp;
-        this.httpMethod = httpMethod;
+        if (timestamp == null) {
+            this.timestampMillis = NO_TIMESTAMP;
+            this.zoneOffsetSeconds = 0;
+        } else {
+            this.timestampMillis = timestamp.toEpochSecond() * 1000 + timestamp.getNano() / 1_000_000;
+            this.zoneOffsetSeconds = timestamp.getOffset().getTotalSeconds();
+        }
+        this.httpMethodCode = method != null ? (byte) method.ordinal() : NO_CODE;
+        this.httpMethodText = method != null ? null : methodText;
         this.resource = resource;
-        this.httpProtocol = httpProtocol;
+        this.sectionId = sectionId;
+        this.httpProtocolCode = protocol != null ? (byte) protocol.ordinal() : NO_CODE;
+        this.httpProtocolText = protocol != null ? null : protocolText;
         this.httpStatusCode = httpStatusCode;
         this.responseSize = responseSize;
+        this.source = source;
     }
 
     @Override
@@ -128,19 +256,33 @@ public class CLFLogEntry {
 
         CLFLogEntry that = (CLFLogEntry) o;
 
-        if (getHttpStatusCode() != that.getHttpStatusCode()) return false;
-        if (getResponseSize() != that.getResponseSize()) return false;
-        if (getRemoteHost() != null ? !getRemoteHost().equals(that.getRemoteHost()) : that.getRemoteHost() != null)
+        // the encoding of a value is unique, so the encoded fields can be compared directly.
+        if (remoteAddress != that.remoteAddress) return false;
+        if (timestampMillis != that.timestampMillis) return false;
+        if (zoneOffsetSeconds != that.zoneOffsetSeconds) return false;
+        if (httpMethodCode != that.httpMethodCode) return false;
+        if (httpProtocolCode != that.httpProtocolCode) return false;
+        if (httpStatusCode != that.httpStatusCode) return false;
+        if (responseSize != that.responseSize) return false;
+        if (remoteHostText != null ? !remoteHostText.equals(that.remoteHostText) : that.remoteHostText != null)
             return false;
-        if (getUserIdentifier() != null ? !getUserIdentifier().equals(that.getUserIdentifier()) : that.getUserIdentifier() != null)
+        if (userIdentifier != null ? !userIdentifier.equals(that.userIdentifier) : that.userIdentifier != null)
             return false;
-        if (getUserId() != null ? !getUserId().equals(that.getUserId()) : that.getUserId() != null) return false;
-        if (getTimestamp() != null ? !getTimestamp().equals(that.getTimestamp()) : that.getTimestamp() != null)
+        if (userId != null ? !userId.equals(that.userId) : that.userId != null) return false;
+        if (httpMethodText != null ? !httpMethodText.equals(that.httpMethodText) : that.httpMethodText != null)
             return false;
-        if (getHttpMethod() != null ? !getHttpMethod().equals(that.getHttpMethod()) : that.getHttpMethod() != null)
-            return false;
-        if (getResource() != null ? !getResource().equals(that.getResource()) : that.getResource() != null)
-            return false;
-        return getHttpProtocol() != null ? getHttpProtocol().equals(that.getHttpProtocol()) : that.getHttpProtocol() == null;
+        if (resource != null ? !resource.equals(that.resource) : that.resource != null) return false;
+        if (source != null ? !source.equals(that.source) : that.source != null) return false;
+        return httpProtocolText != null ? httpProtocolText.equals(that.httpProtocolText) : that.httpProtocolText == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(remoteAddress);
+        result = 31 * result + Long.hashCode(timestampMillis);
+        result = 31 * result + httpStatusCode;
+        result = 31 * result + responseSize;
+        result = 31 * result + (resource != null ? resource.hashCode() : 0);
+        return result;
     }
-}
\ No newline at end of file
+}
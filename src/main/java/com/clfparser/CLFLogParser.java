@@ -1,15 +1,22 @@
 package com.clfparser;
 
 import com.utils.ConversionUtils;
+import com.utils.SectionRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.DateTimeException;
 import java.time.ZonedDateTime;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Parser for log lines.
+ *
+ * The line is scanned once, from left to right, without regular expression; it accepts exactly the lines matched by
+ * the former pattern (more info on what exactly each part is doing here: https://en.wikipedia.org/wiki/Common_Log_Format#Example) :
+ * <pre>
+ * ^(\S+) (\S+) (\S+) \[([\w:./]+\s[+\-]\d{4})\] "(\S+) (\S+) (\S+)" (\S+) (\S+)(.)*$
+ * </pre>
+ * with Unicode character classes. Malformed lines are reported by a null entry, never by an exception.
  */
 public class CLFLogParser {
     /**
@@ -18,69 +25,282 @@ public class CLFLogParser {
     private static Logger logger = LogManager.getLogger(CLFLogParser.class);
 
     /**
-     * Pattern used to parse CLF logs; more info on what exactly each part is doing here: https://en.wikipedia.org/wiki/Common_Log_Format#Example
+     * Value of a missing field.
      */
-    private static final Pattern REGEX = Pattern
-            .compile("^(\\S+) (\\S+) (\\S+) \\[([\\w:./]+\\s[+\\-]\\d{4})\\] \"(\\S+) (\\S+) (\\S+)\" (\\S+) (\\S+)(.)*$",
-                    Pattern.UNICODE_CHARACTER_CLASS);
+    private static final String DASH = "-";
 
+    /**
+     * Run parser on a line.
+     *
+     * @param line a full log line (from first character to line ending character(s)
+     * @return an entry object containing all log line parameters, or null if the line is malformed
+     */
+    public static CLFLogEntry parse(final String line) {
+        return parse(line, null);
+    }
 
     /**
-     * Run parser and apply pattern
+     * Run parser on a line.
      *
      * @param line a full log line (from first character to line ending character(s)
-     * @return an entry object containing all log line parameters
-     * @throws Exception
+     * @param source the log file the line was read from (null when a single file is monitored)
+     * @return an entry object containing all log line parameters, or null if the line is malformed
      */
-    public static CLFLogEntry parse(final String line) throws Exception {
-        logger.debug("Parsing log file [" + line + "]");
-
-        final Matcher matcher = REGEX.matcher(line);
-        if (matcher.find()) {
-            logger.debug("Log parser found following parameters:");
-            for (int i = 0; i <= matcher.groupCount(); i++) {
-                logger.debug("Group " + i + ": " + matcher.group(i));
-            }
+    public static CLFLogEntry parse(final String line, final String source) {
+        if (line == null) {
+            return null;
+        }
+        final int length = line.length();
 
-            try {
-                return new CLFLogEntry(
-                        matcher.group(1),
-                        matcher.group(2),
-                        matcher.group(3),
-                        parseDate(matcher.group(4)),
-                        matcher.group(5),
-                        matcher.group(6),
-                        matcher.group(7),
-                        parseInt(matcher.group(8)),
-                        parseInt(matcher.group(9)));
-            } catch (final Exception exception) {
-                logger.warn("Log line failed to parse correctly: " + exception.getMessage());
+        // remote host, user identifier & user id, each followed by a space.
+        final int remoteHostEnd = skipNonWhitespace(line, 0);
+        if (!isFieldFollowedBy(line, 0, remoteHostEnd, ' ')) {
+            return malformed(line, "remote host");
+        }
+        final int userIdentifierEnd = skipNonWhitespace(line, remoteHostEnd + 1);
+        if (!isFieldFollowedBy(line, remoteHostEnd + 1, userIdentifierEnd, ' ')) {
+            return malformed(line, "user identifier");
+        }
+        final int userIdEnd = skipNonWhitespace(line, userIdentifierEnd + 1);
+        if (!isFieldFollowedBy(line, userIdentifierEnd + 1, userIdEnd, ' ')) {
+            return malformed(line, "user id");
+        }
+
+        // [date zone] : [\w:./]+ then one white space, a sign and four digits.
+        final int dateStart = userIdEnd + 2;
+        if (dateStart >= length || line.charAt(userIdEnd + 1) != '[') {
+            return malformed(line, "date");
+        }
+        int position = dateStart;
+        while (position < length && isDateCharacter(line.codePointAt(position))) {
+            position += Character.charCount(line.codePointAt(position));
+        }
+        if (position == dateStart || position + 7 > length || !isWhitespace(line.charAt(position))) {
+            return malformed(line, "date");
+        }
+        position++;
+        if (line.charAt(position) != '+' && line.charAt(position) != '-') {
+            return malformed(line, "time zone");
+        }
+        position++;
+        for (int digit = 0; digit < 4; digit++, position++) {
+            if (!Character.isDigit(line.charAt(position))) {
+                return malformed(line, "time zone");
             }
         }
+        final int dateEnd = position;
+        if (dateEnd + 2 >= length || line.charAt(dateEnd) != ']' || line.charAt(dateEnd + 1) != ' ' ||
+                line.charAt(dateEnd + 2) != '"') {
+            return malformed(line, "date");
+        }
+
+        // "method resource protocol" : the protocol is the last field before a quote followed by a space.
+        final int methodStart = dateEnd + 3;
+        final int methodEnd = skipNonWhitespace(line, methodStart);
+        if (!isFieldFollowedBy(line, methodStart, methodEnd, ' ')) {
+            return malformed(line, "HTTP method");
+        }
+        final int resourceEnd = skipNonWhitespace(line, methodEnd + 1);
+        if (!isFieldFollowedBy(line, methodEnd + 1, resourceEnd, ' ')) {
+            return malformed(line, "resource");
+        }
+        final int protocolRunEnd = skipNonWhitespace(line, resourceEnd + 1);
+        final int protocolEnd = protocolRunEnd - 1;
+        if (protocolEnd <= resourceEnd + 1 || line.charAt(protocolEnd) != '"' ||
+                !isFieldFollowedBy(line, resourceEnd + 1, protocolRunEnd, ' ')) {
+            return malformed(line, "HTTP protocol");
+        }
+
+        // status code & response size, then anything up to the end of the line.
+        final int statusEnd = skipNonWhitespace(line, protocolRunEnd + 1);
+        if (!isFieldFollowedBy(line, protocolRunEnd + 1, statusEnd, ' ')) {
+            return malformed(line, "HTTP status");
+        }
+        final int sizeEnd = skipNonWhitespace(line, statusEnd + 1);
+        if (sizeEnd == statusEnd + 1 || !isValidLineEnd(line, sizeEnd)) {
+            return malformed(line, "response size");
+        }
+
+        final long httpStatusCode = parseInt(line, protocolRunEnd + 1, statusEnd);
+        final long responseSize = parseInt(line, statusEnd + 1, sizeEnd);
+        if (httpStatusCode == Long.MIN_VALUE || responseSize == Long.MIN_VALUE) {
+            return malformed(line, "HTTP status or response size");
+        }
+
+        final ZonedDateTime timestamp;
+        try {
+            timestamp = ConversionUtils.parseDate(line, dateStart, dateEnd);
+        } catch (final DateTimeException exception) {
+            return malformed(line, "date (" + exception.getMessage() + ")");
+        }
+
+        // the method, protocol, IPv4 address and section are encoded directly from the line; a text copy is only
+        // made for the values which have no compact form.
+        final long remoteAddress = ConversionUtils.parseIPv4(line, 0, remoteHostEnd);
+        final HTTPMethod method = HTTPMethod.fromText(line, methodStart, methodEnd);
+        final HTTPProtocol protocol = HTTPProtocol.fromText(line, resourceEnd + 1, protocolEnd);
+        return new CLFLogEntry(
+                remoteAddress,
+                remoteAddress < 0 ? field(line, 0, remoteHostEnd) : null,
+                field(line, remoteHostEnd + 1, userIdentifierEnd),
+                field(line, userIdentifierEnd + 1, userIdEnd),
+                timestamp,
+                method,
+                method == null ? line.substring(methodStart, methodEnd) : null,
+                line.substring(methodEnd + 1, resourceEnd),
+                SectionRegistry.idOfResourceSection(line, methodEnd + 1, resourceEnd),
+                protocol,
+                protocol == null ? line.substring(resourceEnd + 1, protocolEnd) : null,
+                (int) httpStatusCode,
+                (int) responseSize,
+                source);
+    }
+
+    /**
+     * Report a malformed line.
+     * @param line the line.
+     * @param field the first field which could not be read.
+     * @return null.
+     */
+    private static CLFLogEntry malformed(final String line, final String field) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Malformed log line (invalid " + field + ") [" + line + "]");
+        }
         return null;
     }
 
     /**
-     * Special treatment for dashes "-".
-     * @param value string representation of int.
-     * @return int value of string.
+     * @param line the line.
+     * @param from first character of the field (inclusive).
+     * @param to last character of the field (exclusive).
+     * @return the field's value; missing values share the same "-" instance.
      */
-    private static Integer parseInt(final String value) {
-        if (value == null || "-".equals(value)) {
-            return 0;
+    private static String field(final String line, final int from, final int to) {
+        if (to - from == 1 && line.charAt(from) == '-') {
+            return DASH;
         }
-        return Integer.parseInt(value);
+        return line.substring(from, to);
     }
 
     /**
-     * Special treatment for dashes "-".
-     * @param value string representation of date.
-     * @return date.
+     * @param line the line.
+     * @param from position of the first character.
+     * @return the position of the first white space character (or end of line) from the given position.
      */
-    private static ZonedDateTime parseDate(final String value) {
-        if (value == null || "-".equals(value)) {
-            return null;
+    private static int skipNonWhitespace(final String line, final int from) {
+        int position = from;
+        while (position < line.length() && !isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * @return true if the field is not empty and is followed by the separator.
+     */
+    private static boolean isFieldFollowedBy(final String line, final int from, final int to, final char separator) {
+        return to > from && to < line.length() && line.charAt(to) == separator;
+    }
+
+    /**
+     * The end of the line may contain anything but line terminators, except for a single final one.
+     * @param line the line.
+     * @param from position following the last field.
+     * @return true if the rest of the line is valid.
+     */
+    private static boolean isValidLineEnd(final String line, final int from) {
+        int end = line.length();
+        if (end > from && isLineTerminator(line.charAt(end - 1))) {
+            end--;
+            if (line.charAt(end) == '\n' && end > from && line.charAt(end - 1) == '\r') {
+                end--;
+            }
+        }
+        for (int position = from; position < end; position++) {
+            if (isLineTerminator(line.charAt(position))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true for the line terminators of regular expressions.
+     */
+    private static boolean isLineTerminator(final char character) {
+        return character == '\n' || character == '\r' || character == 0x0085 ||
+                character == 0x2028 || character == 0x2029;
+    }
+
+    /**
+     * @return true for the Unicode white space characters (\s with Unicode character classes).
+     */
+    private static boolean isWhitespace(final char character) {
+        if (character <= ' ') {
+            return character == ' ' || (character >= '\t' && character <= '\r');
+        }
+        if (character < 0x0085) {
+            return false;
+        }
+        return character == 0x0085 || character == 0x00A0 || character == 0x1680 ||
+                (character >= 0x2000 && character <= 0x200A) || character == 0x2028 || character == 0x2029 ||
+                character == 0x202F || character == 0x205F || character == 0x3000;
+    }
+
+    /**
+     * @return true for the characters of the date part ([\w:./] with Unicode character classes).
+     */
+    private static boolean isDateCharacter(final int codePoint) {
+        if (codePoint == ':' || codePoint == '.' || codePoint == '/') {
+            return true;
+        }
+        if (Character.isAlphabetic(codePoint) || Character.isDigit(codePoint)) {
+            return true;
+        }
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.CONNECTOR_PUNCTUATION:
+                return true;
+            default:
+                // zero width non-joiner & joiner (join control characters).
+                return codePoint == 0x200C || codePoint == 0x200D;
+        }
+    }
+
+    /**
+     * Special treatment for dashes "-"; otherwise same rules as {@link Integer#parseInt(String)}, without exception.
+     * @param line the line.
+     * @param from first character of the value (inclusive).
+     * @param to last character of the value (exclusive).
+     * @return int value of the string, or Long.MIN_VALUE if it is not a valid int.
+     */
+    private static long parseInt(final String line, final int from, final int to) {
+        if (to - from == 1 && line.charAt(from) == '-') {
+            return 0;
+        }
+        int position = from;
+        boolean negative = false;
+        if (line.charAt(position) == '-' || line.charAt(position) == '+') {
+            negative = line.charAt(position) == '-';
+            position++;
+        }
+        if (position == to) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; position < to; position++) {
+            final int digit = Character.digit(line.charAt(position), 10);
+            if (digit < 0) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return Long.MIN_VALUE;
+            }
         }
-        return ConversionUtils.parseDate(value);
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE || value < Integer.MIN_VALUE ? Long.MIN_VALUE : value;
     }
-}
\ No newline at end of file
+}
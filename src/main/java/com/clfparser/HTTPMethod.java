@@ -0,0 +1,35 @@
+package com.clfparser;
+
+/**
+ * HTTP methods (https://developer.mozilla.org/en-US/docs/Web/HTTP/Methods), stored as small codes in the log entries.
+ */
+public enum HTTPMethod {
+    GET, POST, PUT, DELETE, HEAD, OPTIONS, PATCH, CONNECT, TRACE;
+
+    private static final HTTPMethod[] VALUES = values();
+
+    /**
+     * @param code the code of a method (see {@link #ordinal()}).
+     * @return the method.
+     */
+    static HTTPMethod fromCode(final byte code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Find the method written in a part of a text.
+     * @param text the text.
+     * @param from first character (inclusive).
+     * @param to last character (exclusive).
+     * @return the method, or null if the text is not one of the known methods.
+     */
+    public static HTTPMethod fromText(final String text, final int from, final int to) {
+        for (final HTTPMethod method : VALUES) {
+            final String name = method.name();
+            if (name.length() == to - from && text.regionMatches(from, name, 0, name.length())) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
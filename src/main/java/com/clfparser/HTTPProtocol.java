@@ -0,0 +1,50 @@
+package com.clfparser;
+
+/**
+ * HTTP protocol versions found in the request lines, stored as small codes in the log entries.
+ */
+public enum HTTPProtocol {
+    HTTP_1_0("HTTP/1.0"), HTTP_1_1("HTTP/1.1"), HTTP_2_0("HTTP/2.0"), HTTP_2("HTTP/2"), HTTP_3("HTTP/3");
+
+    private static final HTTPProtocol[] VALUES = values();
+
+    /**
+     * The protocol as written in the request line.
+     */
+    private final String text;
+
+    HTTPProtocol(final String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return the protocol as written in the request line.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @param code the code of a protocol (see {@link #ordinal()}).
+     * @return the protocol.
+     */
+    static HTTPProtocol fromCode(final byte code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Find the protocol written in a part of a text.
+     * @param text the text.
+     * @param from first character (inclusive).
+     * @param to last character (exclusive).
+     * @return the protocol, or null if the text is not one of the known protocols.
+     */
+    public static HTTPProtocol fromText(final String text, final int from, final int to) {
+        for (final HTTPProtocol protocol : VALUES) {
+            if (protocol.text.length() == to - from && text.regionMatches(from, protocol.text, 0, protocol.text.length())) {
+                return protocol;
+            }
+        }
+        return null;
+    }
+}
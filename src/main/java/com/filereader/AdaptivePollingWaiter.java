@@ -0,0 +1,56 @@
+package com.filereader;
+
+/**
+ * Polling strategy whose interval tightens while the file keeps growing and backs off while it is idle.
+ *
+ * Each read pass returning data halves the interval (down to the minimum); each empty pass doubles it
+ * (up to the maximum).
+ */
+public class AdaptivePollingWaiter implements FileChangeWaiter {
+    /**
+     * Shortest interval between two reads, in milliseconds.
+     */
+    private final long minInterval;
+
+    /**
+     * Longest interval between two reads, in milliseconds.
+     */
+    private final long maxInterval;
+
+    /**
+     * Current interval between two reads, in milliseconds.
+     */
+    private long currentInterval;
+
+    /**
+     * Constructor.
+     * @param minInterval shortest interval between two reads (used under heavy write load), in milliseconds.
+     * @param maxInterval longest interval between two reads (used when the file is idle), in milliseconds.
+     */
+    public AdaptivePollingWaiter(final long minInterval, final long maxInterval) {
+        this.minInterval = Math.max(1, Math.min(minInterval, maxInterval));
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.currentInterval = this.maxInterval;
+    }
+
+    @Override
+    public void awaitChange() throws InterruptedException {
+        Thread.sleep(currentInterval);
+    }
+
+    @Override
+    public void onReadPass(final long bytesRead) {
+        if (bytesRead > 0) {
+            currentInterval = Math.max(minInterval, currentInterval / 2);
+        } else {
+            currentInterval = Math.min(maxInterval, currentInterval * 2);
+        }
+    }
+
+    /**
+     * @return the current interval between two reads, in milliseconds.
+     */
+    public long getCurrentInterval() {
+        return currentInterval;
+    }
+}
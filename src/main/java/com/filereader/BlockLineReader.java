@@ -0,0 +1,223 @@
+package com.filereader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a file channel by large blocks and splits its content into lines directly on the raw bytes.
+ *
+ * Each line is decoded from UTF-8 exactly once; a line which is not yet terminated at the end of the
+ * available data is kept aside and completed by the next read.
+ *
+ * @Note lines are terminated by '\n'; a '\r' preceding the terminator is dropped ("\r\n" endings).
+ */
+public class BlockLineReader {
+    /**
+     * Default size of the blocks read from the file channel, in bytes.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * Initial size of the buffer holding the line being assembled, in bytes.
+     */
+    private static final int INITIAL_LINE_BUFFER_SIZE = 1024;
+
+    /**
+     * Direct buffer receiving the blocks read from the file.
+     */
+    private final ByteBuffer block;
+
+    /**
+     * Bytes of the line currently being assembled (possibly carried from a previous read).
+     */
+    private byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+
+    /**
+     * Number of valid bytes in the {@link #lineBuffer}.
+     */
+    private int lineLength;
+
+    /**
+     * Position in the file up to which the bytes have been consumed (including the pending partial line); volatile as
+     * the lag of the reading is read from other threads (it is written once per block).
+     */
+    private volatile long position;
+
+    /**
+     * Position in the file of the first byte of the last emitted line (-1 if no line was emitted).
+     */
+    private long lastLineStartPosition = -1;
+
+    /**
+     * Lines of the block being split, when they are emitted by batches.
+     */
+    private final List<String> batch = new ArrayList<>();
+
+    /**
+     * Collects the lines into the {@link #batch}.
+     */
+    private final Consumer<String> batchCollector = batch::add;
+
+    /**
+     * Constructor.
+     * @param blockSize size of the blocks read from the file, in bytes.
+     * @param startPosition position in the file from which the reading starts.
+     */
+    public BlockLineReader(final int blockSize, final long startPosition) {
+        this.block = ByteBuffer.allocateDirect(blockSize);
+        this.position = startPosition;
+    }
+
+    /**
+     * Read everything available in the channel from the current position and emit all complete lines.
+     *
+     * @param channel the file channel; must be open for reading.
+     * @param lineConsumer receives the decoded lines (without their terminators), in file order.
+     * @return the number of bytes read.
+     * @throws IOException if reading from the channel fails.
+     */
+    public long readAvailable(final FileChannel channel, final Consumer<String> lineConsumer) throws IOException {
+        long totalBytesRead = 0;
+        int bytesRead;
+
+        block.clear();
+        while ((bytesRead = channel.read(block, position)) > 0) {
+            position += bytesRead;
+            totalBytesRead += bytesRead;
+            block.flip();
+            splitLines(lineConsumer);
+            block.clear();
+        }
+        return totalBytesRead;
+    }
+
+    /**
+     * Read everything available in the channel from the current position and emit the complete lines by batches, one
+     * batch per block read.
+     *
+     * @param channel the file channel; must be open for reading.
+     * @param batchConsumer receives the decoded lines of each block (without their terminators), in file order; the
+     *                      list is reused for the next block once the consumer returns, which may modify it meanwhile.
+     * @return the number of bytes read.
+     * @throws IOException if reading from the channel fails.
+     */
+    public long readAvailableBatches(final FileChannel channel, final Consumer<List<String>> batchConsumer)
+            throws IOException {
+        long totalBytesRead = 0;
+        int bytesRead;
+
+        block.clear();
+        while ((bytesRead = channel.read(block, position)) > 0) {
+            position += bytesRead;
+            totalBytesRead += bytesRead;
+            block.flip();
+            splitLines(batchCollector);
+            block.clear();
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+                batch.clear();
+            }
+        }
+        return totalBytesRead;
+    }
+
+    /**
+     * Split the block content into lines; the unterminated remainder is appended to the line buffer.
+     * @param lineConsumer receives the decoded lines.
+     */
+    private void splitLines(final Consumer<String> lineConsumer) {
+        final int limit = block.limit();
+        final long blockStartPosition = position - limit;
+        int lineStart = 0;
+
+        for (int index = 0; index < limit; index++) {
+            if (block.get(index) == '\n') {
+                appendToLine(lineStart, index);
+                lastLineStartPosition = blockStartPosition + index - lineLength;
+                emitLine(lineConsumer);
+                lineStart = index + 1;
+            }
+        }
+        appendToLine(lineStart, limit);
+    }
+
+    /**
+     * Copy a range of the block into the line buffer.
+     * @param from first byte (inclusive).
+     * @param to last byte (exclusive).
+     */
+    private void appendToLine(final int from, final int to) {
+        final int length = to - from;
+        if (length <= 0) {
+            return;
+        }
+        if (lineLength + length > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + length));
+        }
+        block.position(from);
+        block.get(lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    /**
+     * Decode the assembled line and hand it to the consumer.
+     * @param lineConsumer the consumer.
+     */
+    private void emitLine(final Consumer<String> lineConsumer) {
+        int length = lineLength;
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        lineConsumer.accept(new String(lineBuffer, 0, length, StandardCharsets.UTF_8));
+        lineLength = 0;
+    }
+
+    /**
+     * Emit the pending unterminated line, if any (used when the end of the data is known to be final).
+     * @param lineConsumer receives the decoded line.
+     */
+    public void flushPartialLine(final Consumer<String> lineConsumer) {
+        if (lineLength > 0) {
+            lastLineStartPosition = position - lineLength;
+            emitLine(lineConsumer);
+        }
+    }
+
+    /**
+     * Restart the reading from another position, discarding any pending partial line.
+     * @param newPosition the position in the file.
+     */
+    public void reset(final long newPosition) {
+        position = newPosition;
+        lineLength = 0;
+        lastLineStartPosition = -1;
+    }
+
+    /**
+     * @return the position in the file up to which the bytes have been read.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the position in the file of the first byte of the last emitted line (-1 if none was emitted since the
+     * last reset).
+     */
+    public long getLastLineStartPosition() {
+        return lastLineStartPosition;
+    }
+
+    /**
+     * @return the position in the file following the last emitted line (i.e. excluding the pending partial line).
+     */
+    public long getLineBoundaryPosition() {
+        return position - lineLength;
+    }
+}
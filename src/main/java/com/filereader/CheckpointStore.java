@@ -0,0 +1,122 @@
+package com.filereader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Small local file keeping the {@link ReadCheckpoint} of every tailed log file, so the reading can resume where it
+ * stopped after a restart.
+ *
+ * Checkpoints are updated in memory after each read pass and written to disk when {@link #flush()} is called; the
+ * file is replaced atomically so a crash while writing never leaves a corrupted checkpoint behind.
+ */
+public class CheckpointStore {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(CheckpointStore.class);
+
+    private static final String FILE_KEY = ".fileKey";
+    private static final String OFFSET = ".offset";
+    private static final String LAST_LINE_OFFSET = ".lastLineOffset";
+    private static final String LAST_LINE_HASH = ".lastLineHash";
+
+    /**
+     * The checkpoint file on disk.
+     */
+    private final Path checkpointFile;
+
+    /**
+     * Checkpoints of all the log files, indexed by their absolute path.
+     */
+    private final Properties checkpoints = new Properties();
+
+    /**
+     * Whether some checkpoints were updated since the last write to disk.
+     */
+    private boolean dirty = false;
+
+    /**
+     * Constructor; loads the existing checkpoints, if any.
+     * @param checkpointFile the checkpoint file on disk (created on the first flush).
+     */
+    public CheckpointStore(final Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        try (InputStream input = Files.newInputStream(checkpointFile)) {
+            checkpoints.load(input);
+        } catch (final NoSuchFileException e) {
+            logger.info("No read checkpoint file found at " + checkpointFile + "; it will be created.");
+        } catch (final IOException | IllegalArgumentException e) {
+            logger.error("Cannot load read checkpoints from " + checkpointFile + " (" + e.getMessage() + "); ignoring them.");
+            checkpoints.clear();
+        }
+    }
+
+    /**
+     * @param logFile the log file.
+     * @return the last checkpoint of the log file, or null if there is none (or if it is not valid).
+     */
+    public synchronized ReadCheckpoint get(final Path logFile) {
+        final String prefix = logFile.toAbsolutePath().toString();
+        final String fileKey = checkpoints.getProperty(prefix + FILE_KEY);
+        if (fileKey == null) {
+            return null;
+        }
+        try {
+            return new ReadCheckpoint(fileKey,
+                    Long.parseLong(checkpoints.getProperty(prefix + OFFSET)),
+                    Long.parseLong(checkpoints.getProperty(prefix + LAST_LINE_OFFSET)),
+                    Long.parseLong(checkpoints.getProperty(prefix + LAST_LINE_HASH)));
+        } catch (final NumberFormatException e) {
+            logger.error("Invalid read checkpoint for " + prefix + "; ignoring it.");
+            return null;
+        }
+    }
+
+    /**
+     * Update (in memory) the checkpoint of a log file.
+     * @param logFile the log file.
+     * @param checkpoint its new checkpoint; must not be null.
+     */
+    public synchronized void update(final Path logFile, final ReadCheckpoint checkpoint) {
+        final String prefix = logFile.toAbsolutePath().toString();
+        checkpoints.setProperty(prefix + FILE_KEY, checkpoint.getFileKey());
+        checkpoints.setProperty(prefix + OFFSET, Long.toString(checkpoint.getOffset()));
+        checkpoints.setProperty(prefix + LAST_LINE_OFFSET, Long.toString(checkpoint.getLastLineOffset()));
+        checkpoints.setProperty(prefix + LAST_LINE_HASH, Long.toString(checkpoint.getLastLineHash()));
+        dirty = true;
+    }
+
+    /**
+     * Write the checkpoints to disk if they changed since the last write.
+     */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        final Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(temporaryFile)) {
+                checkpoints.store(output, "HTTP log monitoring read checkpoints");
+            }
+            try {
+                Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+        } catch (final IOException e) {
+            logger.error("Cannot write read checkpoints to " + checkpointFile + " (" + e.getMessage() + ").");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.filereader;
+
+import java.io.Closeable;
+
+/**
+ * Strategy deciding when the tailed log file must be read again.
+ */
+public interface FileChangeWaiter extends Closeable {
+    /**
+     * Block until the file may have changed (or until the strategy decides to check it anyway).
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    void awaitChange() throws InterruptedException;
+
+    /**
+     * Report the outcome of the read pass following the last wake up, so the strategy can adapt.
+     *
+     * @param bytesRead number of bytes read during the pass (0 when the file did not grow).
+     */
+    void onReadPass(long bytesRead);
+
+    /**
+     * Release the resources held by the strategy; does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -3,8 +3,13 @@ package com.filereader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.*;
-import java.util.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 public class FileReader extends Thread {
     /**
@@ -12,11 +17,31 @@ public class FileReader extends Thread {
      */
     Logger logger = LogManager.getLogger(FileReader.class);
 
+    /**
+     * Shortest file sampling interval, used while the file is being written to heavily.
+     */
+    private static final long MIN_SAMPLE_INTERVAL = 20; // in milliseconds.
+
     /**
      * File sampling interval.
      */
     private long sampleInterval = 1000; // in milliseconds.
 
+    /**
+     * Interval between two writes of the read checkpoints to disk.
+     */
+    private static final long CHECKPOINT_FLUSH_INTERVAL = 5000; // in milliseconds.
+
+    /**
+     * Whether the file system's modification events should wake up the reader.
+     */
+    private final boolean watchFileEvents;
+
+    /**
+     * Store of the read checkpoints; null when the reading always starts from the end of the file.
+     */
+    private CheckpointStore checkpointStore;
+
     /**
      * The log file to read.
      */
@@ -27,6 +52,17 @@ public class FileReader extends Thread {
      */
     private Set<LogLineListener> listeners = new HashSet<LogLineListener>();
 
+    /**
+     * Reading state of the file, once the reader is started.
+     */
+    private volatile FileTailer tailer;
+
+    /**
+     * Number of (non blank) lines and of bytes read.
+     */
+    private final LongAdder linesRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
     /**
      * Creates a new log file reader.
      *
@@ -34,8 +70,46 @@ public class FileReader extends Thread {
      * @param sampleInterval How often to check for updates to the log file
      */
     public FileReader(final File file, final long sampleInterval) {
+        this(file, sampleInterval, false);
+    }
+
+    /**
+     * Creates a new log file reader.
+     *
+     * @param file            The file to tail
+     * @param sampleInterval  Longest interval between two checks for updates to the log file
+     * @param watchFileEvents Whether reading is triggered by the file system's modification events (polling is used
+     *                        as a fallback); otherwise the file is polled with an adaptive interval.
+     */
+    public FileReader(final File file, final long sampleInterval, final boolean watchFileEvents) {
         this.logfile = file;
         this.sampleInterval = sampleInterval;
+        this.watchFileEvents = watchFileEvents;
+    }
+
+    /**
+     * @return the strategy deciding when the file is read again.
+     */
+    private FileChangeWaiter createChangeWaiter() {
+        if (watchFileEvents) {
+            try {
+                return new WatchServiceWaiter(logfile.toPath(), MIN_SAMPLE_INTERVAL, sampleInterval);
+            } catch (final IOException | RuntimeException exception) {
+                logger.warn("Cannot watch file " + logfile.getAbsolutePath() + " for modifications (" +
+                        exception.getMessage() + "); falling back to polling.");
+            }
+        }
+        return new AdaptivePollingWaiter(MIN_SAMPLE_INTERVAL, sampleInterval);
+    }
+
+    /**
+     * Enable read checkpoints: the position reached is regularly saved and the reading resumes from it on the next
+     * start, instead of starting from the end of the file. Must be called before the reader is started.
+     *
+     * @param checkpointStore the store of the read checkpoints.
+     */
+    public void setCheckpointStore(final CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
     }
 
     /**
@@ -63,73 +137,107 @@ public class FileReader extends Thread {
         }
     }
 
-    private String convertToUTF8(final String fakeLine) {
-        if (fakeLine == null)
-            return null;
-
-        byte[] bytes = new byte[fakeLine.length()];
-        for (int i = 0; i < fakeLine.length(); i++)
-            bytes[i] = (byte) fakeLine.charAt(i);
-        try {
-            return new String(bytes, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            logger.error("UTF8 parsing error : " + fakeLine);
+    /**
+     * Notify a batch of new lines to listeners.
+     *
+     * @param lines the lines, cannot contain null lines.
+     */
+    protected void notifyNewLines(final List<String> lines) {
+        for (final LogLineListener listener : this.listeners) {
+            listener.newLogFileLines(null, lines);
         }
-        return fakeLine;
     }
 
     /**
      * Start the file reader.
      */
     public void run() {
-        // The file pointer keeps track of where we are in the file
-        long lastPosition = this.logfile.length();
-
-        RandomAccessFile accessFile = null;
+        final FileTailer tailer = new FileTailer(this.logfile.toPath(), checkpointStore, this::notifyLines);
+        final FileChangeWaiter changeWaiter = createChangeWaiter();
         try {
-            accessFile = new RandomAccessFile(logfile, "r");
+            tailer.open();
+            // only published once opened, as the metrics read its lag from other threads.
+            this.tailer = tailer;
+            if (checkpointStore != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(checkpointStore::flush, "checkpoint-flush"));
+            }
+
+            long lastCheckpointFlush = System.currentTimeMillis();
             while (true) {
                 try {
-                    long fileLength = this.logfile.length();
-                    if (fileLength < lastPosition) {
-                        accessFile = new RandomAccessFile(logfile, "r");
-                        lastPosition = 0;
-                    }
-
-                    if (fileLength > lastPosition) {
-                        accessFile.seek(lastPosition);
-                        String line = convertToUTF8(accessFile.readLine());
-
-                        while (line != null) {
-                            if (line.trim().length() > 0) {
-                                this.notifyNewLine(line);
-                            }
-                            line = convertToUTF8(accessFile.readLine());
-                        }
-                        lastPosition = accessFile.getFilePointer();
-                    }
-
-                    sleep(this.sampleInterval);
+                    final long bytes = tailer.readPass();
+                    bytesRead.add(bytes);
+                    changeWaiter.onReadPass(bytes);
                 } catch (IOException e) {
-                    logger.error("Problem while reading from file " + logfile.getAbsolutePath() + "; quitting.");
+                    logger.error("Problem while reading from file " + logfile.getAbsolutePath() + " : " + e.getMessage());
+                }
+
+                if (checkpointStore != null && System.currentTimeMillis() - lastCheckpointFlush >= CHECKPOINT_FLUSH_INTERVAL) {
+                    checkpointStore.flush();
+                    lastCheckpointFlush = System.currentTimeMillis();
+                }
+
+                try {
+                    changeWaiter.awaitChange();
                 } catch (InterruptedException e) {
                     logger.warn("File reader thread was interrupted, ignoring.");
                 }
             }
-        } catch (final FileNotFoundException e) {
+        } catch (final NoSuchFileException e) {
             final String errorMessage = "Cannot find file " + logfile.getAbsolutePath() +
                     ". Please pass the correct file as an argument when launching the application's jar file.";
             logger.error(errorMessage);
             System.out.println(errorMessage);
             System.exit(1);
+        } catch (final IOException e) {
+            logger.error("Cannot open file " + logfile.getAbsolutePath() + "; quitting.");
+            System.exit(1);
         } finally {
-            if (accessFile != null) {
-                try {
-                    accessFile.close();
-                } catch (final IOException e) {
-                    logger.error("Cannot close file correctly.");
-                }
+            changeWaiter.close();
+            try {
+                tailer.close();
+            } catch (final IOException e) {
+                logger.error("Cannot close file correctly.");
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Notify a batch of decoded lines, skipping blank ones.
+     * @param lines the lines.
+     */
+    private void notifyLines(final List<String> lines) {
+        lines.removeIf(line -> line.trim().length() == 0);
+        if (!lines.isEmpty()) {
+            linesRead.add(lines.size());
+            this.notifyNewLines(lines);
+        }
+    }
+
+    /**
+     * @return the number of (non blank) lines read since the reader started.
+     */
+    public long getLinesRead() {
+        return linesRead.sum();
+    }
+
+    /**
+     * @return the number of bytes read since the reader started.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the number of bytes written to the file which have not been read yet; 0 before the reader is started
+     * or if the size of the file cannot be read.
+     */
+    public long getLag() {
+        final FileTailer currentTailer = tailer;
+        try {
+            return currentTailer == null ? 0 : currentTailer.getLag();
+        } catch (final IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.filereader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reading state of a single tailed log file: the open channel, the position reached and the rotation handling.
+ *
+ * Rotation is detected in two ways:
+ * <ul>
+ * <li>rename rotation: the path now designates another file (different file key); the former file is drained up
+ * to its end before switching to the new one, which is then read from its beginning.</li>
+ * <li>copy-truncate rotation: the file became shorter than the position reached; it is read again from its
+ * beginning (lines written between the last read and the copy are only in the copied file).</li>
+ * </ul>
+ *
+ * When a {@link CheckpointStore} is given, the position following the last notified line is recorded after every read
+ * pass, and the reading resumes from it when the tailer is opened again (even if the file was renamed meanwhile, as
+ * long as the former file is still next to the current one).
+ *
+ * The lines are handed over by batches: all the complete lines of a block read from the file at once.
+ */
+public class FileTailer implements Closeable {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(FileTailer.class);
+
+    /**
+     * Path of the tailed log file.
+     */
+    private final Path path;
+
+    /**
+     * Store of the read checkpoints; null if checkpoints are disabled.
+     */
+    private final CheckpointStore checkpointStore;
+
+    /**
+     * Receives the lines read from the file, by batches.
+     */
+    private final Consumer<List<String>> batchConsumer;
+
+    /**
+     * Hands a single line (the last line of a rotated file) over as a batch.
+     */
+    private final Consumer<String> lineConsumer;
+
+    /**
+     * Block reader splitting the file content into lines.
+     */
+    private final BlockLineReader lineReader = new BlockLineReader(BlockLineReader.DEFAULT_BLOCK_SIZE, 0);
+
+    /**
+     * Channel on the file being read (the rotated file while it is drained).
+     */
+    private volatile FileChannel channel;
+
+    /**
+     * Identity of the file being read.
+     */
+    private String fileKey;
+
+    /**
+     * Constructor.
+     * @param path path of the log file.
+     * @param checkpointStore store of the read checkpoints; null to always start from the end of the file.
+     * @param batchConsumer receives the lines read from the file by batches, in file order (see
+     *                      {@link BlockLineReader#readAvailableBatches(FileChannel, Consumer)}).
+     */
+    public FileTailer(final Path path, final CheckpointStore checkpointStore, final Consumer<List<String>> batchConsumer) {
+        this.path = path;
+        this.checkpointStore = checkpointStore;
+        this.batchConsumer = batchConsumer;
+        this.lineConsumer = line -> {
+            // a modifiable batch, as for the blocks.
+            final List<String> batch = new ArrayList<>(1);
+            batch.add(line);
+            batchConsumer.accept(batch);
+        };
+    }
+
+    /**
+     * Open the file and position the reading: after the checkpoint if there is a valid one, at the end of the file
+     * otherwise. A file rotated since the checkpoint was taken is drained first.
+     *
+     * @throws NoSuchFileException if the log file does not exist.
+     * @throws IOException if the file cannot be opened.
+     */
+    public void open() throws IOException {
+        open(false);
+    }
+
+    /**
+     * Open the file and position the reading after the checkpoint if there is a valid one.
+     *
+     * @param fromBeginning without a valid checkpoint, whether the file is read from its beginning (a file created
+     *                      while the application runs) or from its end.
+     * @throws NoSuchFileException if the log file does not exist.
+     * @throws IOException if the file cannot be opened.
+     */
+    public void open(final boolean fromBeginning) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        final ReadCheckpoint checkpoint = checkpointStore == null ? null : checkpointStore.get(path);
+
+        if (checkpoint != null && !checkpoint.getFileKey().equals(fileKey(attributes))) {
+            drainRotatedFile(checkpoint);
+            openCurrentFile(0);
+            updateCheckpoint();
+            logger.info("Log file " + path + " was rotated since the last checkpoint; reading it from its beginning.");
+            return;
+        }
+
+        openCurrentFile(0);
+        if (checkpoint != null && isValid(channel, checkpoint)) {
+            logger.info("Resuming the reading of " + path + " from " + checkpoint);
+            lineReader.reset(checkpoint.getOffset());
+        } else {
+            if (checkpoint != null) {
+                logger.warn("Read checkpoint of " + path + " does not match the file anymore; ignoring it.");
+            }
+            lineReader.reset(fromBeginning ? 0 : channel.size());
+        }
+    }
+
+    /**
+     * Read everything written to the file since the last pass and notify the lines.
+     * @return the number of bytes read.
+     * @throws IOException if the reading fails.
+     */
+    public long readPass() throws IOException {
+        long bytesRead = 0;
+        boolean restarted = false;
+
+        final String currentFileKey = currentFileKey();
+        if (currentFileKey != null && !currentFileKey.equals(fileKey)) {
+            // rename rotation : finish the former file before switching to the new one.
+            bytesRead += lineReader.readAvailableBatches(channel, batchConsumer);
+            lineReader.flushPartialLine(lineConsumer);
+            logger.info("Log file " + path + " was rotated; switching to the new file.");
+            channel.close();
+            openCurrentFile(0);
+            restarted = true;
+        } else if (channel.size() < lineReader.getPosition()) {
+            logger.info("Log file " + path + " was truncated; reading it again from its beginning.");
+            lineReader.reset(0);
+            restarted = true;
+        }
+
+        bytesRead += lineReader.readAvailableBatches(channel, batchConsumer);
+        if (bytesRead > 0 || restarted) {
+            updateCheckpoint();
+        }
+        return bytesRead;
+    }
+
+    /**
+     * @return the number of bytes written to the file which have not been read yet; 0 before the file is opened.
+     * @throws IOException if the size of the file cannot be read.
+     */
+    public long getLag() throws IOException {
+        final FileChannel currentChannel = channel;
+        return currentChannel == null ? 0 : Math.max(0, currentChannel.size() - lineReader.getPosition());
+    }
+
+    /**
+     * @return the path of the tailed log file.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Open the file currently designated by the path.
+     * @param position the position from which the reading starts.
+     * @throws IOException if the file cannot be opened.
+     */
+    private void openCurrentFile(final long position) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileKey = currentFileKey();
+        lineReader.reset(position);
+    }
+
+    /**
+     * Read the end of the file the checkpoint was taken on, if it can still be found next to the log file
+     * (e.g. access.log.1 after access.log was renamed).
+     * @param checkpoint the checkpoint.
+     * @throws IOException if the rotated file cannot be read.
+     */
+    private void drainRotatedFile(final ReadCheckpoint checkpoint) throws IOException {
+        final Path directory = path.toAbsolutePath().getParent();
+        final String baseName = path.getFileName().toString();
+
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(directory,
+                entry -> entry.getFileName().toString().startsWith(baseName))) {
+            for (final Path sibling : siblings) {
+                if (!Files.isRegularFile(sibling) ||
+                        !checkpoint.getFileKey().equals(fileKey(Files.readAttributes(sibling, BasicFileAttributes.class)))) {
+                    continue;
+                }
+                try (FileChannel rotatedChannel = FileChannel.open(sibling, StandardOpenOption.READ)) {
+                    if (isValid(rotatedChannel, checkpoint)) {
+                        logger.info("Draining rotated log file " + sibling + " from " + checkpoint);
+                        lineReader.reset(checkpoint.getOffset());
+                        lineReader.readAvailableBatches(rotatedChannel, batchConsumer);
+                        lineReader.flushPartialLine(lineConsumer);
+                    }
+                }
+                return;
+            }
+        }
+        logger.warn("Rotated log file of " + path + " not found; lines written to it since the last checkpoint are lost.");
+    }
+
+    /**
+     * Check that a checkpoint describes the file: the last notified line must still be found at the same place.
+     * @param fileChannel channel on the file.
+     * @param checkpoint the checkpoint.
+     * @return true if the reading can resume from the checkpoint's offset.
+     * @throws IOException if the file cannot be read.
+     */
+    private static boolean isValid(final FileChannel fileChannel, final ReadCheckpoint checkpoint) throws IOException {
+        final long offset = checkpoint.getOffset();
+        final long lastLineOffset = checkpoint.getLastLineOffset();
+        if (offset > fileChannel.size()) {
+            return false;
+        }
+        if (lastLineOffset < 0) {
+            return offset == 0;
+        }
+        if (lastLineOffset > offset || offset - lastLineOffset > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        final Long lastLineHash = hashRange(fileChannel, lastLineOffset, offset);
+        return lastLineHash != null && lastLineHash == checkpoint.getLastLineHash();
+    }
+
+    /**
+     * Hash a range of the file (see {@link ReadCheckpoint#hash(byte[], int, int)}).
+     * @param fileChannel channel on the file.
+     * @param from first byte (inclusive).
+     * @param to last byte (exclusive).
+     * @return the hash, or null if the file ends before the end of the range.
+     * @throws IOException if the file cannot be read.
+     */
+    private static Long hashRange(final FileChannel fileChannel, final long from, final long to) throws IOException {
+        final ByteBuffer range = ByteBuffer.allocate((int) (to - from));
+        while (range.hasRemaining()) {
+            if (fileChannel.read(range, from + range.position()) < 0) {
+                return null;
+            }
+        }
+        return ReadCheckpoint.hash(range.array(), 0, range.limit());
+    }
+
+    /**
+     * Record (in memory) the position following the last notified line.
+     * @throws IOException if the last line cannot be read back for hashing.
+     */
+    private void updateCheckpoint() throws IOException {
+        if (checkpointStore == null) {
+            return;
+        }
+        final long offset = lineReader.getLineBoundaryPosition();
+        final long lastLineOffset = lineReader.getLastLineStartPosition();
+        if (lastLineOffset < 0) {
+            // nothing notified since the file was (re)opened; only the beginning of a file can be recorded as is.
+            if (offset == 0) {
+                checkpointStore.update(path, new ReadCheckpoint(fileKey, 0, -1, 0));
+            }
+            return;
+        }
+        if (offset - lastLineOffset > Integer.MAX_VALUE) {
+            return;
+        }
+
+        final Long lastLineHash = hashRange(channel, lastLineOffset, offset);
+        if (lastLineHash != null) {
+            checkpointStore.update(path, new ReadCheckpoint(fileKey, offset, lastLineOffset, lastLineHash));
+        }
+    }
+
+    /**
+     * @return the identity of the file currently designated by the path, or null if there is none.
+     */
+    private String currentFileKey() {
+        try {
+            return fileKey(Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (final IOException e) {
+            // the file may be missing for a short time during a rotation.
+            return null;
+        }
+    }
+
+    /**
+     * @param attributes the file attributes.
+     * @return the identity of the file (inode & device on Unix, creation time when no file key is available).
+     */
+    private static String fileKey(final BasicFileAttributes attributes) {
+        final Object key = attributes.fileKey();
+        return key != null ? key.toString() : "created:" + attributes.creationTime().toMillis();
+    }
+}
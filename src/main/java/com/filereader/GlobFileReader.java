@@ -0,0 +1,345 @@
+package com.filereader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tails all the log files matching a glob pattern (e.g. /var/log/nginx/*.access.log) with a bounded pool of reader
+ * workers shared by all the files.
+ *
+ * The directory is scanned regularly to discover new matching files, which are read from their beginning; the files
+ * found when the reader starts are read from their end (or from their checkpoint). Each file is polled with its own
+ * adaptive interval and is never read by two workers at the same time; its lines are notified with the file's path
+ * (relative to the pattern's base directory) as source.
+ */
+public class GlobFileReader {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(GlobFileReader.class);
+
+    /**
+     * Shortest file sampling interval, used while a file is being written to heavily.
+     */
+    private static final long MIN_SAMPLE_INTERVAL = 20; // in milliseconds.
+
+    /**
+     * Interval between two scans for new files matching the pattern.
+     */
+    private static final long DISCOVERY_INTERVAL = 2000; // in milliseconds.
+
+    /**
+     * Interval between two writes of the read checkpoints to disk.
+     */
+    private static final long CHECKPOINT_FLUSH_INTERVAL = 5000; // in milliseconds.
+
+    /**
+     * Characters introducing a glob construct.
+     */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * Base directory of the pattern (its longest leading part without glob construct).
+     */
+    private final Path baseDirectory;
+
+    /**
+     * Matcher of the paths relative to the base directory.
+     */
+    private final PathMatcher pathMatcher;
+
+    /**
+     * Depth of the directory tree scanned under the base directory.
+     */
+    private final int scanDepth;
+
+    /**
+     * Longest file sampling interval, used while a file is idle.
+     */
+    private final long sampleInterval;
+
+    /**
+     * The reader workers, shared by all files (and running the discovery scans).
+     */
+    private final ScheduledExecutorService workers;
+
+    /**
+     * Tailers of the files being read, indexed by their path.
+     */
+    private final Map<Path, FileTailer> tailers = new ConcurrentHashMap<>();
+
+    /**
+     * Set of listeners.
+     */
+    private final Set<LogLineListener> listeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * Number of (non blank) lines and of bytes read, from all the files.
+     */
+    private final LongAdder linesRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * Store of the read checkpoints; null when the reading always starts from the end of the files.
+     */
+    private CheckpointStore checkpointStore;
+
+    /**
+     * Constructor.
+     * @param globPattern the pattern of the files to tail; glob constructs are allowed in any path segment.
+     * @param numberOfWorkers number of reader workers shared by all the files.
+     * @param sampleInterval longest interval between two checks for updates of an idle file, in milliseconds.
+     */
+    public GlobFileReader(final String globPattern, final int numberOfWorkers, final long sampleInterval) {
+        final String pattern = globPattern.replace(File.separatorChar, '/');
+        int firstGlobCharacter = pattern.length();
+        for (int index = 0; index < pattern.length(); index++) {
+            if (GLOB_CHARACTERS.indexOf(pattern.charAt(index)) >= 0) {
+                firstGlobCharacter = index;
+                break;
+            }
+        }
+        final int baseEnd = pattern.lastIndexOf('/', firstGlobCharacter);
+        final String relativePattern = pattern.substring(baseEnd + 1);
+
+        this.baseDirectory = Paths.get(baseEnd < 0 ? "." : baseEnd == 0 ? "/" : pattern.substring(0, baseEnd));
+        this.pathMatcher = FileSystems.getDefault().getPathMatcher("glob:" + relativePattern);
+        this.scanDepth = relativePattern.contains("**") ?
+                Integer.MAX_VALUE : relativePattern.split("/").length;
+        this.sampleInterval = sampleInterval;
+
+        final AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newScheduledThreadPool(Math.max(1, numberOfWorkers),
+                runnable -> new Thread(runnable, "file-reader-" + workerCount.incrementAndGet()));
+    }
+
+    /**
+     * @param path a path given by the user.
+     * @return true if the path contains glob constructs.
+     */
+    public static boolean isGlobPattern(final String path) {
+        for (int index = 0; index < path.length(); index++) {
+            if (GLOB_CHARACTERS.indexOf(path.charAt(index)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Enable read checkpoints (see {@link FileReader#setCheckpointStore(CheckpointStore)}). Must be called before the
+     * reader is started.
+     *
+     * @param checkpointStore the store of the read checkpoints, shared by all the files.
+     */
+    public void setCheckpointStore(final CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * Register a new line listener.
+     *
+     * @param listener the listener; it is called concurrently by the workers reading different files.
+     */
+    public void registerLogFileTailerListener(final LogLineListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Start tailing the files matching the pattern.
+     */
+    public void start() {
+        final Set<Path> initialFiles = scan();
+        if (initialFiles.isEmpty()) {
+            logger.warn("No file matches " + pathMatcher + " under " + baseDirectory.toAbsolutePath() + " yet.");
+        }
+        for (final Path file : initialFiles) {
+            startTailing(file, false);
+        }
+
+        workers.scheduleWithFixedDelay(this::discoverFiles, DISCOVERY_INTERVAL, DISCOVERY_INTERVAL, TimeUnit.MILLISECONDS);
+        if (checkpointStore != null) {
+            workers.scheduleWithFixedDelay(checkpointStore::flush,
+                    CHECKPOINT_FLUSH_INTERVAL, CHECKPOINT_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(checkpointStore::flush, "checkpoint-flush"));
+        }
+    }
+
+    /**
+     * Stop tailing the files and close them.
+     */
+    public void stop() {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Reader workers still running after 5 seconds.");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (final FileTailer tailer : tailers.values()) {
+            try {
+                tailer.close();
+            } catch (final IOException e) {
+                logger.error("Cannot close file correctly.");
+            }
+        }
+        tailers.clear();
+    }
+
+    /**
+     * @return the files currently matching the pattern.
+     */
+    private Set<Path> scan() {
+        try (Stream<Path> files = Files.walk(baseDirectory, scanDepth)) {
+            return files.filter(Files::isRegularFile).
+                    filter(file -> pathMatcher.matches(baseDirectory.relativize(file))).
+                    collect(Collectors.toSet());
+        } catch (final IOException | RuntimeException e) {
+            logger.error("Cannot scan " + baseDirectory.toAbsolutePath() + " for log files : " + e.getMessage());
+            return tailers.keySet();
+        }
+    }
+
+    /**
+     * Start tailing the new matching files and stop tailing the ones which disappeared.
+     */
+    private void discoverFiles() {
+        final Set<Path> files = scan();
+        for (final Path file : files) {
+            if (!tailers.containsKey(file)) {
+                logger.info("New log file discovered : " + file);
+                startTailing(file, true);
+            }
+        }
+        for (final Path file : tailers.keySet()) {
+            if (!files.contains(file)) {
+                // the tailer's own task finishes reading it and closes it.
+                logger.info("Log file " + file + " disappeared; it will no longer be read.");
+                tailers.remove(file);
+            }
+        }
+    }
+
+    /**
+     * Open a file and schedule its first read pass.
+     * @param file the file.
+     * @param newFile whether the file was created while the reader runs (and must be read from its beginning).
+     */
+    private void startTailing(final Path file, final boolean newFile) {
+        final String source = baseDirectory.relativize(file).toString();
+        final FileTailer tailer = new FileTailer(file, checkpointStore, lines -> notifyNewLines(source, lines));
+        try {
+            tailer.open(newFile);
+        } catch (final IOException e) {
+            logger.error("Cannot open log file " + file + " : " + e.getMessage());
+            return;
+        }
+        tailers.put(file, tailer);
+        new TailTask(tailer).schedule();
+    }
+
+    /**
+     * Notify a batch of new lines to listeners, skipping blank ones.
+     *
+     * @param source the file the lines were read from.
+     * @param lines string lines.
+     */
+    private void notifyNewLines(final String source, final List<String> lines) {
+        lines.removeIf(line -> line.trim().length() == 0);
+        if (lines.isEmpty()) {
+            return;
+        }
+        linesRead.add(lines.size());
+        for (final LogLineListener listener : this.listeners) {
+            listener.newLogFileLines(source, lines);
+        }
+    }
+
+    /**
+     * @return the number of (non blank) lines read from all the files since the reader started.
+     */
+    public long getLinesRead() {
+        return linesRead.sum();
+    }
+
+    /**
+     * @return the number of bytes read from all the files since the reader started.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the number of bytes written to the files being read which have not been read yet.
+     */
+    public long getLag() {
+        long lag = 0;
+        for (final FileTailer tailer : tailers.values()) {
+            try {
+                lag += tailer.getLag();
+            } catch (final IOException e) {
+                // the file is being switched or closed; its lag is unknown for now.
+            }
+        }
+        return lag;
+    }
+
+    /**
+     * Read pass of a single file, rescheduling itself with the file's adaptive interval; a file therefore never has
+     * more than one pass pending or running.
+     */
+    private final class TailTask implements Runnable {
+        private final FileTailer tailer;
+        private final AdaptivePollingWaiter pacing = new AdaptivePollingWaiter(MIN_SAMPLE_INTERVAL, sampleInterval);
+
+        private TailTask(final FileTailer tailer) {
+            this.tailer = tailer;
+        }
+
+        private void schedule() {
+            workers.schedule(this, pacing.getCurrentInterval(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            try {
+                final long bytes = tailer.readPass();
+                bytesRead.add(bytes);
+                pacing.onReadPass(bytes);
+            } catch (final IOException | RuntimeException e) {
+                logger.error("Problem while reading from file " + tailer.getPath() + " : " + e.getMessage());
+            }
+
+            if (tailers.get(tailer.getPath()) == tailer) {
+                schedule();
+            } else {
+                try {
+                    tailer.close();
+                } catch (final IOException e) {
+                    logger.error("Cannot close file correctly.");
+                }
+            }
+        }
+    }
+}
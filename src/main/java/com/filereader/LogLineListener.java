@@ -1,5 +1,7 @@
 package com.filereader;
 
+import java.util.List;
+
 /**
  * Provides listener notification methods when a tailed log file is updated
  */
@@ -10,4 +12,26 @@ public interface LogLineListener {
      * @param line The new line that has been added to the tailed log file
      */
     public void newLogFileLine(String line);
-}
\ No newline at end of file
+
+    /**
+     * A new line has been added to one of the tailed log files
+     *
+     * @param source The tailed log file the line comes from
+     * @param line The new line that has been added to the tailed log file
+     */
+    default void newLogFileLine(String source, String line) {
+        newLogFileLine(line);
+    }
+
+    /**
+     * New lines have been added to one of the tailed log files (all the complete lines of a read chunk)
+     *
+     * @param source The tailed log file the lines come from (null when a single file is tailed)
+     * @param lines The new lines, in file order; the list is only valid during the call
+     */
+    default void newLogFileLines(String source, List<String> lines) {
+        for (final String line : lines) {
+            newLogFileLine(source, line);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.filereader;
+
+/**
+ * Position up to which a log file has been read and notified, along with what is needed to check that the file
+ * found on disk later on is still the same one.
+ */
+public class ReadCheckpoint {
+    /**
+     * FNV-1a 64 bits offset basis.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64 bits prime.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Identity of the file on disk (inode & device when available).
+     */
+    private final String fileKey;
+
+    /**
+     * Position following the last notified line (i.e. where the reading resumes).
+     */
+    private final long offset;
+
+    /**
+     * Position of the first byte of the last notified line.
+     */
+    private final long lastLineOffset;
+
+    /**
+     * Hash of the bytes of the last notified line (including its terminator).
+     */
+    private final long lastLineHash;
+
+    /**
+     * Constructor.
+     * @param fileKey identity of the file on disk.
+     * @param offset position following the last notified line.
+     * @param lastLineOffset position of the first byte of the last notified line.
+     * @param lastLineHash hash of the last notified line (see {@link #hash(byte[], int, int)}).
+     */
+    public ReadCheckpoint(final String fileKey, final long offset, final long lastLineOffset, final long lastLineHash) {
+        this.fileKey = fileKey;
+        this.offset = offset;
+        this.lastLineOffset = lastLineOffset;
+        this.lastLineHash = lastLineHash;
+    }
+
+    /**
+     * Hash a range of bytes (FNV-1a, 64 bits).
+     * @param bytes the bytes.
+     * @param from first byte (inclusive).
+     * @param to last byte (exclusive).
+     * @return the hash.
+     */
+    public static long hash(final byte[] bytes, final int from, final int to) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int index = from; index < to; index++) {
+            hash ^= bytes[index] & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLastLineOffset() {
+        return lastLineOffset;
+    }
+
+    public long getLastLineHash() {
+        return lastLineHash;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadCheckpoint{" +
+                "fileKey='" + fileKey + '\'' +
+                ", offset=" + offset +
+                ", lastLineOffset=" + lastLineOffset +
+                ", lastLineHash=" + lastLineHash +
+                '}';
+    }
+}
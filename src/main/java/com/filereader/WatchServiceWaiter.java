@@ -0,0 +1,118 @@
+package com.filereader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Strategy woken up by the file system's modification events on the tailed file.
+ *
+ * All the events queued when the thread wakes up are drained at once, so a burst of writes results in a
+ * single read pass. The adaptive polling interval is kept as a timeout: platforms whose watch service is
+ * slow (or events being lost) only delay the reading up to that interval.
+ */
+public class WatchServiceWaiter extends AdaptivePollingWaiter {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(WatchServiceWaiter.class);
+
+    /**
+     * The file system watch service.
+     */
+    private final WatchService watchService;
+
+    /**
+     * Name of the tailed file inside its watched directory.
+     */
+    private final Path fileName;
+
+    /**
+     * Whether the watch service still delivers events (the directory may have been removed).
+     */
+    private boolean watching = true;
+
+    /**
+     * Constructor.
+     * @param file the tailed file; its parent directory is the one being watched.
+     * @param minInterval shortest interval between two reads, in milliseconds.
+     * @param maxInterval longest interval between two reads when no event is received, in milliseconds.
+     * @throws IOException if the watch service cannot be created or the directory cannot be watched.
+     */
+    public WatchServiceWaiter(final Path file, final long minInterval, final long maxInterval) throws IOException {
+        super(minInterval, maxInterval);
+        final Path absoluteFile = file.toAbsolutePath();
+        this.fileName = absoluteFile.getFileName();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            absoluteFile.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (final IOException | RuntimeException exception) {
+            watchService.close();
+            throw exception;
+        }
+    }
+
+    @Override
+    public void awaitChange() throws InterruptedException {
+        if (!watching) {
+            super.awaitChange();
+            return;
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getCurrentInterval());
+        boolean fileChanged = false;
+        long remaining;
+
+        while (!fileChanged && watching && (remaining = deadline - System.nanoTime()) > 0) {
+            WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+            // coalesce all the events already queued into a single wake up.
+            while (key != null) {
+                fileChanged |= containsFileEvent(key);
+                if (!key.reset()) {
+                    logger.warn("Watched directory is no longer accessible; falling back to polling.");
+                    watching = false;
+                }
+                key = watchService.poll();
+            }
+        }
+    }
+
+    /**
+     * @param key the signalled watch key.
+     * @return true if one of the key's events concerns the tailed file (or if events were lost).
+     */
+    private boolean containsFileEvent(final WatchKey key) {
+        boolean fileEvent = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                fileEvent = true;
+            }
+        }
+        return fileEvent;
+    }
+
+    /**
+     * @return whether the watch service still delivers events (otherwise the file is polled).
+     */
+    boolean isWatching() {
+        return watching;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (final IOException e) {
+            logger.error("Cannot close file watch service correctly.");
+        }
+    }
+}
@@ -1,12 +1,27 @@
 package com.homework;
 
 import com.filereader.FileReader;
+import com.homework.monitoring.LogReplay;
+import com.homework.monitoring.MonitoringSettings;
 import com.homework.monitoring.Orchestrator;
+import com.homework.monitoring.alerts.rules.AlertRule;
+import com.homework.monitoring.alerts.rules.AlertRuleEngine;
+import com.homework.monitoring.pipeline.BackpressurePolicy;
+import com.homework.monitoring.stats.groupby.EvictionPolicy;
+import com.homework.monitoring.stats.groupby.GroupBySpec;
 import org.apache.commons.cli.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Implements console-based log file tailing.
@@ -31,8 +46,110 @@ public class StartApplication {
             logger.error("Command line arguments parsing has failed ! Exiting application ...");
         }
         final String inputLogFile = commandLine.getOptionValue("input");
-        logger.debug("Input file path [" + inputLogFile + "]");
-        Orchestrator orchestrator = new Orchestrator(inputLogFile);
+        final String checkpointFile = commandLine.getOptionValue("checkpoint");
+        logger.debug("Input file path [" + inputLogFile + "], checkpoint file path [" + checkpointFile + "]");
+
+        final MonitoringSettings settings = new MonitoringSettings(inputLogFile);
+        settings.setCheckpointFilename(checkpointFile);
+        if (commandLine.hasOption("backpressure")) {
+            try {
+                settings.setBackpressurePolicy(
+                        BackpressurePolicy.valueOf(commandLine.getOptionValue("backpressure").toUpperCase().replace('-', '_')));
+            } catch (final IllegalArgumentException e) {
+                logger.error("Unknown backpressure policy [" + commandLine.getOptionValue("backpressure") +
+                        "]; expected one of " + Arrays.toString(BackpressurePolicy.values()));
+                System.exit(1);
+            }
+        }
+        if (commandLine.hasOption("parsers")) {
+            try {
+                settings.setParserThreads(Integer.parseInt(commandLine.getOptionValue("parsers")));
+            } catch (final NumberFormatException e) {
+                logger.error("Invalid number of parser threads [" + commandLine.getOptionValue("parsers") + "]");
+                System.exit(1);
+            }
+        }
+        if (commandLine.hasOption("allowed-lateness")) {
+            try {
+                settings.setAllowedLateness(Long.parseLong(commandLine.getOptionValue("allowed-lateness")) * 1000);
+            } catch (final NumberFormatException e) {
+                logger.error("Invalid allowed lateness [" + commandLine.getOptionValue("allowed-lateness") + "]");
+                System.exit(1);
+            }
+        }
+        if (commandLine.hasOption("section-counters")) {
+            try {
+                settings.setSectionCounters(Integer.parseInt(commandLine.getOptionValue("section-counters")));
+            } catch (final NumberFormatException e) {
+                logger.error("Invalid number of section counters [" + commandLine.getOptionValue("section-counters") + "]");
+                System.exit(1);
+            }
+        }
+        settings.setResponseSizesPerSection(commandLine.hasOption("sizes-per-section"));
+        settings.setReplay(commandLine.hasOption("replay"));
+        settings.setTimelineFilename(commandLine.getOptionValue("timeline"));
+        settings.setHeadless(commandLine.hasOption("headless"));
+        settings.setOutputFilename(commandLine.getOptionValue("output"));
+        if (commandLine.hasOption("metrics-port")) {
+            try {
+                settings.setMetricsPort(Integer.parseInt(commandLine.getOptionValue("metrics-port")));
+            } catch (final NumberFormatException e) {
+                logger.error("Invalid metrics port [" + commandLine.getOptionValue("metrics-port") + "]");
+                System.exit(1);
+            }
+        }
+        if (commandLine.hasOption("alert-rules")) {
+            try {
+                settings.setAlertRules(AlertRuleEngine.readRules(Paths.get(commandLine.getOptionValue("alert-rules"))));
+            } catch (final IOException | IllegalArgumentException e) {
+                logger.error("Cannot read the alert rules : " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (commandLine.hasOption("anomaly-alerts")) {
+            final List<AlertRule> rules = new ArrayList<>(settings.getAlertRules());
+            rules.addAll(AlertRuleEngine.defaultAnomalyRules());
+            settings.setAlertRules(rules);
+        }
+        if (commandLine.hasOption("group-by")) {
+            try {
+                final GroupBySpec groupBy = GroupBySpec.parse(commandLine.getOptionValue("group-by"));
+                if (commandLine.hasOption("group-limit")) {
+                    groupBy.setMaxGroups(Integer.parseInt(commandLine.getOptionValue("group-limit")));
+                }
+                if (commandLine.hasOption("group-lru")) {
+                    groupBy.setEvictionPolicy(EvictionPolicy.LEAST_RECENTLY_USED);
+                }
+                settings.setGroupBy(groupBy);
+            } catch (final IllegalArgumentException e) {
+                logger.error("Invalid grouping of the traffic : " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (settings.isReplay()) {
+            System.exit(replay(settings) ? 0 : 1);
+        }
+        Orchestrator orchestrator = new Orchestrator(settings);
+    }
+
+    /**
+     * Replay the input file without UI and write its timeline.
+     * @param settings the replay settings.
+     * @return true if the whole file was replayed.
+     */
+    private static boolean replay(final MonitoringSettings settings) {
+        try (PrintWriter timeline = settings.getTimelineFilename() == null ?
+                new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) :
+                new PrintWriter(Files.newBufferedWriter(Paths.get(settings.getTimelineFilename()), StandardCharsets.UTF_8))) {
+            new LogReplay(settings, timeline).run();
+            timeline.flush();
+            return true;
+        } catch (final IOException e) {
+            logger.error("Cannot replay log file " + settings.getInputFilename() + " : " + e.getMessage());
+        } catch (final InterruptedException e) {
+            logger.error("Replay of log file " + settings.getInputFilename() + " interrupted.");
+        }
+        return false;
     }
 
     /**
@@ -47,6 +164,39 @@ public class StartApplication {
         final Option input = new Option("i", "input", true, "input log file path");
         input.setRequired(true);
         options.addOption(input);
+        options.addOption(new Option("c", "checkpoint", true,
+                "read checkpoint file path; when set, the reading resumes where it stopped on the previous run"));
+        options.addOption(new Option("b", "backpressure", true,
+                "what to do when the processing is behind the reading : block (default), drop-oldest or sample; the"
+                        + " dropped lines are missing from the stats, alerts and groups alike"));
+        options.addOption(new Option("l", "allowed-lateness", true,
+                "seconds a log line may arrive after the end of its 10 seconds stats window and still be counted in it (default: 5)"));
+        options.addOption(new Option("p", "parsers", true,
+                "number of threads parsing the log lines (default: number of processors - 1)"));
+        options.addOption(new Option("s", "section-counters", true,
+                "bound the memory of the hits per section to this number of counters (e.g. 1000), keeping the most hit sections with error bounds (default: exact counts)"));
+        options.addOption(new Option("z", "sizes-per-section", false,
+                "also keep the response size distribution (percentiles) of each section"));
+        options.addOption(new Option("r", "replay", false,
+                "replay the input log file from its beginning as fast as possible, on log time, then exit (no UI)"));
+        options.addOption(new Option("d", "headless", false,
+                "run without UI (e.g. as a daemon), writing the stats windows and alert transitions as JSON lines"));
+        options.addOption(new Option("o", "output", true,
+                "file receiving the JSON lines of the headless mode (default: standard output)"));
+        options.addOption(new Option("m", "metrics-port", true,
+                "serve the pipeline metrics (lines read, malformed lines, buffer occupancy, read lag, ...) in the Prometheus text format on http://localhost:<port>/metrics"));
+        options.addOption(new Option("t", "timeline", true,
+                "file receiving the timeline of stats windows and alerts of a replay (default: standard output)"));
+        options.addOption(new Option("a", "alert-rules", true,
+                "file of additional alert rules, one per line (e.g. 'api-errors : serverErrorRatio /api > 2% over 120s')"));
+        options.addOption(new Option("e", "anomaly-alerts", false,
+                "also raise alerts when the requests per second, server error ratio or bandwidth of the site (or the requests per second of a section) deviate from their learnt baseline"));
+        options.addOption(new Option("g", "group-by", true,
+                "also count the traffic per group of status, method, client, user and/or section, e.g. 'client,status:requests,bytes' (metrics: requests, bytes, clientErrors, serverErrors, maxSize)"));
+        options.addOption(new Option("k", "group-limit", true,
+                "largest number of groups kept (default: 10000); a group with few requests gives its place to a new one"));
+        options.addOption(new Option("u", "group-lru", false,
+                "the least recently seen group gives its place to a new one instead"));
 
         final CommandLineParser parser = new DefaultParser();
         final HelpFormatter formatter = new HelpFormatter();
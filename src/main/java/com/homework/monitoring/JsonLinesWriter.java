@@ -0,0 +1,224 @@
+package com.homework.monitoring;
+
+import com.homework.monitoring.alerts.HTTPTrafficAlertsListener;
+import com.homework.monitoring.alerts.rules.AlertRule;
+import com.homework.monitoring.pipeline.BackpressurePolicy;
+import com.homework.monitoring.pipeline.RingBufferStage;
+import com.homework.monitoring.stats.HTTPStatsListener;
+import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.stats.LogHistogram;
+import com.homework.monitoring.stats.SectionCount;
+import com.homework.monitoring.stats.groupby.GroupByEngine;
+import com.homework.monitoring.stats.groupby.GroupByMetric;
+import com.homework.monitoring.stats.groupby.GroupCount;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the stats windows and the alert transitions as JSON lines (one compact JSON object per line), for the
+ * headless mode:
+ * <pre>
+ * {"type":"stats","windowStart":"...","windowEnd":"...","requests":208,"bytes":734533,...,"topSections":[...]}
+ * {"type":"alert","state":"raised","rule":"high-traffic","metric":"requestsPerSecond","section":null,"value":12.43,...}
+ * </pre>
+ * The notifying thread only queues the stats window (or the short alert line); the stats lines are formatted and all
+ * the lines written by the writer's own thread, through a buffered writer flushed once the queued lines are written:
+ * a slow output never blocks the stats or the alerts, the oldest lines being dropped if it falls too far behind.
+ */
+public class JsonLinesWriter extends RingBufferStage<Object> implements HTTPStatsListener, HTTPTrafficAlertsListener {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(JsonLinesWriter.class);
+
+    /**
+     * Default number of lines (stats windows or alert lines) waiting to be written.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Number of most hit sections written with each window.
+     */
+    private static final int TOP_SECTIONS = 10;
+
+    /**
+     * Number of largest groups written with each window.
+     */
+    private static final int TOP_GROUPS = 10;
+
+    /**
+     * Destination of the lines (buffered).
+     */
+    private final Writer output;
+
+    /**
+     * Groups of the traffic, written with each window; null when the traffic is not grouped.
+     */
+    private volatile GroupByEngine groupByEngine;
+
+    /**
+     * Constructor.
+     * @param output destination of the lines (buffered).
+     * @param capacity number of lines waiting to be written before the oldest ones are dropped.
+     */
+    public JsonLinesWriter(final Writer output, final int capacity) {
+        super("json-lines", capacity, BackpressurePolicy.DROP_OLDEST, 1);
+        this.output = output;
+    }
+
+    /**
+     * Give the groups of the traffic, to write the largest ones with each window.
+     * @param groupByEngine the groups.
+     */
+    public void setGroupByEngine(final GroupByEngine groupByEngine) {
+        this.groupByEngine = groupByEngine;
+    }
+
+    @Override
+    public void processTrafficStatistics(final HTTPTrafficStats httpTrafficStats) {
+        publish(null, Collections.singletonList(httpTrafficStats));
+    }
+
+    @Override
+    public void raiseAlert() {
+        publish(null, Collections.singletonList(alertLine(true, null, Double.NaN, System.currentTimeMillis())));
+    }
+
+    @Override
+    public void cancelAlert() {
+        publish(null, Collections.singletonList(alertLine(false, null, Double.NaN, System.currentTimeMillis())));
+    }
+
+    @Override
+    public void raiseAlert(final AlertRule rule, final double value, final long time) {
+        publish(null, Collections.singletonList(alertLine(true, rule, value, time)));
+    }
+
+    @Override
+    public void cancelAlert(final AlertRule rule, final double value, final long time) {
+        publish(null, Collections.singletonList(alertLine(false, rule, value, time)));
+    }
+
+    /**
+     * @param lines stats windows (formatted here, off the notifying thread) and alert lines.
+     */
+    @Override
+    protected void consume(final String source, final List<Object> lines) {
+        try {
+            for (final Object line : lines) {
+                output.write(line instanceof HTTPTrafficStats ?
+                        statsLine((HTTPTrafficStats) line, groupByEngine) : (String) line);
+                output.write('\n');
+            }
+            // once the queued lines are all written (a batch queued meanwhile is flushed after it).
+            if (getBuffer().getOccupancy() == 0) {
+                output.flush();
+            }
+        } catch (final IOException e) {
+            logger.error("Cannot write " + lines.size() + " JSON lines : " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param statistics the stats of a window.
+     * @param groupByEngine the groups of the traffic; null if it is not grouped.
+     * @return the JSON line of the window.
+     */
+    static String statsLine(final HTTPTrafficStats statistics, final GroupByEngine groupByEngine) {
+        final StringBuilder line = new StringBuilder(512).append("{\"type\":\"stats\",\"windowStart\":");
+        appendString(line, statistics.getWindowStart() == null ? null : statistics.getWindowStart().toString());
+        line.append(",\"windowEnd\":");
+        appendString(line, statistics.getWindowEnd() == null ? null : statistics.getWindowEnd().toString());
+        line.append(",\"requests\":").append(statistics.getTotalNumberOfHTTPRequests())
+                .append(",\"bytes\":").append(statistics.getTotalSizeOfRequestsInBytes())
+                .append(",\"valid\":").append(statistics.getTotalNumberOfValidHTTPRequests())
+                .append(",\"clientErrors\":").append(statistics.getTotalNumberOfClientErrorHTTPRequests())
+                .append(",\"serverErrors\":").append(statistics.getTotalNumberOfServerErrorHTTPRequests())
+                .append(",\"clients\":").append(statistics.getDistinctClients().estimate())
+                .append(",\"users\":").append(statistics.getDistinctUsers().estimate());
+        final LogHistogram sizes = statistics.getResponseSizes();
+        line.append(",\"sizes\":{\"p50\":").append(sizes.getValueAtPercentile(50))
+                .append(",\"p90\":").append(sizes.getValueAtPercentile(90))
+                .append(",\"p99\":").append(sizes.getValueAtPercentile(99))
+                .append(",\"max\":").append(sizes.getMax()).append('}');
+
+        line.append(",\"topSections\":[");
+        final List<SectionCount> topSections = statistics.getTopSections(TOP_SECTIONS);
+        for (int index = 0; index < topSections.size(); index++) {
+            line.append(index == 0 ? "{\"section\":" : ",{\"section\":");
+            appendString(line, topSections.get(index).getSection());
+            line.append(",\"hits\":").append(topSections.get(index).getHits())
+                    .append(",\"error\":").append(topSections.get(index).getError()).append('}');
+        }
+        line.append(']');
+
+        if (groupByEngine != null) {
+            final List<GroupByMetric> metrics = groupByEngine.getSpec().getMetrics();
+            line.append(",\"topGroups\":[");
+            final List<GroupCount> topGroups = groupByEngine.top(TOP_GROUPS);
+            for (int index = 0; index < topGroups.size(); index++) {
+                line.append(index == 0 ? "{\"group\":" : ",{\"group\":");
+                appendString(line, topGroups.get(index).getGroup());
+                final long[] values = topGroups.get(index).getValues();
+                for (int metric = 0; metric < values.length; metric++) {
+                    line.append(",\"").append(metrics.get(metric)).append("\":").append(values[metric]);
+                }
+                line.append('}');
+            }
+            line.append(']');
+        }
+        return line.append('}').toString();
+    }
+
+    /**
+     * @param raised true if the alert is raised, false if it is cancelled.
+     * @param rule the rule of the alert; null for the traffic alert without rule.
+     * @param value the value of the rule's metric; NaN if unknown.
+     * @param time the log time of the transition (epoch milliseconds).
+     * @return the JSON line of the alert transition.
+     */
+    static String alertLine(final boolean raised, final AlertRule rule, final double value, final long time) {
+        final StringBuilder line = new StringBuilder(256).append("{\"type\":\"alert\",\"state\":")
+                .append(raised ? "\"raised\"" : "\"cancelled\"").append(",\"time\":");
+        appendString(line, Instant.ofEpochMilli(time).toString());
+        if (rule != null) {
+            line.append(",\"rule\":");
+            appendString(line, rule.getName());
+            line.append(",\"metric\":");
+            appendString(line, rule.getMetric().toString());
+            line.append(",\"section\":");
+            appendString(line, rule.getSection());
+            line.append(",\"windowSeconds\":").append(rule.getWindowSeconds());
+        }
+        line.append(",\"value\":").append(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+        return line.append('}').toString();
+    }
+
+    /**
+     * Append a JSON string (or null).
+     */
+    private static void appendString(final StringBuilder line, final String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int index = 0; index < value.length(); index++) {
+            final char character = value.charAt(index);
+            if (character == '"' || character == '\\') {
+                line.append('\\').append(character);
+            } else if (character < 0x20) {
+                line.append(String.format("\\u%04x", (int) character));
+            } else {
+                line.append(character);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -5,12 +5,17 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Broadcaster object managing a list of listeners and disseminating new entries to registered clients.
+ *
+ * @Note the broadcaster is itself a {@link LogEntryListener}, so that it can sit behind a pipeline stage and fan the
+ * entries the stage lets through out to several listeners.
  */
-public class LogEntryBroadcaster {
+public class LogEntryBroadcaster implements LogEntryListener {
     /**
      * Logger.
      */
@@ -21,6 +26,11 @@ public class LogEntryBroadcaster {
      */
     private List<LogEntryListener> listeners;
 
+    /**
+     * Number of entries broadcast.
+     */
+    private final LongAdder broadcastEntries = new LongAdder();
+
     /**
      * Constructor.
      */
@@ -58,10 +68,45 @@ public class LogEntryBroadcaster {
             return;
         }
 
+        broadcastEntries.increment();
         if (!listeners.isEmpty()) {
             for (final LogEntryListener listener : listeners) {
                 listener.process(entry);
             }
         }
     }
+
+    /**
+     * Notify all registered listeners of a batch of new {@link CLFLogEntry}s (see
+     * {@link LogEntryListener#processBatch(List)}).
+     * @param entries the entries; must not contain null entries.
+     */
+    public void notifyEntries(final List<CLFLogEntry> entries) {
+        broadcastEntries.add(entries.size());
+        if (entries.isEmpty() || listeners.isEmpty()) {
+            return;
+        }
+
+        final List<CLFLogEntry> readOnlyEntries = Collections.unmodifiableList(entries);
+        for (final LogEntryListener listener : listeners) {
+            listener.processBatch(readOnlyEntries);
+        }
+    }
+
+    @Override
+    public void process(final CLFLogEntry entry) {
+        notifyEntry(entry);
+    }
+
+    @Override
+    public void processBatch(final List<CLFLogEntry> entries) {
+        notifyEntries(entries);
+    }
+
+    /**
+     * @return the number of entries broadcast.
+     */
+    public long getBroadcastEntries() {
+        return broadcastEntries.sum();
+    }
 }
@@ -2,6 +2,8 @@ package com.homework.monitoring;
 
 import com.clfparser.CLFLogEntry;
 
+import java.util.List;
+
 /**
  * Interface for listening to new log entry objects.
  */
@@ -11,4 +13,14 @@ public interface LogEntryListener {
      * @param entry the valid entry (we expect only nonnull entries).
      */
     void process(final CLFLogEntry entry);
+
+    /**
+     * Method for receiving the entries parsed from a chunk of log lines at once.
+     * @param entries the valid entries, in log order; the list is read-only and only valid during the call.
+     */
+    default void processBatch(final List<CLFLogEntry> entries) {
+        for (final CLFLogEntry entry : entries) {
+            process(entry);
+        }
+    }
 }
@@ -6,8 +6,13 @@ import com.filereader.LogLineListener;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * Log file parser reading line by line the latest updates to the file.
+ * Log file parser reading line by line the latest updates to the file; the lines of a read chunk are parsed together
+ * and broadcast as a single batch of entries.
  */
 public class LogLineParserListener implements LogLineListener {
     /**
@@ -20,6 +25,12 @@ public class LogLineParserListener implements LogLineListener {
      */
     final LogEntryBroadcaster logEntryBroadcaster;
 
+    /**
+     * Number of lines parsed, and of malformed ones among them.
+     */
+    private final LongAdder parsedLines = new LongAdder();
+    private final LongAdder malformedLines = new LongAdder();
+
     /**
      * Constructor
      * @param logEntryBroadcaster the manager object disseminating entries to all listeners.
@@ -35,16 +46,60 @@ public class LogLineParserListener implements LogLineListener {
 
     @Override
     public void newLogFileLine(String line) {
-        CLFLogEntry entry = null;
-        try {
-             entry = CLFLogParser.parse(line);
-        } catch (Exception exception) {
-            logger.warn("Exception encountered while trying to parse log line " + line);
-            logger.error("Exception encountered : " + exception.getMessage());
-        }
+        newLogFileLine(null, line);
+    }
+
+    @Override
+    public void newLogFileLine(String source, String line) {
+        final CLFLogEntry entry = CLFLogParser.parse(line, source);
+        parsedLines.increment();
         if (entry != null) {
             logger.debug(entry);
             logEntryBroadcaster.notifyEntry(entry);
+        } else {
+            malformedLines.increment();
+            logger.warn("Discarding malformed log line " + line);
+        }
+    }
+
+    @Override
+    public void newLogFileLines(String source, List<String> lines) {
+        logEntryBroadcaster.notifyEntries(parseLines(source, lines));
+    }
+
+    /**
+     * Parse a batch of lines, discarding the malformed ones; may be called concurrently.
+     * @param source the log file the lines come from (null when a single file is monitored).
+     * @param lines the lines.
+     * @return the entries, in line order.
+     */
+    public List<CLFLogEntry> parseLines(final String source, final List<String> lines) {
+        final List<CLFLogEntry> entries = new ArrayList<>(lines.size());
+        for (final String line : lines) {
+            final CLFLogEntry entry = CLFLogParser.parse(line, source);
+            if (entry != null) {
+                logger.debug(entry);
+                entries.add(entry);
+            } else {
+                logger.warn("Discarding malformed log line " + line);
+            }
         }
+        parsedLines.add(lines.size());
+        malformedLines.add(lines.size() - entries.size());
+        return entries;
+    }
+
+    /**
+     * @return the number of lines parsed.
+     */
+    public long getParsedLines() {
+        return parsedLines.sum();
+    }
+
+    /**
+     * @return the number of malformed lines discarded.
+     */
+    public long getMalformedLines() {
+        return malformedLines.sum();
     }
 }
@@ -0,0 +1,154 @@
+package com.homework.monitoring;
+
+import com.filereader.BlockLineReader;
+import com.filereader.LogLineListener;
+import com.homework.monitoring.alerts.HTTPTrafficAlertsManager;
+import com.homework.monitoring.alerts.rules.AlertRuleEngine;
+import com.homework.monitoring.pipeline.ParallelParseStage;
+import com.homework.monitoring.stats.HTTPTrafficStatsManager;
+import com.homework.monitoring.stats.groupby.GroupByEngine;
+import com.homework.monitoring.time.MonitoringClock;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replay (backfill) of an existing log file: the file is read from its beginning as fast as possible and the stats and
+ * alerts are driven by the log time only (no wall clock timer), which gives the timeline of the stats windows and of
+ * the alerts as they would have happened.
+ */
+public class LogReplay {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(LogReplay.class);
+
+    /**
+     * Number of largest groups written at the end of the timeline.
+     */
+    private static final int DISPLAYED_GROUPS = 20;
+
+    /**
+     * The replay settings (input file, parser threads, allowed lateness).
+     */
+    private final MonitoringSettings settings;
+
+    /**
+     * Receives the timeline.
+     */
+    private final TimelineWriter timelineWriter;
+
+    /**
+     * Number of lines read.
+     */
+    private long lines;
+
+    /**
+     * Constructor.
+     * @param settings the replay settings (input file, parser threads, allowed lateness).
+     * @param timeline destination of the timeline.
+     */
+    public LogReplay(final MonitoringSettings settings, final PrintWriter timeline) {
+        this.settings = settings;
+        this.timelineWriter = new TimelineWriter(timeline);
+    }
+
+    /**
+     * Replay the whole file.
+     * @return a summary of the replay.
+     * @throws IOException if the file cannot be read.
+     * @throws InterruptedException if the replay is interrupted while waiting for the parser threads.
+     */
+    public String run() throws IOException, InterruptedException {
+        // the per line debug logs would slow the replay down to the speed of the log appender; the level of the
+        // parser's logger is restored once the replay finishes.
+        final String parserLoggerName = LogLineParserListener.class.getName();
+        final Level previousLevel = LogManager.getLogger(parserLoggerName).getLevel();
+        Configurator.setLevel(parserLoggerName, Level.INFO);
+        try {
+            return replay();
+        } finally {
+            Configurator.setLevel(parserLoggerName, previousLevel);
+        }
+    }
+
+    /**
+     * Replay the whole file, with the parser's debug logs off.
+     * @return a summary of the replay.
+     */
+    private String replay() throws IOException, InterruptedException {
+        final HTTPTrafficAlertsManager alertsManager = new HTTPTrafficAlertsManager(
+                Orchestrator.DEFAULT_ALERT_MONITORING_WINDOW_LENGTH, Orchestrator.DEFAULT_ALERT_NUMBER_REQUESTS_THRESHOLD);
+        alertsManager.registerAlertsListener(timelineWriter);
+
+        final HTTPTrafficStatsManager statsManager = new HTTPTrafficStatsManager(
+                Orchestrator.DEFAULT_STATS_CREATION_INTERVAL, settings.getAllowedLateness(), MonitoringClock.SYSTEM, null,
+                settings.getStatsOptions());
+        statsManager.registerStatsListener(timelineWriter);
+
+        final LogEntryBroadcaster logEntryBroadcaster = new LogEntryBroadcaster();
+        logEntryBroadcaster.registerListener(statsManager);
+        logEntryBroadcaster.registerListener(alertsManager);
+        if (!settings.getAlertRules().isEmpty()) {
+            final AlertRuleEngine alertRuleEngine = new AlertRuleEngine(settings.getAlertRules(), MonitoringClock.SYSTEM, null);
+            alertRuleEngine.registerAlertsListener(timelineWriter);
+            logEntryBroadcaster.registerListener(alertRuleEngine);
+        }
+        final GroupByEngine groupByEngine = settings.getGroupBy() == null ? null : new GroupByEngine(settings.getGroupBy());
+        if (groupByEngine != null) {
+            logEntryBroadcaster.registerListener(groupByEngine);
+        }
+
+        final ParallelParseStage parallelParser = settings.getParserThreads() > 1 ?
+                new ParallelParseStage(logEntryBroadcaster, settings.getParserThreads()) : null;
+        final LogLineListener parser = parallelParser != null ?
+                parallelParser : new LogLineParserListener(logEntryBroadcaster);
+
+        final long start = System.nanoTime();
+        final BlockLineReader lineReader = new BlockLineReader(BlockLineReader.DEFAULT_BLOCK_SIZE, 0);
+        try (FileChannel channel = FileChannel.open(Paths.get(settings.getInputFilename()), StandardOpenOption.READ)) {
+            lineReader.readAvailableBatches(channel, batch -> parseLines(parser, batch));
+            lineReader.flushPartialLine(line -> {
+                final List<String> batch = new ArrayList<>(1);
+                batch.add(line);
+                parseLines(parser, batch);
+            });
+        }
+        if (parallelParser != null) {
+            parallelParser.awaitBroadcast();
+            parallelParser.close();
+        }
+        statsManager.flush();
+        if (groupByEngine != null) {
+            timelineWriter.writeGroups(groupByEngine, DISPLAYED_GROUPS);
+        }
+        final long elapsed = Math.max(1, System.nanoTime() - start);
+
+        final String summary = String.format("Replayed %,d lines (%,d bytes) in %,d ms (%,.0f lines/s) : %,d windows, " +
+                        "%,d alert transitions, %,d late entries merged, %,d entries dropped as too late.",
+                lines, lineReader.getPosition(), elapsed / 1_000_000, lines * 1e9 / elapsed, timelineWriter.getWindows(),
+                timelineWriter.getAlertTransitions(), statsManager.getLateEntries(), statsManager.getDroppedEntries());
+        logger.info(summary);
+        return summary;
+    }
+
+    /**
+     * Parse a batch of lines, skipping blank ones.
+     * @param parser the parser.
+     * @param batch the lines.
+     */
+    private void parseLines(final LogLineListener parser, final List<String> batch) {
+        batch.removeIf(line -> line.trim().length() == 0);
+        lines += batch.size();
+        parser.newLogFileLines(null, batch);
+    }
+}
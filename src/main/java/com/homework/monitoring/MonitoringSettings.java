@@ -0,0 +1,211 @@
+package com.homework.monitoring;
+
+import com.homework.monitoring.alerts.rules.AlertRule;
+import com.homework.monitoring.pipeline.BackpressurePolicy;
+import com.homework.monitoring.stats.HTTPTrafficStatsManager;
+import com.homework.monitoring.stats.TrafficStatsOptions;
+import com.homework.monitoring.stats.groupby.GroupBySpec;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Settings of the monitoring, as given on the command line.
+ */
+public class MonitoringSettings {
+    /**
+     * Path towards the log file on disk, or glob pattern of several log files (e.g. /var/log/nginx/*.access.log).
+     */
+    private String inputFilename;
+
+    /**
+     * Path towards the read checkpoint file; null to start reading from the end of the log file.
+     */
+    private String checkpointFilename;
+
+    /**
+     * What the pipeline stages do when they are full.
+     */
+    private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+    /**
+     * Number of threads parsing the log lines.
+     */
+    private int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * Time a log entry may arrive after the end of its stats window and still be counted in it, in milliseconds.
+     */
+    private long allowedLateness = HTTPTrafficStatsManager.DEFAULT_ALLOWED_LATENESS;
+
+    /**
+     * Number of counters of the bounded summary of the hits per section; 0 to count every section exactly.
+     */
+    private int sectionCounters;
+
+    /**
+     * Whether the response size distribution is also kept per section.
+     */
+    private boolean responseSizesPerSection;
+
+    /**
+     * Whether the input file is replayed from its beginning, on log time, instead of being tailed.
+     */
+    private boolean replay;
+
+    /**
+     * Path towards the file receiving the replay's timeline; null to write it to the standard output.
+     */
+    private String timelineFilename;
+
+    /**
+     * Additional alert rules (per section, error rates, bandwidth); empty if none.
+     */
+    private List<AlertRule> alertRules = Collections.emptyList();
+
+    /**
+     * What the traffic is grouped by; null when it is not grouped.
+     */
+    private GroupBySpec groupBy;
+
+    /**
+     * Whether the monitoring runs without UI, writing JSON lines.
+     */
+    private boolean headless;
+
+    /**
+     * File receiving the JSON lines of the headless mode; null for the standard output.
+     */
+    private String outputFilename;
+
+    /**
+     * Port (on the loopback interface) serving the pipeline metrics in the Prometheus text format; null when they are
+     * not served over HTTP.
+     */
+    private Integer metricsPort;
+
+    /**
+     * Constructor.
+     * @param inputFilename path towards the log file on disk, or glob pattern of several log files.
+     */
+    public MonitoringSettings(final String inputFilename) {
+        this.inputFilename = inputFilename;
+    }
+
+    public String getInputFilename() {
+        return inputFilename;
+    }
+
+    public String getCheckpointFilename() {
+        return checkpointFilename;
+    }
+
+    public void setCheckpointFilename(final String checkpointFilename) {
+        this.checkpointFilename = checkpointFilename;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public void setBackpressurePolicy(final BackpressurePolicy backpressurePolicy) {
+        this.backpressurePolicy = backpressurePolicy;
+    }
+
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    public void setParserThreads(final int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+
+    public long getAllowedLateness() {
+        return allowedLateness;
+    }
+
+    public void setAllowedLateness(final long allowedLateness) {
+        this.allowedLateness = allowedLateness;
+    }
+
+    public boolean isReplay() {
+        return replay;
+    }
+
+    public void setReplay(final boolean replay) {
+        this.replay = replay;
+    }
+
+    public String getTimelineFilename() {
+        return timelineFilename;
+    }
+
+    public void setTimelineFilename(final String timelineFilename) {
+        this.timelineFilename = timelineFilename;
+    }
+
+    public int getSectionCounters() {
+        return sectionCounters;
+    }
+
+    public void setSectionCounters(final int sectionCounters) {
+        this.sectionCounters = sectionCounters;
+    }
+
+    public boolean isResponseSizesPerSection() {
+        return responseSizesPerSection;
+    }
+
+    public void setResponseSizesPerSection(final boolean responseSizesPerSection) {
+        this.responseSizesPerSection = responseSizesPerSection;
+    }
+
+    public List<AlertRule> getAlertRules() {
+        return alertRules;
+    }
+
+    public void setAlertRules(final List<AlertRule> alertRules) {
+        this.alertRules = alertRules;
+    }
+
+    public GroupBySpec getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(final GroupBySpec groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public void setHeadless(final boolean headless) {
+        this.headless = headless;
+    }
+
+    public String getOutputFilename() {
+        return outputFilename;
+    }
+
+    public void setOutputFilename(final String outputFilename) {
+        this.outputFilename = outputFilename;
+    }
+
+    public Integer getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(final Integer metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    /**
+     * @return what the traffic stats count, according to the settings.
+     */
+    public TrafficStatsOptions getStatsOptions() {
+        return new TrafficStatsOptions().
+                setSectionCounters(sectionCounters).
+                setResponseSizesPerSection(responseSizesPerSection);
+    }
+}
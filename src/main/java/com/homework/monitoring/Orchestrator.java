@@ -1,14 +1,38 @@
 package com.homework.monitoring;
 
+import com.filereader.CheckpointStore;
 import com.filereader.FileReader;
+import com.filereader.GlobFileReader;
+import com.filereader.LogLineListener;
+import com.homework.monitoring.alerts.HTTPTrafficAlertsListener;
 import com.homework.monitoring.alerts.HTTPTrafficAlertsManager;
+import com.homework.monitoring.alerts.rules.AlertRuleEngine;
+import com.homework.monitoring.metrics.JmxMetricsExporter;
+import com.homework.monitoring.metrics.MetricsRegistry;
+import com.homework.monitoring.metrics.PrometheusMetricsServer;
+import com.homework.monitoring.pipeline.AsyncLogEntryStage;
+import com.homework.monitoring.pipeline.AsyncLogLineStage;
+import com.homework.monitoring.pipeline.ParallelParseStage;
+import com.homework.monitoring.stats.HTTPStatsListener;
 import com.homework.monitoring.stats.HTTPTrafficStatsManager;
+import com.homework.monitoring.stats.StatsRollupStore;
+import com.homework.monitoring.stats.groupby.GroupByEngine;
+import com.homework.monitoring.time.MonitoringClock;
+import com.homework.monitoring.time.SystemScheduler;
 import com.homework.ui.ApplicationUI;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongSupplier;
 
 /**
  * Object managing all interactions between the different parts of the application.
@@ -20,76 +44,258 @@ public class Orchestrator {
     private Logger logger = LogManager.getLogger(Orchestrator.class);
 
     /**
-     * Default period of sampling the log file for new lines, in milliseconds.
+     * Default (longest) period of sampling the log file for new lines, in milliseconds; the file system's modification
+     * events wake up the reader sooner.
      */
     private final static Integer DEFAULT_FILE_SAMPLE_INTERVAL = 1000; // in milliseconds.
 
+    /**
+     * Default number of reader workers shared by all the log files when a glob pattern is monitored.
+     */
+    private final static Integer DEFAULT_FILE_READER_WORKERS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
     /**
      * Default length of the monitoring window during which alerts will be raised or cancelled if the number of requests
      * goes over or below the alert threshold.
      */
-    private final static Integer DEFAULT_ALERT_MONITORING_WINDOW_LENGTH = 2 * 60; // in seconds // default 2 minutes.
+    final static Integer DEFAULT_ALERT_MONITORING_WINDOW_LENGTH = 2 * 60; // in seconds // default 2 minutes.
 
     /**
      * Default number of requests per second. representing the alert threshold for the monitoring window.
      */
-    private final static Integer DEFAULT_ALERT_NUMBER_REQUESTS_THRESHOLD = 10;
+    final static Integer DEFAULT_ALERT_NUMBER_REQUESTS_THRESHOLD = 10;
 
     /**
      * Default period for creating new aggregated stats from the read & parsed new CLF log file lines, in seconds.
      */
-    private final static Integer DEFAULT_STATS_CREATION_INTERVAL = 10; // in seconds.
+    final static Integer DEFAULT_STATS_CREATION_INTERVAL = 10; // in seconds.
+
+    /**
+     * Number of batches (read chunks) each pipeline stage can hold before its backpressure policy applies.
+     */
+    private final static Integer DEFAULT_PIPELINE_STAGE_CAPACITY = 64;
 
     /**
      * Constructor.
      * @param inputFilename path towards the log file on disk.
      */
     public Orchestrator(final String inputFilename) {
+        this(inputFilename, null);
+    }
+
+    /**
+     * Constructor.
+     * @param inputFilename path towards the log file on disk, or glob pattern of several log files
+     *                      (e.g. /var/log/nginx/*.access.log).
+     * @param checkpointFilename path towards the read checkpoint file; null to start reading from the end of the log file.
+     */
+    public Orchestrator(final String inputFilename, final String checkpointFilename) {
+        this(settings(inputFilename, checkpointFilename));
+    }
+
+    /**
+     * @return the default settings, with the given files.
+     */
+    private static MonitoringSettings settings(final String inputFilename, final String checkpointFilename) {
+        final MonitoringSettings settings = new MonitoringSettings(inputFilename);
+        settings.setCheckpointFilename(checkpointFilename);
+        return settings;
+    }
+
+    /**
+     * Constructor.
+     * @param settings the monitoring settings.
+     */
+    public Orchestrator(final MonitoringSettings settings) {
+        final String inputFilename = settings.getInputFilename();
+        final String checkpointFilename = settings.getCheckpointFilename();
         if (inputFilename == null || inputFilename.isEmpty()) {
             logger.error("Input log file is not valid [" + inputFilename + "]; stopping the application.");
             System.exit(1);
         }
 
-        // construct the UI window and launch it in a different thread.
-        ApplicationUI appUI = new ApplicationUI();
+        // construct the UI window and launch it in a different thread, or (headless) the writer of the JSON lines.
+        ApplicationUI appUI = null;
+        JsonLinesWriter jsonLinesWriter = null;
+        if (settings.isHeadless()) {
+            jsonLinesWriter = new JsonLinesWriter(openOutput(settings.getOutputFilename()), JsonLinesWriter.DEFAULT_CAPACITY);
+            jsonLinesWriter.start();
+        } else {
+            appUI = new ApplicationUI();
+            final ApplicationUI createdUI = appUI;
+            new Thread(() -> {
+                try {
+                    createdUI.create();
+                } catch (IOException e) {
+                    logger.error("failed to create console UI; exiting ...");
+                    logger.error(e.getMessage(), e);
+                    System.exit(1);
+                }
+            }, "ui-thread").start();
+        }
+        // the UI or the JSON lines receive the stats and the alerts.
+        HTTPStatsListener statsOutput = appUI != null ? appUI : jsonLinesWriter;
+        HTTPTrafficAlertsListener alertsOutput = appUI != null ? appUI : jsonLinesWriter;
 
-        new Thread(() -> {
-            try {
-                appUI.create();
-            } catch (IOException e) {
-                logger.error("failed to create console UI; exiting ...");
-                logger.error(e.getMessage(), e);
-                System.exit(1);
-            }
-        }, "ui-thread").start();
+        // the timer moving the stats windows and the alert window forward while the log is idle.
+        SystemScheduler scheduler = new SystemScheduler("monitoring-ticks");
 
-        // construct the traffic alerts manager (responsible for raising / cancelling alerts)
+        // construct the traffic alerts manager (responsible for raising / cancelling alerts), counting the requests
+        // of each second of log time.
         HTTPTrafficAlertsManager httpTrafficAlertsManager =
-                new HTTPTrafficAlertsManager(DEFAULT_ALERT_MONITORING_WINDOW_LENGTH, DEFAULT_ALERT_NUMBER_REQUESTS_THRESHOLD);
+                new HTTPTrafficAlertsManager(DEFAULT_ALERT_MONITORING_WINDOW_LENGTH, DEFAULT_ALERT_NUMBER_REQUESTS_THRESHOLD,
+                        HTTPTrafficAlertsManager.DEFAULT_RESOLUTION, MonitoringClock.SYSTEM, scheduler);
         // register the UI as a listener for alerts
-        httpTrafficAlertsManager.registerAlertsListener(appUI);
+        httpTrafficAlertsManager.registerAlertsListener(alertsOutput);
 
-        // construct the stats manager (responsible sending out aggregated stats every
-        HTTPTrafficStatsManager httpTrafficStatsManager = new HTTPTrafficStatsManager(DEFAULT_STATS_CREATION_INTERVAL);
-        // register the alerts manager as a listener for new stats
-        httpTrafficStatsManager.registerStatsListener(httpTrafficAlertsManager);
+        // construct the stats manager (responsible sending out aggregated stats every 10 seconds of log time), on the
+        // system clock, counting the sections exactly or with a bounded summary (and their response sizes if asked).
+        HTTPTrafficStatsManager httpTrafficStatsManager = new HTTPTrafficStatsManager(DEFAULT_STATS_CREATION_INTERVAL,
+                settings.getAllowedLateness(), MonitoringClock.SYSTEM, scheduler, settings.getStatsOptions());
+        // keep the history of the stats (10 seconds, minutes & hours), before the UI which shows the longer periods.
+        if (appUI != null) {
+            StatsRollupStore rollupStore = new StatsRollupStore(settings.getStatsOptions());
+            httpTrafficStatsManager.registerStatsListener(rollupStore);
+            appUI.setRollupStore(rollupStore);
+        }
         // register the UI as a listener for new stats so visual updates are being shown.
-        httpTrafficStatsManager.registerStatsListener(appUI);
+        httpTrafficStatsManager.registerStatsListener(statsOutput);
 
         // creating new entry manager to send new entries to all listeners
         LogEntryBroadcaster logEntryBroadcaster = new LogEntryBroadcaster();
-        // register the stats manager as a listener of new CLF log entries
+        // register the stats manager as a listener of new CLF log entries.
         logEntryBroadcaster.registerListener(httpTrafficStatsManager);
+        // register the alerts manager as a listener of new CLF log entries.
+        logEntryBroadcaster.registerListener(httpTrafficAlertsManager);
+        // same for the additional alert rules, if any.
+        if (!settings.getAlertRules().isEmpty()) {
+            AlertRuleEngine alertRuleEngine = new AlertRuleEngine(settings.getAlertRules(), MonitoringClock.SYSTEM, scheduler);
+            alertRuleEngine.registerAlertsListener(alertsOutput);
+            logEntryBroadcaster.registerListener(alertRuleEngine);
+        }
+        // group the traffic by the asked fields (bounded number of groups), shown by the UI or written with the stats.
+        if (settings.getGroupBy() != null) {
+            GroupByEngine groupByEngine = new GroupByEngine(settings.getGroupBy());
+            if (appUI != null) {
+                appUI.setGroupByEngine(groupByEngine);
+            } else {
+                jsonLinesWriter.setGroupByEngine(groupByEngine);
+            }
+            logEntryBroadcaster.registerListener(groupByEngine);
+        }
+        // all the listeners above receive the entries on the entry stage's thread: when the backpressure policy drops
+        // or samples entries, the stats, the alerts and the groups are all computed from the same entries.
+        LogEntryBroadcaster parsedEntryBroadcaster = new LogEntryBroadcaster();
+        AsyncLogEntryStage entryStage = new AsyncLogEntryStage(logEntryBroadcaster,
+                DEFAULT_PIPELINE_STAGE_CAPACITY, settings.getBackpressurePolicy());
+        parsedEntryBroadcaster.registerListener(entryStage);
+        entryStage.start();
 
-        // creating line parser listener to convert new string lines into log entries
-        LogLineParserListener logLineParserListener = new LogLineParserListener(logEntryBroadcaster);
+        // creating line parser listener to convert new string lines into log entries, on its own thread (or fanned out
+        // to several parser threads, the entries being broadcast in line order).
+        LogLineListener logLineParserListener;
+        LogLineParserListener lineParser;
+        if (settings.getParserThreads() > 1) {
+            ParallelParseStage parallelParser = new ParallelParseStage(parsedEntryBroadcaster, settings.getParserThreads());
+            lineParser = parallelParser.getParser();
+            logLineParserListener = parallelParser;
+        } else {
+            lineParser = new LogLineParserListener(parsedEntryBroadcaster);
+            logLineParserListener = lineParser;
+        }
+        AsyncLogLineStage lineStage = new AsyncLogLineStage(logLineParserListener,
+                DEFAULT_PIPELINE_STAGE_CAPACITY, settings.getBackpressurePolicy());
+        lineStage.start();
+
+        final CheckpointStore checkpointStore =
+                checkpointFilename == null ? null : new CheckpointStore(Paths.get(checkpointFilename));
 
-        // creating file tail reader to read new lines from the text file.
-        FileReader tailReader = new FileReader(new File(inputFilename), DEFAULT_FILE_SAMPLE_INTERVAL);
-        // register the log line parser as listener of new on-disk file lines.
-        tailReader.registerLogFileTailerListener(logLineParserListener);
+        // the counters of the reader, for the metrics.
+        LongSupplier linesRead;
+        LongSupplier bytesRead;
+        LongSupplier readLag;
+        if (GlobFileReader.isGlobPattern(inputFilename)) {
+            // creating a reader pool tailing all the files matching the pattern.
+            GlobFileReader globReader =
+                    new GlobFileReader(inputFilename, DEFAULT_FILE_READER_WORKERS, DEFAULT_FILE_SAMPLE_INTERVAL);
+            globReader.setCheckpointStore(checkpointStore);
+            globReader.registerLogFileTailerListener(lineStage);
+            globReader.start();
+            linesRead = globReader::getLinesRead;
+            bytesRead = globReader::getBytesRead;
+            readLag = globReader::getLag;
+        } else {
+            // creating file tail reader to read new lines from the text file.
+            FileReader tailReader = new FileReader(new File(inputFilename), DEFAULT_FILE_SAMPLE_INTERVAL, true);
+            // resume the reading where the previous run stopped (if checkpoints are enabled).
+            tailReader.setCheckpointStore(checkpointStore);
+            // register the log line parser as listener of new on-disk file lines.
+            tailReader.registerLogFileTailerListener(lineStage);
 
-        // starting the on-disk file reader.
-        tailReader.start();
+            // starting the on-disk file reader.
+            tailReader.start();
+            linesRead = tailReader::getLinesRead;
+            bytesRead = tailReader::getBytesRead;
+            readLag = tailReader::getLag;
+        }
+
+        // expose the metrics of the pipeline over JMX (and HTTP if asked); they are only read when exported.
+        MetricsRegistry metrics = new MetricsRegistry()
+                .counter("logmonitor_lines_read_total", "Log lines read", linesRead)
+                .rate("logmonitor_lines_read_per_second", "Log lines read during the last second", linesRead, scheduler)
+                .counter("logmonitor_bytes_read_total", "Bytes of the log files read", bytesRead)
+                .gauge("logmonitor_read_lag_bytes", "Bytes written to the log files and not read yet", readLag)
+                .gauge("logmonitor_line_stage_batches", "Batches of lines waiting to be parsed",
+                        lineStage.getBuffer()::getOccupancy)
+                .counter("logmonitor_line_stage_dropped_lines_total", "Lines dropped by the backpressure policy",
+                        lineStage.getBuffer()::getDroppedItems)
+                .counter("logmonitor_lines_parsed_total", "Log lines parsed", lineParser::getParsedLines)
+                .counter("logmonitor_malformed_lines_total", "Malformed log lines discarded", lineParser::getMalformedLines)
+                .counter("logmonitor_entries_broadcast_total", "Log entries handed to the stats, alerts and groups",
+                        logEntryBroadcaster::getBroadcastEntries)
+                .gauge("logmonitor_entry_stage_batches", "Batches of entries waiting to be counted in the stats, alerts and groups",
+                        entryStage.getBuffer()::getOccupancy)
+                .counter("logmonitor_entry_stage_dropped_entries_total", "Entries dropped by the backpressure policy",
+                        entryStage.getBuffer()::getDroppedItems)
+                .counter("logmonitor_stats_windows_total", "Stats windows emitted",
+                        httpTrafficStatsManager::getEmittedWindows)
+                .counter("logmonitor_stats_emission_nanoseconds_total",
+                        "Time spent building the stats windows and notifying them", httpTrafficStatsManager::getEmissionNanos)
+                .counter("logmonitor_stats_late_entries_total", "Entries counted in their window after its end",
+                        httpTrafficStatsManager::getLateEntries)
+                .counter("logmonitor_stats_dropped_entries_total", "Entries dropped as their window was already emitted",
+                        httpTrafficStatsManager::getDroppedEntries)
+                .gauge("logmonitor_alert_window_requests", "Requests of the traffic alert window",
+                        httpTrafficAlertsManager::getNumberOfRequestsInWindow)
+                .gauge("logmonitor_alert_raised", "Whether the traffic alert is raised (1) or not (0)",
+                        () -> httpTrafficAlertsManager.isAlertRaised() ? 1 : 0);
+        new JmxMetricsExporter(metrics).register(JmxMetricsExporter.DEFAULT_OBJECT_NAME);
+        if (settings.getMetricsPort() != null) {
+            try {
+                new PrometheusMetricsServer(metrics, settings.getMetricsPort()).start();
+            } catch (IOException e) {
+                logger.error("Cannot serve the metrics on port " + settings.getMetricsPort() + " : " + e.getMessage() +
+                        "; continuing without them.");
+            }
+        }
+    }
+
+    /**
+     * Open the destination of the JSON lines of the headless mode, exiting if it cannot be opened.
+     * @param outputFilename path towards the file (appended to); null for the standard output.
+     * @return the (buffered) destination.
+     */
+    private Writer openOutput(final String outputFilename) {
+        if (outputFilename == null) {
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        }
+        try {
+            return Files.newBufferedWriter(Paths.get(outputFilename), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.error("Cannot open the output file [" + outputFilename + "] : " + e.getMessage() + "; exiting ...");
+            System.exit(1);
+            return null;
+        }
     }
 }
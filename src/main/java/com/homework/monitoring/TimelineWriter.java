@@ -0,0 +1,133 @@
+package com.homework.monitoring;
+
+import com.homework.monitoring.alerts.HTTPTrafficAlertsListener;
+import com.homework.monitoring.alerts.rules.AlertRule;
+import com.homework.monitoring.stats.HTTPStatsListener;
+import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.stats.SectionCount;
+import com.homework.monitoring.stats.groupby.GroupByEngine;
+import com.homework.monitoring.stats.groupby.GroupCount;
+
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes the timeline of a replay: one line per stats window and one line per alert transition, stamped with log
+ * time.
+ *
+ * @Note the alerts react to each second of log time while a window is only written once complete: an alert line is
+ * written before the line of the window it happened in.
+ */
+public class TimelineWriter implements HTTPStatsListener, HTTPTrafficAlertsListener {
+    /**
+     * Destination of the timeline.
+     */
+    private final PrintWriter output;
+
+    /**
+     * The latest stats window.
+     */
+    private HTTPTrafficStats lastStats;
+
+    /**
+     * Number of windows written.
+     */
+    private long windows;
+
+    /**
+     * Number of alert transitions written.
+     */
+    private long alertTransitions;
+
+    /**
+     * Constructor.
+     * @param output destination of the timeline.
+     */
+    public TimelineWriter(final PrintWriter output) {
+        this.output = output;
+    }
+
+    @Override
+    public void processTrafficStatistics(final HTTPTrafficStats httpTrafficStats) {
+        lastStats = httpTrafficStats;
+        windows++;
+
+        final List<SectionCount> topSections = httpTrafficStats.getTopSections(1);
+        output.println(httpTrafficStats.getWindowStart() + " - " + httpTrafficStats.getWindowEnd() +
+                " requests=" + httpTrafficStats.getTotalNumberOfHTTPRequests() +
+                " bytes=" + httpTrafficStats.getTotalSizeOfRequestsInBytes() +
+                " sizes[" + httpTrafficStats.getResponseSizes() + "]" +
+                " valid=" + httpTrafficStats.getTotalNumberOfValidHTTPRequests() +
+                " clientErrors=" + httpTrafficStats.getTotalNumberOfClientErrorHTTPRequests() +
+                " serverErrors=" + httpTrafficStats.getTotalNumberOfServerErrorHTTPRequests() +
+                " clients~" + httpTrafficStats.getDistinctClients().estimate() +
+                " users~" + httpTrafficStats.getDistinctUsers().estimate() +
+                " topSection=" + (topSections.isEmpty() ? "-" : topSections.get(0)));
+    }
+
+    @Override
+    public void raiseAlert() {
+        alertTransitions++;
+        output.println(logTime() + " ALERT RAISED : high traffic over the monitoring window");
+    }
+
+    @Override
+    public void cancelAlert() {
+        alertTransitions++;
+        output.println(logTime() + " ALERT CANCELLED : traffic back under the threshold");
+    }
+
+    @Override
+    public void raiseAlert(final AlertRule rule, final double value, final long time) {
+        alertTransitions++;
+        output.println(Instant.ofEpochMilli(time) + " ALERT RAISED : " + rule.getName() + " " + rule.getMetric() +
+                (rule.getSection() == null ? "" : " " + rule.getSection()) + " = " + rule.format(value) +
+                " over the last " + rule.getWindowSeconds() + "s");
+    }
+
+    @Override
+    public void cancelAlert(final AlertRule rule, final double value, final long time) {
+        alertTransitions++;
+        output.println(Instant.ofEpochMilli(time) + " ALERT CANCELLED : " + rule.getName() + " " + rule.getMetric() +
+                (rule.getSection() == null ? "" : " " + rule.getSection()) + " = " + rule.format(value) +
+                " over the last " + rule.getWindowSeconds() + "s");
+    }
+
+    /**
+     * Write the largest groups of the traffic (at the end of the replay).
+     * @param groupByEngine the groups.
+     * @param numberOfGroups the largest number of groups written.
+     */
+    public void writeGroups(final GroupByEngine groupByEngine, final int numberOfGroups) {
+        output.println("GROUPS " + groupByEngine.getSpec() + " : " + groupByEngine.getNumberOfGroups() + " kept, " +
+                groupByEngine.getEvictions() + " evicted");
+        for (final GroupCount group : groupByEngine.top(numberOfGroups)) {
+            output.println("  " + group);
+        }
+        if (groupByEngine.getEvictions() > 0) {
+            output.println("  " + groupByEngine.getEvictedGroups());
+        }
+    }
+
+    /**
+     * @return the log time of the latest window's end.
+     */
+    private String logTime() {
+        return lastStats == null ? "-" : String.valueOf(lastStats.getWindowEnd());
+    }
+
+    /**
+     * @return the number of windows written.
+     */
+    public long getWindows() {
+        return windows;
+    }
+
+    /**
+     * @return the number of alert transitions written.
+     */
+    public long getAlertTransitions() {
+        return alertTransitions;
+    }
+}
@@ -1,5 +1,7 @@
 package com.homework.monitoring.alerts;
 
+import com.homework.monitoring.alerts.rules.AlertRule;
+
 /**
  * Interface for an alert lister.
  */
@@ -15,4 +17,24 @@ public interface HTTPTrafficAlertsListener {
      * the threshold during the (sliding) monitoring window.
      */
     void cancelAlert();
+
+    /**
+     * An alert rule's threshold was breached.
+     * @param rule the rule.
+     * @param value the value of the rule's metric which breached the threshold.
+     * @param time the log time of the breach (epoch milliseconds).
+     */
+    default void raiseAlert(final AlertRule rule, final double value, final long time) {
+        raiseAlert();
+    }
+
+    /**
+     * A previously raised alert rule is back within its threshold.
+     * @param rule the rule.
+     * @param value the value of the rule's metric.
+     * @param time the log time of the recovery (epoch milliseconds).
+     */
+    default void cancelAlert(final AlertRule rule, final double value, final long time) {
+        cancelAlert();
+    }
 }
@@ -1,28 +1,38 @@
 package com.homework.monitoring.alerts;
 
+import com.clfparser.CLFLogEntry;
+import com.homework.monitoring.LogEntryListener;
+import com.homework.monitoring.alerts.rules.AlertMetric;
+import com.homework.monitoring.alerts.rules.AlertRule;
 import com.homework.monitoring.stats.HTTPStatsListener;
 import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.time.MonitoringClock;
+import com.homework.monitoring.time.MonitoringScheduler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
- * The traffic alerts manager will listen for new stats and examine the ones having arrived in the
- * active alert window (i.e. two minutes). If the number of requests goes over a limit, it will
- * raise an alert; if the number of requests during that time it has gone under the alert threshold,
- * it will cancel the alert.
+ * The traffic alerts manager counts the requests of the active alert window (i.e. two minutes) of log time. If the
+ * number of requests goes over a limit, it will raise an alert; if the number of requests during that time it has
+ * gone under the alert threshold, it will cancel the alert.
  *
- * @Note: an alternate architecture would have been to listen for CLF entries directly and just count
- * them as they come, which would offer a more fine grained reaction in raising alerts; however, as
- * the stats manager is already listening for logs and aggregating data, this simplifies the logic.
+ * The requests are counted per second (or finer resolution) of log time in a circular buffer covering the window,
+ * with a running sum: recording requests and sliding the window are constant-time, and the alert is evaluated as soon
+ * as the count changes. The alert therefore reacts within a second of the threshold being crossed, whatever the stats
+ * period.
+ *
+ * The manager is fed either with the log entries (as a {@link LogEntryListener}, the window then sliding every second
+ * with the wall clock while the log is idle) or with stats windows (as a {@link HTTPStatsListener}, each window's
+ * requests being counted at its end) - not both.
+ *
+ * @Note stats without window (e.g. built by hand) are taken as consecutive segments of 10 seconds.
  */
-public class HTTPTrafficAlertsManager implements HTTPStatsListener {
+public class HTTPTrafficAlertsManager implements HTTPStatsListener, LogEntryListener {
     private int alertThreshold = 5;
-    private int numberOfRequestsInWindow = 0;
     private boolean alertStateEnabled = false;
 
     /**
@@ -32,26 +42,64 @@ public class HTTPTrafficAlertsManager implements HTTPStatsListener {
     private static final int DEFAULT_ALERT_MONITORING_WINDOW = 2 * 60; // in seconds
 
     /**
-     * Default period (in seconds) between incoming traffic stats updates.
+     * Default period (in seconds) between incoming traffic stats updates without window.
      */
     private static final int DEFAULT_PERIOD_BETWEEN_STATS_UPDATES = 10; // in seconds
 
+    /**
+     * Default length of the buckets of the window.
+     */
+    public static final long DEFAULT_RESOLUTION = 1000; // in milliseconds
+
+    /**
+     * Shortest length of the buckets of the window.
+     */
+    private static final long MIN_RESOLUTION = 100; // in milliseconds
+
     /**
      * Logger.
      */
-    private Logger logger = LogManager.getLogger(HTTPStatsListener.class);
+    private Logger logger = LogManager.getLogger(HTTPTrafficAlertsManager.class);
 
     /**
-     * Queue of incoming stats.
-     *
-     * @Note because the alert manager is a listener for traffic stats and the contract of the traffic
-     * stats manager is to send new updates every 10 seconds, in order to use a sliding window for the
-     * last N minutes we simply limit the number of traffic stats we take into account.
-     *
-     * For example, if the window is 2 minutes, which is 120 seconds, that means we will look at the last
-     * 120 seconds / 10 seconds between each update = 12 traffic stats updates.
+     * Number of requests of each bucket of the window, indexed by bucket number modulo the number of buckets.
      */
-    private Queue<HTTPTrafficStats> listTrafficStats;
+    private final long[] buckets;
+
+    /**
+     * Length of the buckets.
+     */
+    private final long resolution; // in milliseconds
+
+    /**
+     * Number (log time / resolution) of the latest bucket of the window; Long.MIN_VALUE until the first request.
+     */
+    private long headBucket = Long.MIN_VALUE;
+
+    /**
+     * Running sum of the buckets.
+     */
+    private long numberOfRequestsInWindow = 0;
+
+    /**
+     * Latest log time reached.
+     */
+    private long logTime = Long.MIN_VALUE;
+
+    /**
+     * Latest log time of the entries.
+     */
+    private long maxEventTime = Long.MIN_VALUE;
+
+    /**
+     * Wall clock time at which the latest log time of the entries was seen.
+     */
+    private long maxEventTimeArrival;
+
+    /**
+     * The wall clock.
+     */
+    private final MonitoringClock clock;
 
     /**
      * List of alert listeners.
@@ -64,11 +112,31 @@ public class HTTPTrafficAlertsManager implements HTTPStatsListener {
     private final int alertMonitoringWindow;
 
     /**
-     * Constructor.
+     * The rule watched, given to the listeners with the alerts.
+     */
+    private final AlertRule rule;
+
+    /**
+     * Constructor; the window only slides with the requests counted (or {@link #advanceTime(long)}).
      * @param alertMonitoringWindow the user set monitoring window for determining if an alert should be raised (in seconds).
      * @param maxRequestsPerSecondForAlert the number of requests which, if gone over, an alert must be raised.
      */
     public HTTPTrafficAlertsManager(final int alertMonitoringWindow, final int maxRequestsPerSecondForAlert) {
+        this(alertMonitoringWindow, maxRequestsPerSecondForAlert, DEFAULT_RESOLUTION, MonitoringClock.SYSTEM, null);
+    }
+
+    /**
+     * Constructor.
+     * @param alertMonitoringWindow the user set monitoring window for determining if an alert should be raised (in seconds).
+     * @param maxRequestsPerSecondForAlert the number of requests which, if gone over, an alert must be raised.
+     * @param resolution length of the buckets of the window, in milliseconds (from 100 ms to 1 second, dividing a second).
+     * @param clock the wall clock.
+     * @param scheduler slides the window with the wall clock while the log is idle, every bucket; null if it only
+     *                  slides with the log time.
+     */
+    public HTTPTrafficAlertsManager(final int alertMonitoringWindow, final int maxRequestsPerSecondForAlert,
+                                    final long resolution, final MonitoringClock clock,
+                                    final MonitoringScheduler scheduler) {
         this.alertThreshold = maxRequestsPerSecondForAlert;
 
         if (alertMonitoringWindow < 10) {
@@ -87,36 +155,163 @@ public class HTTPTrafficAlertsManager implements HTTPStatsListener {
         } else if (maxRequestsPerSecondForAlert > 20) {
             logger.warn("Alert threshold is very high (" + maxRequestsPerSecondForAlert + ").");
         }
-        listTrafficStats = new ConcurrentLinkedQueue<>();
+
+        if (resolution < MIN_RESOLUTION || resolution > 1000 || 1000 % resolution != 0) {
+            logger.error("Invalid alert window resolution (" + resolution + " ms), going with default of " +
+                    DEFAULT_RESOLUTION + " ms.");
+            this.resolution = DEFAULT_RESOLUTION;
+        } else {
+            this.resolution = resolution;
+        }
+        this.buckets = new long[(int) (this.alertMonitoringWindow * 1000L / this.resolution)];
+        this.rule = new AlertRule("high-traffic", AlertMetric.REQUESTS_PER_SECOND, null, true, this.alertThreshold,
+                this.alertMonitoringWindow);
+
+        this.clock = clock;
+        if (scheduler != null) {
+            scheduler.scheduleAtFixedRate(() -> tick(clock.currentTimeMillis()), this.resolution);
+        }
+    }
+
+    @Override
+    public void process(final CLFLogEntry entry) {
+        if (entry != null) {
+            final long now = clock.currentTimeMillis();
+            synchronized (this) {
+                countEntry(entry, now);
+                evaluate();
+            }
+        }
+    }
+
+    @Override
+    public void processBatch(final List<CLFLogEntry> entries) {
+        final long now = clock.currentTimeMillis();
+        synchronized (this) {
+            for (final CLFLogEntry entry : entries) {
+                countEntry(entry, now);
+            }
+            evaluate();
+        }
+    }
+
+    /**
+     * Count an entry in the bucket of its log time.
+     * @param entry the entry.
+     * @param now the wall clock time.
+     */
+    private void countEntry(final CLFLogEntry entry, final long now) {
+        final long eventTime = entry.getTimestampMillis();
+        if (eventTime > now) {
+            // would slide the window into the future and empty it.
+            return;
+        }
+        if (eventTime > maxEventTime) {
+            maxEventTime = eventTime;
+            maxEventTimeArrival = now;
+        }
+        count(eventTime, 1);
     }
 
     @Override
     public void processTrafficStatistics(final HTTPTrafficStats httpTrafficStats) {
         logger.info("Processing new traffic stats - received " + httpTrafficStats.getTotalNumberOfHTTPRequests() + " new requests");
 
-        // we only want to maintain a sliding window for the monitoring window, so if we get updates every N seconds and
-        // if we have a predefined monitoring window of M seconds then we must keep max M/N new stat updates.
-        if (listTrafficStats.size() >= alertMonitoringWindow / DEFAULT_PERIOD_BETWEEN_STATS_UPDATES) {
-            // take oldest stats and remove its details from the alert monitoring.
-            final HTTPTrafficStats oldestStats = listTrafficStats.remove();
-            numberOfRequestsInWindow -= oldestStats.getTotalNumberOfHTTPRequests();
+        synchronized (this) {
+            final long windowEnd;
+            if (httpTrafficStats.getWindowEnd() != null) {
+                windowEnd = httpTrafficStats.getWindowEnd().toEpochMilli();
+            } else {
+                windowEnd = (headBucket == Long.MIN_VALUE ? 0 : (headBucket + 1) * resolution) +
+                        DEFAULT_PERIOD_BETWEEN_STATS_UPDATES * 1000L;
+            }
+            count(windowEnd - 1, httpTrafficStats.getTotalNumberOfHTTPRequests());
+            logTime = Math.max(logTime, windowEnd);
+            evaluate();
         }
-        listTrafficStats.add(httpTrafficStats);
+    }
 
-        numberOfRequestsInWindow += httpTrafficStats.getTotalNumberOfHTTPRequests();
-        float requestsPerSecond = (float) numberOfRequestsInWindow / alertMonitoringWindow;
-        logger.info("Requests per second = " + requestsPerSecond);
+    /**
+     * Count requests at a log time, e.g. from another source than the log entries.
+     * @param time the log time of the requests, in epoch milliseconds.
+     * @param requests the number of requests.
+     */
+    public synchronized void recordRequests(final long time, final long requests) {
+        count(time, requests);
+        evaluate();
+    }
 
-        if (requestsPerSecond < alertThreshold) {
+    /**
+     * Slide the window up to a log time, e.g. at the end of a replay.
+     * @param time the log time, in epoch milliseconds (ignored if it is behind the window).
+     */
+    public synchronized void advanceTime(final long time) {
+        slideTo(Math.floorDiv(time, resolution));
+        logTime = Math.max(logTime, time);
+        evaluate();
+    }
+
+    /**
+     * Slide the window with the wall clock while the log is idle: the log time follows the wall clock from the latest
+     * entry.
+     * @param now the wall clock time.
+     */
+    private synchronized void tick(final long now) {
+        if (maxEventTime != Long.MIN_VALUE) {
+            advanceTime(maxEventTime + (now - maxEventTimeArrival));
+        }
+    }
+
+    /**
+     * Count requests in the bucket of their log time, sliding the window first if they are more recent.
+     * @param time the log time.
+     * @param requests the number of requests.
+     */
+    private void count(final long time, final long requests) {
+        final long bucket = Math.floorDiv(time, resolution);
+        slideTo(bucket);
+        logTime = Math.max(logTime, time);
+        if (bucket <= headBucket - buckets.length) {
+            // older than the window.
+            return;
+        }
+        buckets[(int) Math.floorMod(bucket, (long) buckets.length)] += requests;
+        numberOfRequestsInWindow += requests;
+    }
+
+    /**
+     * Slide the window so that it ends with a bucket, emptying the buckets leaving it.
+     * @param bucket the number of the new latest bucket (ignored if it is not after the current one).
+     */
+    private void slideTo(final long bucket) {
+        if (headBucket == Long.MIN_VALUE) {
+            headBucket = bucket;
+            return;
+        }
+        // a jump of more than the window empties all of it.
+        final long steps = Math.min(bucket - headBucket, buckets.length);
+        for (long step = 1; step <= steps; step++) {
+            final int index = (int) Math.floorMod(headBucket + step, (long) buckets.length);
+            numberOfRequestsInWindow -= buckets[index];
+            buckets[index] = 0;
+        }
+        headBucket = Math.max(headBucket, bucket);
+    }
+
+    /**
+     * Raise or cancel the alert depending on the average number of requests per second over the window.
+     */
+    private void evaluate() {
+        if (numberOfRequestsInWindow < (long) alertThreshold * alertMonitoringWindow) {
             if (alertStateEnabled) {
                 alertStateEnabled = false;
-                logger.error("Alert disabled " + requestsPerSecond);
+                logger.error("Alert disabled " + getRequestsPerSecond() + " at " + Instant.ofEpochMilli(logTime));
                 cancelAlert();
             }
         } else {
             if (!alertStateEnabled) {
                 alertStateEnabled = true;
-                logger.error("Alert enabled " + requestsPerSecond);
+                logger.error("Alert enabled " + getRequestsPerSecond() + " at " + Instant.ofEpochMilli(logTime));
                 raiseAlert();
             }
         }
@@ -143,7 +338,7 @@ public class HTTPTrafficAlertsManager implements HTTPStatsListener {
      */
     protected void raiseAlert() {
         for (final HTTPTrafficAlertsListener listener : alertsListenerList) {
-            listener.raiseAlert();
+            listener.raiseAlert(rule, getRequestsPerSecond(), logTime);
         }
     }
 
@@ -152,14 +347,42 @@ public class HTTPTrafficAlertsManager implements HTTPStatsListener {
      */
     protected void cancelAlert() {
         for (final HTTPTrafficAlertsListener listener : alertsListenerList) {
-            listener.cancelAlert();
+            listener.cancelAlert(rule, getRequestsPerSecond(), logTime);
         }
     }
 
     /**
-     * @return the current number of requests tracked during the active monitoring window {@link }
+     * @return the current number of requests tracked during the active monitoring window.
      */
-    public int getNumberOfRequestsInWindow() {
+    public synchronized long getNumberOfRequestsInWindow() {
         return numberOfRequestsInWindow;
     }
+
+    /**
+     * @return the average number of requests per second over the active monitoring window.
+     */
+    public synchronized float getRequestsPerSecond() {
+        return (float) numberOfRequestsInWindow / alertMonitoringWindow;
+    }
+
+    /**
+     * @return whether the alert is raised.
+     */
+    public synchronized boolean isAlertRaised() {
+        return alertStateEnabled;
+    }
+
+    /**
+     * @return the rule watched.
+     */
+    public AlertRule getRule() {
+        return rule;
+    }
+
+    /**
+     * @return the latest log time reached (epoch milliseconds); Long.MIN_VALUE before the first request.
+     */
+    public synchronized long getLogTime() {
+        return logTime;
+    }
 }
@@ -0,0 +1,85 @@
+package com.homework.monitoring.alerts.rules;
+
+/**
+ * What an alert rule watches, computed from the counters of its window.
+ */
+public enum AlertMetric {
+    /**
+     * Average number of requests per second.
+     */
+    REQUESTS_PER_SECOND("requestsPerSecond"),
+
+    /**
+     * Number of requests (hits) over the window.
+     */
+    HITS("hits"),
+
+    /**
+     * Average number of response bytes per second.
+     */
+    BYTES_PER_SECOND("bytesPerSecond"),
+
+    /**
+     * Share of the requests answered with a 4xx status (0 without request).
+     */
+    CLIENT_ERROR_RATIO("clientErrorRatio"),
+
+    /**
+     * Share of the requests answered with a 5xx status (0 without request).
+     */
+    SERVER_ERROR_RATIO("serverErrorRatio");
+
+    /**
+     * Name of the metric in the rules file.
+     */
+    private final String name;
+
+    AlertMetric(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name name of a metric in the rules file.
+     * @return the metric, or null if the name is unknown.
+     */
+    public static AlertMetric fromName(final String name) {
+        for (final AlertMetric metric : values()) {
+            if (metric.name.equals(name)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true for the metrics which are a share of the requests (their threshold may be written as a percentage).
+     */
+    public boolean isRatio() {
+        return this == CLIENT_ERROR_RATIO || this == SERVER_ERROR_RATIO;
+    }
+
+    /**
+     * @param counters the counters of the window.
+     * @return the value of the metric over the window.
+     */
+    double valueOf(final SlidingCounters counters) {
+        final long requests = counters.getRequests();
+        switch (this) {
+            case REQUESTS_PER_SECOND:
+                return (double) requests / counters.getWindowSeconds();
+            case HITS:
+                return requests;
+            case BYTES_PER_SECOND:
+                return (double) counters.getBytes() / counters.getWindowSeconds();
+            case CLIENT_ERROR_RATIO:
+                return requests == 0 ? 0 : (double) counters.getClientErrors() / requests;
+            default:
+                return requests == 0 ? 0 : (double) counters.getServerErrors() / requests;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
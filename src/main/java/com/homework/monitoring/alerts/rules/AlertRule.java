@@ -0,0 +1,225 @@
+package com.homework.monitoring.alerts.rules;
+
+import java.util.Locale;
+
+/**
+ * An alert rule : a metric of the traffic (of a section or of the whole site) over a sliding window of log time,
+ * compared either to a fixed threshold or to its own adaptive baseline (anomaly rule). It is declared on one line of
+ * the rules file :
+ * <pre>
+ * name : metric [/section] operator threshold [over seconds]
+ * name : metric [/section] anomaly deviations [seasonal] [over seconds]
+ * </pre>
+ * e.g. {@code api-errors : serverErrorRatio /api > 2% over 120s} or {@code bandwidth : bytesPerSecond > 1000000}.
+ * The operator is either {@code >} or {@code >=}; the window is of 120 seconds by default. An anomaly rule flags the
+ * values deviating (up or down) from the baseline by more than the given number of standard deviations, the baseline
+ * being learnt once per window (see {@link AnomalyBaseline}); with {@code seasonal}, per hour of the week.
+ * The section {@code /*} applies the rule to each section separately.
+ */
+public class AlertRule {
+    /**
+     * Default length of the window.
+     */
+    public static final int DEFAULT_WINDOW = 2 * 60; // in seconds
+
+    /**
+     * Section of the rules applied to each section separately.
+     */
+    public static final String EACH_SECTION = "/*";
+
+    /**
+     * Longest window.
+     */
+    private static final int MAX_WINDOW = 24 * 60 * 60; // in seconds
+
+    private final String name;
+    private final AlertMetric metric;
+    private final String section;
+    private final boolean inclusive;
+    private final double threshold;
+    private final int windowSeconds;
+    private final boolean anomaly;
+    private final boolean seasonal;
+
+    /**
+     * Constructor.
+     * @param name name of the rule, shown with its alerts.
+     * @param metric what the rule watches.
+     * @param section the section watched (e.g. "/api"); null for the whole site.
+     * @param inclusive true if the alert is raised when the value reaches the threshold (>=), false if it must exceed it (>).
+     * @param threshold the threshold.
+     * @param windowSeconds length of the sliding window, in seconds.
+     */
+    public AlertRule(final String name, final AlertMetric metric, final String section, final boolean inclusive,
+                     final double threshold, final int windowSeconds) {
+        this(name, metric, section, inclusive, threshold, windowSeconds, false, false);
+    }
+
+    /**
+     * Constructor of an anomaly rule.
+     * @param name name of the rule, shown with its alerts.
+     * @param metric what the rule watches.
+     * @param section the section watched (e.g. "/api"); null for the whole site.
+     * @param deviations number of standard deviations from the baseline flagged as an anomaly.
+     * @param seasonal whether the baseline is learnt per hour of the week.
+     * @param windowSeconds length of the sliding window (and period of the baseline samples), in seconds.
+     * @return the rule.
+     */
+    public static AlertRule anomaly(final String name, final AlertMetric metric, final String section,
+                                    final double deviations, final boolean seasonal, final int windowSeconds) {
+        if (deviations <= 0) {
+            throw new IllegalArgumentException("Invalid number of deviations of rule " + name + " (" + deviations + ").");
+        }
+        return new AlertRule(name, metric, section, false, deviations, windowSeconds, true, seasonal);
+    }
+
+    private AlertRule(final String name, final AlertMetric metric, final String section, final boolean inclusive,
+                      final double threshold, final int windowSeconds, final boolean anomaly, final boolean seasonal) {
+        if (windowSeconds < 1 || windowSeconds > MAX_WINDOW) {
+            throw new IllegalArgumentException("Invalid window of rule " + name + " (" + windowSeconds + " s).");
+        }
+        this.name = name;
+        this.metric = metric;
+        this.section = section;
+        this.inclusive = inclusive;
+        this.threshold = threshold;
+        this.windowSeconds = windowSeconds;
+        this.anomaly = anomaly;
+        this.seasonal = seasonal;
+    }
+
+    /**
+     * @param concreteSection a section.
+     * @return the rule applied to each section, applied to the given one.
+     */
+    AlertRule forSection(final String concreteSection) {
+        return new AlertRule(name, metric, concreteSection, inclusive, threshold, windowSeconds, anomaly, seasonal);
+    }
+
+    /**
+     * Read a rule declaration.
+     * @param declaration the declaration (see the class' documentation).
+     * @return the rule.
+     * @throws IllegalArgumentException if the declaration is invalid.
+     */
+    public static AlertRule parse(final String declaration) {
+        final int colon = declaration.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Missing rule name in [" + declaration + "]");
+        }
+        final String name = declaration.substring(0, colon).trim();
+        final String[] tokens = declaration.substring(colon + 1).trim().split("\\s+");
+
+        int token = 0;
+        final AlertMetric metric = AlertMetric.fromName(tokens[token++]);
+        if (metric == null) {
+            throw new IllegalArgumentException("Unknown metric in [" + declaration + "]");
+        }
+        String section = null;
+        if (token < tokens.length && tokens[token].startsWith("/")) {
+            section = tokens[token++];
+        }
+        if (token + 2 > tokens.length ||
+                !(">".equals(tokens[token]) || ">=".equals(tokens[token]) || "anomaly".equals(tokens[token]))) {
+            throw new IllegalArgumentException("Expected '>', '>=' or 'anomaly' and a threshold in [" + declaration + "]");
+        }
+        final boolean anomaly = "anomaly".equals(tokens[token]);
+        final boolean inclusive = ">=".equals(tokens[token++]);
+        final double threshold = anomaly ?
+                parseThreshold(tokens[token++], AlertMetric.HITS, declaration) :
+                parseThreshold(tokens[token++], metric, declaration);
+        boolean seasonal = false;
+        if (anomaly && token < tokens.length && "seasonal".equals(tokens[token])) {
+            seasonal = true;
+            token++;
+        }
+
+        int windowSeconds = DEFAULT_WINDOW;
+        if (token < tokens.length) {
+            if (!"over".equals(tokens[token]) || token + 2 != tokens.length) {
+                throw new IllegalArgumentException("Expected 'over <seconds>' at the end of [" + declaration + "]");
+            }
+            final String window = tokens[token + 1];
+            try {
+                windowSeconds = Integer.parseInt(window.endsWith("s") ? window.substring(0, window.length() - 1) : window);
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid window in [" + declaration + "]");
+            }
+        }
+        return anomaly ? anomaly(name, metric, section, threshold, seasonal, windowSeconds) :
+                new AlertRule(name, metric, section, inclusive, threshold, windowSeconds);
+    }
+
+    /**
+     * @return the threshold, percentages being allowed for the ratios.
+     */
+    private static double parseThreshold(final String text, final AlertMetric metric, final String declaration) {
+        try {
+            if (text.endsWith("%") && metric.isRatio()) {
+                return Double.parseDouble(text.substring(0, text.length() - 1)) / 100;
+            }
+            return Double.parseDouble(text);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid threshold in [" + declaration + "]");
+        }
+    }
+
+    /**
+     * @param value a value of the metric (of its deviation from the baseline, in standard deviations, for an anomaly
+     *              rule).
+     * @return true if the value breaches the threshold.
+     */
+    public boolean isBreachedBy(final double value) {
+        if (anomaly) {
+            return Math.abs(value) > threshold;
+        }
+        return inclusive ? value >= threshold : value > threshold;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AlertMetric getMetric() {
+        return metric;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public boolean isAnomaly() {
+        return anomaly;
+    }
+
+    public boolean isSeasonal() {
+        return seasonal;
+    }
+
+    /**
+     * @param value a value of the metric.
+     * @return the value, formatted for display (percentage for the ratios).
+     */
+    public String format(final double value) {
+        return metric.isRatio() ?
+                String.format(Locale.ROOT, "%.2f%%", value * 100) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    @Override
+    public String toString() {
+        if (anomaly) {
+            return name + " : " + metric + (section == null ? "" : " " + section) + " anomaly " + threshold +
+                    (seasonal ? " seasonal" : "") + " over " + windowSeconds + "s";
+        }
+        return name + " : " + metric + (section == null ? "" : " " + section) + (inclusive ? " >= " : " > ") +
+                format(threshold) + " over " + windowSeconds + "s";
+    }
+}
@@ -0,0 +1,512 @@
+package com.homework.monitoring.alerts.rules;
+
+import com.clfparser.CLFLogEntry;
+import com.homework.monitoring.LogEntryListener;
+import com.homework.monitoring.alerts.HTTPTrafficAlertsListener;
+import com.homework.monitoring.time.MonitoringClock;
+import com.homework.monitoring.time.MonitoringScheduler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Evaluates many alert rules (see {@link AlertRule}) on the log entries, incrementally.
+ *
+ * The rules are compiled into dimensions : the whole site and each section watched. A dimension keeps one sliding
+ * window of counters per window length of its rules, shared by them. An entry only updates the site's dimension and
+ * its section's one (a hash lookup), and only the rules of the dimensions updated by a batch are evaluated after it;
+ * the other sections' rules are not touched. While the log time moves on, the dimensions still holding requests are
+ * slid every second, so that their alerts are cancelled when the requests leave the windows.
+ *
+ * The anomaly rules score the value of their window against an adaptive baseline (see {@link AnomalyBaseline}),
+ * which learns that value once per window length, in constant time and memory; their dimensions are slid every second
+ * even when idle, so that the quiet periods are learnt too. The rules of the section {@code /*} are applied to each
+ * section seen, up to {@link #MAX_SECTION_DIMENSIONS} sections: beyond, the least recently hit section whose alerts are
+ * not raised gives its place to the new one (e.g. once a crawler hitting random paths has moved on), its windows and
+ * baselines being forgotten.
+ *
+ * @Note the memory is 32 bytes per second of window and per dimension, e.g. 4 KB for a 2 minutes rule, plus 4 KB per
+ * seasonal anomaly rule.
+ */
+public class AlertRuleEngine implements LogEntryListener {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(AlertRuleEngine.class);
+
+    /**
+     * Interval between two slides of the windows while the log is idle.
+     */
+    private static final long TICK_INTERVAL = 1000; // in milliseconds.
+
+    /**
+     * Largest number of sections the rules of each section are applied to.
+     */
+    static final int MAX_SECTION_DIMENSIONS = 1000;
+
+    /**
+     * Number of standard deviations flagged by the default anomaly rules.
+     */
+    private static final double DEFAULT_ANOMALY_DEVIATIONS = 4;
+
+    /**
+     * Window of the default anomaly rules.
+     */
+    private static final int DEFAULT_ANOMALY_WINDOW = 60; // in seconds
+
+    /**
+     * A rule bound to the counters of its window.
+     */
+    private static final class CompiledRule {
+        private final AlertRule rule;
+        private final SlidingCounters counters;
+        private final AnomalyBaseline baseline;
+        private long nextSample = Long.MIN_VALUE;
+        private boolean firing;
+
+        private CompiledRule(final AlertRule rule, final SlidingCounters counters) {
+            this.rule = rule;
+            this.counters = counters;
+            this.baseline = rule.isAnomaly() ? new AnomalyBaseline(rule.isSeasonal(), AnomalyBaseline.DEFAULT_ALPHA) : null;
+        }
+    }
+
+    /**
+     * The site or a section, with the counters and rules watching it.
+     */
+    private static final class Dimension {
+        private final List<SlidingCounters> counters = new ArrayList<>();
+        private final List<CompiledRule> rules = new ArrayList<>();
+        private boolean dirty;
+        private boolean active;
+        private boolean learning;
+        private boolean evicted;
+
+        /**
+         * Add a rule, bound to the counters of its window.
+         */
+        private void add(final AlertRule rule) {
+            rules.add(new CompiledRule(rule, countersOf(rule.getWindowSeconds())));
+            learning |= rule.isAnomaly();
+        }
+
+        /**
+         * @return true if an alert of the dimension is raised.
+         */
+        private boolean isFiring() {
+            for (final CompiledRule compiledRule : rules) {
+                if (compiledRule.firing) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the counters of a window length, created on first use.
+         */
+        private SlidingCounters countersOf(final int windowSeconds) {
+            for (final SlidingCounters candidate : counters) {
+                if (candidate.getWindowSeconds() == windowSeconds) {
+                    return candidate;
+                }
+            }
+            final SlidingCounters created = new SlidingCounters(windowSeconds);
+            counters.add(created);
+            return created;
+        }
+    }
+
+    /**
+     * Rules of the whole site; null if there is none.
+     */
+    private final Dimension site;
+
+    /**
+     * Rules of the sections named by the rules, indexed by section.
+     */
+    private final Map<String, Dimension> sections = new HashMap<>();
+
+    /**
+     * Rules of each section applied to the other sections seen, indexed by section, least recently hit first.
+     */
+    private final LinkedHashMap<String, Dimension> seenSections = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Rules applied to each section.
+     */
+    private final List<AlertRule> eachSectionRules = new ArrayList<>();
+
+    /**
+     * Whether the sections seen started giving their place to new ones (see {@link #MAX_SECTION_DIMENSIONS}).
+     */
+    private boolean sectionLimitReached;
+
+    /**
+     * Dimensions updated since the last evaluation.
+     */
+    private final List<Dimension> dirtyDimensions = new ArrayList<>();
+
+    /**
+     * Dimensions whose windows hold requests (or whose alerts are raised, or which have anomaly rules), slid while the
+     * log time moves on.
+     */
+    private List<Dimension> activeDimensions = new ArrayList<>();
+
+    /**
+     * Number of rules.
+     */
+    private final int numberOfRules;
+
+    /**
+     * Latest log time reached.
+     */
+    private long logTime = Long.MIN_VALUE;
+
+    /**
+     * Latest log time of the entries.
+     */
+    private long maxEventTime = Long.MIN_VALUE;
+
+    /**
+     * Wall clock time at which the latest log time of the entries was seen.
+     */
+    private long maxEventTimeArrival;
+
+    /**
+     * The wall clock.
+     */
+    private final MonitoringClock clock;
+
+    /**
+     * List of alert listeners.
+     */
+    private final List<HTTPTrafficAlertsListener> alertsListenerList = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * @param rules the rules.
+     * @param clock the wall clock.
+     * @param scheduler slides the windows with the wall clock while the log is idle, every second; null if they only
+     *                  slide with the log time.
+     */
+    public AlertRuleEngine(final List<AlertRule> rules, final MonitoringClock clock, final MonitoringScheduler scheduler) {
+        Dimension siteDimension = null;
+        for (final AlertRule rule : rules) {
+            if (rule.getSection() == null) {
+                if (siteDimension == null) {
+                    siteDimension = new Dimension();
+                }
+                siteDimension.add(rule);
+            } else if (AlertRule.EACH_SECTION.equals(rule.getSection())) {
+                eachSectionRules.add(rule);
+            } else {
+                sections.computeIfAbsent(rule.getSection(), section -> new Dimension()).add(rule);
+            }
+        }
+        for (final Map.Entry<String, Dimension> section : sections.entrySet()) {
+            for (final AlertRule rule : eachSectionRules) {
+                section.getValue().add(rule.forSection(section.getKey()));
+            }
+        }
+        this.site = siteDimension;
+        this.numberOfRules = rules.size();
+        logger.info("Compiled " + rules.size() + " alert rules into " + (sections.size() + (site == null ? 0 : 1)) +
+                " dimensions.");
+
+        this.clock = clock;
+        if (scheduler != null) {
+            scheduler.scheduleAtFixedRate(() -> tick(clock.currentTimeMillis()), TICK_INTERVAL);
+        }
+    }
+
+    /**
+     * Read a rules file : one rule per line (see {@link AlertRule}), blank lines and lines starting with # being
+     * ignored.
+     * @param file the file.
+     * @return the rules.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if a rule is invalid.
+     */
+    public static List<AlertRule> readRules(final Path file) throws IOException {
+        final List<AlertRule> rules = new ArrayList<>();
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int index = 0; index < lines.size(); index++) {
+            final String line = lines.get(index).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(AlertRule.parse(line));
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + ":" + (index + 1) + " : " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * @return anomaly rules of the site's requests per second, server error ratio and bandwidth (with their hour of
+     * the week seasonality), and of each section's requests per second.
+     */
+    public static List<AlertRule> defaultAnomalyRules() {
+        final List<AlertRule> rules = new ArrayList<>();
+        rules.add(AlertRule.anomaly("traffic-anomaly", AlertMetric.REQUESTS_PER_SECOND, null,
+                DEFAULT_ANOMALY_DEVIATIONS, true, DEFAULT_ANOMALY_WINDOW));
+        rules.add(AlertRule.anomaly("errors-anomaly", AlertMetric.SERVER_ERROR_RATIO, null,
+                DEFAULT_ANOMALY_DEVIATIONS, true, DEFAULT_ANOMALY_WINDOW));
+        rules.add(AlertRule.anomaly("bandwidth-anomaly", AlertMetric.BYTES_PER_SECOND, null,
+                DEFAULT_ANOMALY_DEVIATIONS, true, DEFAULT_ANOMALY_WINDOW));
+        rules.add(AlertRule.anomaly("section-traffic-anomaly", AlertMetric.REQUESTS_PER_SECOND, AlertRule.EACH_SECTION,
+                DEFAULT_ANOMALY_DEVIATIONS, false, DEFAULT_ANOMALY_WINDOW));
+        return rules;
+    }
+
+    @Override
+    public void process(final CLFLogEntry entry) {
+        if (entry != null) {
+            final long now = clock.currentTimeMillis();
+            synchronized (this) {
+                countEntry(entry, now);
+                evaluateDirtyDimensions();
+            }
+        }
+    }
+
+    @Override
+    public void processBatch(final List<CLFLogEntry> entries) {
+        final long now = clock.currentTimeMillis();
+        synchronized (this) {
+            for (final CLFLogEntry entry : entries) {
+                countEntry(entry, now);
+            }
+            evaluateDirtyDimensions();
+        }
+    }
+
+    /**
+     * Count an entry in the site's and its section's windows.
+     * @param entry the entry.
+     * @param now the wall clock time.
+     */
+    private void countEntry(final CLFLogEntry entry, final long now) {
+        final long eventTime = entry.getTimestampMillis();
+        if (eventTime > now) {
+            // would slide the windows into the future and empty them.
+            return;
+        }
+        if (eventTime > maxEventTime) {
+            maxEventTime = eventTime;
+            maxEventTimeArrival = now;
+        }
+        logTime = Math.max(logTime, eventTime);
+
+        final long second = Math.floorDiv(eventTime, 1000);
+        if (site != null) {
+            count(site, second, entry);
+        }
+        if (!sections.isEmpty() || !eachSectionRules.isEmpty()) {
+            final String section = entry.getSection();
+            Dimension dimension = section == null ? null : sections.get(section);
+            if (dimension == null && section != null && !eachSectionRules.isEmpty()) {
+                dimension = seenSections.get(section);
+                if (dimension == null) {
+                    dimension = newSectionDimension(section);
+                }
+            }
+            if (dimension != null) {
+                count(dimension, second, entry);
+            }
+        }
+    }
+
+    /**
+     * Apply the rules of each section to a new section.
+     * @param section the section.
+     * @return its dimension, or null if too many sections are watched already and their alerts are all raised.
+     */
+    private Dimension newSectionDimension(final String section) {
+        if (seenSections.size() >= MAX_SECTION_DIMENSIONS && !evictIdleSection()) {
+            return null;
+        }
+        final Dimension dimension = new Dimension();
+        for (final AlertRule rule : eachSectionRules) {
+            dimension.add(rule.forSection(section));
+        }
+        seenSections.put(section, dimension);
+        return dimension;
+    }
+
+    /**
+     * Forget the least recently hit section whose alerts are not raised.
+     * @return false if the alerts of every section are raised.
+     */
+    private boolean evictIdleSection() {
+        if (!sectionLimitReached) {
+            sectionLimitReached = true;
+            logger.warn("The rules of each section are applied to " + MAX_SECTION_DIMENSIONS +
+                    " sections already; the least recently hit ones give their place to the new sections.");
+        }
+        final Iterator<Dimension> leastRecentlyHit = seenSections.values().iterator();
+        while (leastRecentlyHit.hasNext()) {
+            final Dimension dimension = leastRecentlyHit.next();
+            if (!dimension.isFiring()) {
+                leastRecentlyHit.remove();
+                // dropped from the active dimensions at the next tick.
+                dimension.evicted = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void count(final Dimension dimension, final long second, final CLFLogEntry entry) {
+        for (final SlidingCounters counters : dimension.counters) {
+            counters.add(second, entry.getHttpStatusCode(), entry.getResponseSize());
+        }
+        if (!dimension.dirty) {
+            dimension.dirty = true;
+            dirtyDimensions.add(dimension);
+        }
+        if (!dimension.active) {
+            dimension.active = true;
+            activeDimensions.add(dimension);
+        }
+    }
+
+    /**
+     * Evaluate the rules of the dimensions updated since the last evaluation.
+     */
+    private void evaluateDirtyDimensions() {
+        final long second = Math.floorDiv(logTime, 1000);
+        for (final Dimension dimension : dirtyDimensions) {
+            dimension.dirty = false;
+            if (!dimension.evicted) {
+                evaluate(dimension, second);
+            }
+        }
+        dirtyDimensions.clear();
+    }
+
+    /**
+     * Slide the windows with the wall clock while the log is idle: the log time follows the wall clock from the
+     * latest entry.
+     * @param now the wall clock time.
+     */
+    private synchronized void tick(final long now) {
+        if (maxEventTime == Long.MIN_VALUE) {
+            return;
+        }
+        logTime = Math.max(logTime, maxEventTime + (now - maxEventTimeArrival));
+        final long second = Math.floorDiv(logTime, 1000);
+
+        final List<Dimension> stillActive = new ArrayList<>(activeDimensions.size());
+        for (final Dimension dimension : activeDimensions) {
+            if (!dimension.evicted && evaluate(dimension, second)) {
+                stillActive.add(dimension);
+            } else {
+                dimension.active = false;
+            }
+        }
+        activeDimensions = stillActive;
+    }
+
+    /**
+     * Slide the windows of a dimension and raise or cancel the alerts of its rules.
+     * @param dimension the dimension.
+     * @param second the current log time, in epoch seconds.
+     * @return true if the dimension is still active (requests in a window, an alert raised or a baseline learning).
+     */
+    private boolean evaluate(final Dimension dimension, final long second) {
+        boolean active = dimension.learning;
+        for (final SlidingCounters counters : dimension.counters) {
+            counters.slideTo(second);
+            active |= !counters.isEmpty();
+        }
+        for (final CompiledRule compiledRule : dimension.rules) {
+            final AlertRule rule = compiledRule.rule;
+            final double value = rule.getMetric().valueOf(compiledRule.counters);
+            final boolean breached;
+            if (compiledRule.baseline == null) {
+                breached = rule.isBreachedBy(value);
+            } else {
+                final double score = compiledRule.baseline.score(value, second * 1000);
+                breached = !Double.isNaN(score) && rule.isBreachedBy(score);
+                // one sample per window, the first one once the window is full.
+                if (compiledRule.nextSample == Long.MIN_VALUE) {
+                    compiledRule.nextSample = second + rule.getWindowSeconds();
+                } else if (second >= compiledRule.nextSample) {
+                    compiledRule.baseline.update(value, second * 1000, rule.getThreshold());
+                    compiledRule.nextSample = second + rule.getWindowSeconds();
+                }
+                if (breached != compiledRule.firing) {
+                    logger.warn("Alert rule " + rule.getName() + " : " + rule.getMetric() + " = " + rule.format(value) +
+                            " deviates by " + String.format(Locale.ROOT, "%.1f", score) + " standard deviations from its baseline.");
+                }
+            }
+            if (breached != compiledRule.firing) {
+                compiledRule.firing = breached;
+                logger.warn("Alert rule " + rule.getName() + (breached ? " raised" : " cancelled") +
+                        " : " + rule.getMetric() + " = " + rule.format(value) + " at " + Instant.ofEpochMilli(logTime));
+                notifyListeners(rule, breached, value);
+            }
+            active |= compiledRule.firing;
+        }
+        return active;
+    }
+
+    /**
+     * Register a new {@link HTTPTrafficAlertsListener}.
+     * @param alertsListener the listener; must be non-null.
+     *
+     * @apiNote duplicated listeners will only be registered once.
+     */
+    public void registerAlertsListener(final HTTPTrafficAlertsListener alertsListener) {
+        if (alertsListener == null) {
+            logger.error("Cannot accept null alerts listener");
+        } else if (alertsListenerList.contains(alertsListener)) {
+            logger.warn("Same alerts listener already registered; skipping second registration.");
+        } else {
+            alertsListenerList.add(alertsListener);
+        }
+    }
+
+    /**
+     * Notify all listeners about a raised or cancelled alert.
+     */
+    private void notifyListeners(final AlertRule rule, final boolean raised, final double value) {
+        for (final HTTPTrafficAlertsListener listener : alertsListenerList) {
+            if (raised) {
+                listener.raiseAlert(rule, value, logTime);
+            } else {
+                listener.cancelAlert(rule, value, logTime);
+            }
+        }
+    }
+
+    /**
+     * @return the number of rules.
+     */
+    public int getNumberOfRules() {
+        return numberOfRules;
+    }
+
+    /**
+     * @return the number of dimensions (the site and the sections watched).
+     */
+    public int getNumberOfDimensions() {
+        return sections.size() + seenSections.size() + (site == null ? 0 : 1);
+    }
+}
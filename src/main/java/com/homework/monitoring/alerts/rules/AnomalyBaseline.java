@@ -0,0 +1,148 @@
+package com.homework.monitoring.alerts.rules;
+
+/**
+ * Adaptive baseline of a metric : exponentially weighted moving mean and variance of its samples, optionally one per
+ * hour of the week (seasonality), in a constant memory. A sample is scored by its deviation from the baseline, in
+ * standard deviations.
+ *
+ * With seasonality, a sample is scored against the baseline of its hour of the week (UTC) once that hour has enough
+ * samples, and against the overall baseline until then.
+ *
+ * @Note the samples are clamped to the flagged deviation before being learnt, so that an anomaly only moves the
+ * baseline slowly (a lasting change of level is still learnt in a few dozen samples).
+ */
+class AnomalyBaseline {
+    /**
+     * Weight of a new sample.
+     */
+    static final double DEFAULT_ALPHA = 0.05;
+
+    /**
+     * Number of samples of a baseline before its scores are trusted.
+     */
+    static final int MIN_SAMPLES = 10;
+
+    /**
+     * Number of hours of a week.
+     */
+    private static final int HOURS_PER_WEEK = 7 * 24;
+
+    /**
+     * Hours from Monday 00:00 to the epoch (a Thursday).
+     */
+    private static final int EPOCH_HOUR_OF_WEEK = 3 * 24;
+
+    /**
+     * Smallest standard deviation, relative to the mean : a flat baseline does not flag tiny changes.
+     */
+    private static final double RELATIVE_DEVIATION_FLOOR = 0.05;
+
+    /**
+     * Smallest standard deviation (e.g. for a ratio staying at 0).
+     */
+    private static final double ABSOLUTE_DEVIATION_FLOOR = 1e-3;
+
+    /**
+     * Weight of a new sample.
+     */
+    private final double alpha;
+
+    /**
+     * Mean, variance and number of samples of the overall baseline (last index) and of each hour of the week.
+     */
+    private final double[] means;
+    private final double[] variances;
+    private final int[] samples;
+
+    /**
+     * Constructor.
+     * @param seasonal whether a baseline is also kept per hour of the week.
+     * @param alpha weight of a new sample (between 0 and 1).
+     */
+    AnomalyBaseline(final boolean seasonal, final double alpha) {
+        final int size = seasonal ? HOURS_PER_WEEK + 1 : 1;
+        this.alpha = alpha;
+        this.means = new double[size];
+        this.variances = new double[size];
+        this.samples = new int[size];
+    }
+
+    /**
+     * @param value a value of the metric.
+     * @param time its log time (epoch milliseconds).
+     * @return its deviation from the baseline, in standard deviations; NaN while the baseline has too few samples.
+     */
+    double score(final double value, final long time) {
+        int index = means.length - 1;
+        if (means.length > 1) {
+            final int hour = hourOfWeek(time);
+            if (samples[hour] >= MIN_SAMPLES) {
+                index = hour;
+            }
+        }
+        if (samples[index] < MIN_SAMPLES) {
+            return Double.NaN;
+        }
+        return (value - means[index]) / deviation(index);
+    }
+
+    /**
+     * Learn a sample.
+     * @param value the value of the metric.
+     * @param time its log time (epoch milliseconds).
+     * @param maxScore largest deviation learnt, in standard deviations (the value is clamped to it).
+     */
+    void update(final double value, final long time, final double maxScore) {
+        learn(means.length - 1, value, maxScore);
+        if (means.length > 1) {
+            learn(hourOfWeek(time), value, maxScore);
+        }
+    }
+
+    /**
+     * Update a baseline with a sample (incremental exponentially weighted mean and variance).
+     */
+    private void learn(final int index, final double value, final double maxScore) {
+        if (samples[index] == 0) {
+            means[index] = value;
+            variances[index] = 0;
+            samples[index] = 1;
+            return;
+        }
+        double sample = value;
+        if (samples[index] >= MIN_SAMPLES) {
+            final double deviation = deviation(index);
+            sample = Math.max(means[index] - maxScore * deviation, Math.min(means[index] + maxScore * deviation, value));
+        }
+        final double difference = sample - means[index];
+        final double increment = alpha * difference;
+        means[index] += increment;
+        variances[index] = (1 - alpha) * (variances[index] + difference * increment);
+        if (samples[index] < Integer.MAX_VALUE) {
+            samples[index]++;
+        }
+    }
+
+    /**
+     * @return the standard deviation of a baseline, floored.
+     */
+    private double deviation(final int index) {
+        return Math.max(Math.sqrt(variances[index]),
+                Math.max(RELATIVE_DEVIATION_FLOOR * Math.abs(means[index]), ABSOLUTE_DEVIATION_FLOOR));
+    }
+
+    /**
+     * @param time a time (epoch milliseconds).
+     * @return its hour of the week (UTC), from 0 (Monday 00:00) to 167.
+     */
+    static int hourOfWeek(final long time) {
+        return (int) Math.floorMod(Math.floorDiv(time, 3_600_000L) + EPOCH_HOUR_OF_WEEK, (long) HOURS_PER_WEEK);
+    }
+
+    /**
+     * @return the mean of the overall baseline.
+     */
+    double getMean() {
+        return means[means.length - 1];
+    }
+}
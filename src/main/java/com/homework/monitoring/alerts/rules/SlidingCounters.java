@@ -0,0 +1,120 @@
+package com.homework.monitoring.alerts.rules;
+
+/**
+ * Requests, errors and bytes of each second of a sliding window of log time, in a circular buffer with running sums:
+ * counting a request and sliding the window by a second are constant-time.
+ */
+class SlidingCounters {
+    /**
+     * Counters of each second : requests, client errors, server errors and bytes.
+     */
+    private static final int COUNTERS = 4;
+
+    private static final int REQUESTS = 0;
+    private static final int CLIENT_ERRORS = 1;
+    private static final int SERVER_ERRORS = 2;
+    private static final int BYTES = 3;
+
+    /**
+     * The counters of each second of the window, second (epoch second modulo the window) after second.
+     */
+    private final long[] seconds;
+
+    /**
+     * Running sums of the counters over the window.
+     */
+    private final long[] sums = new long[COUNTERS];
+
+    /**
+     * Length of the window.
+     */
+    private final int windowSeconds;
+
+    /**
+     * Latest second (epoch seconds) of the window; Long.MIN_VALUE until the first request.
+     */
+    private long headSecond = Long.MIN_VALUE;
+
+    /**
+     * Constructor.
+     * @param windowSeconds length of the window, in seconds.
+     */
+    SlidingCounters(final int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        this.seconds = new long[windowSeconds * COUNTERS];
+    }
+
+    /**
+     * Count a request, sliding the window first if it is more recent.
+     * @param second log time of the request, in epoch seconds.
+     * @param status HTTP status of the response.
+     * @param bytes size of the response.
+     */
+    void add(final long second, final int status, final int bytes) {
+        slideTo(second);
+        if (second <= headSecond - windowSeconds) {
+            // older than the window.
+            return;
+        }
+        final int offset = (int) Math.floorMod(second, (long) windowSeconds) * COUNTERS;
+        increment(offset, REQUESTS, 1);
+        if (status >= 400 && status < 500) {
+            increment(offset, CLIENT_ERRORS, 1);
+        } else if (status >= 500 && status < 600) {
+            increment(offset, SERVER_ERRORS, 1);
+        }
+        increment(offset, BYTES, Math.max(0, bytes));
+    }
+
+    private void increment(final int offset, final int counter, final long value) {
+        seconds[offset + counter] += value;
+        sums[counter] += value;
+    }
+
+    /**
+     * Slide the window so that it ends with a second, emptying the seconds leaving it.
+     * @param second the new latest second (ignored if it is not after the current one).
+     */
+    void slideTo(final long second) {
+        if (headSecond == Long.MIN_VALUE) {
+            headSecond = second;
+            return;
+        }
+        final long steps = Math.min(second - headSecond, windowSeconds);
+        for (long step = 1; step <= steps; step++) {
+            final int offset = (int) Math.floorMod(headSecond + step, (long) windowSeconds) * COUNTERS;
+            for (int counter = 0; counter < COUNTERS; counter++) {
+                sums[counter] -= seconds[offset + counter];
+                seconds[offset + counter] = 0;
+            }
+        }
+        headSecond = Math.max(headSecond, second);
+    }
+
+    /**
+     * @return true if no request is left in the window.
+     */
+    boolean isEmpty() {
+        return sums[REQUESTS] == 0;
+    }
+
+    int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    long getRequests() {
+        return sums[REQUESTS];
+    }
+
+    long getClientErrors() {
+        return sums[CLIENT_ERRORS];
+    }
+
+    long getServerErrors() {
+        return sums[SERVER_ERRORS];
+    }
+
+    long getBytes() {
+        return sums[BYTES];
+    }
+}
@@ -0,0 +1,132 @@
+package com.homework.monitoring.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Exposes the metrics of a {@link MetricsRegistry} as the read-only attributes of an MBean of the platform MBean
+ * server (e.g. to watch them with jconsole or VisualVM); each attribute is read from the registry when it is asked.
+ */
+public class JmxMetricsExporter implements DynamicMBean {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(JmxMetricsExporter.class);
+
+    /**
+     * Default name of the MBean.
+     */
+    public static final String DEFAULT_OBJECT_NAME = "com.homework.monitoring:type=Pipeline";
+
+    /**
+     * The metrics exposed.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Name of the MBean once it is registered; null otherwise.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Constructor.
+     * @param registry the metrics exposed.
+     */
+    public JmxMetricsExporter(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Register the MBean on the platform MBean server.
+     * @param name the name of the MBean (see {@link #DEFAULT_OBJECT_NAME}).
+     * @return whether the MBean was registered.
+     */
+    public synchronized boolean register(final String name) {
+        try {
+            final ObjectName newObjectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newObjectName);
+            objectName = newObjectName;
+            return true;
+        } catch (final JMException e) {
+            logger.error("Cannot register the metrics MBean [" + name + "] : " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Unregister the MBean from the platform MBean server (if it is registered).
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (final JMException e) {
+            logger.warn("Cannot unregister the metrics MBean [" + objectName + "] : " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    @Override
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+        final MetricsRegistry.Metric metric = registry.getMetric(attribute);
+        if (metric == null) {
+            throw new AttributeNotFoundException("No metric [" + attribute + "]");
+        }
+        return metric.getValue();
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metric [" + attribute.getName() + "] is read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+        final AttributeList values = new AttributeList();
+        for (final String attribute : attributes) {
+            final MetricsRegistry.Metric metric = registry.getMetric(attribute);
+            if (metric != null) {
+                values.add(new Attribute(attribute, metric.getValue()));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params, final String[] signature)
+            throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "The metrics MBean has no operation");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final List<MetricsRegistry.Metric> metrics = registry.getMetrics();
+        final MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[metrics.size()];
+        for (int index = 0; index < attributes.length; index++) {
+            final MetricsRegistry.Metric metric = metrics.get(index);
+            attributes[index] = new MBeanAttributeInfo(metric.getName(), long.class.getName(),
+                    metric.getHelp() + " (" + metric.getType() + ")", true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of the log monitoring pipeline", attributes,
+                null, null, null);
+    }
+}
@@ -0,0 +1,195 @@
+package com.homework.monitoring.metrics;
+
+import com.homework.monitoring.time.MonitoringScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of the metrics of the monitoring pipeline (lines read, malformed lines, buffer occupancy, read lag, ...),
+ * exported over JMX ({@link JmxMetricsExporter}) and HTTP ({@link PrometheusMetricsServer}).
+ *
+ * The registry does not count anything itself: each metric reads a counter or a state the pipeline components keep
+ * anyway (e.g. with a {@link java.util.concurrent.atomic.LongAdder}), only when the metrics are exported. The hot paths
+ * therefore pay nothing for the registry, whether the metrics are exported or not.
+ */
+public class MetricsRegistry {
+    /**
+     * Kind of metric, as exported in the Prometheus text format.
+     */
+    public enum MetricType {
+        /**
+         * Value which only increases (from the start of the application).
+         */
+        COUNTER("counter"),
+
+        /**
+         * Value which can go up and down.
+         */
+        GAUGE("gauge");
+
+        private final String name;
+
+        MetricType(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A named metric and the way to read it.
+     */
+    public static final class Metric {
+        private final String name;
+        private final String help;
+        private final MetricType type;
+        private final LongSupplier value;
+
+        private Metric(final String name, final String help, final MetricType type, final LongSupplier value) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        public MetricType getType() {
+            return type;
+        }
+
+        /**
+         * @return the current value of the metric.
+         */
+        public long getValue() {
+            return value.getAsLong();
+        }
+    }
+
+    /**
+     * Period of the samples of the counters whose rate is exported.
+     */
+    static final long RATE_INTERVAL = 1000; // in milliseconds.
+
+    /**
+     * Valid metric names (those of Prometheus, which are also valid JMX attribute names).
+     */
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    /**
+     * The metrics, in registration order.
+     */
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+
+    /**
+     * Register a counter.
+     * @param name name of the counter (e.g. logmonitor_lines_read_total).
+     * @param help description of the counter.
+     * @param value reads the counter.
+     * @return the registry.
+     * @throws IllegalArgumentException if the name is invalid or already registered.
+     */
+    public MetricsRegistry counter(final String name, final String help, final LongSupplier value) {
+        return register(new Metric(name, help, MetricType.COUNTER, value));
+    }
+
+    /**
+     * Register a gauge.
+     * @param name name of the gauge (e.g. logmonitor_read_lag_bytes).
+     * @param help description of the gauge.
+     * @param value reads the gauge.
+     * @return the registry.
+     * @throws IllegalArgumentException if the name is invalid or already registered.
+     */
+    public MetricsRegistry gauge(final String name, final String help, final LongSupplier value) {
+        return register(new Metric(name, help, MetricType.GAUGE, value));
+    }
+
+    /**
+     * Register a gauge of the increase per second of a counter, sampled every second (for the JMX clients, which
+     * cannot derive a rate from the counter like Prometheus does).
+     * @param name name of the gauge (e.g. logmonitor_lines_read_per_second).
+     * @param help description of the gauge.
+     * @param counter reads the counter.
+     * @param scheduler samples the counter every second.
+     * @return the registry.
+     * @throws IllegalArgumentException if the name is invalid or already registered.
+     */
+    public MetricsRegistry rate(final String name, final String help, final LongSupplier counter,
+                                final MonitoringScheduler scheduler) {
+        final AtomicLong previousCount = new AtomicLong(counter.getAsLong());
+        final AtomicLong perSecond = new AtomicLong();
+        register(new Metric(name, help, MetricType.GAUGE, perSecond::get));
+        scheduler.scheduleAtFixedRate(() -> {
+            final long count = counter.getAsLong();
+            perSecond.set((count - previousCount.getAndSet(count)) * 1000 / RATE_INTERVAL);
+        }, RATE_INTERVAL);
+        return this;
+    }
+
+    private synchronized MetricsRegistry register(final Metric metric) {
+        if (!NAME_PATTERN.matcher(metric.getName()).matches()) {
+            throw new IllegalArgumentException("Invalid metric name [" + metric.getName() + "]");
+        }
+        if (metrics.containsKey(metric.getName())) {
+            throw new IllegalArgumentException("Metric [" + metric.getName() + "] is already registered");
+        }
+        metrics.put(metric.getName(), metric);
+        return this;
+    }
+
+    /**
+     * @return the metrics, in registration order.
+     */
+    public synchronized List<Metric> getMetrics() {
+        return Collections.unmodifiableList(new ArrayList<>(metrics.values()));
+    }
+
+    /**
+     * @param name name of a metric.
+     * @return the metric; null if there is no metric of that name.
+     */
+    public synchronized Metric getMetric(final String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * @return the current values of the metrics, in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String toPrometheusText() {
+        final StringBuilder text = new StringBuilder(4096);
+        for (final Metric metric : getMetrics()) {
+            text.append("# HELP ").append(metric.getName()).append(' ');
+            for (int index = 0; index < metric.getHelp().length(); index++) {
+                final char character = metric.getHelp().charAt(index);
+                if (character == '\\') {
+                    text.append("\\\\");
+                } else if (character == '\n') {
+                    text.append("\\n");
+                } else {
+                    text.append(character);
+                }
+            }
+            text.append('\n');
+            text.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+            text.append(metric.getName()).append(' ').append(metric.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package com.homework.monitoring.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tiny HTTP server answering GET /metrics with the metrics of a {@link MetricsRegistry} in the Prometheus text
+ * format, on the loopback interface only.
+ *
+ * @Note the requests are answered one at a time, by a single daemon thread: a scrape only reads the metrics.
+ */
+public class PrometheusMetricsServer {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(PrometheusMetricsServer.class);
+
+    /**
+     * Path of the metrics.
+     */
+    public static final String METRICS_PATH = "/metrics";
+
+    /**
+     * Content type of the Prometheus text format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The metrics served.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * The HTTP server, and the thread answering its requests.
+     */
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor; the server is bound to the port but only answers once started.
+     * @param registry the metrics served.
+     * @param port the port (on the loopback interface); 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public PrometheusMetricsServer(final MetricsRegistry registry, final int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(METRICS_PATH, this::handle);
+    }
+
+    /**
+     * Start answering the requests.
+     */
+    public void start() {
+        server.start();
+        logger.info("Serving the metrics on http://localhost:" + getPort() + METRICS_PATH);
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server is bound to.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answer a request with the current metrics.
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            if (!METRICS_PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+            } else {
+                final byte[] body = registry.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                if ("HEAD".equals(method)) {
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream output = exchange.getResponseBody()) {
+                        output.write(body);
+                    }
+                }
+            }
+        } catch (final RuntimeException e) {
+            logger.error("Cannot serve the metrics : " + e.getMessage(), e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+}
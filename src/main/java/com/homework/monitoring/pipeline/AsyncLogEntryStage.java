@@ -0,0 +1,44 @@
+package com.homework.monitoring.pipeline;
+
+import com.clfparser.CLFLogEntry;
+import com.homework.monitoring.LogEntryListener;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stage between the line parser and the aggregation: the parser only queues the entries it produces, and the entries
+ * are handed to the next listener (the broadcaster feeding the stats, alerts and groups) on the stage's thread.
+ */
+public class AsyncLogEntryStage extends RingBufferStage<CLFLogEntry> implements LogEntryListener {
+    /**
+     * The listener receiving the entries on the stage's thread.
+     */
+    private final LogEntryListener next;
+
+    /**
+     * Constructor.
+     * @param next the listener receiving the entries on the stage's thread.
+     * @param capacity number of batches of entries the stage can hold.
+     * @param policy policy applied when the stage is full.
+     */
+    public AsyncLogEntryStage(final LogEntryListener next, final int capacity, final BackpressurePolicy policy) {
+        super("entry-stage", capacity, policy, 1);
+        this.next = next;
+    }
+
+    @Override
+    public void process(final CLFLogEntry entry) {
+        publish(null, Collections.singletonList(entry));
+    }
+
+    @Override
+    public void processBatch(final List<CLFLogEntry> entries) {
+        publish(null, entries);
+    }
+
+    @Override
+    protected void consume(final String source, final List<CLFLogEntry> entries) {
+        next.processBatch(Collections.unmodifiableList(entries));
+    }
+}
@@ -0,0 +1,48 @@
+package com.homework.monitoring.pipeline;
+
+import com.filereader.LogLineListener;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stage between the file readers and the line parser: the readers only queue the lines they read, and the lines are
+ * handed to the next listener (the parser) on the stage's thread.
+ */
+public class AsyncLogLineStage extends RingBufferStage<String> implements LogLineListener {
+    /**
+     * The listener receiving the lines on the stage's thread.
+     */
+    private final LogLineListener next;
+
+    /**
+     * Constructor.
+     * @param next the listener receiving the lines on the stage's thread.
+     * @param capacity number of batches of lines the stage can hold.
+     * @param policy policy applied when the stage is full.
+     */
+    public AsyncLogLineStage(final LogLineListener next, final int capacity, final BackpressurePolicy policy) {
+        super("line-stage", capacity, policy, 1);
+        this.next = next;
+    }
+
+    @Override
+    public void newLogFileLine(final String line) {
+        newLogFileLine(null, line);
+    }
+
+    @Override
+    public void newLogFileLine(final String source, final String line) {
+        publish(source, Collections.singletonList(line));
+    }
+
+    @Override
+    public void newLogFileLines(final String source, final List<String> lines) {
+        publish(source, lines);
+    }
+
+    @Override
+    protected void consume(final String source, final List<String> lines) {
+        next.newLogFileLines(source, lines);
+    }
+}
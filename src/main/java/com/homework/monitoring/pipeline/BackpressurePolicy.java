@@ -0,0 +1,22 @@
+package com.homework.monitoring.pipeline;
+
+/**
+ * What a pipeline stage does with new batches when its ring buffer is full (i.e. when its consumer is behind).
+ */
+public enum BackpressurePolicy {
+    /**
+     * The producer waits for a free slot: nothing is lost, but the reading of the log files is slowed down.
+     */
+    BLOCK,
+
+    /**
+     * The oldest queued batch is dropped to make room: the monitoring stays on the most recent traffic.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Only one new batch in {@link BatchRingBuffer#DEFAULT_SAMPLE_RATE} is queued (in place of the oldest one), the
+     * others are dropped: a regular sample of the traffic keeps flowing while the consumer catches up.
+     */
+    SAMPLE
+}
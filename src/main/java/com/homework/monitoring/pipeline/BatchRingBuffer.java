@@ -0,0 +1,306 @@
+package com.homework.monitoring.pipeline;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded ring buffer of batches between two pipeline stages, with preallocated slots which are reused: publishing a
+ * batch copies its items into a slot's list and taking a batch swaps the slot's list with the consumer's (empty) one,
+ * so no list is allocated once the buffer is warm.
+ *
+ * Any number of producers and consumers may use the buffer; batches are taken in the order they were published. When
+ * the buffer is full, the {@link BackpressurePolicy} decides whether the producer waits or batches are dropped.
+ *
+ * @param <T> type of the batch items.
+ */
+public class BatchRingBuffer<T> {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(BatchRingBuffer.class);
+
+    /**
+     * Number of new batches arriving while the buffer is full for one queued batch with the
+     * {@link BackpressurePolicy#SAMPLE} policy.
+     */
+    public static final int DEFAULT_SAMPLE_RATE = 10;
+
+    /**
+     * A batch of items and the log file they come from.
+     *
+     * @param <T> type of the items.
+     */
+    public static final class Batch<T> {
+        private String source;
+        private ArrayList<T> items = new ArrayList<>();
+
+        /**
+         * @return the log file the items come from (null when a single file is monitored).
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the items, in publishing order.
+         */
+        public List<T> getItems() {
+            return items;
+        }
+    }
+
+    /**
+     * Name of the buffer (in logs).
+     */
+    private final String name;
+
+    /**
+     * The preallocated slots.
+     */
+    private final Batch<T>[] slots;
+
+    /**
+     * Policy applied when the buffer is full.
+     */
+    private final BackpressurePolicy policy;
+
+    /**
+     * Lock guarding the slots and the sequences.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when a batch is published.
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Signaled when a batch is taken.
+     */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Sequence of the next batch to take.
+     */
+    private long head;
+
+    /**
+     * Sequence of the next batch to publish.
+     */
+    private long tail;
+
+    /**
+     * Number of batches which arrived while the buffer was full (for sampling).
+     */
+    private long batchesWhileFull;
+
+    /**
+     * Number of items dropped because the buffer was full.
+     */
+    private long droppedItems;
+
+    /**
+     * Whether the buffer was full when the last batch was published (to log the transitions only).
+     */
+    private boolean full;
+
+    /**
+     * Whether the buffer is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructor.
+     * @param name name of the buffer (in logs).
+     * @param capacity number of slots (batches).
+     * @param policy policy applied when the buffer is full.
+     */
+    public BatchRingBuffer(final String name, final int capacity, final BackpressurePolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive: " + capacity);
+        }
+        this.name = name;
+        this.policy = policy;
+        this.slots = newSlots(capacity);
+        for (int index = 0; index < capacity; index++) {
+            slots[index] = new Batch<>();
+        }
+    }
+
+    /**
+     * @return an array of empty slots (generic arrays cannot be created directly).
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Batch<T>[] newSlots(final int capacity) {
+        return (Batch<T>[]) new Batch<?>[capacity];
+    }
+
+    /**
+     * Publish a batch (the items are copied, so the list can be reused by the caller).
+     *
+     * @param source the log file the items come from.
+     * @param items the items; empty batches are ignored.
+     * @throws InterruptedException if the producer is interrupted while waiting for a free slot.
+     */
+    public void publish(final String source, final List<? extends T> items) throws InterruptedException {
+        if (items.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                droppedItems += items.size();
+                return;
+            }
+            if (tail - head == slots.length) {
+                if (!full) {
+                    full = true;
+                    logger.warn("Pipeline buffer " + name + " is full; applying the " + policy + " policy.");
+                }
+                if (!makeRoom(items.size())) {
+                    return;
+                }
+            } else if (full && tail - head < slots.length / 2) {
+                full = false;
+                logger.info("Pipeline buffer " + name + " is no longer full (" + droppedItems + " items dropped so far).");
+            }
+
+            final Batch<T> slot = slots[(int) (tail % slots.length)];
+            slot.source = source;
+            slot.items.addAll(items);
+            tail++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply the policy on a full buffer.
+     * @param newItems number of items of the new batch.
+     * @return true if the new batch can be published in the next slot.
+     * @throws InterruptedException if the producer is interrupted while waiting for a free slot.
+     */
+    private boolean makeRoom(final int newItems) throws InterruptedException {
+        switch (policy) {
+            case BLOCK:
+                while (tail - head == slots.length && !closed) {
+                    notFull.await();
+                }
+                if (closed) {
+                    droppedItems += newItems;
+                    return false;
+                }
+                return true;
+            case SAMPLE:
+                if (++batchesWhileFull % DEFAULT_SAMPLE_RATE != 0) {
+                    droppedItems += newItems;
+                    return false;
+                }
+                dropOldest();
+                return true;
+            default:
+                dropOldest();
+                return true;
+        }
+    }
+
+    /**
+     * Drop the oldest queued batch.
+     */
+    private void dropOldest() {
+        final Batch<T> oldest = slots[(int) (head % slots.length)];
+        droppedItems += oldest.items.size();
+        oldest.items.clear();
+        oldest.source = null;
+        head++;
+    }
+
+    /**
+     * Take the oldest batch, waiting for one if the buffer is empty.
+     *
+     * @param batch receives the batch: its (empty) item list is swapped with the slot's one.
+     * @return false if the buffer is closed and empty.
+     * @throws InterruptedException if the consumer is interrupted while waiting.
+     */
+    public boolean take(final Batch<T> batch) throws InterruptedException {
+        lock.lock();
+        try {
+            while (tail == head) {
+                if (closed) {
+                    return false;
+                }
+                notEmpty.await();
+            }
+            final Batch<T> slot = slots[(int) (head % slots.length)];
+            final ArrayList<T> items = slot.items;
+            batch.items.clear();
+            slot.items = batch.items;
+            batch.items = items;
+            batch.source = slot.source;
+            slot.source = null;
+            head++;
+            notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the buffer: new batches are dropped and the consumers stop once the queued batches are taken.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of queued batches.
+     */
+    public int getOccupancy() {
+        lock.lock();
+        try {
+            return (int) (tail - head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of slots.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the number of items dropped because the buffer was full (or closed).
+     */
+    public long getDroppedItems() {
+        lock.lock();
+        try {
+            return droppedItems;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the name of the buffer.
+     */
+    public String getName() {
+        return name;
+    }
+}
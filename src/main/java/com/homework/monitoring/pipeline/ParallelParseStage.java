@@ -0,0 +1,215 @@
+package com.homework.monitoring.pipeline;
+
+import com.clfparser.CLFLogEntry;
+import com.filereader.LogLineListener;
+import com.homework.monitoring.LogEntryBroadcaster;
+import com.homework.monitoring.LogLineParserListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Parse stage fanning the batches of lines out to several worker threads.
+ *
+ * Each batch gets a sequence number when it enters the stage; the parsed batches are put in a reorder buffer and
+ * broadcast strictly in sequence order (by whichever worker completes the next expected batch), so the listeners
+ * still receive the entries in file order. The number of batches in flight is bounded: when the workers are behind,
+ * the producer waits, and the backpressure of the previous stage applies.
+ */
+public class ParallelParseStage implements LogLineListener {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(ParallelParseStage.class);
+
+    /**
+     * Number of batches in flight per worker.
+     */
+    private static final int BATCHES_IN_FLIGHT_PER_WORKER = 4;
+
+    /**
+     * A parsed batch waiting for its turn to be broadcast.
+     */
+    private static final class ParsedBatch {
+        private final List<CLFLogEntry> entries;
+
+        private ParsedBatch(final List<CLFLogEntry> entries) {
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Parser of the lines (shared by the workers).
+     */
+    private final LogLineParserListener parser;
+
+    /**
+     * Broadcaster of the parsed entries, called in sequence order.
+     */
+    private final LogEntryBroadcaster logEntryBroadcaster;
+
+    /**
+     * The parse workers.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Permits for the batches in flight (entered the stage, not broadcast yet).
+     */
+    private final Semaphore batchesInFlight;
+
+    /**
+     * Largest number of batches in flight.
+     */
+    private final int maxBatchesInFlight;
+
+    /**
+     * Parsed batches waiting for broadcast, indexed by sequence modulo the number of batches in flight.
+     */
+    private final AtomicReferenceArray<ParsedBatch> reorderBuffer;
+
+    /**
+     * Held by the thread broadcasting the parsed batches.
+     */
+    private final ReentrantLock broadcastLock = new ReentrantLock();
+
+    /**
+     * Sequence of the next batch entering the stage (only used by the producer).
+     */
+    private long nextSequence;
+
+    /**
+     * Sequence of the next batch to broadcast (guarded by the broadcast lock).
+     */
+    private long nextToBroadcast;
+
+    /**
+     * Constructor.
+     * @param logEntryBroadcaster receives the parsed entries, in line order.
+     * @param numberOfWorkers number of parse worker threads.
+     */
+    public ParallelParseStage(final LogEntryBroadcaster logEntryBroadcaster, final int numberOfWorkers) {
+        final int workerCount = Math.max(1, numberOfWorkers);
+        this.maxBatchesInFlight = workerCount * BATCHES_IN_FLIGHT_PER_WORKER;
+
+        this.parser = new LogLineParserListener(logEntryBroadcaster);
+        this.logEntryBroadcaster = logEntryBroadcaster;
+        this.batchesInFlight = new Semaphore(maxBatchesInFlight);
+        this.reorderBuffer = new AtomicReferenceArray<>(maxBatchesInFlight);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            final Thread thread = new Thread(runnable, "log-parser-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void newLogFileLine(final String line) {
+        newLogFileLine(null, line);
+    }
+
+    @Override
+    public void newLogFileLine(final String source, final String line) {
+        newLogFileLines(source, Collections.singletonList(line));
+    }
+
+    /**
+     * Hand a batch over to the workers; must be called by a single producer thread (e.g. an
+     * {@link AsyncLogLineStage}), whose call order defines the broadcast order.
+     */
+    @Override
+    public void newLogFileLines(final String source, final List<String> lines) {
+        try {
+            batchesInFlight.acquire();
+        } catch (final InterruptedException e) {
+            logger.warn("Interrupted while waiting for a parse worker; " + lines.size() + " lines dropped.");
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        final long sequence = nextSequence++;
+        final List<String> batch = new ArrayList<>(lines);
+        workers.execute(() -> {
+            List<CLFLogEntry> entries;
+            try {
+                entries = parser.parseLines(source, batch);
+            } catch (final RuntimeException e) {
+                logger.error("Failed to parse a batch of " + batch.size() + " lines : " + e.getMessage(), e);
+                entries = Collections.emptyList();
+            }
+            reorderBuffer.set(slot(sequence), new ParsedBatch(entries));
+            broadcastReadyBatches();
+        });
+    }
+
+    /**
+     * Broadcast the parsed batches which are next in sequence order; if another worker is already broadcasting, it
+     * takes care of them.
+     */
+    private void broadcastReadyBatches() {
+        do {
+            if (!broadcastLock.tryLock()) {
+                return;
+            }
+            try {
+                ParsedBatch ready;
+                while ((ready = reorderBuffer.get(slot(nextToBroadcast))) != null) {
+                    reorderBuffer.set(slot(nextToBroadcast), null);
+                    nextToBroadcast++;
+                    try {
+                        logEntryBroadcaster.notifyEntries(ready.entries);
+                    } catch (final RuntimeException e) {
+                        logger.error("Failed to broadcast a batch of entries : " + e.getMessage(), e);
+                    } finally {
+                        batchesInFlight.release();
+                    }
+                }
+            } finally {
+                broadcastLock.unlock();
+            }
+            // a batch completed while the lock was held may not have been seen by its worker.
+        } while (reorderBuffer.get(slot(nextToBroadcast)) != null);
+    }
+
+    /**
+     * @param sequence the sequence of a batch.
+     * @return its slot in the reorder buffer.
+     */
+    private int slot(final long sequence) {
+        return (int) (sequence % reorderBuffer.length());
+    }
+
+    /**
+     * Wait until all the batches handed over so far are broadcast.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void awaitBroadcast() throws InterruptedException {
+        batchesInFlight.acquire(maxBatchesInFlight);
+        batchesInFlight.release(maxBatchesInFlight);
+    }
+
+    /**
+     * @return the parser shared by the workers (for its counters).
+     */
+    public LogLineParserListener getParser() {
+        return parser;
+    }
+
+    /**
+     * Stop the workers once the batches in flight are parsed.
+     */
+    public void close() {
+        workers.shutdown();
+    }
+}
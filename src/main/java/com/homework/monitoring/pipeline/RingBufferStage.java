@@ -0,0 +1,111 @@
+package com.homework.monitoring.pipeline;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pipeline stage decoupling its producers from its consumer thread(s) through a {@link BatchRingBuffer}: producers
+ * only copy their batch into the buffer, and the batches are handed to the next stage on the stage's own thread(s).
+ *
+ * @param <T> type of the batch items.
+ */
+public abstract class RingBufferStage<T> {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(RingBufferStage.class);
+
+    /**
+     * Buffer between the producers and the consumer threads.
+     */
+    private final BatchRingBuffer<T> buffer;
+
+    /**
+     * The consumer threads.
+     */
+    private final List<Thread> consumers = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * @param name name of the stage (used for its buffer & threads).
+     * @param capacity number of batches the buffer can hold.
+     * @param policy policy applied when the buffer is full.
+     * @param numberOfConsumers number of consumer threads; with more than one, batches are processed concurrently
+     *                          and may be handed to the next stage out of order.
+     */
+    protected RingBufferStage(final String name, final int capacity, final BackpressurePolicy policy,
+                              final int numberOfConsumers) {
+        this.buffer = new BatchRingBuffer<>(name, capacity, policy);
+        for (int index = 0; index < Math.max(1, numberOfConsumers); index++) {
+            final Thread consumer = new Thread(this::consumeBatches, name + "-" + (index + 1));
+            consumer.setDaemon(true);
+            consumers.add(consumer);
+        }
+    }
+
+    /**
+     * Start the consumer threads.
+     */
+    public void start() {
+        for (final Thread consumer : consumers) {
+            consumer.start();
+        }
+    }
+
+    /**
+     * Stop the stage once the queued batches are processed.
+     */
+    public void close() {
+        buffer.close();
+    }
+
+    /**
+     * @return the buffer of the stage (for its occupancy & dropped items).
+     */
+    public BatchRingBuffer<T> getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Queue a batch for the consumer threads.
+     * @param source the log file the items come from.
+     * @param items the items (copied, so the list can be reused).
+     */
+    protected void publish(final String source, final List<? extends T> items) {
+        try {
+            buffer.publish(source, items);
+        } catch (final InterruptedException e) {
+            logger.warn("Interrupted while waiting for room in pipeline buffer " + buffer.getName() + "; batch dropped.");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Process a batch on a consumer thread.
+     * @param source the log file the items come from.
+     * @param items the items; the list is reused once the method returns.
+     */
+    protected abstract void consume(String source, List<T> items);
+
+    /**
+     * Loop of the consumer threads.
+     */
+    private void consumeBatches() {
+        final BatchRingBuffer.Batch<T> batch = new BatchRingBuffer.Batch<>();
+        try {
+            while (buffer.take(batch)) {
+                try {
+                    consume(batch.getSource(), batch.getItems());
+                } catch (final RuntimeException e) {
+                    logger.error("Pipeline stage " + buffer.getName() + " failed to process a batch : " + e.getMessage(), e);
+                }
+                batch.getItems().clear();
+            }
+        } catch (final InterruptedException e) {
+            logger.warn("Pipeline stage " + buffer.getName() + " was interrupted; stopping.");
+        }
+    }
+}
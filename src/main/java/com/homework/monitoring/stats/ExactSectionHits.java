@@ -0,0 +1,116 @@
+package com.homework.monitoring.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact counters of the hits per section, one per distinct section; hits may be counted concurrently.
+ */
+public class ExactSectionHits implements SectionHits {
+    /**
+     * Order of the counts, least hit first.
+     */
+    private static final Comparator<SectionCount> LEAST_HIT_FIRST =
+            Comparator.comparingLong(SectionCount::getHits).thenComparing(SectionCount::getSection, Comparator.reverseOrder());
+
+    /**
+     * The counters.
+     */
+    private final Map<String, LongAdder> hitsPerSection = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     */
+    public ExactSectionHits() {
+    }
+
+    /**
+     * Constructor.
+     * @param hitsPerSection initial hits per section.
+     */
+    public ExactSectionHits(final Map<String, Long> hitsPerSection) {
+        hitsPerSection.forEach((section, hits) -> add(section, hits, 0));
+    }
+
+    @Override
+    public void increment(final String section) {
+        hitsPerSection.computeIfAbsent(section, key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void add(final String section, final long hits, final long error) {
+        hitsPerSection.computeIfAbsent(section, key -> new LongAdder()).add(hits);
+    }
+
+    /**
+     * @Note the counters of other exact counters are added straight from their map.
+     */
+    @Override
+    public void addAll(final SectionHits other) {
+        if (other instanceof ExactSectionHits) {
+            ((ExactSectionHits) other).hitsPerSection.forEach((section, hits) -> add(section, hits.sum(), 0));
+        } else {
+            other.forEachCount(this::add);
+        }
+    }
+
+    @Override
+    public void forEachCount(final CountConsumer consumer) {
+        hitsPerSection.forEach((section, hits) -> consumer.accept(section, hits.sum(), 0));
+    }
+
+    /**
+     * @Note the sections are selected with a heap of the requested size, without sorting all of them.
+     */
+    @Override
+    public List<SectionCount> top(final int numberOfSections) {
+        if (numberOfSections <= 0) {
+            return Collections.emptyList();
+        }
+        final PriorityQueue<SectionCount> mostHit = new PriorityQueue<>(numberOfSections, LEAST_HIT_FIRST);
+        hitsPerSection.forEach((section, hits) -> {
+            final SectionCount count = new SectionCount(section, hits.sum(), 0);
+            if (mostHit.size() < numberOfSections) {
+                mostHit.add(count);
+            } else if (LEAST_HIT_FIRST.compare(count, mostHit.peek()) > 0) {
+                mostHit.poll();
+                mostHit.add(count);
+            }
+        });
+        final List<SectionCount> top = new ArrayList<>(mostHit.size());
+        while (!mostHit.isEmpty()) {
+            top.add(mostHit.poll());
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    @Override
+    public int size() {
+        return hitsPerSection.size();
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Long> asMap() {
+        final Map<String, Long> hits = new HashMap<>();
+        hitsPerSection.forEach((section, sectionHits) -> hits.put(section, sectionHits.sum()));
+        return hits;
+    }
+
+    @Override
+    public void clear() {
+        hitsPerSection.clear();
+    }
+}
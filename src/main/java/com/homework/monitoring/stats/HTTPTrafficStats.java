@@ -1,56 +1,115 @@
 package com.homework.monitoring.stats;
 
 import com.clfparser.CLFLogEntry;
-import com.utils.ConversionUtils;
 
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * The HTTP traffic statistics.
  *
- * The object represents an aggregation of multiple valid CLF log entries; the time over which the entries are aggregated
- * is not described in the stats themselves.
+ * The object represents an aggregation of multiple valid CLF log entries; the stats emitted by the
+ * {@link HTTPTrafficStatsManager} describe the (log time) window the entries belong to.
+ *
+ * @Note the counters are 64-bit, so that the number and size of requests of a busy host do not overflow.
  */
 public class HTTPTrafficStats {
 
     /**
      * The number of requests aggregated in the stats object.
      */
-    private int totalNumberOfHTTPRequests;
+    private long totalNumberOfHTTPRequests;
 
     /**
      * The total size (in bytes) of all the requests aggregated in the stats object.
      */
-    private int totalSizeOfRequestsInBytes;
+    private long totalSizeOfRequestsInBytes;
 
     /**
      * The total number of valid HTTP requests (with HTTP statuses varying between [200, 400))
      */
-    private int totalNumberOfValidHTTPRequests;
+    private long totalNumberOfValidHTTPRequests;
 
     /**
      * The total number of client error HTTP requests (with HTTP statuses varying between [400,500))
      */
-    private int totalNumberOfClientErrorHTTPRequests;
+    private long totalNumberOfClientErrorHTTPRequests;
 
     /**
      * The total number of client error HTTP requests (with HTTP statuses varying between [500,600))
      */
-    private int totalNumberOfServerErrorHTTPRequests;
+    private long totalNumberOfServerErrorHTTPRequests;
+
+    /**
+     * The website hits being accessed by the requests aggregated in the stats object (exactly or as a bounded summary).
+     */
+    private final SectionHits hitsPerWebsiteSections;
+
+    /**
+     * The number of requests per monitored log file (empty when the entries do not carry their source).
+     */
+    private Map<String, Long> hitsPerSource;
 
     /**
-     * A list of all the website hits being accessed by the requests aggregated in the stats object.
+     * Sketch of the distinct clients (remote hosts) of the requests.
      */
-    private Map<String, Integer> hitsPerWebsiteSections;
+    private final HyperLogLog distinctClients = new HyperLogLog();
+
+    /**
+     * Sketch of the distinct authenticated users (user ids) of the requests.
+     */
+    private final HyperLogLog distinctUsers = new HyperLogLog();
+
+    /**
+     * Distribution of the response sizes.
+     */
+    private final LogHistogram responseSizes = LogHistogram.ofSizes();
+
+    /**
+     * Distribution of the response sizes of the most hit sections (a bounded number); null when it is not kept.
+     */
+    private final SectionHistograms responseSizesPerSection;
+
+    /**
+     * Start of the window of log time covered by the stats (inclusive); null if the stats do not cover a window.
+     */
+    private Instant windowStart;
+
+    /**
+     * End of the window of log time covered by the stats (exclusive); null if the stats do not cover a window.
+     */
+    private Instant windowEnd;
 
     /**
      * Constructor.
      */
     public HTTPTrafficStats() {
+        this(new ExactSectionHits());
+    }
+
+    /**
+     * Constructor.
+     * @param sectionHits the (empty) counters of the hits per section.
+     */
+    public HTTPTrafficStats(final SectionHits sectionHits) {
+        this(sectionHits, false);
+    }
+
+    /**
+     * Constructor.
+     * @param sectionHits the (empty) counters of the hits per section.
+     * @param responseSizesPerSection whether the response size distribution is also kept per section (for a bounded
+     *                                number of sections).
+     */
+    public HTTPTrafficStats(final SectionHits sectionHits, final boolean responseSizesPerSection) {
         totalNumberOfHTTPRequests = 0;
         totalSizeOfRequestsInBytes = 0;
-        hitsPerWebsiteSections = new HashMap<>();
+        hitsPerWebsiteSections = sectionHits;
+        hitsPerSource = new HashMap<>();
+        this.responseSizesPerSection = responseSizesPerSection ?
+                new SectionHistograms(SectionHistograms.DEFAULT_CAPACITY) : null;
     }
 
     /**
@@ -59,12 +118,14 @@ public class HTTPTrafficStats {
      * @param numberOfBytes predefined size of requests.
      * @param hitsPerSection predefined map of hits.
      */
-    public HTTPTrafficStats(final int numberOfRequests,
-                            final int numberOfBytes,
-                            final Map<String, Integer> hitsPerSection) {
+    public HTTPTrafficStats(final long numberOfRequests,
+                            final long numberOfBytes,
+                            final Map<String, Long> hitsPerSection) {
         totalSizeOfRequestsInBytes = numberOfBytes;
         totalNumberOfHTTPRequests = numberOfRequests;
-        hitsPerWebsiteSections = hitsPerSection;
+        hitsPerWebsiteSections = hitsPerSection == null ? new ExactSectionHits() : new ExactSectionHits(hitsPerSection);
+        hitsPerSource = new HashMap<>();
+        responseSizesPerSection = null;
     }
 
     /**
@@ -85,56 +146,231 @@ public class HTTPTrafficStats {
             totalNumberOfServerErrorHTTPRequests++;
         }
 
-        final String section = ConversionUtils.extractHTTPSectionFromRequest(logEntry.getResource());
+        final String section = logEntry.getSection();
 
         if (section != null) {
-            int count = hitsPerWebsiteSections.getOrDefault(section, 0);
-            hitsPerWebsiteSections.put(section, count + 1);
+            hitsPerWebsiteSections.increment(section);
+        }
+
+        final String source = logEntry.getSource();
+        if (source != null) {
+            hitsPerSource.merge(source, 1L, Long::sum);
+        }
+        offerClientAndUser(logEntry, distinctClients, distinctUsers);
+        responseSizes.record(logEntry.getResponseSize());
+        if (responseSizesPerSection != null && section != null) {
+            responseSizesPerSection.record(section, logEntry.getResponseSize());
+        }
+        return this;
+    }
+
+    /**
+     * Offer the client and the authenticated user of an entry to cardinality sketches.
+     * @param logEntry the entry.
+     * @param clients sketch of the distinct clients.
+     * @param users sketch of the distinct authenticated users.
+     */
+    static void offerClientAndUser(final CLFLogEntry logEntry, final HyperLogLog clients, final HyperLogLog users) {
+        final long remoteAddress = logEntry.getRemoteAddress();
+        if (remoteAddress >= 0) {
+            clients.offer(remoteAddress);
+        } else if (logEntry.getRemoteHost() != null) {
+            clients.offer(logEntry.getRemoteHost());
+        }
+        final String userId = logEntry.getUserId();
+        if (userId != null && !"-".equals(userId)) {
+            users.offer(userId);
+        }
+    }
+
+    /**
+     * Add counters aggregated elsewhere (e.g. by a {@link TrafficStatsAccumulator}) to the stats object.
+     * @param numberOfRequests number of requests.
+     * @param sizeOfRequestsInBytes total size of the requests.
+     * @param numberOfValidRequests number of 2xx & 3xx requests.
+     * @param numberOfClientErrorRequests number of 4xx requests.
+     * @param numberOfServerErrorRequests number of 5xx requests.
+     */
+    void addCounters(final long numberOfRequests, final long sizeOfRequestsInBytes, final long numberOfValidRequests,
+                     final long numberOfClientErrorRequests, final long numberOfServerErrorRequests) {
+        totalNumberOfHTTPRequests += numberOfRequests;
+        totalSizeOfRequestsInBytes += sizeOfRequestsInBytes;
+        totalNumberOfValidHTTPRequests += numberOfValidRequests;
+        totalNumberOfClientErrorHTTPRequests += numberOfClientErrorRequests;
+        totalNumberOfServerErrorHTTPRequests += numberOfServerErrorRequests;
+    }
+
+    /**
+     * Add the content of another stats object to this one.
+     * @param other the other stats.
+     * @return the current traffic stats object (for chaining).
+     */
+    public HTTPTrafficStats merge(final HTTPTrafficStats other) {
+        addCounters(other.totalNumberOfHTTPRequests, other.totalSizeOfRequestsInBytes, other.totalNumberOfValidHTTPRequests,
+                other.totalNumberOfClientErrorHTTPRequests, other.totalNumberOfServerErrorHTTPRequests);
+        hitsPerWebsiteSections.addAll(other.hitsPerWebsiteSections);
+        other.hitsPerSource.forEach((source, hits) -> hitsPerSource.merge(source, hits, Long::sum));
+        distinctClients.merge(other.distinctClients);
+        distinctUsers.merge(other.distinctUsers);
+        responseSizes.merge(other.responseSizes);
+        if (other.responseSizesPerSection != null) {
+            other.responseSizesPerSection.forEach(this::mergeResponseSizes);
         }
         return this;
     }
 
+    /**
+     * Reset the stats object to its empty state (e.g. to reuse it for another period).
+     */
+    void clear() {
+        totalNumberOfHTTPRequests = 0;
+        totalSizeOfRequestsInBytes = 0;
+        totalNumberOfValidHTTPRequests = 0;
+        totalNumberOfClientErrorHTTPRequests = 0;
+        totalNumberOfServerErrorHTTPRequests = 0;
+        hitsPerWebsiteSections.clear();
+        hitsPerSource.clear();
+        distinctClients.clear();
+        distinctUsers.clear();
+        responseSizes.clear();
+        if (responseSizesPerSection != null) {
+            responseSizesPerSection.clear();
+        }
+        windowStart = null;
+        windowEnd = null;
+    }
+
+    /**
+     * Add response sizes of a section (ignored if the sizes are not kept per section, or if the section's sizes are
+     * fewer than those of every section with a histogram).
+     * @param section the section.
+     * @param sizes the response sizes.
+     */
+    void mergeResponseSizes(final String section, final LogHistogram sizes) {
+        if (responseSizesPerSection != null) {
+            responseSizesPerSection.merge(section, sizes);
+        }
+    }
+
     /**
      * @return the number of requests in the aggregated stats.
      */
-    public int getTotalNumberOfHTTPRequests() {
+    public long getTotalNumberOfHTTPRequests() {
         return totalNumberOfHTTPRequests;
     }
 
     /**
      * @return the total size of all requests.
      */
-    public int getTotalSizeOfRequestsInBytes() {
+    public long getTotalSizeOfRequestsInBytes() {
         return totalSizeOfRequestsInBytes;
     }
 
     /**
      * @return the total number of valid requests (2xx & 3xx : https://www.restapitutorial.com/httpstatuscodes.html).
      */
-    public int getTotalNumberOfValidHTTPRequests() {
+    public long getTotalNumberOfValidHTTPRequests() {
         return totalNumberOfValidHTTPRequests;
     }
 
     /**
      * @return total number of client error requests (4xx : https://www.restapitutorial.com/httpstatuscodes.html).
      */
-    public int getTotalNumberOfClientErrorHTTPRequests() {
+    public long getTotalNumberOfClientErrorHTTPRequests() {
         return totalNumberOfClientErrorHTTPRequests;
     }
 
     /**
      * @return total number of server error requests (5xx : https://www.restapitutorial.com/httpstatuscodes.html).
      */
-    public int getTotalNumberOfServerErrorHTTPRequests() {
+    public long getTotalNumberOfServerErrorHTTPRequests() {
         return totalNumberOfServerErrorHTTPRequests;
     }
 
     /**
-     * @return the map of hits per section.
-     *
-     * @Note using Guava's ImmutableMap we can protect this object from being modified (and linked with its parent).
+     * @return a copy of the map of hits per section; with a bounded summary, only the counted sections with their
+     * (possibly overestimated) hits.
      */
-    public Map<String,Integer> getHitsPerWebsiteSections() {
+    public Map<String, Long> getHitsPerWebsiteSections() {
+        return hitsPerWebsiteSections.asMap();
+    }
+
+    /**
+     * @param numberOfSections the largest number of sections returned.
+     * @return the most hit sections, most hit first, with their error bounds.
+     */
+    public List<SectionCount> getTopSections(final int numberOfSections) {
+        return hitsPerWebsiteSections.top(numberOfSections);
+    }
+
+    /**
+     * @return the counters of the hits per section.
+     */
+    public SectionHits getSectionHits() {
         return hitsPerWebsiteSections;
     }
+
+    /**
+     * @return the map of requests per monitored log file (empty when a single file is monitored).
+     */
+    public Map<String, Long> getHitsPerSource() {
+        return hitsPerSource;
+    }
+
+    /**
+     * @return the sketch of the distinct clients (remote hosts); merge the sketches of several stats for longer
+     * periods.
+     */
+    public HyperLogLog getDistinctClients() {
+        return distinctClients;
+    }
+
+    /**
+     * @return the sketch of the distinct authenticated users (user ids).
+     */
+    public HyperLogLog getDistinctUsers() {
+        return distinctUsers;
+    }
+
+    /**
+     * @return the distribution of the response sizes (p50, p90, p99, max...), in bytes.
+     */
+    public LogHistogram getResponseSizes() {
+        return responseSizes;
+    }
+
+    /**
+     * @param section a section.
+     * @return the distribution of the section's response sizes, or null if it is not kept (or the section had no hit,
+     * or too few hits to be among the sections with a histogram).
+     */
+    public LogHistogram getResponseSizes(final String section) {
+        return responseSizesPerSection == null ? null : responseSizesPerSection.get(section);
+    }
+
+    /**
+     * @return the start of the window of log time covered by the stats (inclusive), or null.
+     */
+    public Instant getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * @return the end of the window of log time covered by the stats (exclusive), or null.
+     */
+    public Instant getWindowEnd() {
+        return windowEnd;
+    }
+
+    /**
+     * Set the window of log time covered by the stats.
+     * @param windowStart start of the window (inclusive).
+     * @param windowEnd end of the window (exclusive).
+     * @return the current traffic stats object (for chaining).
+     */
+    public HTTPTrafficStats setWindow(final Instant windowStart, final Instant windowEnd) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        return this;
+    }
 }
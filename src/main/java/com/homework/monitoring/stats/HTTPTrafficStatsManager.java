@@ -2,22 +2,38 @@ package com.homework.monitoring.stats;
 
 import com.clfparser.CLFLogEntry;
 import com.homework.monitoring.LogEntryListener;
+import com.homework.monitoring.time.MonitoringClock;
+import com.homework.monitoring.time.MonitoringScheduler;
+import com.homework.monitoring.time.SystemScheduler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * The traffic statistics manager will listen for new CLF log entries and store them internally;
- * every 10 seconds it will aggregate the log entries into traffic statistics and then send them
- * to all registered traffic stats listeners.
+ * The traffic statistics manager will listen for new CLF log entries and aggregate them as they arrive into
+ * tumbling windows of log time (every 10 seconds of log time by default); once a window is complete it will send
+ * its traffic statistics to all registered traffic stats listeners, in window order.
+ *
+ * A window is complete when the watermark (the latest log time seen, minus a small out-of-orderness bound) has passed
+ * its end by the allowed lateness: entries arriving after the end of their window but within the allowed lateness are
+ * still merged into it, later ones are dropped. When no entry arrives, the watermark follows the wall clock, so the
+ * windows of an idle log are still emitted.
+ *
+ * The wall clock and the timer checking for complete windows are given by a {@link MonitoringClock} and a
+ * {@link MonitoringScheduler}, so that simulations can run at CPU speed on a manual clock.
+ *
+ * Only the watermark and window bookkeeping runs under the manager's lock: the entries are counted concurrently by
+ * the {@link TrafficStatsAccumulator}, and the complete windows are built and sent to the listeners after the lock is
+ * released (one thread at a time, in window order), so that slow listeners do not stall the entries.
+ *
+ * @Note as windows follow the log time, the stats stay accurate when the reading lags behind or bursts.
  */
 public class HTTPTrafficStatsManager implements LogEntryListener {
     /**
@@ -33,9 +49,101 @@ public class HTTPTrafficStatsManager implements LogEntryListener {
     private final static Integer DEFAULT_STATS_CREATION_INTERVAL = 10; // in seconds
 
     /**
-     * Thread safe queue used for storing & processing incoming HTTP requests.
+     * Default time an entry may arrive after the end of its window and still be counted in it.
      */
-    Queue<CLFLogEntry> activeEntries = new ConcurrentLinkedQueue<CLFLogEntry>();
+    public final static long DEFAULT_ALLOWED_LATENESS = 5000; // in milliseconds.
+
+    /**
+     * Longest allowed lateness.
+     */
+    private final static long MAX_ALLOWED_LATENESS = 60_000; // in milliseconds.
+
+    /**
+     * How far behind the latest log time the entries are expected to arrive out of order (the log lines of a
+     * second are not always written in order).
+     */
+    private final static long MAX_OUT_OF_ORDERNESS = 2000; // in milliseconds.
+
+    /**
+     * Interval between two checks for complete windows.
+     */
+    private final static long TICK_INTERVAL = 1000; // in milliseconds.
+
+    /**
+     * Largest number of empty windows emitted at once (after a gap in the log time); beyond, they are skipped.
+     */
+    private final static int MAX_EMPTY_WINDOWS_AT_ONCE = 360;
+
+    /**
+     * Length of the windows.
+     */
+    private final long windowLength; // in milliseconds.
+
+    /**
+     * Time an entry may arrive after the end of its window and still be counted in it.
+     */
+    private final long allowedLateness; // in milliseconds.
+
+    /**
+     * Per-second counters of the entries of the windows not emitted yet.
+     */
+    final TrafficStatsAccumulator accumulator;
+
+    /**
+     * Latest log time seen.
+     */
+    private long maxEventTime = Long.MIN_VALUE;
+
+    /**
+     * Wall clock time at which the latest log time was seen.
+     */
+    private long maxEventTimeArrival;
+
+    /**
+     * The watermark: no entry older than it is expected anymore (except late ones).
+     */
+    private long watermark = Long.MIN_VALUE;
+
+    /**
+     * Start of the oldest window not emitted yet (Long.MIN_VALUE until the first entry or tick).
+     */
+    private long nextWindowStart = Long.MIN_VALUE;
+
+    /**
+     * Starts of the complete windows not emitted yet, oldest first.
+     */
+    private final Deque<Long> completeWindows = new ArrayDeque<>();
+
+    /**
+     * Held while emitting the complete windows, so that they are emitted in order.
+     */
+    private final ReentrantLock emissionLock = new ReentrantLock();
+
+    /**
+     * Number of entries merged into their window after its end.
+     */
+    private long lateEntries;
+
+    /**
+     * Number of entries dropped because their window was already emitted.
+     */
+    private long droppedEntries;
+
+    /**
+     * Number of windows emitted, and time spent building their stats and notifying the listeners.
+     */
+    private long emittedWindows;
+    private long emissionNanos; // in nanoseconds.
+
+    /**
+     * The wall clock.
+     */
+    private final MonitoringClock clock;
+
+    /**
+     * Wall clock time at which the manager was created.
+     */
+    private final long createdAt;
 
     /**
      * Listeners waiting for new statistics notifications
@@ -46,6 +154,56 @@ public class HTTPTrafficStatsManager implements LogEntryListener {
      * Constructor.
      */
     public HTTPTrafficStatsManager(final int statsCreationInterval) {
+        this(statsCreationInterval, DEFAULT_ALLOWED_LATENESS);
+    }
+
+    /**
+     * Constructor.
+     * @param statsCreationInterval length of the windows, in seconds (from 10 to 60).
+     * @param allowedLateness time an entry may arrive after the end of its window and still be counted in it, in
+     *                        milliseconds.
+     */
+    public HTTPTrafficStatsManager(final int statsCreationInterval, final long allowedLateness) {
+        this(statsCreationInterval, allowedLateness, true);
+    }
+
+    /**
+     * Constructor.
+     * @param statsCreationInterval length of the windows, in seconds (from 10 to 60).
+     * @param allowedLateness time an entry may arrive after the end of its window, in milliseconds.
+     * @param scheduleTicks whether the windows are checked every second (otherwise {@link #advanceTime(long)} must
+     *                      be called, e.g. when the log time is replayed).
+     */
+    public HTTPTrafficStatsManager(final int statsCreationInterval, final long allowedLateness, final boolean scheduleTicks) {
+        this(statsCreationInterval, allowedLateness, MonitoringClock.SYSTEM,
+                scheduleTicks ? new SystemScheduler("stats-windows") : null);
+    }
+
+    /**
+     * Constructor.
+     * @param statsCreationInterval length of the windows, in seconds (from 10 to 60).
+     * @param allowedLateness time an entry may arrive after the end of its window, in milliseconds.
+     * @param clock the wall clock.
+     * @param scheduler runs the check for complete windows every second; null if {@link #advanceTime(long)} is
+     *                  called by the caller instead.
+     */
+    public HTTPTrafficStatsManager(final int statsCreationInterval, final long allowedLateness,
+                                   final MonitoringClock clock, final MonitoringScheduler scheduler) {
+        this(statsCreationInterval, allowedLateness, clock, scheduler, new TrafficStatsOptions());
+    }
+
+    /**
+     * Constructor.
+     * @param statsCreationInterval length of the windows, in seconds (from 10 to 60).
+     * @param allowedLateness time an entry may arrive after the end of its window, in milliseconds.
+     * @param clock the wall clock.
+     * @param scheduler runs the check for complete windows every second; null if {@link #advanceTime(long)} is
+     *                  called by the caller instead.
+     * @param options what the stats count (hits per section exactly or bounded, response sizes per section).
+     */
+    public HTTPTrafficStatsManager(final int statsCreationInterval, final long allowedLateness,
+                                   final MonitoringClock clock, final MonitoringScheduler scheduler,
+                                   final TrafficStatsOptions options) {
         final int appStatsCreationInterval;
         if (statsCreationInterval < 10 || statsCreationInterval > 60) {
             logger.error("Invalid stats creation interval, going with default of " + DEFAULT_STATS_CREATION_INTERVAL + " seconds.");
@@ -53,46 +211,239 @@ public class HTTPTrafficStatsManager implements LogEntryListener {
         } else {
             appStatsCreationInterval = statsCreationInterval;
         }
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-        executor.scheduleAtFixedRate(new Runnable() {
-               public void run() { refreshStats(); }
-             }, 0, appStatsCreationInterval, TimeUnit.SECONDS);
+        if (allowedLateness < 0 || allowedLateness > MAX_ALLOWED_LATENESS) {
+            logger.error("Invalid allowed lateness (" + allowedLateness + " ms), going with default of " +
+                    DEFAULT_ALLOWED_LATENESS + " ms.");
+            this.allowedLateness = DEFAULT_ALLOWED_LATENESS;
+        } else {
+            this.allowedLateness = allowedLateness;
+        }
+        this.windowLength = appStatsCreationInterval * 1000L;
+
+        // the seconds not emitted yet span at most a window, the out-of-orderness and the lateness.
+        final long pendingSeconds = (windowLength + MAX_OUT_OF_ORDERNESS + this.allowedLateness) / 1000 + 2;
+        this.accumulator = new TrafficStatsAccumulator((int) Math.max(TrafficStatsAccumulator.DEFAULT_NUMBER_OF_BUCKETS,
+                2 * pendingSeconds), options);
+
+        this.clock = clock;
+        this.createdAt = clock.currentTimeMillis();
+        if (scheduler != null) {
+            scheduler.scheduleAtFixedRate(() -> advanceTime(clock.currentTimeMillis()), TICK_INTERVAL);
+        }
+    }
+
+    @Override
+    public void process(CLFLogEntry entry) {
+        if (entry != null) {
+            processEntry(entry, clock.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void processBatch(final List<CLFLogEntry> entries) {
+        final long now = clock.currentTimeMillis();
+        int next = 0;
+        while (next < entries.size()) {
+            // pause whenever a window is complete : its buckets are drained before the next seconds reuse them.
+            next = accumulator.addAll(entries, next, entry -> admit(entry, now), this::hasCompleteWindows);
+            emitCompleteWindows();
+        }
     }
 
     /**
-     * At regular intervals consume all new CLF entries and aggregate them into a stats object to send to listeners (UI,
-     * alerts etc).
+     * Count an entry in its window, emitting the windows its log time completes.
+     * @param entry the entry.
+     * @param now the wall clock time.
      */
-    private void refreshStats() {
-        logger.info("Refreshing stats ...");
-        final HTTPTrafficStats statistics = new HTTPTrafficStats();
+    void processEntry(final CLFLogEntry entry, final long now) {
+        accumulator.addAll(Collections.singletonList(entry), 0, admitted -> admit(admitted, now), () -> false);
+        emitCompleteWindows();
+    }
 
-        CLFLogEntry logEntry = activeEntries.peek();
-        final Instant currentMoment = Instant.now();
+    /**
+     * Move the watermark with the log time of an entry, and tell whether its window is still open.
+     * @param entry the entry.
+     * @param now the wall clock time.
+     * @return whether the entry is to be counted.
+     */
+    private synchronized boolean admit(final CLFLogEntry entry, final long now) {
+        final long eventTime = entry.getTimestampMillis();
+        if (eventTime > now) {
+            logger.warn("Discarding log entry as its timestamp is in the future from the current moment (" +
+                    Instant.ofEpochMilli(now) + "); entry=" + entry.toString());
+            return false;
+        }
 
-        while (logEntry != null && logEntry.getTimestamp().toInstant().isBefore(currentMoment)) {
-            statistics.processNewLogEntry(logEntry);
-            logEntry = activeEntries.poll();
+        if (nextWindowStart == Long.MIN_VALUE) {
+            nextWindowStart = windowStartOf(eventTime);
+        }
+        if (eventTime > maxEventTime) {
+            maxEventTime = eventTime;
+            maxEventTimeArrival = now;
+            advanceWatermark(eventTime - MAX_OUT_OF_ORDERNESS);
         }
 
-        notifyStatsListeners(statistics);
+        if (eventTime < nextWindowStart) {
+            droppedEntries++;
+            logger.warn("Discarding log entry as its window was already emitted (watermark " +
+                    Instant.ofEpochMilli(watermark) + "); entry=" + entry.toString());
+            return false;
+        }
+        if (windowStartOf(eventTime) + windowLength <= watermark) {
+            lateEntries++;
+        }
+        return true;
     }
 
-    @Override
-    public void process(CLFLogEntry entry) {
-        if (entry != null) {
-            final Instant currentMoment = Instant.now();
-            final Instant entryTimestamp = entry.getTimestamp().toInstant();
-            if (entryTimestamp.isAfter(currentMoment)) {
-                logger.warn("Discarding log entry as its timestamp is in the future from the current moment (" + currentMoment.toString() +
-                        "); entry=" + entry.toString());
-            } else if (currentMoment.minusMillis(2 * DEFAULT_STATS_CREATION_INTERVAL * 1000).isAfter(entryTimestamp)) {
-                logger.warn("Discarding log entry as its timestamp is too old from the current moment (" + currentMoment.toString() +
-                                        "); entry=" + entry.toString());
+    /**
+     * Move the time forward when no entry arrives: the watermark follows the wall clock from the latest log time.
+     * @param now the wall clock time.
+     */
+    public void advanceTime(final long now) {
+        synchronized (this) {
+            if (maxEventTime == Long.MIN_VALUE) {
+                // nothing read yet : start the windows from the wall clock once a whole window has elapsed.
+                if (now - createdAt < windowLength) {
+                    return;
+                }
+                if (nextWindowStart == Long.MIN_VALUE) {
+                    nextWindowStart = windowStartOf(now - windowLength);
+                }
+                advanceWatermark(now - MAX_OUT_OF_ORDERNESS);
             } else {
-                activeEntries.add(entry);
+                advanceWatermark(maxEventTime + (now - maxEventTimeArrival) - MAX_OUT_OF_ORDERNESS);
+            }
+        }
+        emitCompleteWindows();
+    }
+
+    /**
+     * Emit all the windows which are not emitted yet, up to the one of the latest log time (e.g. at the end of a
+     * replay).
+     */
+    public void flush() {
+        synchronized (this) {
+            if (maxEventTime != Long.MIN_VALUE) {
+                advanceWatermark(windowStartOf(maxEventTime) + windowLength + allowedLateness);
             }
         }
+        emitCompleteWindows();
+    }
+
+    /**
+     * Move the watermark forward and close the windows it completes; they are emitted once the lock is released.
+     * @param newWatermark the new watermark (ignored if it is behind the current one).
+     */
+    private void advanceWatermark(final long newWatermark) {
+        if (newWatermark <= watermark) {
+            return;
+        }
+        watermark = newWatermark;
+
+        while (nextWindowStart + windowLength + allowedLateness <= watermark) {
+            final long pendingWindows = (watermark - allowedLateness - nextWindowStart) / windowLength;
+            if (pendingWindows > MAX_EMPTY_WINDOWS_AT_ONCE) {
+                final long oldestSecond = accumulator.getOldestSecond();
+                final long skipTo = Math.min(windowStartOf(oldestSecond == Long.MAX_VALUE ? watermark :
+                        oldestSecond * 1000), windowStartOf(watermark - allowedLateness) - windowLength);
+                if (skipTo > nextWindowStart) {
+                    logger.info("Skipping " + (skipTo - nextWindowStart) / windowLength + " empty windows of log time.");
+                    nextWindowStart = skipTo;
+                    continue;
+                }
+            }
+            completeWindows.add(nextWindowStart);
+            nextWindowStart += windowLength;
+        }
+    }
+
+    /**
+     * Build the stats of the complete windows and notify the listeners, outside of the manager's lock.
+     *
+     * @Note if another thread is already emitting, it also emits the windows closed meanwhile: it checks for them
+     * again once it is done.
+     */
+    private void emitCompleteWindows() {
+        do {
+            if (!emissionLock.tryLock()) {
+                return;
+            }
+            try {
+                Long windowStart;
+                while ((windowStart = pollCompleteWindow()) != null) {
+                    final long emissionStart = System.nanoTime();
+                    // the entries admitted in the window are all added once the snapshot holds the accumulator's lock.
+                    final HTTPTrafficStats statistics = accumulator.snapshot(windowStart / 1000,
+                            (windowStart + windowLength) / 1000);
+                    statistics.setWindow(Instant.ofEpochMilli(windowStart), Instant.ofEpochMilli(windowStart + windowLength));
+                    logger.info("Emitting stats of window " + statistics.getWindowStart() + " - " + statistics.getWindowEnd());
+                    notifyStatsListeners(statistics);
+                    synchronized (this) {
+                        emittedWindows++;
+                        emissionNanos += System.nanoTime() - emissionStart;
+                    }
+                }
+            } finally {
+                emissionLock.unlock();
+            }
+        } while (hasCompleteWindows());
+    }
+
+    /**
+     * @return the start of the oldest complete window not emitted yet, or null if there is none.
+     */
+    private synchronized Long pollCompleteWindow() {
+        return completeWindows.poll();
+    }
+
+    /**
+     * @return whether complete windows wait to be emitted.
+     */
+    private synchronized boolean hasCompleteWindows() {
+        return !completeWindows.isEmpty();
+    }
+
+    /**
+     * @param time a log time.
+     * @return the start of its window.
+     */
+    private long windowStartOf(final long time) {
+        return Math.floorDiv(time, windowLength) * windowLength;
+    }
+
+    /**
+     * @return the current watermark (epoch milliseconds).
+     */
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return the number of entries merged into their window after its end.
+     */
+    public synchronized long getLateEntries() {
+        return lateEntries;
+    }
+
+    /**
+     * @return the number of entries dropped because their window was already emitted.
+     */
+    public synchronized long getDroppedEntries() {
+        return droppedEntries;
+    }
+
+    /**
+     * @return the number of windows emitted.
+     */
+    public synchronized long getEmittedWindows() {
+        return emittedWindows;
+    }
+
+    /**
+     * @return the time spent building the stats of the emitted windows and notifying the listeners, in nanoseconds.
+     */
+    public synchronized long getEmissionNanos() {
+        return emissionNanos;
     }
 
     /**
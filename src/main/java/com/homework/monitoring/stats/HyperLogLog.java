@@ -0,0 +1,185 @@
+package com.homework.monitoring.stats;
+
+/**
+ * Cardinality sketch (HyperLogLog): estimates the number of distinct values offered to it with a fixed memory
+ * (2^precision one-byte registers, 4 KB by default, for a standard error of about 1.04 / sqrt(2^precision), i.e. 1.6%
+ * by default), whatever the number of values.
+ *
+ * Sketches of the same precision are merged by keeping the largest register values, which gives the sketch of the
+ * union of their values (e.g. the distinct clients of several stats windows).
+ *
+ * @Note the registers are only allocated on the first offered value, so an empty sketch costs almost nothing; the
+ * sketch is not thread-safe.
+ */
+public class HyperLogLog {
+    /**
+     * Default precision (number of index bits).
+     */
+    public static final int DEFAULT_PRECISION = 12;
+
+    /**
+     * Smallest and largest precisions.
+     */
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 16;
+
+    /**
+     * Number of index bits of the hashes.
+     */
+    private final int precision;
+
+    /**
+     * The registers (position of the first 1 bit of the hashes, at most); null until the first value.
+     */
+    private byte[] registers;
+
+    /**
+     * Constructor.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructor.
+     * @param precision number of index bits (from 4 to 16); the sketch has 2^precision registers.
+     */
+    public HyperLogLog(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid HyperLogLog precision (" + precision + "), expected from " +
+                    MIN_PRECISION + " to " + MAX_PRECISION + ".");
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * Offer a value.
+     * @param value the value; must not be null.
+     */
+    public void offer(final String value) {
+        offerHash(hash(value));
+    }
+
+    /**
+     * Offer a value.
+     * @param value the value.
+     */
+    public void offer(final long value) {
+        offerHash(mix(value));
+    }
+
+    /**
+     * Offer the 64 bit hash of a value.
+     * @param hash the hash; its bits must be evenly distributed.
+     */
+    public void offerHash(final long hash) {
+        if (registers == null) {
+            registers = new byte[1 << precision];
+        }
+        final int index = (int) (hash >>> (64 - precision));
+        // the bit set after the remaining bits bounds the rank when they are all zeros.
+        final int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Add the values of another sketch to this one.
+     * @param other the other sketch; must have the same precision.
+     * @return the current sketch (for chaining).
+     */
+    public HyperLogLog merge(final HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of precisions " + precision +
+                    " and " + other.precision + ".");
+        }
+        if (other.registers == null) {
+            return this;
+        }
+        if (registers == null) {
+            registers = other.registers.clone();
+            return this;
+        }
+        for (int index = 0; index < registers.length; index++) {
+            if (other.registers[index] > registers[index]) {
+                registers[index] = other.registers[index];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the estimated number of distinct values offered.
+     */
+    public long estimate() {
+        if (registers == null) {
+            return 0;
+        }
+        final int numberOfRegisters = registers.length;
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (final byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                emptyRegisters++;
+            }
+        }
+        final double alpha = numberOfRegisters >= 128 ? 0.7213 / (1 + 1.079 / numberOfRegisters) :
+                numberOfRegisters == 64 ? 0.709 : numberOfRegisters == 32 ? 0.697 : 0.673;
+        final double estimate = alpha * numberOfRegisters * numberOfRegisters / sum;
+        if (estimate <= 2.5 * numberOfRegisters && emptyRegisters > 0) {
+            // small cardinalities : linear counting of the empty registers is more accurate.
+            return Math.round(numberOfRegisters * Math.log((double) numberOfRegisters / emptyRegisters));
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return true if no value was offered.
+     */
+    public boolean isEmpty() {
+        return registers == null;
+    }
+
+    /**
+     * Forget all the values (and release the registers).
+     */
+    public void clear() {
+        registers = null;
+    }
+
+    /**
+     * @return the number of index bits.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @param value a string.
+     * @return its 64 bit hash (FNV-1a of its characters, then mixed).
+     */
+    public static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < value.length(); index++) {
+            hash ^= value.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * @param value a 64 bit value.
+     * @return the value with its bits mixed (MurmurHash3 finalizer).
+     */
+    public static long mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,243 @@
+package com.homework.monitoring.stats;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative values (response sizes, durations...) in log-linear buckets, as in HDR histograms: the
+ * values below 2^precision have their own bucket, above each power of two is split into 2^precision buckets, so that
+ * the values reported (percentiles...) are within a relative error of 2^-precision (3% by default) of the recorded ones.
+ *
+ * The counts are kept in a single array allocated by the constructor: recording a value allocates nothing. Histograms
+ * of the same layout are merged by adding their counts, e.g. to get the distribution over several windows.
+ *
+ * @Note the histogram is not thread-safe.
+ */
+public class LogHistogram {
+    /**
+     * Default number of bits of the sub-buckets of each power of two.
+     */
+    public static final int DEFAULT_PRECISION = 5;
+
+    /**
+     * Highest value tracked by the histograms of response sizes (the CLF size field is an int).
+     */
+    public static final long HIGHEST_SIZE = Integer.MAX_VALUE; // in bytes.
+
+    /**
+     * Highest value tracked by the histograms of request durations (the %D field of the Apache logs).
+     */
+    public static final long HIGHEST_DURATION = 3_600_000_000L; // in microseconds (an hour).
+
+    /**
+     * Number of bits of the sub-buckets.
+     */
+    private final int precision;
+
+    /**
+     * Number of sub-buckets of each power of two (2^precision).
+     */
+    private final int subBuckets;
+
+    /**
+     * Highest value tracked; larger values are counted as this value (the maximum stays exact).
+     */
+    private final long highestTrackableValue;
+
+    /**
+     * The counts, by bucket index.
+     */
+    private final long[] counts;
+
+    /**
+     * Number of values recorded.
+     */
+    private long totalCount;
+
+    /**
+     * Sum of the values recorded.
+     */
+    private long sum;
+
+    /**
+     * Smallest value recorded (Long.MAX_VALUE if none).
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * Largest value recorded (0 if none).
+     */
+    private long max;
+
+    /**
+     * Constructor.
+     * @param highestTrackableValue highest value tracked (at least 1).
+     * @param precision number of bits of the sub-buckets of each power of two (from 1 to 10).
+     */
+    public LogHistogram(final long highestTrackableValue, final int precision) {
+        if (precision < 1 || precision > 10) {
+            throw new IllegalArgumentException("Invalid histogram precision (" + precision + "), expected from 1 to 10.");
+        }
+        if (highestTrackableValue < 1) {
+            throw new IllegalArgumentException("Invalid highest trackable value (" + highestTrackableValue + ").");
+        }
+        this.precision = precision;
+        this.subBuckets = 1 << precision;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[indexOf(highestTrackableValue) + 1];
+    }
+
+    /**
+     * @return a histogram of response sizes, in bytes.
+     */
+    public static LogHistogram ofSizes() {
+        return new LogHistogram(HIGHEST_SIZE, DEFAULT_PRECISION);
+    }
+
+    /**
+     * @return a histogram of request durations, in microseconds.
+     */
+    public static LogHistogram ofDurations() {
+        return new LogHistogram(HIGHEST_DURATION, DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param value a value, from 0 to the highest trackable value.
+     * @return the index of its bucket.
+     */
+    private int indexOf(final long value) {
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - precision;
+        return (shift + 1) * subBuckets + (int) (value >>> shift) - subBuckets;
+    }
+
+    /**
+     * @param index a bucket index.
+     * @return the highest value of the bucket.
+     */
+    private long highestValueOf(final int index) {
+        if (index < subBuckets) {
+            return index;
+        }
+        final int shift = index / subBuckets - 1;
+        final long lowest = (long) (subBuckets + index % subBuckets) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Record a value.
+     * @param value the value; negative values are recorded as 0.
+     */
+    public void record(final long value) {
+        final long recorded = Math.max(0, value);
+        counts[indexOf(Math.min(recorded, highestTrackableValue))]++;
+        totalCount++;
+        sum += recorded;
+        if (recorded < min) {
+            min = recorded;
+        }
+        if (recorded > max) {
+            max = recorded;
+        }
+    }
+
+    /**
+     * Add the values of another histogram to this one.
+     * @param other the other histogram; must have the same highest trackable value and precision.
+     * @return the current histogram (for chaining).
+     */
+    public LogHistogram merge(final LogHistogram other) {
+        if (other.precision != precision || other.highestTrackableValue != highestTrackableValue) {
+            throw new IllegalArgumentException("Cannot merge histograms of different layouts.");
+        }
+        if (other.totalCount == 0) {
+            return this;
+        }
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] += other.counts[index];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * @param percentile the percentile (from 0 to 100).
+     * @return the value below or at which the given percentage of the recorded values are (within the precision of
+     * the histogram, and never above the largest value recorded); 0 if no value is recorded.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        final double clamped = Math.min(100, Math.max(0, percentile));
+        final long rank = Math.max(1, (long) Math.ceil(clamped / 100 * totalCount));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, highestValueOf(index)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forget all the recorded values.
+     */
+    public void clear() {
+        if (totalCount == 0) {
+            return;
+        }
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * @return the number of values recorded.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the smallest value recorded, or 0 if none.
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * @return the largest value recorded, or 0 if none.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the values recorded, or 0 if none.
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * @return an empty histogram of the same layout.
+     */
+    public LogHistogram emptyCopy() {
+        return new LogHistogram(highestTrackableValue, precision);
+    }
+
+    @Override
+    public String toString() {
+        return "p50=" + getValueAtPercentile(50) + " p90=" + getValueAtPercentile(90) + " p99=" +
+                getValueAtPercentile(99) + " max=" + getMax();
+    }
+}
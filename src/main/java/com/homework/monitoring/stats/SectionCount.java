@@ -0,0 +1,57 @@
+package com.homework.monitoring.stats;
+
+/**
+ * Number of hits of a website section, as counted by a {@link SectionHits}.
+ */
+public class SectionCount {
+    /**
+     * The section.
+     */
+    private final String section;
+
+    /**
+     * The counted hits (never less than the actual hits).
+     */
+    private final long hits;
+
+    /**
+     * Largest overestimation of the hits (0 when the count is exact).
+     */
+    private final long error;
+
+    /**
+     * Constructor.
+     * @param section the section.
+     * @param hits the counted hits.
+     * @param error largest overestimation of the hits.
+     */
+    public SectionCount(final String section, final long hits, final long error) {
+        this.section = section;
+        this.hits = hits;
+        this.error = error;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getError() {
+        return error;
+    }
+
+    /**
+     * @return the number of hits the section is guaranteed to have.
+     */
+    public long getGuaranteedHits() {
+        return hits - error;
+    }
+
+    @Override
+    public String toString() {
+        return section + "=" + hits + (error == 0 ? "" : " (+/-" + error + ")");
+    }
+}
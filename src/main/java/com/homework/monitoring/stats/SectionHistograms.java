@@ -0,0 +1,142 @@
+package com.homework.monitoring.stats;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Response size distributions of at most a fixed number of sections, so that a crawler hitting random paths does not
+ * allocate a histogram per path.
+ *
+ * The histograms are handed out like the counters of {@link SpaceSavingSectionHits}: once every histogram is taken, a
+ * new section takes over the histogram of lightest weight (the number of values recorded for its section, plus the
+ * weight it inherited), which is emptied and inherits that weight. Any section with more values than the total
+ * divided by the number of histograms therefore keeps its histogram, while the sections hit once take turns on the
+ * lightest ones.
+ *
+ * @Note not thread-safe; a histogram only holds the values recorded since its section took it over.
+ */
+class SectionHistograms {
+    /**
+     * Default largest number of sections with a response size distribution.
+     */
+    static final int DEFAULT_CAPACITY = 20;
+
+    /**
+     * Histogram of a section, and its weight.
+     */
+    private static final class Slot {
+        private final LogHistogram histogram = LogHistogram.ofSizes();
+        private long weight;
+    }
+
+    /**
+     * Largest number of histograms.
+     */
+    private final int capacity;
+
+    /**
+     * The histograms, by section.
+     */
+    private final Map<String, Slot> slots;
+
+    /**
+     * Emptied slots, reused before new ones are allocated (e.g. by the per-second counters drained every second).
+     */
+    private final Deque<Slot> freeSlots = new ArrayDeque<>();
+
+    /**
+     * Constructor.
+     * @param capacity largest number of histograms (at least 1).
+     */
+    SectionHistograms(final int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.slots = new HashMap<>(this.capacity * 4 / 3 + 1);
+    }
+
+    /**
+     * Record a response size of a section.
+     * @param section the section.
+     * @param size the response size.
+     */
+    void record(final String section, final long size) {
+        slotOf(section, 1).histogram.record(size);
+    }
+
+    /**
+     * Add response sizes of a section.
+     * @param section the section.
+     * @param sizes the response sizes.
+     */
+    void merge(final String section, final LogHistogram sizes) {
+        if (sizes.getTotalCount() > 0) {
+            slotOf(section, sizes.getTotalCount()).histogram.merge(sizes);
+        }
+    }
+
+    /**
+     * @param section a section.
+     * @param values number of values about to be added to its histogram.
+     * @return the slot of the section, taken over from the lightest section if needed, with its weight increased.
+     */
+    private Slot slotOf(final String section, final long values) {
+        Slot slot = slots.get(section);
+        if (slot == null) {
+            if (slots.size() < capacity) {
+                slot = freeSlots.isEmpty() ? new Slot() : freeSlots.pop();
+            } else {
+                String lightest = null;
+                long lightestWeight = Long.MAX_VALUE;
+                for (final Map.Entry<String, Slot> entry : slots.entrySet()) {
+                    if (entry.getValue().weight < lightestWeight) {
+                        lightest = entry.getKey();
+                        lightestWeight = entry.getValue().weight;
+                    }
+                }
+                slot = slots.remove(lightest);
+                slot.histogram.clear();
+            }
+            slots.put(section, slot);
+        }
+        slot.weight += values;
+        return slot;
+    }
+
+    /**
+     * @param section a section.
+     * @return its response size distribution, or null if it has none.
+     */
+    LogHistogram get(final String section) {
+        final Slot slot = slots.get(section);
+        return slot == null ? null : slot.histogram;
+    }
+
+    /**
+     * Give every histogram with its section.
+     * @param consumer receives the sections and their histograms.
+     */
+    void forEach(final BiConsumer<String, LogHistogram> consumer) {
+        slots.forEach((section, slot) -> consumer.accept(section, slot.histogram));
+    }
+
+    /**
+     * @return the number of sections with a histogram.
+     */
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * Forget all the histograms (their memory is kept for reuse).
+     */
+    void clear() {
+        for (final Slot slot : slots.values()) {
+            slot.histogram.clear();
+            slot.weight = 0;
+            freeSlots.push(slot);
+        }
+        slots.clear();
+    }
+}
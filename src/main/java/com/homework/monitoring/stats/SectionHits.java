@@ -0,0 +1,92 @@
+package com.homework.monitoring.stats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Counters of the hits per website section.
+ *
+ * Two implementations are available: {@link ExactSectionHits} counts every section (its memory grows with the number
+ * of distinct sections, e.g. when crawlers hit random paths) and {@link SpaceSavingSectionHits} only keeps a fixed
+ * number of counters, giving the most hit sections with an error bound.
+ */
+public interface SectionHits {
+    /**
+     * Count a hit.
+     * @param section the section.
+     */
+    void increment(final String section);
+
+    /**
+     * Count several hits.
+     * @param section the section.
+     * @param hits the number of hits.
+     * @param error the largest overestimation of the hits (0 when exact).
+     */
+    void add(final String section, final long hits, final long error);
+
+    /**
+     * Receives the counter of a section.
+     */
+    @FunctionalInterface
+    interface CountConsumer {
+        /**
+         * @param section the section.
+         * @param hits its counted hits.
+         * @param error the largest overestimation of its hits (0 when exact).
+         */
+        void accept(final String section, final long hits, final long error);
+    }
+
+    /**
+     * Add all the counters of another object.
+     * @param other the other counters.
+     */
+    default void addAll(final SectionHits other) {
+        other.forEachCount(this::add);
+    }
+
+    /**
+     * Give every counter, in no particular order (the sections are not ranked).
+     * @param consumer receives the counters; it may update other section counters.
+     */
+    void forEachCount(final CountConsumer consumer);
+
+    /**
+     * @param numberOfSections the largest number of sections returned.
+     * @return the most hit sections, most hit first.
+     */
+    List<SectionCount> top(final int numberOfSections);
+
+    /**
+     * @return the number of sections counted.
+     */
+    int size();
+
+    /**
+     * @return true if the counts are exact and every section is counted.
+     */
+    boolean isExact();
+
+    /**
+     * @return the counted hits per section.
+     */
+    Map<String, Long> asMap();
+
+    /**
+     * Reset all the counters.
+     */
+    void clear();
+
+    /**
+     * @param numberOfCounters number of counters of the bounded summary; 0 or less for exact counts.
+     * @return a factory of the section counters of a deployment.
+     */
+    static Supplier<SectionHits> factory(final int numberOfCounters) {
+        if (numberOfCounters > 0) {
+            return () -> new SpaceSavingSectionHits(numberOfCounters);
+        }
+        return ExactSectionHits::new;
+    }
+}
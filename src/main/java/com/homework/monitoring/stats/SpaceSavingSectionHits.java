@@ -0,0 +1,363 @@
+package com.homework.monitoring.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded summary of the hits per section (Space-Saving algorithm): at most a fixed number of sections are counted;
+ * a hit of a section which is not counted takes over the counter of a least hit section, inheriting its hits as error.
+ *
+ * The counted hits of a section never underestimate its actual hits and overestimate them by at most the counter's
+ * error, itself at most the total number of hits divided by the number of counters; any section with more hits than
+ * that is guaranteed to be counted.
+ *
+ * The counters are kept in buckets of equal hits, linked in hits order (the "stream summary" structure): a hit moves
+ * its counter to the next bucket in constant time and the most hit sections are read from the last bucket, without
+ * sorting.
+ *
+ * Two summaries are merged with the mergeable Space-Saving rule: a section missing from a full summary may have had up to
+ * its least counted hits there, which are added to the section's hits and error; the most hit sections are then kept.
+ */
+public class SpaceSavingSectionHits implements SectionHits {
+    /**
+     * Default number of counters.
+     */
+    public static final int DEFAULT_NUMBER_OF_COUNTERS = 1000;
+
+    /**
+     * Counter of a section.
+     */
+    private static final class Counter {
+        private String section;
+        private long error;
+        private Bucket bucket;
+        private Counter previous;
+        private Counter next;
+
+        private Counter(final String section) {
+            this.section = section;
+        }
+    }
+
+    /**
+     * The counters having the same number of hits.
+     */
+    private static final class Bucket {
+        private final long hits;
+        private Counter first;
+        private Bucket smaller;
+        private Bucket larger;
+
+        private Bucket(final long hits) {
+            this.hits = hits;
+        }
+    }
+
+    /**
+     * Copy of the counters, most hit first.
+     */
+    private static final class Counts {
+        private final String[] sections;
+        private final long[] hits;
+        private final long[] errors;
+
+        /**
+         * Largest number of hits of a section which is not counted (0 if the summary is not full).
+         */
+        private final long missingHits;
+
+        private Counts(final int size, final long missingHits) {
+            this.sections = new String[size];
+            this.hits = new long[size];
+            this.errors = new long[size];
+            this.missingHits = missingHits;
+        }
+    }
+
+    /**
+     * Order of the merged counts, most hit first.
+     */
+    private static final Comparator<SectionCount> MOST_HIT_FIRST =
+            Comparator.comparingLong(SectionCount::getHits).reversed();
+
+    /**
+     * Largest number of counters.
+     */
+    private final int numberOfCounters;
+
+    /**
+     * The counters, by section.
+     */
+    private final Map<String, Counter> counters;
+
+    /**
+     * Bucket of the least hit sections.
+     */
+    private Bucket smallest;
+
+    /**
+     * Bucket of the most hit sections.
+     */
+    private Bucket largest;
+
+    /**
+     * Constructor.
+     * @param numberOfCounters largest number of sections counted.
+     */
+    public SpaceSavingSectionHits(final int numberOfCounters) {
+        if (numberOfCounters < 1) {
+            throw new IllegalArgumentException("At least one counter is needed (" + numberOfCounters + ").");
+        }
+        this.numberOfCounters = numberOfCounters;
+        this.counters = new HashMap<>(numberOfCounters * 4 / 3 + 1);
+    }
+
+    @Override
+    public synchronized void increment(final String section) {
+        add(section, 1, 0);
+    }
+
+    @Override
+    public synchronized void add(final String section, final long hits, final long error) {
+        if (hits <= 0) {
+            return;
+        }
+        Counter counter = counters.get(section);
+        if (counter == null && counters.size() < numberOfCounters) {
+            counter = new Counter(section);
+            counter.error = error;
+            counters.put(section, counter);
+            place(counter, hits, null);
+            return;
+        }
+        if (counter == null) {
+            // take over the counter of a least hit section.
+            counter = smallest.first;
+            counters.remove(counter.section);
+            counter.section = section;
+            counter.error = counter.bucket.hits + error;
+            counters.put(section, counter);
+        } else {
+            counter.error += error;
+        }
+        final Bucket bucket = counter.bucket;
+        unlink(counter);
+        place(counter, bucket.hits + hits, bucket);
+        if (bucket.first == null) {
+            remove(bucket);
+        }
+    }
+
+    /**
+     * Put a counter in the bucket of its hits, creating it if needed.
+     * @param counter the counter (not in any bucket).
+     * @param hits its hits.
+     * @param from a bucket of fewer hits to search from; null to search from the smallest one.
+     */
+    private void place(final Counter counter, final long hits, final Bucket from) {
+        Bucket smaller = from;
+        Bucket bucket = from == null ? smallest : from.larger;
+        while (bucket != null && bucket.hits < hits) {
+            smaller = bucket;
+            bucket = bucket.larger;
+        }
+        if (bucket == null || bucket.hits != hits) {
+            final Bucket created = new Bucket(hits);
+            created.smaller = smaller;
+            created.larger = bucket;
+            if (smaller == null) {
+                smallest = created;
+            } else {
+                smaller.larger = created;
+            }
+            if (bucket == null) {
+                largest = created;
+            } else {
+                bucket.smaller = created;
+            }
+            bucket = created;
+        }
+        counter.bucket = bucket;
+        counter.previous = null;
+        counter.next = bucket.first;
+        if (bucket.first != null) {
+            bucket.first.previous = counter;
+        }
+        bucket.first = counter;
+    }
+
+    /**
+     * Take a counter out of its bucket.
+     */
+    private void unlink(final Counter counter) {
+        if (counter.previous == null) {
+            counter.bucket.first = counter.next;
+        } else {
+            counter.previous.next = counter.next;
+        }
+        if (counter.next != null) {
+            counter.next.previous = counter.previous;
+        }
+        counter.previous = null;
+        counter.next = null;
+        counter.bucket = null;
+    }
+
+    /**
+     * Remove an empty bucket.
+     */
+    private void remove(final Bucket bucket) {
+        if (bucket.smaller == null) {
+            smallest = bucket.larger;
+        } else {
+            bucket.smaller.larger = bucket.larger;
+        }
+        if (bucket.larger == null) {
+            largest = bucket.smaller;
+        } else {
+            bucket.larger.smaller = bucket.smaller;
+        }
+    }
+
+    @Override
+    public synchronized List<SectionCount> top(final int numberOfSections) {
+        final List<SectionCount> top = new ArrayList<>(Math.max(0, Math.min(numberOfSections, counters.size())));
+        for (Bucket bucket = largest; bucket != null && top.size() < numberOfSections; bucket = bucket.smaller) {
+            for (Counter counter = bucket.first; counter != null && top.size() < numberOfSections; counter = counter.next) {
+                top.add(new SectionCount(counter.section, bucket.hits, counter.error));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @Note the counters of the other summary are copied under its lock and merged under this one, so that two summaries
+     * can be merged into each other concurrently without deadlock.
+     */
+    @Override
+    public void addAll(final SectionHits other) {
+        final Counts otherCounts;
+        if (other instanceof SpaceSavingSectionHits) {
+            otherCounts = ((SpaceSavingSectionHits) other).counts();
+        } else {
+            // every section of exact counters is counted.
+            final List<SectionCount> counted = new ArrayList<>(other.size());
+            other.forEachCount((section, hits, error) -> counted.add(new SectionCount(section, hits, error)));
+            otherCounts = new Counts(counted.size(), 0);
+            for (int index = 0; index < counted.size(); index++) {
+                otherCounts.sections[index] = counted.get(index).getSection();
+                otherCounts.hits[index] = counted.get(index).getHits();
+                otherCounts.errors[index] = counted.get(index).getError();
+            }
+        }
+        merge(otherCounts);
+    }
+
+    /**
+     * Merge the counters of another summary (mergeable Space-Saving).
+     * @param other the counters of the other summary.
+     */
+    private synchronized void merge(final Counts other) {
+        final long missingHits = counters.size() < numberOfCounters ? 0 : smallest.hits;
+        final Map<String, SectionCount> merged = new LinkedHashMap<>((counters.size() + other.sections.length) * 4 / 3 + 1);
+        for (Bucket bucket = largest; bucket != null; bucket = bucket.smaller) {
+            for (Counter counter = bucket.first; counter != null; counter = counter.next) {
+                merged.put(counter.section, new SectionCount(counter.section, bucket.hits + other.missingHits,
+                        counter.error + other.missingHits));
+            }
+        }
+        for (int index = 0; index < other.sections.length; index++) {
+            final SectionCount count = merged.get(other.sections[index]);
+            if (count == null) {
+                merged.put(other.sections[index], new SectionCount(other.sections[index],
+                        other.hits[index] + missingHits, other.errors[index] + missingHits));
+            } else {
+                merged.put(count.getSection(), new SectionCount(count.getSection(),
+                        count.getHits() - other.missingHits + other.hits[index],
+                        count.getError() - other.missingHits + other.errors[index]));
+            }
+        }
+
+        final List<SectionCount> mostHit = new ArrayList<>(merged.values());
+        mostHit.sort(MOST_HIT_FIRST);
+        clear();
+        // most hit first : each counter goes into the smallest bucket, or a new smaller one.
+        for (final SectionCount count : mostHit.subList(0, Math.min(numberOfCounters, mostHit.size()))) {
+            if (count.getHits() > 0) {
+                final Counter counter = new Counter(count.getSection());
+                counter.error = count.getError();
+                counters.put(counter.section, counter);
+                place(counter, count.getHits(), null);
+            }
+        }
+    }
+
+    /**
+     * @Note the counters are given most hit first, as read from the buckets (without sorting), so that merges are
+     * reproducible; they are copied under the lock and given outside of it.
+     */
+    @Override
+    public void forEachCount(final CountConsumer consumer) {
+        final Counts counts = counts();
+        for (int index = 0; index < counts.sections.length; index++) {
+            consumer.accept(counts.sections[index], counts.hits[index], counts.errors[index]);
+        }
+    }
+
+    /**
+     * @return a copy of the counters, most hit first.
+     */
+    private synchronized Counts counts() {
+        final Counts counts = new Counts(counters.size(), counters.size() < numberOfCounters ? 0 : smallest.hits);
+        int index = 0;
+        for (Bucket bucket = largest; bucket != null; bucket = bucket.smaller) {
+            for (Counter counter = bucket.first; counter != null; counter = counter.next) {
+                counts.sections[index] = counter.section;
+                counts.hits[index] = bucket.hits;
+                counts.errors[index] = counter.error;
+                index++;
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    @Override
+    public boolean isExact() {
+        return false;
+    }
+
+    /**
+     * @return the counted sections, most hit first, with their (possibly overestimated) hits.
+     */
+    @Override
+    public synchronized Map<String, Long> asMap() {
+        final Map<String, Long> hits = new LinkedHashMap<>();
+        for (final SectionCount count : top(counters.size())) {
+            hits.put(count.getSection(), count.getHits());
+        }
+        return hits;
+    }
+
+    @Override
+    public synchronized void clear() {
+        counters.clear();
+        smallest = null;
+        largest = null;
+    }
+
+    /**
+     * @return the largest number of sections counted.
+     */
+    public int getNumberOfCounters() {
+        return numberOfCounters;
+    }
+}
@@ -0,0 +1,258 @@
+package com.homework.monitoring.stats;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * History of the traffic stats at several resolutions: each stats window received is merged into the current slot of
+ * every tier (10 seconds, 1 minute and 1 hour by default), each tier keeping its latest slots in a fixed-size ring.
+ * The history therefore spans days in a constant memory, with a finer resolution for the recent past.
+ *
+ * Receiving a window costs one merge per tier; the stats of the last N minutes are merged from the coarsest slots
+ * fitting in the period, the finer tiers only filling its edges (e.g. the last 12 hours merge about 11 hours, 60 minutes
+ * and 6 windows of 10 seconds instead of 720 minutes).
+ *
+ * @Note the slots are allocated on first use and reused once their ring wraps around; each one holds a full
+ * {@link HTTPTrafficStats} (about 15 KB with its sketches and histogram, plus its section counters, which should be
+ * bounded with {@link TrafficStatsOptions#setSectionCounters(int)} for long histories of many sections). The response
+ * sizes per section are not kept in the history: only those of the current window are shown.
+ */
+public class StatsRollupStore implements HTTPStatsListener {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(StatsRollupStore.class);
+
+    /**
+     * Default resolutions of the tiers.
+     */
+    public static final long[] DEFAULT_RESOLUTIONS = {10_000, 60_000, 3_600_000}; // in milliseconds.
+
+    /**
+     * Default number of slots of the tiers : an hour of 10 seconds windows, 12 hours of minutes, a week of hours.
+     */
+    public static final int[] DEFAULT_SLOTS = {360, 720, 168};
+
+    /**
+     * A tier : the latest slots of a resolution.
+     */
+    private static final class Tier {
+        private final long resolution;
+        private final HTTPTrafficStats[] slots;
+        private final long[] slotStarts;
+        private int newest = -1;
+        private int size;
+
+        private Tier(final long resolution, final int numberOfSlots) {
+            this.resolution = resolution;
+            this.slots = new HTTPTrafficStats[numberOfSlots];
+            this.slotStarts = new long[numberOfSlots];
+        }
+
+        /**
+         * @return the start of the oldest slot kept, or Long.MAX_VALUE if the tier is empty.
+         */
+        private long oldestStart() {
+            return size == 0 ? Long.MAX_VALUE : slotStarts[Math.floorMod(newest - size + 1, slots.length)];
+        }
+
+        /**
+         * @param slotStart start of a slot, kept by the tier.
+         * @return the slot, or null if no window was received during it.
+         */
+        private HTTPTrafficStats slotAt(final long slotStart) {
+            // the slots get older with their age, possibly with gaps : binary search.
+            int newer = 0;
+            int older = size - 1;
+            while (newer <= older) {
+                final int age = (newer + older) >>> 1;
+                final int index = Math.floorMod(newest - age, slots.length);
+                if (slotStarts[index] == slotStart) {
+                    return slots[index];
+                } else if (slotStarts[index] > slotStart) {
+                    newer = age + 1;
+                } else {
+                    older = age - 1;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The tiers, finest first.
+     */
+    private final Tier[] tiers;
+
+    /**
+     * What the slots count (without the response sizes per section).
+     */
+    private final TrafficStatsOptions options;
+
+    /**
+     * End of the latest window received (epoch milliseconds); Long.MIN_VALUE if none.
+     */
+    private long latestEnd = Long.MIN_VALUE;
+
+    /**
+     * Constructor, with the default tiers.
+     * @param options what the slots count (should match the stats received).
+     */
+    public StatsRollupStore(final TrafficStatsOptions options) {
+        this(options, DEFAULT_RESOLUTIONS, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Constructor.
+     * @param options what the slots count (should match the stats received).
+     * @param resolutions resolutions of the tiers, finest first, in milliseconds; each one a multiple of the previous.
+     * @param numberOfSlots number of slots of each tier.
+     */
+    public StatsRollupStore(final TrafficStatsOptions options, final long[] resolutions, final int[] numberOfSlots) {
+        if (resolutions.length == 0 || resolutions.length != numberOfSlots.length) {
+            throw new IllegalArgumentException("Each tier needs a resolution and a number of slots.");
+        }
+        this.options = options.withoutResponseSizesPerSection();
+        this.tiers = new Tier[resolutions.length];
+        for (int index = 0; index < resolutions.length; index++) {
+            if (resolutions[index] <= 0 || numberOfSlots[index] <= 0 ||
+                    (index > 0 && resolutions[index] % resolutions[index - 1] != 0)) {
+                throw new IllegalArgumentException("Invalid tier " + resolutions[index] + " ms x " + numberOfSlots[index]);
+            }
+            tiers[index] = new Tier(resolutions[index], numberOfSlots[index]);
+        }
+    }
+
+    /**
+     * Merge a stats window into all the tiers.
+     *
+     * @Note stats without window are taken as the window following the previous one.
+     */
+    @Override
+    public synchronized void processTrafficStatistics(final HTTPTrafficStats httpTrafficStats) {
+        final long start;
+        final long end;
+        if (httpTrafficStats.getWindowStart() != null) {
+            start = httpTrafficStats.getWindowStart().toEpochMilli();
+            end = httpTrafficStats.getWindowEnd().toEpochMilli();
+        } else {
+            start = latestEnd == Long.MIN_VALUE ? 0 : latestEnd;
+            end = start + tiers[0].resolution;
+        }
+        if (latestEnd != Long.MIN_VALUE && start < latestEnd) {
+            logger.warn("Stats window starting at " + Instant.ofEpochMilli(start) + " is older than the history; ignored.");
+            return;
+        }
+        latestEnd = end;
+
+        for (final Tier tier : tiers) {
+            final long slotStart = Math.floorDiv(start, tier.resolution) * tier.resolution;
+            if (tier.size == 0 || tier.slotStarts[tier.newest] != slotStart) {
+                tier.newest = (tier.newest + 1) % tier.slots.length;
+                tier.size = Math.min(tier.size + 1, tier.slots.length);
+                if (tier.slots[tier.newest] == null) {
+                    tier.slots[tier.newest] = options.newStats();
+                } else {
+                    tier.slots[tier.newest].clear();
+                }
+                tier.slotStarts[tier.newest] = slotStart;
+                tier.slots[tier.newest].setWindow(Instant.ofEpochMilli(slotStart),
+                        Instant.ofEpochMilli(slotStart + tier.resolution));
+            }
+            tier.slots[tier.newest].merge(httpTrafficStats);
+        }
+    }
+
+    /**
+     * @param duration length of the period, in milliseconds.
+     * @return the stats of the period ending with the latest window received, merged from the coarsest slots fitting in
+     * it (its start is rounded down to the finest resolution still kept, or to the oldest slot kept); null if nothing
+     * was received.
+     */
+    public synchronized HTTPTrafficStats getLast(final long duration) {
+        if (latestEnd == Long.MIN_VALUE) {
+            return null;
+        }
+        final List<HTTPTrafficStats> slots = getSlotsCovering(latestEnd - duration);
+        final HTTPTrafficStats merged = options.newStats();
+        for (final HTTPTrafficStats slot : slots) {
+            merged.merge(slot);
+        }
+        final Instant mergedStart = slots.isEmpty() ? Instant.ofEpochMilli(latestEnd) :
+                slots.get(slots.size() - 1).getWindowStart();
+        return merged.setWindow(mergedStart, Instant.ofEpochMilli(latestEnd));
+    }
+
+    /**
+     * Walk back from the latest window received, taking at each step the coarsest slot which ends there (the newest
+     * slots of the tiers all end with the latest window) and starts within the period; when none does, the finest slot
+     * kept ending there completes the period.
+     * @param from start of the period (epoch milliseconds).
+     * @return the slots covering the period, newest first.
+     */
+    List<HTTPTrafficStats> getSlotsCovering(final long from) {
+        final List<HTTPTrafficStats> covering = new ArrayList<>();
+        long cursor = latestEnd;
+        while (cursor > from) {
+            Tier chosen = null;
+            long chosenStart = 0;
+            for (final Tier tier : tiers) {
+                final long slotStart = Math.floorDiv(cursor - 1, tier.resolution) * tier.resolution;
+                if ((cursor != latestEnd && slotStart + tier.resolution != cursor) || slotStart < tier.oldestStart()) {
+                    continue;
+                }
+                if (chosen == null || slotStart >= from) {
+                    chosen = tier;
+                    chosenStart = slotStart;
+                }
+                if (slotStart < from) {
+                    break;
+                }
+            }
+            if (chosen == null) {
+                break;
+            }
+            final HTTPTrafficStats slot = chosen.slotAt(chosenStart);
+            if (slot != null) {
+                covering.add(slot);
+            }
+            cursor = chosenStart;
+        }
+        return covering;
+    }
+
+    /**
+     * @param tierIndex index of the tier, 0 being the finest.
+     * @param numberOfSlots largest number of slots returned.
+     * @return copies of the latest slots of the tier, oldest first (e.g. to draw a chart).
+     */
+    public synchronized List<HTTPTrafficStats> getSlots(final int tierIndex, final int numberOfSlots) {
+        final Tier tier = tiers[tierIndex];
+        final int count = Math.min(numberOfSlots, tier.size);
+        final List<HTTPTrafficStats> slots = new ArrayList<>(count);
+        for (int age = count - 1; age >= 0; age--) {
+            final HTTPTrafficStats slot = tier.slots[Math.floorMod(tier.newest - age, tier.slots.length)];
+            slots.add(options.newStats().merge(slot).setWindow(slot.getWindowStart(), slot.getWindowEnd()));
+        }
+        return slots;
+    }
+
+    /**
+     * @return the number of tiers.
+     */
+    public int getNumberOfTiers() {
+        return tiers.length;
+    }
+
+    /**
+     * @param tierIndex index of the tier, 0 being the finest.
+     * @return the resolution of the tier, in milliseconds.
+     */
+    public long getResolution(final int tierIndex) {
+        return tiers[tierIndex].resolution;
+    }
+}
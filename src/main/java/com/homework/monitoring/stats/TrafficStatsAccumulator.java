@@ -0,0 +1,280 @@
+package com.homework.monitoring.stats;
+
+import com.clfparser.CLFLogEntry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Aggregates the log entries as they arrive into per-second buckets of counters, so that the entries themselves are
+ * not kept: the memory used depends on the number of buckets (and of sections per second, unless the sections are
+ * counted by a bounded {@link SpaceSavingSectionHits}), not on the number of requests; the distinct clients and users
+ * are counted by fixed size {@link HyperLogLog} sketches and the response sizes by {@link LogHistogram}s.
+ *
+ * Entries are added concurrently (the counters are {@link LongAdder}s); taking a snapshot briefly excludes the
+ * additions, merges the buckets (all of them, or those of a time range) into a {@link HTTPTrafficStats} object and
+ * resets them.
+ *
+ * @Note the seconds counted at the same time must span fewer seconds than the number of buckets; otherwise two seconds
+ * share a bucket and are only told apart by a snapshot of all the buckets.
+ */
+public class TrafficStatsAccumulator {
+    /**
+     * Default number of per-second buckets (a power of two, well above the time range of the accepted entries).
+     */
+    public static final int DEFAULT_NUMBER_OF_BUCKETS = 64;
+
+    /**
+     * Counters of the requests of one second.
+     */
+    private static final class SecondBucket {
+        /**
+         * The second (since the epoch) the bucket currently counts; Long.MIN_VALUE when the bucket is empty.
+         */
+        private volatile long epochSecond = Long.MIN_VALUE;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder validRequests = new LongAdder();
+        private final LongAdder clientErrorRequests = new LongAdder();
+        private final LongAdder serverErrorRequests = new LongAdder();
+        private final SectionHits hitsPerSection;
+        private final Map<String, LongAdder> hitsPerSource = new ConcurrentHashMap<>();
+        private final HyperLogLog distinctClients = new HyperLogLog();
+        private final HyperLogLog distinctUsers = new HyperLogLog();
+        private final LogHistogram responseSizes = LogHistogram.ofSizes();
+        private final SectionHistograms responseSizesPerSection;
+
+        /**
+         * Guards the sketches and histograms, which are not thread-safe (updating them is short).
+         */
+        private final Object sketchLock = new Object();
+
+        private SecondBucket(final TrafficStatsOptions options) {
+            this.hitsPerSection = options.newSectionHits();
+            this.responseSizesPerSection = options.isResponseSizesPerSection() ?
+                    new SectionHistograms(SectionHistograms.DEFAULT_CAPACITY) : null;
+        }
+
+        private void add(final CLFLogEntry entry) {
+            requests.increment();
+            bytes.add(entry.getResponseSize());
+
+            final int httpStatusCode = entry.getHttpStatusCode();
+            if (httpStatusCode >= 200 && httpStatusCode < 400) {
+                validRequests.increment();
+            } else if (httpStatusCode >= 400 && httpStatusCode < 500) {
+                clientErrorRequests.increment();
+            } else if (httpStatusCode >= 500 && httpStatusCode < 600) {
+                serverErrorRequests.increment();
+            }
+
+            final String section = entry.getSection();
+            if (section != null) {
+                hitsPerSection.increment(section);
+            }
+            final String source = entry.getSource();
+            if (source != null) {
+                hitsPerSource.computeIfAbsent(source, key -> new LongAdder()).increment();
+            }
+            synchronized (sketchLock) {
+                HTTPTrafficStats.offerClientAndUser(entry, distinctClients, distinctUsers);
+                responseSizes.record(entry.getResponseSize());
+                if (responseSizesPerSection != null && section != null) {
+                    responseSizesPerSection.record(section, entry.getResponseSize());
+                }
+            }
+        }
+
+        /**
+         * Merge the bucket into stats and reset it; the caller must exclude concurrent additions.
+         */
+        private void drainTo(final HTTPTrafficStats statistics) {
+            statistics.addCounters(requests.sumThenReset(), bytes.sumThenReset(), validRequests.sumThenReset(),
+                    clientErrorRequests.sumThenReset(), serverErrorRequests.sumThenReset());
+            statistics.getSectionHits().addAll(hitsPerSection);
+            hitsPerSource.forEach((source, hits) -> statistics.getHitsPerSource().merge(source, hits.sum(), Long::sum));
+            statistics.getDistinctClients().merge(distinctClients);
+            statistics.getDistinctUsers().merge(distinctUsers);
+            statistics.getResponseSizes().merge(responseSizes);
+            if (responseSizesPerSection != null) {
+                responseSizesPerSection.forEach(statistics::mergeResponseSizes);
+                responseSizesPerSection.clear();
+            }
+            hitsPerSection.clear();
+            hitsPerSource.clear();
+            distinctClients.clear();
+            distinctUsers.clear();
+            responseSizes.clear();
+            epochSecond = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * The buckets; the bucket of a second is at index second modulo the number of buckets.
+     */
+    private final SecondBucket[] buckets;
+
+    /**
+     * Additions hold the read lock (they may run concurrently), snapshots hold the write lock.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * What the buckets and the snapshots count.
+     */
+    private final TrafficStatsOptions options;
+
+    /**
+     * Constructor.
+     * @param numberOfBuckets number of per-second buckets.
+     */
+    public TrafficStatsAccumulator(final int numberOfBuckets) {
+        this(numberOfBuckets, new TrafficStatsOptions());
+    }
+
+    /**
+     * Constructor.
+     * @param numberOfBuckets number of per-second buckets.
+     * @param options what the buckets count.
+     */
+    public TrafficStatsAccumulator(final int numberOfBuckets, final TrafficStatsOptions options) {
+        this.options = options;
+        this.buckets = new SecondBucket[numberOfBuckets];
+        for (int index = 0; index < numberOfBuckets; index++) {
+            buckets[index] = new SecondBucket(options);
+        }
+    }
+
+    /**
+     * Count an entry in the bucket of its second.
+     * @param entry the entry; must not be null.
+     */
+    public void add(final CLFLogEntry entry) {
+        lock.readLock().lock();
+        try {
+            bucketOf(entry).add(entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count a batch of entries.
+     * @param entries the entries; must not contain null entries.
+     */
+    public void addAll(final List<CLFLogEntry> entries) {
+        lock.readLock().lock();
+        try {
+            for (final CLFLogEntry entry : entries) {
+                bucketOf(entry).add(entry);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the entries of a batch which are admitted, until a pause is asked (e.g. to snapshot the seconds the entries
+     * completed before the next ones reuse their buckets).
+     * @param entries the entries; must not contain null entries.
+     * @param from index of the first entry to count.
+     * @param admission decides whether an entry is counted; it runs under the same lock as the addition, so that a
+     *                  snapshot taken once an entry is admitted always includes it.
+     * @param pause checked after each entry; when true, the entries which follow are not counted yet.
+     * @return the index of the first entry not examined (the size of the batch once it is all examined).
+     */
+    public int addAll(final List<CLFLogEntry> entries, final int from, final Predicate<CLFLogEntry> admission,
+                      final BooleanSupplier pause) {
+        lock.readLock().lock();
+        try {
+            for (int index = from; index < entries.size(); index++) {
+                final CLFLogEntry entry = entries.get(index);
+                if (admission.test(entry)) {
+                    bucketOf(entry).add(entry);
+                }
+                if (pause.getAsBoolean()) {
+                    return index + 1;
+                }
+            }
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param entry an entry.
+     * @return the bucket of the entry's second.
+     *
+     * @Note a bucket still holding an older second which was not drained yet simply goes on counting: its counts are
+     * merged in the next snapshot anyway.
+     */
+    private SecondBucket bucketOf(final CLFLogEntry entry) {
+        final long epochSecond = Math.floorDiv(entry.getTimestampMillis(), 1000);
+        final SecondBucket bucket = buckets[(int) Math.floorMod(epochSecond, (long) buckets.length)];
+        if (bucket.epochSecond != epochSecond) {
+            bucket.epochSecond = epochSecond;
+        }
+        return bucket;
+    }
+
+    /**
+     * Merge the entries counted in a range of seconds into a stats object and reset their buckets.
+     * @param fromSecond first second of the range, since the epoch (inclusive).
+     * @param toSecond last second of the range, since the epoch (exclusive).
+     * @return the stats of the entries of the range counted since the previous snapshot.
+     */
+    public HTTPTrafficStats snapshot(final long fromSecond, final long toSecond) {
+        final HTTPTrafficStats statistics = options.newStats();
+        lock.writeLock().lock();
+        try {
+            for (final SecondBucket bucket : buckets) {
+                if (bucket.epochSecond != Long.MIN_VALUE && bucket.epochSecond >= fromSecond && bucket.epochSecond < toSecond) {
+                    bucket.drainTo(statistics);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the oldest second (since the epoch) with counted entries, or Long.MAX_VALUE if there is none.
+     */
+    public long getOldestSecond() {
+        long oldestSecond = Long.MAX_VALUE;
+        for (final SecondBucket bucket : buckets) {
+            final long epochSecond = bucket.epochSecond;
+            if (epochSecond != Long.MIN_VALUE && epochSecond < oldestSecond) {
+                oldestSecond = epochSecond;
+            }
+        }
+        return oldestSecond;
+    }
+
+    /**
+     * Merge all the counted entries into a stats object and reset the buckets.
+     * @return the stats of the entries counted since the previous snapshot.
+     */
+    public HTTPTrafficStats snapshot() {
+        final HTTPTrafficStats statistics = options.newStats();
+        lock.writeLock().lock();
+        try {
+            for (final SecondBucket bucket : buckets) {
+                if (bucket.epochSecond != Long.MIN_VALUE) {
+                    bucket.drainTo(statistics);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,55 @@
+package com.homework.monitoring.stats;
+
+/**
+ * What the traffic stats of a deployment count, beyond the request counters.
+ */
+public class TrafficStatsOptions {
+    /**
+     * Number of counters of the bounded summary of the hits per section; 0 to count every section exactly.
+     */
+    private int sectionCounters;
+
+    /**
+     * Whether the response size distribution is also kept per section (for a bounded number of the most hit sections).
+     */
+    private boolean responseSizesPerSection;
+
+    public int getSectionCounters() {
+        return sectionCounters;
+    }
+
+    public TrafficStatsOptions setSectionCounters(final int sectionCounters) {
+        this.sectionCounters = sectionCounters;
+        return this;
+    }
+
+    public boolean isResponseSizesPerSection() {
+        return responseSizesPerSection;
+    }
+
+    public TrafficStatsOptions setResponseSizesPerSection(final boolean responseSizesPerSection) {
+        this.responseSizesPerSection = responseSizesPerSection;
+        return this;
+    }
+
+    /**
+     * @return a copy of the options, without the response sizes per section.
+     */
+    public TrafficStatsOptions withoutResponseSizesPerSection() {
+        return new TrafficStatsOptions().setSectionCounters(sectionCounters);
+    }
+
+    /**
+     * @return new (empty) counters of the hits per section.
+     */
+    public SectionHits newSectionHits() {
+        return SectionHits.factory(sectionCounters).get();
+    }
+
+    /**
+     * @return new (empty) stats.
+     */
+    public HTTPTrafficStats newStats() {
+        return new HTTPTrafficStats(newSectionHits(), responseSizesPerSection);
+    }
+}
@@ -0,0 +1,17 @@
+package com.homework.monitoring.stats.groupby;
+
+/**
+ * Which group gives its place to a new one once the group-by table is full.
+ */
+public enum EvictionPolicy {
+    /**
+     * The group which had no request for the longest time (the table follows the current traffic).
+     */
+    LEAST_RECENTLY_USED,
+
+    /**
+     * A group with few requests, among a sample of the groups (the table keeps the heaviest groups, e.g. against a
+     * scanner hitting from many clients once each).
+     */
+    LEAST_COUNT
+}
@@ -0,0 +1,124 @@
+package com.homework.monitoring.stats.groupby;
+
+import com.clfparser.CLFLogEntry;
+import com.clfparser.HTTPMethod;
+import com.homework.monitoring.stats.HyperLogLog;
+import com.utils.SectionRegistry;
+
+/**
+ * A field of the log entries the traffic can be grouped by.
+ *
+ * Each value is encoded as a 64-bit code without allocating: the compact form kept by the entry when there is one
+ * (status class, method code, IPv4 address, section id), a hash of the text otherwise (negative, so that it does not
+ * collide with the compact forms).
+ *
+ * @Note two texts with the same 64-bit hash would share their group; with at most a few million distinct values, the
+ * odds are negligible.
+ */
+public enum GroupByDimension {
+    /**
+     * Class of the HTTP status (2xx, 3xx, 4xx, 5xx).
+     */
+    STATUS_CLASS("status"),
+
+    /**
+     * HTTP method.
+     */
+    METHOD("method"),
+
+    /**
+     * Client (remote host).
+     */
+    CLIENT("client"),
+
+    /**
+     * Authenticated user (user id, "-" if none).
+     */
+    USER("user"),
+
+    /**
+     * Website section.
+     */
+    SECTION("section");
+
+    /**
+     * Name of the dimension on the command line.
+     */
+    private final String name;
+
+    GroupByDimension(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name name of a dimension on the command line.
+     * @return the dimension, or null if the name is unknown.
+     */
+    public static GroupByDimension fromName(final String name) {
+        for (final GroupByDimension dimension : values()) {
+            if (dimension.name.equals(name)) {
+                return dimension;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param entry a log entry.
+     * @return the code of the entry's value.
+     */
+    long codeOf(final CLFLogEntry entry) {
+        switch (this) {
+            case STATUS_CLASS:
+                return entry.getHttpStatusCode() / 100;
+            case METHOD:
+                final HTTPMethod method = entry.getHttpMethodCode();
+                return method != null ? method.ordinal() : textCode(entry.getHttpMethod());
+            case CLIENT:
+                final long remoteAddress = entry.getRemoteAddress();
+                return remoteAddress >= 0 ? remoteAddress : textCode(entry.getRemoteHost());
+            case USER:
+                return textCode(entry.getUserId());
+            default:
+                final int sectionId = entry.getSectionId();
+                return sectionId != SectionRegistry.NO_ID ? sectionId : textCode(entry.getSection());
+        }
+    }
+
+    /**
+     * @param entry a log entry.
+     * @return the entry's value, for display.
+     */
+    String labelOf(final CLFLogEntry entry) {
+        final String label;
+        switch (this) {
+            case STATUS_CLASS:
+                return entry.getHttpStatusCode() / 100 + "xx";
+            case METHOD:
+                label = entry.getHttpMethod();
+                break;
+            case CLIENT:
+                label = entry.getRemoteHost();
+                break;
+            case USER:
+                label = entry.getUserId();
+                break;
+            default:
+                label = entry.getSection();
+                break;
+        }
+        return label == null ? "-" : label;
+    }
+
+    /**
+     * @return the (negative) code of a text.
+     */
+    private static long textCode(final String text) {
+        return (text == null ? 0 : HyperLogLog.hash(text)) | Long.MIN_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,358 @@
+package com.homework.monitoring.stats.groupby;
+
+import com.clfparser.CLFLogEntry;
+import com.homework.monitoring.LogEntryListener;
+import com.homework.monitoring.stats.HyperLogLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Groups the traffic by any combination of fields of the log entries (see {@link GroupBySpec}) and counts the metrics
+ * of each group, in a bounded memory.
+ *
+ * The groups are kept in primitive arrays allocated once: the codes of their dimensions, their metrics and an open
+ * addressing (linear probing) index of their hashes. Counting an entry computes its codes without allocating; only a
+ * new group allocates its label. Once the table holds its largest number of groups, a new group takes the place of
+ * the least recently seen group or of the group with fewest requests among a pseudo-random sample of
+ * {@link #EVICTION_SAMPLES} groups (see {@link EvictionPolicy}); the metrics of the evicted groups are summed apart,
+ * so that the totals stay exact.
+ *
+ * @Note the groups count the traffic since the engine started (as long as they are not evicted), not per stats window.
+ */
+public class GroupByEngine implements LogEntryListener {
+    /**
+     * Number of groups compared to choose a group with few requests.
+     */
+    static final int EVICTION_SAMPLES = 8;
+
+    /**
+     * Label of the metrics of the evicted groups.
+     */
+    public static final String EVICTED_GROUPS = "(evicted)";
+
+    /**
+     * Marks the absence of a group (free index slot, end of the recency list).
+     */
+    private static final int NO_GROUP = -1;
+
+    private final GroupBySpec spec;
+    private final GroupByDimension[] dimensions;
+    private final GroupByMetric[] metrics;
+    private final int maxGroups;
+    private final boolean leastRecentlyUsed;
+
+    /**
+     * Codes of the dimensions of each group, group after group.
+     */
+    private final long[] codes;
+
+    /**
+     * Metrics of each group, group after group.
+     */
+    private final long[] values;
+
+    /**
+     * Requests of each group (what the least count eviction compares).
+     */
+    private final long[] requests;
+
+    /**
+     * Hash of each group's codes.
+     */
+    private final int[] hashes;
+
+    /**
+     * Values of each group's dimensions, for display.
+     */
+    private final String[] labels;
+
+    /**
+     * The index: each slot holds a group + 1, 0 when it is free; a group is found by probing from its hash's slot.
+     */
+    private final int[] slots;
+    private final int slotMask;
+
+    /**
+     * Recency list of the groups (least recently used eviction only), from the oldest to the newest.
+     */
+    private final int[] older;
+    private final int[] newer;
+    private int oldest = NO_GROUP;
+    private int newest = NO_GROUP;
+
+    /**
+     * Number of groups.
+     */
+    private int size;
+
+    /**
+     * Number of groups drawn for the eviction samples.
+     */
+    private long samples;
+
+    /**
+     * Metrics of the evicted groups, and their number.
+     */
+    private final long[] evictedValues;
+    private long evictions;
+
+    /**
+     * Codes of the entry being counted.
+     */
+    private final long[] entryCodes;
+
+    /**
+     * Constructor.
+     * @param spec what the traffic is grouped by, what is counted and how many groups are kept.
+     */
+    public GroupByEngine(final GroupBySpec spec) {
+        this.spec = spec;
+        this.dimensions = spec.getDimensions().toArray(new GroupByDimension[0]);
+        this.metrics = spec.getMetrics().toArray(new GroupByMetric[0]);
+        this.maxGroups = spec.getMaxGroups();
+        this.leastRecentlyUsed = spec.getEvictionPolicy() == EvictionPolicy.LEAST_RECENTLY_USED;
+        this.codes = new long[maxGroups * dimensions.length];
+        this.values = new long[maxGroups * metrics.length];
+        this.requests = new long[maxGroups];
+        this.hashes = new int[maxGroups];
+        this.labels = new String[maxGroups];
+        // at least twice as many slots as groups, so that the probing sequences stay short.
+        this.slots = new int[Integer.highestOneBit(maxGroups * 2 - 1) << 1];
+        this.slotMask = slots.length - 1;
+        this.older = leastRecentlyUsed ? new int[maxGroups] : null;
+        this.newer = leastRecentlyUsed ? new int[maxGroups] : null;
+        this.evictedValues = new long[metrics.length];
+        this.entryCodes = new long[dimensions.length];
+    }
+
+    @Override
+    public synchronized void process(final CLFLogEntry entry) {
+        count(entry);
+    }
+
+    @Override
+    public synchronized void processBatch(final List<CLFLogEntry> entries) {
+        for (final CLFLogEntry entry : entries) {
+            count(entry);
+        }
+    }
+
+    /**
+     * Count an entry in its group, creating the group if needed.
+     */
+    private void count(final CLFLogEntry entry) {
+        long mixed = 0;
+        for (int dimension = 0; dimension < dimensions.length; dimension++) {
+            entryCodes[dimension] = dimensions[dimension].codeOf(entry);
+            mixed = HyperLogLog.mix(mixed + entryCodes[dimension]);
+        }
+        final int hash = (int) (mixed ^ (mixed >>> 32));
+
+        int group = find(hash);
+        if (group == NO_GROUP) {
+            group = size < maxGroups ? size++ : evict();
+            insert(group, hash, entry);
+        } else if (leastRecentlyUsed) {
+            unlink(group);
+            append(group);
+        }
+        final int offset = group * metrics.length;
+        for (int metric = 0; metric < metrics.length; metric++) {
+            values[offset + metric] = metrics[metric].combine(values[offset + metric], metrics[metric].valueOf(entry));
+        }
+        requests[group]++;
+    }
+
+    /**
+     * @return the group of the entry's codes, or NO_GROUP.
+     */
+    private int find(final int hash) {
+        for (int slot = hash & slotMask; slots[slot] != 0; slot = (slot + 1) & slotMask) {
+            final int group = slots[slot] - 1;
+            if (hashes[group] == hash && hasEntryCodes(group)) {
+                return group;
+            }
+        }
+        return NO_GROUP;
+    }
+
+    private boolean hasEntryCodes(final int group) {
+        final int offset = group * dimensions.length;
+        for (int dimension = 0; dimension < dimensions.length; dimension++) {
+            if (codes[offset + dimension] != entryCodes[dimension]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create the group of the entry being counted.
+     * @param group the (free) group.
+     * @param hash hash of the entry's codes.
+     * @param entry the entry.
+     */
+    private void insert(final int group, final int hash, final CLFLogEntry entry) {
+        System.arraycopy(entryCodes, 0, codes, group * dimensions.length, dimensions.length);
+        for (int metric = 0; metric < metrics.length; metric++) {
+            values[group * metrics.length + metric] = 0;
+        }
+        requests[group] = 0;
+        hashes[group] = hash;
+
+        final StringBuilder label = new StringBuilder();
+        for (final GroupByDimension dimension : dimensions) {
+            label.append(label.length() == 0 ? "" : " ").append(dimension.labelOf(entry));
+        }
+        labels[group] = label.toString();
+
+        int slot = hash & slotMask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & slotMask;
+        }
+        slots[slot] = group + 1;
+        if (leastRecentlyUsed) {
+            append(group);
+        }
+    }
+
+    /**
+     * Evict a group, adding its metrics to those of the evicted groups.
+     * @return the evicted group, free to be reused.
+     */
+    private int evict() {
+        int victim;
+        if (leastRecentlyUsed) {
+            victim = oldest;
+            unlink(victim);
+        } else {
+            victim = sampledGroup();
+            for (int sample = 1; sample < EVICTION_SAMPLES; sample++) {
+                final int group = sampledGroup();
+                if (requests[group] < requests[victim]) {
+                    victim = group;
+                }
+            }
+        }
+        for (int metric = 0; metric < metrics.length; metric++) {
+            evictedValues[metric] = metrics[metric].combine(evictedValues[metric], values[victim * metrics.length + metric]);
+        }
+        evictions++;
+        removeFromIndex(victim);
+        labels[victim] = null;
+        return victim;
+    }
+
+    /**
+     * @return a group drawn from a pseudo-random (but reproducible) sequence.
+     */
+    private int sampledGroup() {
+        return (int) Math.floorMod(HyperLogLog.mix(samples++), (long) maxGroups);
+    }
+
+    /**
+     * Free the slot of a group, moving back the groups probed after it (no tombstone is left behind).
+     */
+    private void removeFromIndex(final int group) {
+        int hole = hashes[group] & slotMask;
+        while (slots[hole] != group + 1) {
+            hole = (hole + 1) & slotMask;
+        }
+        for (int slot = (hole + 1) & slotMask; slots[slot] != 0; slot = (slot + 1) & slotMask) {
+            final int home = hashes[slots[slot] - 1] & slotMask;
+            // the group may fill the hole if its home slot is not between the hole (exclusive) and its slot.
+            if (((slot - home) & slotMask) >= ((slot - hole) & slotMask)) {
+                slots[hole] = slots[slot];
+                hole = slot;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    /**
+     * Make a group the newest of the recency list.
+     */
+    private void append(final int group) {
+        older[group] = newest;
+        newer[group] = NO_GROUP;
+        if (newest == NO_GROUP) {
+            oldest = group;
+        } else {
+            newer[newest] = group;
+        }
+        newest = group;
+    }
+
+    /**
+     * Take a group out of the recency list.
+     */
+    private void unlink(final int group) {
+        if (older[group] == NO_GROUP) {
+            oldest = newer[group];
+        } else {
+            newer[older[group]] = newer[group];
+        }
+        if (newer[group] == NO_GROUP) {
+            newest = older[group];
+        } else {
+            older[newer[group]] = older[group];
+        }
+    }
+
+    /**
+     * @param numberOfGroups the largest number of groups returned.
+     * @return the groups with the largest first metric of the spec, largest first.
+     */
+    public synchronized List<GroupCount> top(final int numberOfGroups) {
+        if (numberOfGroups <= 0) {
+            return Collections.emptyList();
+        }
+        final PriorityQueue<Integer> largest = new PriorityQueue<>(
+                (first, second) -> Long.compare(values[first * metrics.length], values[second * metrics.length]));
+        for (int group = 0; group < size; group++) {
+            if (largest.size() < numberOfGroups) {
+                largest.add(group);
+            } else if (values[group * metrics.length] > values[largest.peek() * metrics.length]) {
+                largest.poll();
+                largest.add(group);
+            }
+        }
+        final List<GroupCount> top = new ArrayList<>(largest.size());
+        while (!largest.isEmpty()) {
+            final int group = largest.poll();
+            final long[] groupValues = new long[metrics.length];
+            System.arraycopy(values, group * metrics.length, groupValues, 0, metrics.length);
+            top.add(new GroupCount(labels[group], spec.getMetrics(), groupValues));
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    /**
+     * @return the summed metrics of the evicted groups.
+     */
+    public synchronized GroupCount getEvictedGroups() {
+        return new GroupCount(EVICTED_GROUPS, spec.getMetrics(), evictedValues.clone());
+    }
+
+    /**
+     * @return the number of groups kept.
+     */
+    public synchronized int getNumberOfGroups() {
+        return size;
+    }
+
+    /**
+     * @return the number of groups evicted to make room for new ones.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public GroupBySpec getSpec() {
+        return spec;
+    }
+}
@@ -0,0 +1,87 @@
+package com.homework.monitoring.stats.groupby;
+
+import com.clfparser.CLFLogEntry;
+
+/**
+ * What is counted for each group of the traffic.
+ */
+public enum GroupByMetric {
+    /**
+     * Number of requests.
+     */
+    REQUESTS("requests"),
+
+    /**
+     * Total size of the responses, in bytes.
+     */
+    BYTES("bytes"),
+
+    /**
+     * Number of requests answered with a 4xx status.
+     */
+    CLIENT_ERRORS("clientErrors"),
+
+    /**
+     * Number of requests answered with a 5xx status.
+     */
+    SERVER_ERRORS("serverErrors"),
+
+    /**
+     * Largest response size, in bytes.
+     */
+    MAX_RESPONSE_SIZE("maxSize");
+
+    /**
+     * Name of the metric on the command line.
+     */
+    private final String name;
+
+    GroupByMetric(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name name of a metric on the command line.
+     * @return the metric, or null if the name is unknown.
+     */
+    public static GroupByMetric fromName(final String name) {
+        for (final GroupByMetric metric : values()) {
+            if (metric.name.equals(name)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param entry a log entry.
+     * @return what the entry adds to the metric.
+     */
+    long valueOf(final CLFLogEntry entry) {
+        final int status = entry.getHttpStatusCode();
+        switch (this) {
+            case REQUESTS:
+                return 1;
+            case CLIENT_ERRORS:
+                return status >= 400 && status < 500 ? 1 : 0;
+            case SERVER_ERRORS:
+                return status >= 500 && status < 600 ? 1 : 0;
+            default:
+                return Math.max(0, entry.getResponseSize());
+        }
+    }
+
+    /**
+     * @param current the metric of a group.
+     * @param value what an entry (or another group) adds to it.
+     * @return the updated metric.
+     */
+    long combine(final long current, final long value) {
+        return this == MAX_RESPONSE_SIZE ? Math.max(current, value) : current + value;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
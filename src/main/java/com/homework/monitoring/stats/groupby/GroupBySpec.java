@@ -0,0 +1,117 @@
+package com.homework.monitoring.stats.groupby;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a {@link GroupByEngine} groups the traffic by and counts per group, declared as
+ * {@code dimension[,dimension...][:metric[,metric...]]}, e.g. {@code client,status:requests,bytes}.
+ * The metrics are requests and bytes by default; the groups are ordered by the first metric.
+ */
+public class GroupBySpec {
+    /**
+     * Default largest number of groups.
+     */
+    public static final int DEFAULT_MAX_GROUPS = 10_000;
+
+    /**
+     * Default metrics.
+     */
+    private static final List<GroupByMetric> DEFAULT_METRICS = Arrays.asList(GroupByMetric.REQUESTS, GroupByMetric.BYTES);
+
+    private final List<GroupByDimension> dimensions;
+    private final List<GroupByMetric> metrics;
+    private int maxGroups = DEFAULT_MAX_GROUPS;
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LEAST_COUNT;
+
+    /**
+     * Constructor.
+     * @param dimensions the fields the traffic is grouped by (at least one, without duplicate).
+     * @param metrics what is counted per group (at least one, without duplicate).
+     */
+    public GroupBySpec(final List<GroupByDimension> dimensions, final List<GroupByMetric> metrics) {
+        if (dimensions.isEmpty() || metrics.isEmpty() || dimensions.stream().distinct().count() != dimensions.size() ||
+                metrics.stream().distinct().count() != metrics.size()) {
+            throw new IllegalArgumentException("Expected distinct dimensions and metrics : " + dimensions + " " + metrics);
+        }
+        this.dimensions = Collections.unmodifiableList(new ArrayList<>(dimensions));
+        this.metrics = Collections.unmodifiableList(new ArrayList<>(metrics));
+    }
+
+    /**
+     * Read a group-by declaration.
+     * @param declaration the declaration (see the class' documentation).
+     * @return the spec.
+     * @throws IllegalArgumentException if the declaration is invalid.
+     */
+    public static GroupBySpec parse(final String declaration) {
+        final String[] parts = declaration.trim().split(":", -1);
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Expected 'dimensions[:metrics]' in [" + declaration + "]");
+        }
+        final List<GroupByDimension> dimensions = new ArrayList<>();
+        for (final String name : parts[0].split(",")) {
+            final GroupByDimension dimension = GroupByDimension.fromName(name.trim());
+            if (dimension == null) {
+                throw new IllegalArgumentException("Unknown dimension [" + name.trim() + "] in [" + declaration + "]");
+            }
+            dimensions.add(dimension);
+        }
+        List<GroupByMetric> metrics = DEFAULT_METRICS;
+        if (parts.length == 2) {
+            metrics = new ArrayList<>();
+            for (final String name : parts[1].split(",")) {
+                final GroupByMetric metric = GroupByMetric.fromName(name.trim());
+                if (metric == null) {
+                    throw new IllegalArgumentException("Unknown metric [" + name.trim() + "] in [" + declaration + "]");
+                }
+                metrics.add(metric);
+            }
+        }
+        return new GroupBySpec(dimensions, metrics);
+    }
+
+    public List<GroupByDimension> getDimensions() {
+        return dimensions;
+    }
+
+    public List<GroupByMetric> getMetrics() {
+        return metrics;
+    }
+
+    public int getMaxGroups() {
+        return maxGroups;
+    }
+
+    public GroupBySpec setMaxGroups(final int maxGroups) {
+        if (maxGroups < 1) {
+            throw new IllegalArgumentException("At least one group is needed (" + maxGroups + ").");
+        }
+        this.maxGroups = maxGroups;
+        return this;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public GroupBySpec setEvictionPolicy(final EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder();
+        for (final GroupByDimension dimension : dimensions) {
+            text.append(text.length() == 0 ? "" : ",").append(dimension);
+        }
+        text.append(':');
+        for (int index = 0; index < metrics.size(); index++) {
+            text.append(index == 0 ? "" : ",").append(metrics.get(index));
+        }
+        return text.toString();
+    }
+}
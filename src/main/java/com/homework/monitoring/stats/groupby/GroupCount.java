@@ -0,0 +1,65 @@
+package com.homework.monitoring.stats.groupby;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The metrics of a group of the traffic, as counted by a {@link GroupByEngine}.
+ */
+public class GroupCount {
+    /**
+     * The values of the group's dimensions, space separated (e.g. "10.0.0.1 5xx").
+     */
+    private final String group;
+
+    /**
+     * The metrics, in the order of the spec.
+     */
+    private final List<GroupByMetric> metrics;
+    private final long[] values;
+
+    /**
+     * Constructor.
+     * @param group the values of the group's dimensions.
+     * @param metrics the metrics.
+     * @param values their values.
+     */
+    GroupCount(final String group, final List<GroupByMetric> metrics, final long[] values) {
+        this.group = group;
+        this.metrics = metrics;
+        this.values = values;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @param metric a metric of the spec.
+     * @return its value for the group.
+     * @throws IllegalArgumentException if the metric is not counted.
+     */
+    public long getValue(final GroupByMetric metric) {
+        final int index = metrics.indexOf(metric);
+        if (index < 0) {
+            throw new IllegalArgumentException("The metric " + metric + " is not counted.");
+        }
+        return values[index];
+    }
+
+    /**
+     * @return the values of the metrics, in the order of the spec.
+     */
+    public long[] getValues() {
+        return Arrays.copyOf(values, values.length);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder(group);
+        for (int index = 0; index < values.length; index++) {
+            text.append(' ').append(metrics.get(index)).append('=').append(values[index]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.homework.monitoring.time;
+
+import java.util.PriorityQueue;
+
+/**
+ * Clock and scheduler whose time only moves when told to, for simulations and tests: moving the time forward runs the
+ * tasks which fall due on the way, in time order, on the calling thread, with the clock set to their due time.
+ */
+public class ManualClock implements MonitoringClock, MonitoringScheduler {
+    /**
+     * Current time, in epoch milliseconds.
+     */
+    private long currentTime;
+
+    /**
+     * The scheduled tasks, ordered by their next due time.
+     */
+    private final PriorityQueue<ScheduledTask> tasks = new PriorityQueue<>();
+
+    /**
+     * Number of tasks scheduled so far, to run the tasks due at the same time in their scheduling order.
+     */
+    private long scheduledTasks;
+
+    /**
+     * Whether the scheduler was shut down.
+     */
+    private boolean stopped;
+
+    /**
+     * Constructor.
+     * @param startTime the initial time, in epoch milliseconds.
+     */
+    public ManualClock(final long startTime) {
+        this.currentTime = startTime;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return currentTime;
+    }
+
+    @Override
+    public synchronized void scheduleAtFixedRate(final Runnable task, final long period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("The period must be positive (" + period + ").");
+        }
+        if (!stopped) {
+            tasks.add(new ScheduledTask(task, period, currentTime + period, scheduledTasks++));
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        stopped = true;
+        tasks.clear();
+    }
+
+    /**
+     * Move the time forward, running the tasks falling due.
+     * @param milliseconds the time to move forward by.
+     */
+    public synchronized void advance(final long milliseconds) {
+        advanceTo(currentTime + milliseconds);
+    }
+
+    /**
+     * Move the time forward, running the tasks falling due.
+     * @param time the new time, in epoch milliseconds (ignored if it is not after the current time).
+     */
+    public synchronized void advanceTo(final long time) {
+        while (!tasks.isEmpty() && tasks.peek().dueTime <= time) {
+            final ScheduledTask task = tasks.poll();
+            currentTime = Math.max(currentTime, task.dueTime);
+            task.task.run();
+            task.dueTime += task.period;
+            if (!stopped) {
+                tasks.add(task);
+            }
+        }
+        currentTime = Math.max(currentTime, time);
+    }
+
+    /**
+     * A periodic task and its next due time.
+     */
+    private static final class ScheduledTask implements Comparable<ScheduledTask> {
+        private final Runnable task;
+        private final long period;
+        private final long order;
+        private long dueTime;
+
+        private ScheduledTask(final Runnable task, final long period, final long dueTime, final long order) {
+            this.task = task;
+            this.period = period;
+            this.dueTime = dueTime;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(final ScheduledTask other) {
+            final int byDueTime = Long.compare(dueTime, other.dueTime);
+            return byDueTime != 0 ? byDueTime : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.homework.monitoring.time;
+
+/**
+ * Source of the wall clock time of the monitoring.
+ *
+ * @Note the log time comes from the log entries; this clock only tells when they are processed, e.g. to move the
+ * windows forward while the log is idle.
+ */
+public interface MonitoringClock {
+    /**
+     * The system clock.
+     */
+    MonitoringClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return the current time, in epoch milliseconds.
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,18 @@
+package com.homework.monitoring.time;
+
+/**
+ * Runs the periodic tasks of the monitoring (e.g. the checks for complete stats windows).
+ */
+public interface MonitoringScheduler {
+    /**
+     * Run a task periodically, the first time one period from now.
+     * @param task the task.
+     * @param period period between two runs, in milliseconds.
+     */
+    void scheduleAtFixedRate(final Runnable task, final long period);
+
+    /**
+     * Stop running the scheduled tasks.
+     */
+    void shutdown();
+}
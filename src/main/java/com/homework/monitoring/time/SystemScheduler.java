@@ -0,0 +1,49 @@
+package com.homework.monitoring.time;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler running its tasks on a single thread, following the system clock.
+ *
+ * @Note a task throwing an exception is logged and still run at its next period (an executor would silently cancel it).
+ */
+public class SystemScheduler implements MonitoringScheduler {
+    /**
+     * Logger.
+     */
+    private Logger logger = LogManager.getLogger(SystemScheduler.class);
+
+    /**
+     * The thread running the tasks.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Constructor.
+     * @param threadName name of the thread running the tasks.
+     */
+    public SystemScheduler(final String threadName) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, threadName));
+    }
+
+    @Override
+    public void scheduleAtFixedRate(final Runnable task, final long period) {
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                logger.error("Scheduled task failed, running it again in " + period + " ms : " + e.getMessage(), e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -7,8 +7,13 @@ import com.googlecode.lanterna.screen.TerminalScreen;
 import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import com.googlecode.lanterna.terminal.Terminal;
 import com.homework.monitoring.alerts.HTTPTrafficAlertsListener;
+import com.homework.monitoring.alerts.rules.AlertRule;
 import com.homework.monitoring.stats.HTTPStatsListener;
 import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.stats.StatsRollupStore;
+import com.homework.monitoring.stats.groupby.GroupByEngine;
+import com.homework.monitoring.time.MonitoringScheduler;
+import com.homework.monitoring.time.SystemScheduler;
 
 import java.io.IOException;
 
@@ -16,6 +21,7 @@ import java.io.IOException;
  * Class managing the console UI and using Google's Lanterna libraries.
  *
  * This object will receive notifications when new traffic statistics are created and when alerts are raised or cancelled.
+ * They are drawn by frames, at most once per {@link ApplicationWindow#FRAME_INTERVAL}.
  */
 public class ApplicationUI implements HTTPStatsListener, HTTPTrafficAlertsListener {
     /**
@@ -23,6 +29,11 @@ public class ApplicationUI implements HTTPStatsListener, HTTPTrafficAlertsListen
      */
     private ApplicationWindow window = new ApplicationWindow();
 
+    /**
+     * The timer drawing the window's pending frames.
+     */
+    private final MonitoringScheduler frameScheduler = new SystemScheduler("ui-frames");
+
     /**
      * Create a new console window.
      * @throws IOException exceptions thrown if the console window initialization fails.
@@ -42,10 +53,37 @@ public class ApplicationUI implements HTTPStatsListener, HTTPTrafficAlertsListen
 
         // start the UI.
         MultiWindowTextGUI gui = new MultiWindowTextGUI(screen, new DefaultWindowManager(), new EmptySpace(TextColor.ANSI.BLUE));
+        // the stats and alerts only update the window's model: its changes are drawn on the GUI thread, at most once
+        // per frame interval whatever the number of updates.
+        frameScheduler.scheduleAtFixedRate(() -> {
+            if (window.isFramePending()) {
+                try {
+                    gui.getGUIThread().invokeLater(window::renderPendingFrame);
+                } catch (final IllegalStateException e) {
+                    // the GUI is stopping.
+                }
+            }
+        }, ApplicationWindow.FRAME_INTERVAL);
         gui.addWindowAndWait(window);
         System.exit(0);
     }
 
+    /**
+     * Give the history of the stats, to show the traffic of longer periods.
+     * @param rollupStore the history.
+     */
+    public void setRollupStore(final StatsRollupStore rollupStore) {
+        window.setRollupStore(rollupStore);
+    }
+
+    /**
+     * Give the groups of the traffic, to show the largest ones.
+     * @param groupByEngine the groups.
+     */
+    public void setGroupByEngine(final GroupByEngine groupByEngine) {
+        window.setGroupByEngine(groupByEngine);
+    }
+
     @Override
     public void raiseAlert() {
         window.handleAlertRaised();
@@ -56,6 +94,16 @@ public class ApplicationUI implements HTTPStatsListener, HTTPTrafficAlertsListen
         window.handleAlertCanceled();
     }
 
+    @Override
+    public void raiseAlert(final AlertRule rule, final double value, final long time) {
+        window.handleAlertRaised(rule, value, time);
+    }
+
+    @Override
+    public void cancelAlert(final AlertRule rule, final double value, final long time) {
+        window.handleAlertCanceled(rule, value, time);
+    }
+
     @Override
     public void processTrafficStatistics(HTTPTrafficStats httpTrafficStats) {
         window.handleTrafficStatistics(httpTrafficStats);
@@ -4,9 +4,17 @@ import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.gui2.*;
+import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.terminal.Terminal;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
+import com.homework.monitoring.alerts.rules.AlertRule;
 import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.stats.StatsRollupStore;
+import com.homework.monitoring.stats.LogHistogram;
+import com.homework.monitoring.stats.SectionCount;
+import com.homework.monitoring.stats.SectionHits;
+import com.homework.monitoring.stats.groupby.GroupByEngine;
+import com.homework.monitoring.stats.groupby.GroupCount;
 import com.utils.ConversionUtils;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.apache.logging.log4j.LogManager;
@@ -15,12 +23,18 @@ import org.w3c.dom.Text;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-
-import static java.util.stream.Collectors.toMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class creating a console text window.
+ *
+ * The window keeps the latest stats and messages and only draws them at the next frame: the stats and alerts may
+ * arrive in bursts, they are drawn at most once per {@link #FRAME_INTERVAL} (see {@link #renderPendingFrame()}).
+ * The panels are filled with a fixed pool of labels updated in place (see {@link LabelPool}), and only the visible
+ * part of the section list is read from the stats: the list scrolls with the arrow and page keys.
  */
 public class ApplicationWindow extends BasicWindow implements TerminalResizeListener {
     /**
@@ -28,11 +42,31 @@ public class ApplicationWindow extends BasicWindow implements TerminalResizeList
      */
     private Logger logger = LogManager.getLogger(ApplicationWindow.class);
 
+    /**
+     * Shortest time between two frames.
+     */
+    static final long FRAME_INTERVAL = 200; // in milliseconds.
+
     /**
      * Default number of terminal lines for the messages panel.
      */
     private static final int DEFAULT_MESSAGES_PANEL_ROWS = 10;
 
+    /**
+     * Number of terminal lines taken by the borders of a panel.
+     */
+    private static final int BORDER_ROWS = 2;
+
+    /**
+     * Default number of lines of the info panels (before the terminal size is known).
+     */
+    private static final int DEFAULT_INFO_PANEL_ROWS = 30;
+
+    /**
+     * Message shown until the first alert.
+     */
+    private static final String STARTED_MESSAGE = "The application is started; you can quit the terminal to stop it.";
+
     /**
      * Panel containing pertinent information about the last 10 seconds of traffic.
      */
@@ -53,6 +87,13 @@ public class ApplicationWindow extends BasicWindow implements TerminalResizeList
      */
     private final Panel messagesPanel;
 
+    /**
+     * The lines of the panels.
+     */
+    private final LabelPool leftLines;
+    private final LabelPool rightLines;
+    private final LabelPool messageLines;
+
     /**
      * Used to print duration since the monitoring is running.
      */
@@ -63,11 +104,58 @@ public class ApplicationWindow extends BasicWindow implements TerminalResizeList
      */
     private HTTPTrafficStats lastStats;
 
+    /**
+     * Period over which the distinct clients and users are also counted (the default alert monitoring window).
+     */
+    private static final long DISTINCT_COUNT_PERIOD = 2 * 60 * 1000; // in milliseconds.
+
+    /**
+     * Longer periods whose traffic is summed up from the history.
+     */
+    private static final long[] HISTORY_PERIODS = {60 * 60 * 1000, 12 * 60 * 60 * 1000}; // in milliseconds.
+
+    /**
+     * History of the stats; null when it is not kept.
+     */
+    private volatile StatsRollupStore rollupStore;
+
+    /**
+     * Number of largest groups displayed.
+     */
+    private static final int DISPLAYED_GROUPS = 10;
+
+    /**
+     * Groups of the traffic; null when the traffic is not grouped.
+     */
+    private volatile GroupByEngine groupByEngine;
+
     /**
      * Last messages sent to the {@link messagesPanel}. Max {@link DEFAULT_MESSAGES_PANEL_ROWS} - 2 items.
      */
     private final CircularFifoQueue<AbstractMap.SimpleEntry<String, Boolean>> lastMessages =
-            new CircularFifoQueue<>(DEFAULT_MESSAGES_PANEL_ROWS - 2);
+            new CircularFifoQueue<>(DEFAULT_MESSAGES_PANEL_ROWS - BORDER_ROWS);
+
+    /**
+     * Whether the model changed since the last frame.
+     */
+    private final AtomicBoolean framePending = new AtomicBoolean(true);
+
+    /**
+     * Number of lines of the info panels, following the terminal size.
+     */
+    private volatile int infoPanelRows = DEFAULT_INFO_PANEL_ROWS;
+
+    /**
+     * The most hit sections of the displayed stats, read as far as the list was scrolled (GUI thread only).
+     */
+    private List<SectionCount> rankedSections = Collections.emptyList();
+    private HTTPTrafficStats rankedStats;
+
+    /**
+     * Index of the first visible section, and number of visible sections at the last frame (GUI thread only).
+     */
+    private int sectionsOffset;
+    private int visibleSections = 1;
 
     public ApplicationWindow() {
         // create a main panel
@@ -75,6 +163,8 @@ public class ApplicationWindow extends BasicWindow implements TerminalResizeList
 
         leftInfoPanel = new Panel();
         rightInfoPanel = new Panel();
+        leftLines = new LabelPool(leftInfoPanel, infoPanelRows);
+        rightLines = new LabelPool(rightInfoPanel, infoPanelRows);
 
         infoPanel = new Panel(new LinearLayout(Direction.HORIZONTAL));
         infoPanel.addComponent(leftInfoPanel);
@@ -82,58 +172,245 @@ public class ApplicationWindow extends BasicWindow implements TerminalResizeList
         mainPanel.addComponent(infoPanel.withBorder(Borders.singleLine("Traffic stats")));
 
         messagesPanel = new Panel();
-        messagesPanel.addComponent(new Label("The application is started; you can quit the terminal to stop it."));
+        messageLines = new LabelPool(messagesPanel, DEFAULT_MESSAGES_PANEL_ROWS - BORDER_ROWS);
         mainPanel.addComponent(messagesPanel.withBorder(Borders.singleLine("Messages")));
 
         setComponent(mainPanel);
         setHints(Arrays.asList(Hint.FULL_SCREEN, Hint.NO_DECORATIONS));
+        render();
     }
 
     /**
-     * Prints traffic statistics.
+     * Keep new traffic statistics, drawn at the next frame.
      *
      * @param statistics the statistics summary to print
      */
     synchronized void handleTrafficStatistics(HTTPTrafficStats statistics) {
         if (statistics == null) {
             logger.error("Invalid traffic stats ... ignoring.");
+            return;
         }
         lastStats = statistics;
+        framePending.set(true);
+    }
 
-        leftInfoPanel.removeAllComponents();
-        rightInfoPanel.removeAllComponents();
+    /**
+     * Draw the model if it changed since the last frame; must run on the GUI thread (see {@link ApplicationUI}).
+     */
+    void renderPendingFrame() {
+        if (framePending.compareAndSet(true, false)) {
+            render();
+        }
+    }
+
+    /**
+     * @return true if the model changed since the last frame.
+     */
+    boolean isFramePending() {
+        return framePending.get();
+    }
 
+    /**
+     * Draw the model into the label pools.
+     */
+    private void render() {
+        final HTTPTrafficStats statistics;
+        final List<AbstractMap.SimpleEntry<String, Boolean>> messages;
+        synchronized (this) {
+            statistics = lastStats;
+            messages = new ArrayList<>(lastMessages);
+        }
+        final int rows = infoPanelRows;
+        if (leftLines.size() != rows) {
+            leftLines.resize(rows);
+            rightLines.resize(rows);
+        }
+
+        leftLines.begin();
+        rightLines.begin();
+        if (statistics != null) {
+            renderStatistics(statistics);
+            renderSections(statistics);
+        } else {
+            leftLines.line("Current time : " + ConversionUtils.getInstantPrettyPrint());
+            leftLines.line("Waiting for the first 10 seconds of traffic ...");
+        }
+        renderGroups();
+        leftLines.end();
+        rightLines.end();
+
+        messageLines.begin();
+        if (messages.isEmpty()) {
+            messageLines.line(STARTED_MESSAGE);
+        }
+        for (int position = messages.size() - 1; position >= 0; position--) {
+            messageLines.line(messages.get(position).getKey(),
+                    messages.get(position).getValue() ? TextColor.ANSI.RED : TextColor.ANSI.BLUE, false);
+        }
+        messageLines.end();
+    }
+
+    /**
+     * Draw the counters of the stats (left panel).
+     */
+    private void renderStatistics(final HTTPTrafficStats statistics) {
         final Duration elapsedTime = Duration.between(startedAt, Instant.now());
-        leftInfoPanel.addComponent(new Label("Current time : " + ConversionUtils.getInstantPrettyPrint()));
-        leftInfoPanel.addComponent(new Label(String.format("Elapsed time %sd %sh %sm %ss",
+        leftLines.line("Current time : " + ConversionUtils.getInstantPrettyPrint());
+        leftLines.line(String.format("Elapsed time %sd %sh %sm %ss",
                 elapsedTime.toDaysPart(),
                 elapsedTime.toHoursPart(),
                 elapsedTime.toMinutesPart(),
-                elapsedTime.toSecondsPart())));
-        leftInfoPanel.addComponent(new Label("\nInformation (last 10 seconds)").addStyle(SGR.BOLD));
-        leftInfoPanel.addComponent(new Label("Total requests: " + lastStats.getTotalNumberOfHTTPRequests()));
-        leftInfoPanel.addComponent(new Label("Valid requests: " + lastStats.getTotalNumberOfValidHTTPRequests()));
-        leftInfoPanel.addComponent(
-                new Label("Client error requests: " + lastStats.getTotalNumberOfClientErrorHTTPRequests()).
-                        setForegroundColor(TextColor.ANSI.YELLOW));
-        leftInfoPanel.addComponent(
-                new Label("Server error requests: " + lastStats.getTotalNumberOfValidHTTPRequests()).
-                        setForegroundColor(TextColor.ANSI.RED));
-        leftInfoPanel.addComponent(new Label("Overall size: " + lastStats.getTotalSizeOfRequestsInBytes() + " bytes."));
-
-        final Map<String, Integer> hitsPerSection = lastStats.getHitsPerWebsiteSections();
-        final Map<String, Integer> sorted = hitsPerSection.entrySet().stream().
-                sorted(Collections.reverseOrder(Map.Entry.comparingByValue())).
-                collect(toMap(Map.Entry::getKey, Map.Entry::getValue, (key, value) -> value, LinkedHashMap::new));
-        leftInfoPanel.addComponent(new Label("\nAccessed sections stats").addStyle(SGR.BOLD));
-        leftInfoPanel.addComponent(new Label("Total accessed sections: " + hitsPerSection.keySet().size()));
-
-        rightInfoPanel.addComponent(new Label("\nAccessed sections").addStyle(SGR.BOLD));
-        for (final String section : sorted.keySet()) {
-            rightInfoPanel.addComponent(new Label(section + " - " + sorted.get(section) + " hits"));
+                elapsedTime.toSecondsPart()));
+        leftLines.line("");
+        if (statistics.getWindowStart() != null) {
+            final DateTimeFormatter windowFormatter = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+            leftLines.line("Information (" + windowFormatter.format(statistics.getWindowStart()) +
+                    " - " + windowFormatter.format(statistics.getWindowEnd()) + ")", null, true);
+        } else {
+            leftLines.line("Information (last 10 seconds)", null, true);
+        }
+        leftLines.line("Total requests: " + statistics.getTotalNumberOfHTTPRequests());
+        leftLines.line("Valid requests: " + statistics.getTotalNumberOfValidHTTPRequests());
+        leftLines.line("Client error requests: " + statistics.getTotalNumberOfClientErrorHTTPRequests(),
+                TextColor.ANSI.YELLOW, false);
+        leftLines.line("Server error requests: " + statistics.getTotalNumberOfServerErrorHTTPRequests(),
+                TextColor.ANSI.RED, false);
+        leftLines.line("Overall size: " + statistics.getTotalSizeOfRequestsInBytes() + " bytes.");
+        final LogHistogram responseSizes = statistics.getResponseSizes();
+        leftLines.line("Response sizes: p50 " + responseSizes.getValueAtPercentile(50) +
+                ", p90 " + responseSizes.getValueAtPercentile(90) + ", p99 " + responseSizes.getValueAtPercentile(99) +
+                ", max " + responseSizes.getMax() + " bytes.");
+
+        final StatsRollupStore history = rollupStore;
+        final HTTPTrafficStats recentStats = history == null ? statistics : history.getLast(DISTINCT_COUNT_PERIOD);
+        leftLines.line("Distinct clients: ~" + statistics.getDistinctClients().estimate() +
+                " (last 2 minutes: ~" + recentStats.getDistinctClients().estimate() + ")");
+        leftLines.line("Distinct users: ~" + statistics.getDistinctUsers().estimate() +
+                " (last 2 minutes: ~" + recentStats.getDistinctUsers().estimate() + ")");
+        if (history != null) {
+            for (final long period : HISTORY_PERIODS) {
+                final HTTPTrafficStats periodStats = history.getLast(period);
+                leftLines.line("Last " + period / 3_600_000 + "h: " +
+                        periodStats.getTotalNumberOfHTTPRequests() + " requests, " +
+                        periodStats.getTotalSizeOfRequestsInBytes() + " bytes, p99 size " +
+                        periodStats.getResponseSizes().getValueAtPercentile(99) + " bytes");
+            }
+        }
+
+        final SectionHits sectionHits = statistics.getSectionHits();
+        leftLines.line("");
+        leftLines.line("Accessed sections stats", null, true);
+        leftLines.line(sectionHits.isExact() ?
+                "Total accessed sections: " + sectionHits.size() :
+                "Counted sections: " + sectionHits.size() + " (most hit ones, +/- error)");
+
+        final Map<String, Long> hitsPerSource = statistics.getHitsPerSource();
+        if (!hitsPerSource.isEmpty()) {
+            leftLines.line("");
+            leftLines.line("Requests per log file", null, true);
+            for (final Map.Entry<String, Long> sourceHits : new TreeMap<>(hitsPerSource).entrySet()) {
+                if (leftLines.remaining() == 0) {
+                    break;
+                }
+                leftLines.line(sourceHits.getKey() + " - " + sourceHits.getValue() + " hits");
+            }
+        }
+    }
+
+    /**
+     * Draw the visible part of the section list (right panel), leaving room for the groups.
+     */
+    private void renderSections(final HTTPTrafficStats statistics) {
+        final SectionHits sectionHits = statistics.getSectionHits();
+        final int groupRows = groupByEngine == null ? 0 : DISPLAYED_GROUPS + 2;
+        visibleSections = Math.max(1, rightLines.remaining() - 2 - groupRows);
+        sectionsOffset = Math.max(0, Math.min(sectionsOffset, sectionHits.size() - visibleSections));
+
+        // only the most hit sections down to the last visible one are selected (no sort of all the sections), once
+        // per stats window unless the list is scrolled further.
+        final int needed = sectionsOffset + visibleSections;
+        if (rankedStats != statistics || (rankedSections.size() < needed && rankedSections.size() < sectionHits.size())) {
+            rankedSections = sectionHits.top(Math.max(needed, rankedStats == statistics ? 2 * rankedSections.size() : 0));
+            rankedStats = statistics;
+        }
+
+        final int last = Math.min(rankedSections.size(), needed);
+        rightLines.line("");
+        rightLines.line("Accessed sections" + (sectionHits.size() <= visibleSections ? "" :
+                " (" + (sectionsOffset + 1) + "-" + last + " of " + sectionHits.size() + ", up/down to scroll)"),
+                null, true);
+        for (int index = sectionsOffset; index < last; index++) {
+            final SectionCount section = rankedSections.get(index);
+            final LogHistogram sectionSizes = statistics.getResponseSizes(section.getSection());
+            rightLines.line(section.getSection() + " - " + section.getHits() + " hits" +
+                    (section.getError() == 0 ? "" : " (+/- " + section.getError() + ")") +
+                    (sectionSizes == null ? "" : ", p99 " + sectionSizes.getValueAtPercentile(99) + " bytes"));
+        }
+        for (int index = last - sectionsOffset; index < visibleSections; index++) {
+            rightLines.line("");
+        }
+    }
+
+    /**
+     * Draw the largest groups of the traffic (right panel), if the traffic is grouped.
+     */
+    private void renderGroups() {
+        final GroupByEngine groups = groupByEngine;
+        if (groups != null) {
+            rightLines.line("");
+            rightLines.line("Largest groups since start (" + groups.getSpec() + ", " +
+                    groups.getNumberOfGroups() + " kept, " + groups.getEvictions() + " evicted)", null, true);
+            for (final GroupCount group : groups.top(DISPLAYED_GROUPS)) {
+                rightLines.line(group.toString());
+            }
         }
     }
 
+    /**
+     * Scroll the section list with the arrow, page and home keys.
+     */
+    @Override
+    public boolean handleInput(final KeyStroke key) {
+        switch (key.getKeyType()) {
+            case ArrowUp:
+                sectionsOffset = Math.max(0, sectionsOffset - 1);
+                break;
+            case ArrowDown:
+                sectionsOffset++;
+                break;
+            case PageUp:
+                sectionsOffset = Math.max(0, sectionsOffset - visibleSections);
+                break;
+            case PageDown:
+                sectionsOffset += visibleSections;
+                break;
+            case Home:
+                sectionsOffset = 0;
+                break;
+            default:
+                return super.handleInput(key);
+        }
+        framePending.set(true);
+        return true;
+    }
+
+    /**
+     * Give the history of the stats, to show the traffic of longer periods.
+     * @param rollupStore the history.
+     */
+    void setRollupStore(final StatsRollupStore rollupStore) {
+        this.rollupStore = rollupStore;
+    }
+
+    /**
+     * Give the groups of the traffic, to show the largest ones.
+     * @param groupByEngine the groups.
+     */
+    void setGroupByEngine(final GroupByEngine groupByEngine) {
+        this.groupByEngine = groupByEngine;
+        framePending.set(true);
+    }
+
     @Override
     public void onResized(Terminal terminal, TerminalSize newSize) {
         final int terminalColumns = newSize.getColumns();
@@ -143,37 +420,63 @@ public class ApplicationWindow extends BasicWindow implements TerminalResizeList
         rightInfoPanel.setPreferredSize(new TerminalSize(terminalColumns / 2, terminalRows - DEFAULT_MESSAGES_PANEL_ROWS));
         infoPanel.setPreferredSize(new TerminalSize(terminalColumns,terminalRows - DEFAULT_MESSAGES_PANEL_ROWS));
         messagesPanel.setPreferredSize(new TerminalSize(terminalColumns, DEFAULT_MESSAGES_PANEL_ROWS));
+        // the label pools follow the new size at the next frame.
+        infoPanelRows = Math.max(1, terminalRows - DEFAULT_MESSAGES_PANEL_ROWS - BORDER_ROWS);
+        framePending.set(true);
     }
 
     /**
-     * Redraw messages panel with the latest messages.
+     * Keep a message, drawn at the next frame.
+     * @param message the message.
+     * @param alert true for an alert (drawn in red), false for a recovery.
      */
-    private void handleLastMessages() {
-        messagesPanel.removeAllComponents();
-        for (int position = lastMessages.size() - 1; position >= 0; position--) {
-            final Label messageLabel = new Label(lastMessages.get(position).getKey());
-            if (lastMessages.get(position).getValue()) {
-                messageLabel.setForegroundColor(TextColor.ANSI.RED);
-            } else {
-                messageLabel.setForegroundColor(TextColor.ANSI.BLUE);
-            }
-            messagesPanel.addComponent(messageLabel);
-        }
+    private synchronized void addMessage(final String message, final boolean alert) {
+        lastMessages.add(new AbstractMap.SimpleEntry<>(message, alert));
+        framePending.set(true);
     }
 
     /**
      * React to a new alert being raised.
      */
     public void handleAlertRaised() {
-        lastMessages.add(new AbstractMap.SimpleEntry<>("Traffic alert raised ! " + ConversionUtils.getInstantPrettyPrint(), true));
-        handleLastMessages();
+        addMessage("Traffic alert raised ! " + ConversionUtils.getInstantPrettyPrint(), true);
+    }
+
+    /**
+     * React to an alert rule's threshold being breached.
+     * @param rule the rule.
+     * @param value the value of the rule's metric.
+     * @param time the log time of the breach.
+     */
+    public void handleAlertRaised(final AlertRule rule, final double value, final long time) {
+        addMessage(alertDescription(rule) + " generated an alert - " +
+                rule.getMetric() + " = " + rule.format(value) + ", triggered at " +
+                ConversionUtils.getInstantPrettyPrint(Instant.ofEpochMilli(time)), true);
+    }
+
+    /**
+     * React to an alert rule being back within its threshold.
+     * @param rule the rule.
+     * @param value the value of the rule's metric.
+     * @param time the log time of the recovery.
+     */
+    public void handleAlertCanceled(final AlertRule rule, final double value, final long time) {
+        addMessage(alertDescription(rule) + " alert recovered - " +
+                rule.getMetric() + " = " + rule.format(value) + ", at " +
+                ConversionUtils.getInstantPrettyPrint(Instant.ofEpochMilli(time)), false);
+    }
+
+    /**
+     * @return the name of the rule, with its section.
+     */
+    private static String alertDescription(final AlertRule rule) {
+        return rule.getSection() == null ? rule.getName() : rule.getName() + " (" + rule.getSection() + ")";
     }
 
     /**
      * React to an ongoing alert being disabled.
      */
     public void handleAlertCanceled() {
-        lastMessages.add(new AbstractMap.SimpleEntry<>("Deactivated alert. " + ConversionUtils.getInstantPrettyPrint(), false));
-        handleLastMessages();
+        addMessage("Deactivated alert. " + ConversionUtils.getInstantPrettyPrint(), false);
     }
 }
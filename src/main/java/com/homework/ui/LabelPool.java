@@ -0,0 +1,136 @@
+package com.homework.ui;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.gui2.Label;
+import com.googlecode.lanterna.gui2.Panel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Fixed set of one-line labels filling a panel, written line after line at each frame: a label is only updated when
+ * its text or style changes, and labels are only added to (or removed from) the panel when its height changes.
+ *
+ * @Note the pool must only be used from the GUI thread.
+ */
+class LabelPool {
+    /**
+     * The panel showing the labels.
+     */
+    private final Panel panel;
+
+    /**
+     * The labels, with the text and style they show.
+     */
+    private final List<Label> labels = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private final List<TextColor> colors = new ArrayList<>();
+    private final List<Boolean> bolds = new ArrayList<>();
+
+    /**
+     * Number of lines written in the current frame.
+     */
+    private int written;
+
+    /**
+     * Constructor.
+     * @param panel the (empty) panel showing the labels.
+     * @param lines initial number of lines.
+     */
+    LabelPool(final Panel panel, final int lines) {
+        this.panel = panel;
+        resize(lines);
+    }
+
+    /**
+     * Change the number of lines (e.g. when the terminal is resized).
+     * @param lines the number of lines.
+     */
+    void resize(final int lines) {
+        while (labels.size() < lines) {
+            final Label label = new Label("");
+            labels.add(label);
+            texts.add("");
+            colors.add(null);
+            bolds.add(false);
+            panel.addComponent(label);
+        }
+        while (labels.size() > Math.max(0, lines)) {
+            final int last = labels.size() - 1;
+            panel.removeComponent(labels.remove(last));
+            texts.remove(last);
+            colors.remove(last);
+            bolds.remove(last);
+        }
+    }
+
+    /**
+     * Start writing a frame from the first line.
+     */
+    void begin() {
+        written = 0;
+    }
+
+    /**
+     * Write the next line, in the default style (ignored once every line is written).
+     * @param text the text of the line.
+     */
+    void line(final String text) {
+        line(text, null, false);
+    }
+
+    /**
+     * Write the next line (ignored once every line is written).
+     * @param text the text of the line.
+     * @param color its color; null for the default one.
+     * @param bold whether it is bold.
+     */
+    void line(final String text, final TextColor color, final boolean bold) {
+        if (written >= labels.size()) {
+            return;
+        }
+        final int index = written++;
+        final Label label = labels.get(index);
+        if (!texts.get(index).equals(text)) {
+            label.setText(text);
+            texts.set(index, text);
+        }
+        if (!Objects.equals(colors.get(index), color)) {
+            label.setForegroundColor(color);
+            colors.set(index, color);
+        }
+        if (bolds.get(index) != bold) {
+            if (bold) {
+                label.addStyle(SGR.BOLD);
+            } else {
+                label.removeStyle(SGR.BOLD);
+            }
+            bolds.set(index, bold);
+        }
+    }
+
+    /**
+     * End the frame, blanking the lines which were not written.
+     */
+    void end() {
+        while (written < labels.size()) {
+            line("");
+        }
+    }
+
+    /**
+     * @return the number of lines left in the current frame.
+     */
+    int remaining() {
+        return labels.size() - written;
+    }
+
+    /**
+     * @return the number of lines.
+     */
+    int size() {
+        return labels.size();
+    }
+}
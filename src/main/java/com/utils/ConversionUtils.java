@@ -4,12 +4,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.time.Instant;
+import java.time.Month;
+import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.FormatStyle;
+import java.time.format.TextStyle;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Class used to host useful methods for converting values.
@@ -29,16 +35,182 @@ public final class ConversionUtils {
                 .appendOptional(DateTimeFormatter.ofPattern("dd/MMMMM/yyyy:HH:mm:ss Z"))
                 .toFormatter(Locale.getDefault());
 
+    /**
+     * Number of recently parsed timestamps kept in the cache; log lines written during the same second share the same
+     * timestamp text, and lines arriving slightly out of order may alternate between a few seconds.
+     */
+    private static final int TIMESTAMP_CACHE_SIZE = 4;
+
+    /**
+     * Recently parsed timestamps, replaced in a round robin way.
+     *
+     * @Note the cache is shared by all threads without locking: entries are immutable, so a thread either sees a
+     * complete entry or a stale one, which only costs a cache miss.
+     */
+    private static final CachedTimestamp[] TIMESTAMP_CACHE = new CachedTimestamp[TIMESTAMP_CACHE_SIZE];
+
+    /**
+     * Next cache entry to replace.
+     */
+    private static int nextCacheEntry = 0;
+
+    /**
+     * Month numbers (1 to 12) of the short and full month names of the formatter's locale.
+     */
+    private static final Map<String, Integer> MONTHS = new HashMap<>();
+
+    static {
+        for (final Month month : Month.values()) {
+            MONTHS.put(month.getDisplayName(TextStyle.SHORT, Locale.getDefault()), month.getValue());
+            MONTHS.put(month.getDisplayName(TextStyle.FULL, Locale.getDefault()), month.getValue());
+        }
+    }
+
     /**
      * Parse a date in string format according to CLF log date format.
      *
      * @param date string date.
      * @return the date in Java format (including timezone).
+     * @throws java.time.format.DateTimeParseException if the date is not valid.
      */
     public static ZonedDateTime parseDate(final String date) {
-        final ZonedDateTime objectDate = ZonedDateTime.parse(date, DATE_TIME_FORMATTER);
-        logger.debug("Parsed date from string [" + date + "] to Java object " + objectDate.toString());
-        return objectDate;
+        return parseDate(date, 0, date.length());
+    }
+
+    /**
+     * Parse a date in string format according to CLF log date format, from a part of a text (e.g. a full log line).
+     *
+     * The usual layout (dd/MMM/yyyy:HH:mm:ss +HHMM) is decoded directly and the last timestamps are cached; other
+     * inputs go through the date formatter.
+     *
+     * @param text the text containing the date.
+     * @param from first character of the date (inclusive).
+     * @param to last character of the date (exclusive).
+     * @return the date in Java format (including timezone).
+     * @throws java.time.format.DateTimeParseException if the date is not valid.
+     */
+    public static ZonedDateTime parseDate(final String text, final int from, final int to) {
+        return parseCachedTimestamp(text, from, to).dateTime;
+    }
+
+    /**
+     * Parse a date in string format according to CLF log date format (see {@link #parseDate(String, int, int)}).
+     *
+     * @param text the text containing the date.
+     * @param from first character of the date (inclusive).
+     * @param to last character of the date (exclusive).
+     * @return the number of milliseconds since the epoch.
+     * @throws java.time.format.DateTimeParseException if the date is not valid.
+     */
+    public static long parseDateToEpochMillis(final String text, final int from, final int to) {
+        return parseCachedTimestamp(text, from, to).epochMillis;
+    }
+
+    /**
+     * @return the cached timestamp corresponding to the date text, parsing (and caching) it if needed.
+     */
+    private static CachedTimestamp parseCachedTimestamp(final String text, final int from, final int to) {
+        final int length = to - from;
+        for (int index = 0; index < TIMESTAMP_CACHE_SIZE; index++) {
+            final CachedTimestamp cached = TIMESTAMP_CACHE[index];
+            if (cached != null && cached.text.length() == length && text.regionMatches(from, cached.text, 0, length)) {
+                return cached;
+            }
+        }
+
+        ZonedDateTime dateTime = decodeDate(text, from, to);
+        final String date = text.substring(from, to);
+        if (dateTime == null) {
+            dateTime = ZonedDateTime.parse(date, DATE_TIME_FORMATTER);
+        }
+
+        final CachedTimestamp cached = new CachedTimestamp(date, dateTime);
+        final int entry = nextCacheEntry;
+        TIMESTAMP_CACHE[entry] = cached;
+        nextCacheEntry = (entry + 1) % TIMESTAMP_CACHE_SIZE;
+        return cached;
+    }
+
+    /**
+     * Decode the usual CLF date layout "dd/MMM/yyyy:HH:mm:ss +HHMM" (short or full month name of the formatter's
+     * locale), accepting only values the formatter would resolve as is.
+     *
+     * @return the date, or null if the text does not follow the usual layout (the formatter then decides).
+     */
+    private static ZonedDateTime decodeDate(final String text, final int from, final int to) {
+        final int monthEnd = indexOf(text, '/', from + 3, to);
+        // the month name ends within the date, and the part following it has a fixed length : "/yyyy:HH:mm:ss +HHMM"
+        if (monthEnd < 0 || monthEnd >= to || to - monthEnd != 20 || text.charAt(from + 2) != '/') {
+            return null;
+        }
+        final Integer month = MONTHS.get(text.substring(from + 3, monthEnd));
+        if (month == null || text.charAt(monthEnd + 5) != ':' || text.charAt(monthEnd + 8) != ':' ||
+                text.charAt(monthEnd + 11) != ':' || text.charAt(monthEnd + 14) != ' ') {
+            return null;
+        }
+
+        final int day = digits(text, from, 2);
+        final int year = digits(text, monthEnd + 1, 4);
+        final int hour = digits(text, monthEnd + 6, 2);
+        final int minute = digits(text, monthEnd + 9, 2);
+        final int second = digits(text, monthEnd + 12, 2);
+        final int offsetHours = digits(text, monthEnd + 16, 2);
+        final int offsetMinutes = digits(text, monthEnd + 18, 2);
+        final char offsetSign = text.charAt(monthEnd + 15);
+
+        if (day < 1 || year < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 ||
+                offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59 ||
+                (offsetSign != '+' && offsetSign != '-') || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        final int offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (offsetSign == '-' ? -1 : 1);
+        if (Math.abs(offsetSeconds) > 18 * 3600) {
+            return null;
+        }
+        return ZonedDateTime.of(year, month, day, hour, minute, second, 0, ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    /**
+     * @return the index of the first occurrence of the character between from (inclusive) and to (exclusive), or -1 if
+     * there is none (unlike {@link String#indexOf(int, int)}, the rest of the line is not searched).
+     */
+    private static int indexOf(final String text, final char character, final int from, final int to) {
+        for (int index = from; index < to; index++) {
+            if (text.charAt(index) == character) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value of a fixed number of ASCII digits, or -1 if one of the characters is not an ASCII digit.
+     */
+    private static int digits(final String text, final int from, final int count) {
+        int value = 0;
+        for (int index = from; index < from + count; index++) {
+            final char character = text.charAt(index);
+            if (character < '0' || character > '9') {
+                return -1;
+            }
+            value = value * 10 + (character - '0');
+        }
+        return value;
+    }
+
+    /**
+     * A parsed date with its text and epoch value.
+     */
+    private static final class CachedTimestamp {
+        private final String text;
+        private final ZonedDateTime dateTime;
+        private final long epochMillis;
+
+        private CachedTimestamp(final String text, final ZonedDateTime dateTime) {
+            this.text = text;
+            this.dateTime = dateTime;
+            this.epochMillis = dateTime.toInstant().toEpochMilli();
+        }
     }
 
     /**
@@ -58,11 +230,61 @@ public final class ConversionUtils {
         }
     }
 
+    /**
+     * Pack an IPv4 address written in its canonical dotted form (four decimal bytes without leading zeros) into an
+     * integer value, so that {@link #formatIPv4(long)} gives back exactly the same text.
+     *
+     * @param text the text.
+     * @param from first character of the address (inclusive).
+     * @param to last character of the address (exclusive).
+     * @return the address (from 0 to 2^32 - 1), or -1 if the text is not a canonical IPv4 address.
+     */
+    public static long parseIPv4(final String text, final int from, final int to) {
+        long address = 0;
+        int position = from;
+        for (int part = 0; part < 4; part++) {
+            if (part > 0) {
+                if (position >= to || text.charAt(position) != '.') {
+                    return -1;
+                }
+                position++;
+            }
+            final int partStart = position;
+            int value = 0;
+            while (position < to && position - partStart < 3 && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+                value = value * 10 + text.charAt(position) - '0';
+                position++;
+            }
+            final int digits = position - partStart;
+            if (digits == 0 || value > 255 || (digits > 1 && text.charAt(partStart) == '0')) {
+                return -1;
+            }
+            address = (address << 8) | value;
+        }
+        return position == to ? address : -1;
+    }
+
+    /**
+     * @param address an IPv4 address packed by {@link #parseIPv4(String, int, int)}.
+     * @return the address in dotted form.
+     */
+    public static String formatIPv4(final long address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." +
+                (address & 0xFF);
+    }
+
     /**
      * @return a pretty string representation of the current date & time.
      */
     public static String getInstantPrettyPrint() {
-        final Instant instant = Instant.now();
+        return getInstantPrettyPrint(Instant.now());
+    }
+
+    /**
+     * @param instant a date & time.
+     * @return a pretty string representation of the date & time.
+     */
+    public static String getInstantPrettyPrint(final Instant instant) {
         final DateTimeFormatter formatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM)
                 .withLocale(Locale.FRANCE).withZone(ZoneId.systemDefault());
         return formatter.format(instant);
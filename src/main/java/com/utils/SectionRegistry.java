@@ -0,0 +1,100 @@
+package com.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registry interning the website sections (see {@link ConversionUtils#extractHTTPSectionFromRequest(String)}) so that
+ * log entries only keep a small id instead of their own copy of the section.
+ *
+ * The registry is a lock-free open addressing table of fixed size: once {@link #MAX_SECTIONS} sections are known
+ * (e.g. a crawler requesting random paths), new sections are not interned anymore and get the {@link #NO_ID} id.
+ */
+public final class SectionRegistry {
+    /**
+     * Id of the sections which are not interned.
+     */
+    public static final int NO_ID = -1;
+
+    /**
+     * Maximum number of interned sections.
+     */
+    public static final int MAX_SECTIONS = 1 << 16;
+
+    /**
+     * Number of slots of the table (twice the maximum number of sections, so probing sequences stay short).
+     */
+    private static final int TABLE_SIZE = MAX_SECTIONS << 1;
+
+    /**
+     * The interned sections; the id of a section is the index of its slot.
+     */
+    private static final AtomicReferenceArray<String> SECTIONS = new AtomicReferenceArray<>(TABLE_SIZE);
+
+    /**
+     * Number of interned sections.
+     */
+    private static final AtomicInteger SIZE = new AtomicInteger();
+
+    private SectionRegistry() {
+    }
+
+    /**
+     * Find (or intern) the section of a request's resource written in a part of a text.
+     *
+     * @param text the text (e.g. a full log line).
+     * @param from first character of the resource (inclusive).
+     * @param to last character of the resource (exclusive).
+     * @return the id of the section, or {@link #NO_ID} if the resource has no section or if the registry is full.
+     */
+    public static int idOfResourceSection(final String text, final int from, final int to) {
+        if (to <= from || text.charAt(from) != '/') {
+            return NO_ID;
+        }
+        int end = text.indexOf('/', from + 1);
+        if (end < 0 || end >= to) {
+            end = to;
+        }
+        final int length = end - from;
+
+        int hash = 0;
+        for (int index = from; index < end; index++) {
+            hash = 31 * hash + text.charAt(index);
+        }
+
+        int slot = (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+        while (true) {
+            final String section = SECTIONS.get(slot);
+            if (section == null) {
+                if (SIZE.get() >= MAX_SECTIONS) {
+                    return NO_ID;
+                }
+                if (SECTIONS.compareAndSet(slot, null, text.substring(from, end))) {
+                    SIZE.incrementAndGet();
+                    return slot;
+                }
+                // another thread took the slot meanwhile; check what it holds.
+                continue;
+            }
+            if (section.length() == length && text.regionMatches(from, section, 0, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+    }
+
+    /**
+     * @param id the id of an interned section.
+     * @return the section.
+     */
+    public static String sectionOf(final int id) {
+        return SECTIONS.get(id);
+    }
+
+    /**
+     * @return the number of interned sections.
+     */
+    public static int size() {
+        return SIZE.get();
+    }
+}
@@ -0,0 +1,85 @@
+package com.clfparser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Heap retained per log entry before (6 strings and a date object per entry) and after (compact entries) on the lines
+ * of the bundled input/logs.txt file, repeated up to N entries (first argument, default 1 000 000).
+ *
+ * Launch from the project's root folder (after mvn test-compile) with :
+ * java -cp target/classes:target/test-classes:&lt;log4j jars&gt; com.clfparser.CLFLogEntryHeapBenchmark [entries]
+ */
+public class CLFLogEntryHeapBenchmark {
+    /**
+     * Layout of the entries before they were made compact.
+     */
+    private static final class FormerEntry {
+        private final String remoteHost;
+        private final String userIdentifier;
+        private final String userId;
+        private final ZonedDateTime timestamp;
+        private final String httpMethod;
+        private final String resource;
+        private final String httpProtocol;
+        private final int httpStatusCode;
+        private final int responseSize;
+        private final String source;
+
+        private FormerEntry(final CLFLogEntry entry) {
+            // each entry had its own copies, as when they were extracted from the line by the regular expression.
+            this.remoteHost = new String(entry.getRemoteHost());
+            this.userIdentifier = new String(entry.getUserIdentifier());
+            this.userId = new String(entry.getUserId());
+            this.timestamp = ZonedDateTime.of(entry.getTimestamp().toLocalDateTime(), entry.getTimestamp().getZone());
+            this.httpMethod = new String(entry.getHttpMethod());
+            this.resource = new String(entry.getResource());
+            this.httpProtocol = new String(entry.getHttpProtocol());
+            this.httpStatusCode = entry.getHttpStatusCode();
+            this.responseSize = entry.getResponseSize();
+            this.source = entry.getSource();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final List<String> lines = Files.readAllLines(Paths.get("input", "logs.txt"), StandardCharsets.UTF_8);
+
+        final long baseline = usedHeap();
+        final Object[] former = new Object[entries];
+        for (int i = 0; i < entries; i++) {
+            former[i] = new FormerEntry(CLFLogParser.parse(lines.get(i % lines.size())));
+        }
+        final long formerHeap = usedHeap() - baseline;
+        report("former entries ", entries, formerHeap, former);
+        for (int i = 0; i < entries; i++) {
+            former[i] = null;
+        }
+
+        final long compactBaseline = usedHeap();
+        final Object[] compact = new Object[entries];
+        for (int i = 0; i < entries; i++) {
+            // a new line per entry, as when the lines are read from the file.
+            compact[i] = CLFLogParser.parse(new String(lines.get(i % lines.size())));
+        }
+        final long compactHeap = usedHeap() - compactBaseline;
+        report("compact entries", entries, compactHeap, compact);
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(final String label, final int entries, final long heap, final Object[] retained) {
+        System.out.println(String.format("%s : %,d entries, %,d bytes retained, %d bytes/entry (%d)", label, entries,
+                heap, heap / entries, retained.length));
+    }
+}
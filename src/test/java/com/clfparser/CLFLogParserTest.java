@@ -4,6 +4,9 @@ import com.utils.ConversionUtils;
 
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,4 +56,120 @@ class CLFLogParserTest {
                 ), parser.parse(INPUTS[5]));
          */
     }
-}
\ No newline at end of file
+
+    /**
+     * Regular expression used by the parser before it was hand-written; kept as the reference of the accepted lines.
+     */
+    private static final Pattern REFERENCE_REGEX = Pattern
+            .compile("^(\\S+) (\\S+) (\\S+) \\[([\\w:./]+\\s[+\\-]\\d{4})\\] \"(\\S+) (\\S+) (\\S+)\" (\\S+) (\\S+)(.)*$",
+                    Pattern.UNICODE_CHARACTER_CLASS);
+
+    /**
+     * Characters the fuzzed lines are made of : separators of the format, white spaces & line terminators, digits,
+     * letters (including accented ones) and characters accepted by \w only with Unicode classes.
+     */
+    private static final String FUZZ_CHARACTERS = " \"[]-+/:._\t\n\r0123456789aA\u00e9MGT\u00a0\u2028\u0085\u0301\u0663";
+
+    /**
+     * Former regular expression based parsing.
+     */
+    private static CLFLogEntry referenceParse(final String line) {
+        final Matcher matcher = REFERENCE_REGEX.matcher(line);
+        if (matcher.find()) {
+            try {
+                return new CLFLogEntry(
+                        matcher.group(1),
+                        matcher.group(2),
+                        matcher.group(3),
+                        "-".equals(matcher.group(4)) ? null : ConversionUtils.parseDate(matcher.group(4)),
+                        matcher.group(5),
+                        matcher.group(6),
+                        matcher.group(7),
+                        "-".equals(matcher.group(8)) ? 0 : Integer.parseInt(matcher.group(8)),
+                        "-".equals(matcher.group(9)) ? 0 : Integer.parseInt(matcher.group(9)));
+            } catch (final Exception exception) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @org.junit.jupiter.api.Test
+    void parseSameAsReferenceOnInputs() {
+        for (final String input : INPUTS) {
+            assertEquals(referenceParse(input), CLFLogParser.parse(input), input);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void parseEdgeCases() {
+        final String[] lines = {
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" - -",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 123 \"referrer\" \"agent\"",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" +200 -12\r\n",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report HTTP/1.0\"\" 200 1",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report \"\" 200 1",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 2147483648",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 1\n\n",
+                "127.0.0.1 - - [09/May/2018:16:00:39\t+0000] \"GET /report HTTP/1.0\" 200 1",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET  /report HTTP/1.0\" 200 1",
+                "127.0.0.1 - - [09/Mey/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 1",
+                "127.0.0.1 - - [09/May/2018:16:00:39 +0000]",
+                "",
+        };
+        for (final String line : lines) {
+            assertEquals(referenceParse(line), CLFLogParser.parse(line), line);
+        }
+        assertNull(CLFLogParser.parse(null));
+    }
+
+    @org.junit.jupiter.api.Test
+    void parseSameAsReferenceOnFuzzCorpus() {
+        final Random random = new Random(20200513);
+        for (int iteration = 0; iteration < 50_000; iteration++) {
+            final StringBuilder line = new StringBuilder(INPUTS[random.nextInt(INPUTS.length)]);
+            final int mutations = 1 + random.nextInt(3);
+            for (int mutation = 0; mutation < mutations && line.length() > 0; mutation++) {
+                final int position = random.nextInt(line.length());
+                final char character = FUZZ_CHARACTERS.charAt(random.nextInt(FUZZ_CHARACTERS.length()));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        line.setCharAt(position, character);
+                        break;
+                    case 1:
+                        line.insert(position, character);
+                        break;
+                    default:
+                        line.deleteCharAt(position);
+                }
+            }
+            final String input = line.toString();
+            assertEquals(referenceParse(input), CLFLogParser.parse(input), input);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void compactEntryGivesBackTheLineValues() {
+        final CLFLogEntry packed = CLFLogParser.parse(
+                "10.1.2.3 - frank [09/May/2018:16:00:39 -0700] \"DELETE /api/user/3 HTTP/1.1\" 204 0");
+        assertEquals(0x0A010203L, packed.getRemoteAddress());
+        assertEquals("10.1.2.3", packed.getRemoteHost());
+        assertEquals(HTTPMethod.DELETE, packed.getHttpMethodCode());
+        assertEquals("DELETE", packed.getHttpMethod());
+        assertEquals(HTTPProtocol.HTTP_1_1, packed.getHttpProtocolCode());
+        assertEquals("HTTP/1.1", packed.getHttpProtocol());
+        assertEquals("/api", packed.getSection());
+        assertEquals(ZonedDateTime.of(2018, 5, 9, 16, 0, 39, 0, ZoneOffset.ofHours(-7)), packed.getTimestamp());
+        assertEquals(packed.getTimestamp().toInstant().toEpochMilli(), packed.getTimestampMillis());
+
+        final CLFLogEntry text = CLFLogParser.parse(
+                "::1 - - [09/May/2018:16:00:39 +0000] \"PROPFIND report SPDY/3\" 200 1");
+        assertEquals(-1, text.getRemoteAddress());
+        assertEquals("::1", text.getRemoteHost());
+        assertNull(text.getHttpMethodCode());
+        assertEquals("PROPFIND", text.getHttpMethod());
+        assertNull(text.getHttpProtocolCode());
+        assertEquals("SPDY/3", text.getHttpProtocol());
+        assertNull(text.getSection());
+    }
+}
@@ -0,0 +1,57 @@
+package com.filereader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Adaptive polling tests : the interval backs off while the file is idle and tightens while it grows.
+ */
+class AdaptivePollingWaiterTest {
+    @Test
+    void testIntervalBacksOffAndTightens() {
+        final AdaptivePollingWaiter waiter = new AdaptivePollingWaiter(10, 1000);
+        assertEquals(1000, waiter.getCurrentInterval());
+
+        // the file grows : the interval halves down to the minimum.
+        final long[] tightening = {500, 250, 125, 62, 31, 15, 10, 10};
+        for (final long interval : tightening) {
+            waiter.onReadPass(4096);
+            assertEquals(interval, waiter.getCurrentInterval());
+        }
+
+        // the file is idle : the interval doubles up to the maximum.
+        final long[] backOff = {20, 40, 80, 160, 320, 640, 1000, 1000};
+        for (final long interval : backOff) {
+            waiter.onReadPass(0);
+            assertEquals(interval, waiter.getCurrentInterval());
+        }
+
+        // new data : the interval tightens again at once.
+        waiter.onReadPass(1);
+        assertEquals(500, waiter.getCurrentInterval());
+    }
+
+    @Test
+    void testIntervalBounds() {
+        // inverted or null bounds are corrected.
+        final AdaptivePollingWaiter inverted = new AdaptivePollingWaiter(500, 100);
+        assertEquals(100, inverted.getCurrentInterval());
+        inverted.onReadPass(1);
+        assertEquals(100, inverted.getCurrentInterval());
+
+        final AdaptivePollingWaiter nullMinimum = new AdaptivePollingWaiter(0, 4);
+        for (int pass = 0; pass < 5; pass++) {
+            nullMinimum.onReadPass(1);
+        }
+        assertEquals(1, nullMinimum.getCurrentInterval());
+    }
+
+    @Test
+    void testAwaitSleepsTheCurrentInterval() throws InterruptedException {
+        final AdaptivePollingWaiter waiter = new AdaptivePollingWaiter(50, 50);
+        final long start = System.nanoTime();
+        waiter.awaitChange();
+        assertTrue(System.nanoTime() - start >= 45_000_000L);
+    }
+}
@@ -0,0 +1,97 @@
+package com.filereader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Block line reader tests; a very small block size is used so lines are split across several reads.
+ */
+class BlockLineReaderTest {
+    private Path file;
+    private final List<String> lines = new ArrayList<>();
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        file = Files.createTempFile("block-line-reader", ".log");
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private void append(final String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void testLinesSplitAcrossBlocks() throws IOException {
+        append("first line\r\nsecond line with accents é à\n\nthird\n");
+
+        final BlockLineReader reader = new BlockLineReader(7, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            reader.readAvailable(channel, lines::add);
+        }
+
+        assertEquals(Arrays.asList("first line", "second line with accents é à", "", "third"), lines);
+        assertEquals(Files.size(file), reader.getPosition());
+        assertEquals(reader.getPosition(), reader.getLineBoundaryPosition());
+    }
+
+    @Test
+    void testPartialLineCarriedToNextRead() throws IOException {
+        append("complete\nparti");
+
+        final BlockLineReader reader = new BlockLineReader(4, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            reader.readAvailable(channel, lines::add);
+            assertEquals(Arrays.asList("complete"), lines);
+            assertEquals(9, reader.getLineBoundaryPosition());
+
+            append("al line\n");
+            reader.readAvailable(channel, lines::add);
+        }
+
+        assertEquals(Arrays.asList("complete", "partial line"), lines);
+    }
+
+    @Test
+    void testFlushPartialLine() throws IOException {
+        append("no terminator");
+
+        final BlockLineReader reader = new BlockLineReader(BlockLineReader.DEFAULT_BLOCK_SIZE, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            reader.readAvailable(channel, lines::add);
+        }
+        assertTrue(lines.isEmpty());
+
+        reader.flushPartialLine(lines::add);
+        assertEquals(Arrays.asList("no terminator"), lines);
+    }
+
+    @Test
+    void testBatchPerBlock() throws IOException {
+        append("a\nb\nc\nlong line\n");
+
+        final List<List<String>> batches = new ArrayList<>();
+        final BlockLineReader reader = new BlockLineReader(4, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            reader.readAvailableBatches(channel, batch -> batches.add(new ArrayList<>(batch)));
+        }
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c"), Arrays.asList("long line")), batches);
+    }
+}
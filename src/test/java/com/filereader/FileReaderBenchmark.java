@@ -0,0 +1,89 @@
+package com.filereader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Throughput comparison between the former {@link RandomAccessFile#readLine()} based reading and the
+ * {@link BlockLineReader}, on the bundled input/logs.txt file repeated N times (first argument, default 100).
+ *
+ * Launch from the project's root folder (after mvn test-compile) with :
+ * java -cp target/classes:target/test-classes com.filereader.FileReaderBenchmark [scale]
+ */
+public class FileReaderBenchmark {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        final int scale = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        final byte[] sample = Files.readAllBytes(Paths.get("input", "logs.txt"));
+
+        final Path file = Files.createTempFile("file-reader-benchmark", ".log");
+        try {
+            for (int i = 0; i < scale; i++) {
+                Files.write(file, sample, StandardOpenOption.APPEND);
+            }
+            final double sizeInMB = Files.size(file) / (1024.0 * 1024.0);
+            System.out.println(String.format("Input file: %.1f MB (%d x input/logs.txt)", sizeInMB, scale));
+
+            for (int round = 1; round <= ROUNDS; round++) {
+                long start = System.nanoTime();
+                long lines = readWithRandomAccessFile(file.toFile());
+                report("RandomAccessFile.readLine", round, lines, sizeInMB, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                lines = readWithBlockLineReader(file);
+                report("BlockLineReader         ", round, lines, sizeInMB, System.nanoTime() - start);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(final String name, final int round, final long lines, final double sizeInMB,
+                               final long elapsedNanos) {
+        final double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format("[round %d] %s : %d lines in %.3f s -> %.0f lines/s, %.1f MB/s",
+                round, name, lines, seconds, lines / seconds, sizeInMB / seconds));
+    }
+
+    /**
+     * Reading loop used by the file reader before the block reader was introduced.
+     */
+    private static long readWithRandomAccessFile(final File file) throws IOException {
+        long lines = 0;
+        try (RandomAccessFile accessFile = new RandomAccessFile(file, "r")) {
+            String line = accessFile.readLine();
+            while (line != null) {
+                final byte[] bytes = new byte[line.length()];
+                for (int i = 0; i < line.length(); i++) {
+                    bytes[i] = (byte) line.charAt(i);
+                }
+                if (new String(bytes, StandardCharsets.UTF_8).trim().length() > 0) {
+                    lines++;
+                }
+                line = accessFile.readLine();
+            }
+        }
+        return lines;
+    }
+
+    private static long readWithBlockLineReader(final Path file) throws IOException {
+        final long[] lines = {0};
+        final BlockLineReader reader = new BlockLineReader(BlockLineReader.DEFAULT_BLOCK_SIZE, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            reader.readAvailable(channel, line -> {
+                if (line.trim().length() > 0) {
+                    lines[0]++;
+                }
+            });
+        }
+        return lines[0];
+    }
+}
@@ -0,0 +1,137 @@
+package com.filereader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * File tailer tests : checkpoint resume and rotation handling.
+ */
+class FileTailerTest {
+    private Path directory;
+    private Path logFile;
+    private Path checkpointFile;
+    private final List<String> lines = new ArrayList<>();
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("file-tailer");
+        logFile = directory.resolve("access.log");
+        checkpointFile = directory.resolve("checkpoints");
+        Files.createFile(logFile);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private void append(final Path file, final String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private FileTailer openTailer() throws IOException {
+        final FileTailer tailer = new FileTailer(logFile, new CheckpointStore(checkpointFile), lines::addAll);
+        tailer.open();
+        return tailer;
+    }
+
+    @Test
+    void testStartsFromEndWithoutCheckpoint() throws IOException {
+        append(logFile, "old 1\nold 2\n");
+
+        final FileTailer tailer = new FileTailer(logFile, null, lines::addAll);
+        tailer.open();
+        append(logFile, "new 1\n");
+        tailer.readPass();
+        tailer.close();
+
+        assertEquals(Arrays.asList("new 1"), lines);
+    }
+
+    @Test
+    void testResumeFromCheckpoint() throws IOException {
+        final CheckpointStore store = new CheckpointStore(checkpointFile);
+        FileTailer tailer = new FileTailer(logFile, store, lines::addAll);
+        tailer.open();
+        append(logFile, "line 1\nline 2\nparti");
+        tailer.readPass();
+        store.flush();
+        tailer.close();
+
+        // written while the application was stopped
+        append(logFile, "al\nline 3\n");
+
+        tailer = openTailer();
+        tailer.readPass();
+        tailer.close();
+
+        assertEquals(Arrays.asList("line 1", "line 2", "partial", "line 3"), lines);
+    }
+
+    @Test
+    void testRenameRotationDrainsFormerFile() throws IOException {
+        final FileTailer tailer = openTailer();
+        append(logFile, "line 1\n");
+        tailer.readPass();
+
+        append(logFile, "line 2\n");
+        Files.move(logFile, directory.resolve("access.log.1"));
+        append(logFile, "line 3\n");
+        tailer.readPass();
+        tailer.close();
+
+        assertEquals(Arrays.asList("line 1", "line 2", "line 3"), lines);
+    }
+
+    @Test
+    void testRotationWhileStoppedResumesFromRotatedFile() throws IOException {
+        final CheckpointStore store = new CheckpointStore(checkpointFile);
+        FileTailer tailer = new FileTailer(logFile, store, lines::addAll);
+        tailer.open();
+        append(logFile, "line 1\n");
+        tailer.readPass();
+        store.flush();
+        tailer.close();
+
+        // written and rotated while the application was stopped
+        append(logFile, "line 2\n");
+        Files.move(logFile, directory.resolve("access.log.1"));
+        append(logFile, "line 3\n");
+
+        tailer = openTailer();
+        tailer.readPass();
+        tailer.close();
+
+        assertEquals(Arrays.asList("line 1", "line 2", "line 3"), lines);
+    }
+
+    @Test
+    void testCopyTruncateRotation() throws IOException {
+        final FileTailer tailer = openTailer();
+        append(logFile, "line 1\nline 2\n");
+        tailer.readPass();
+
+        Files.write(logFile, new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
+        append(logFile, "line 3\n");
+        tailer.readPass();
+        tailer.close();
+
+        assertEquals(Arrays.asList("line 1", "line 2", "line 3"), lines);
+    }
+}
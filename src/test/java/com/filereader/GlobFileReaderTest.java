@@ -0,0 +1,111 @@
+package com.filereader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Glob file reader tests : several matching files, including one created after the start.
+ */
+class GlobFileReaderTest {
+    private Path directory;
+
+    /**
+     * Lines received, as "source:line".
+     */
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("glob-reader");
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private void append(final String file, final String content) throws IOException {
+        Files.write(directory.resolve(file), content.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Wait until a number of lines is received (or 10 seconds).
+     */
+    private void awaitLines(final int numberOfLines) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (lines.size() < numberOfLines && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    private List<String> sortedLines() {
+        synchronized (lines) {
+            final List<String> sorted = new ArrayList<>(lines);
+            Collections.sort(sorted);
+            return sorted;
+        }
+    }
+
+    @Test
+    void testTailsEachMatchingFileOnce() throws IOException, InterruptedException {
+        append("a.access.log", "old a\n");
+        append("b.access.log", "");
+        append("error.log", "");
+
+        final GlobFileReader reader = new GlobFileReader(directory + "/*.access.log", 2, 50);
+        reader.registerLogFileTailerListener(new LogLineListener() {
+            @Override
+            public void newLogFileLine(final String line) {
+                fail("the source should be given");
+            }
+
+            @Override
+            public void newLogFileLine(final String source, final String line) {
+                lines.add(source + ":" + line);
+            }
+        });
+        reader.start();
+        try {
+            // the files found at the start are read from their end.
+            append("a.access.log", "a 1\na 2\n");
+            append("b.access.log", "b 1\n");
+            append("error.log", "not matched\n");
+            awaitLines(3);
+
+            // a file created later is discovered and read from its beginning.
+            append("c.access.log", "c 1\n");
+            append("a.access.log", "a 3\n");
+            awaitLines(5);
+            // more discovery scans do not tail a file twice.
+            Thread.sleep(4500);
+            append("c.access.log", "c 2\n");
+            awaitLines(6);
+            Thread.sleep(200);
+
+            assertEquals(Arrays.asList("a.access.log:a 1", "a.access.log:a 2", "a.access.log:a 3",
+                    "b.access.log:b 1", "c.access.log:c 1", "c.access.log:c 2"), sortedLines());
+            assertEquals(6, reader.getLinesRead());
+            assertEquals(0, reader.getLag());
+        } finally {
+            reader.stop();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.filereader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Watch service tests : event coalescing and fallback to polling.
+ */
+class WatchServiceWaiterTest {
+    /**
+     * Longest wait without event.
+     */
+    private static final long TIMEOUT = 1000; // in milliseconds.
+
+    private Path directory;
+    private Path logFile;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("watch-service");
+        logFile = directory.resolve("access.log");
+        Files.createFile(logFile);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        if (Files.exists(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private void append(final Path file, final String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return the time the waiter waited, in milliseconds.
+     */
+    private static long timeAwait(final WatchServiceWaiter waiter) throws InterruptedException {
+        final long start = System.nanoTime();
+        waiter.awaitChange();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @Test
+    void testBurstOfWritesCoalescedIntoOneWakeUp() throws IOException, InterruptedException {
+        try (WatchServiceWaiter waiter = new WatchServiceWaiter(logFile, 10, TIMEOUT)) {
+            for (int line = 0; line < 100; line++) {
+                append(logFile, "line " + line + "\n");
+            }
+            // the events are queued asynchronously by the watch service : let the burst settle.
+            Thread.sleep(200);
+            assertTrue(timeAwait(waiter) < TIMEOUT / 2);
+            assertTrue(waiter.isWatching());
+
+            // all the events of the burst were drained by the first wake up.
+            assertTrue(timeAwait(waiter) >= TIMEOUT * 9 / 10);
+        }
+    }
+
+    @Test
+    void testOtherFilesDoNotWakeUp() throws IOException, InterruptedException {
+        try (WatchServiceWaiter waiter = new WatchServiceWaiter(logFile, 10, TIMEOUT)) {
+            append(directory.resolve("error.log"), "other\n");
+            assertTrue(timeAwait(waiter) >= TIMEOUT * 9 / 10);
+        }
+    }
+
+    @Test
+    void testUnwatchableDirectory() {
+        // the reader falls back to polling when the watch service cannot be set up.
+        assertThrows(IOException.class, () -> new WatchServiceWaiter(directory.resolve("missing/access.log"), 10, TIMEOUT));
+    }
+
+    @Test
+    void testFallsBackToPollingWhenTheDirectoryIsRemoved() throws IOException, InterruptedException {
+        try (WatchServiceWaiter waiter = new WatchServiceWaiter(logFile, 10, TIMEOUT)) {
+            Files.delete(logFile);
+            Files.delete(directory);
+            waiter.awaitChange();
+            assertFalse(waiter.isWatching());
+
+            // polling : the waiter sleeps the adaptive interval.
+            waiter.onReadPass(1);
+            assertEquals(TIMEOUT / 2, waiter.getCurrentInterval());
+            final long waited = timeAwait(waiter);
+            assertTrue(waited >= TIMEOUT / 2 * 9 / 10 && waited < TIMEOUT, Long.toString(waited));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.homework.monitoring;
+
+import com.clfparser.CLFLogParser;
+import com.homework.monitoring.alerts.rules.AlertRule;
+import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.stats.groupby.GroupByEngine;
+import com.homework.monitoring.stats.groupby.GroupBySpec;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonLinesWriterTest {
+    @Test
+    void testLinesAreWrittenAsynchronously() throws InterruptedException {
+        final HTTPTrafficStats statistics = new HTTPTrafficStats();
+        final GroupByEngine groupByEngine = new GroupByEngine(GroupBySpec.parse("status:requests"));
+        for (final String line : new String[]{
+                "10.0.0.1 - - [09/May/2018:16:00:01 +0000] \"GET /api/user HTTP/1.0\" 200 100",
+                "10.0.0.2 - - [09/May/2018:16:00:02 +0000] \"GET /api/user HTTP/1.0\" 503 10",
+                "10.0.0.2 - - [09/May/2018:16:00:03 +0000] \"GET /a\\\"b HTTP/1.0\" 200 50"}) {
+            statistics.processNewLogEntry(CLFLogParser.parse(line));
+            groupByEngine.process(CLFLogParser.parse(line));
+        }
+        statistics.setWindow(Instant.parse("2018-05-09T16:00:00Z"), Instant.parse("2018-05-09T16:00:10Z"));
+
+        final StringWriter output = new StringWriter();
+        final JsonLinesWriter writer = new JsonLinesWriter(output, JsonLinesWriter.DEFAULT_CAPACITY);
+        writer.setGroupByEngine(groupByEngine);
+        writer.start();
+        writer.processTrafficStatistics(statistics);
+        final AlertRule rule = AlertRule.parse("api-errors : serverErrorRatio /api > 2% over 60s");
+        writer.raiseAlert(rule, 0.5, Instant.parse("2018-05-09T16:00:04Z").toEpochMilli());
+        writer.cancelAlert(rule, Double.NaN, Instant.parse("2018-05-09T16:01:04Z").toEpochMilli());
+        writer.close();
+
+        for (int wait = 0; wait < 100 && output.toString().split("\n").length < 3; wait++) {
+            Thread.sleep(10);
+        }
+        final String[] lines = output.toString().split("\n");
+        assertEquals(3, lines.length, output.toString());
+        assertTrue(lines[0].startsWith("{\"type\":\"stats\",\"windowStart\":\"2018-05-09T16:00:00Z\"," +
+                "\"windowEnd\":\"2018-05-09T16:00:10Z\",\"requests\":3,\"bytes\":160,\"valid\":2,\"clientErrors\":0," +
+                "\"serverErrors\":1,\"clients\":2,\"users\":0,\"sizes\":{\"p50\":"), lines[0]);
+        assertTrue(lines[0].endsWith(",\"topSections\":[{\"section\":\"/api\",\"hits\":2,\"error\":0}," +
+                "{\"section\":\"/a\\\\\\\"b\",\"hits\":1,\"error\":0}],\"topGroups\":[{\"group\":\"2xx\",\"requests\":2}," +
+                "{\"group\":\"5xx\",\"requests\":1}]}"), lines[0]);
+        assertEquals("{\"type\":\"alert\",\"state\":\"raised\",\"time\":\"2018-05-09T16:00:04Z\",\"rule\":\"api-errors\"," +
+                "\"metric\":\"serverErrorRatio\",\"section\":\"/api\",\"windowSeconds\":60,\"value\":0.5}", lines[1]);
+        assertEquals("{\"type\":\"alert\",\"state\":\"cancelled\",\"time\":\"2018-05-09T16:01:04Z\",\"rule\":\"api-errors\"," +
+                "\"metric\":\"serverErrorRatio\",\"section\":\"/api\",\"windowSeconds\":60,\"value\":null}", lines[2]);
+    }
+
+    @Test
+    void testQueuedLinesFlushedOnce() throws InterruptedException {
+        final AtomicInteger flushes = new AtomicInteger();
+        final StringWriter output = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+        final JsonLinesWriter writer = new JsonLinesWriter(output, JsonLinesWriter.DEFAULT_CAPACITY);
+        // queued before the writer thread starts : written in a row.
+        for (int window = 0; window < 50; window++) {
+            writer.processTrafficStatistics(new HTTPTrafficStats().setWindow(Instant.ofEpochSecond(window * 10L),
+                    Instant.ofEpochSecond(window * 10L + 10)));
+        }
+        writer.start();
+        for (int wait = 0; wait < 100 && flushes.get() == 0; wait++) {
+            Thread.sleep(10);
+        }
+        writer.close();
+
+        assertEquals(50, output.toString().split("\n").length);
+        assertEquals(1, flushes.get());
+    }
+}
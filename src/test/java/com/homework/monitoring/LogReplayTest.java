@@ -0,0 +1,67 @@
+package com.homework.monitoring;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogReplayTest {
+    private static final ZonedDateTime START = ZonedDateTime.of(2018, 5, 9, 16, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.getDefault());
+
+    @Test
+    void testReplayFollowsTheLogTime() throws IOException, InterruptedException {
+        // 3 minutes at 20 requests per second, then 3 minutes at 1 request per second.
+        final List<String> lines = new ArrayList<>();
+        for (int second = 0; second < 360; second++) {
+            final int requests = second < 180 ? 20 : 1;
+            for (int request = 0; request < requests; request++) {
+                lines.add("127.0.0.1 - - [" + FORMATTER.format(START.plusSeconds(second)) +
+                        "] \"GET /report HTTP/1.0\" 200 10");
+            }
+            // blank lines are skipped, as when tailing, and not counted as replayed lines.
+            if (second % 60 == 0) {
+                lines.add("");
+            }
+        }
+        final Path file = Files.createTempFile("replay", ".log");
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            final Level parserLevel = LogManager.getLogger(LogLineParserListener.class).getLevel();
+            for (final int parserThreads : new int[]{1, 3}) {
+                final MonitoringSettings settings = new MonitoringSettings(file.toString());
+                settings.setParserThreads(parserThreads);
+                final StringWriter timeline = new StringWriter();
+                final String summary = new LogReplay(settings, new PrintWriter(timeline)).run();
+                assertTrue(summary.startsWith(String.format("Replayed %,d lines ", 180 * 20 + 180)), summary);
+
+                final String[] timelineLines = timeline.toString().split("\\R");
+                assertEquals(36 + 2, timelineLines.length, timeline.toString());
+                assertTrue(timelineLines[0].startsWith("2018-05-09T16:00:00Z - 2018-05-09T16:00:10Z requests=200 "),
+                        timelineLines[0]);
+                assertTrue(timeline.toString().contains("ALERT RAISED"));
+                assertTrue(timeline.toString().contains("ALERT CANCELLED"));
+                assertTrue(timelineLines[timelineLines.length - 1].contains(" requests=10 "));
+                assertEquals(parserLevel, LogManager.getLogger(LogLineParserListener.class).getLevel());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
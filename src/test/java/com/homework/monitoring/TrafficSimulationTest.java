@@ -0,0 +1,193 @@
+package com.homework.monitoring;
+
+import com.homework.monitoring.alerts.HTTPTrafficAlertsListener;
+import com.homework.monitoring.alerts.HTTPTrafficAlertsManager;
+import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.stats.HTTPTrafficStatsManager;
+import com.homework.monitoring.time.ManualClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulation harness: synthetic traffic profiles are written as log lines and pushed through the real parsing, stats
+ * and alerts code on a manual clock, at CPU speed; the windows and alert timings are checked against the profile.
+ */
+class TrafficSimulationTest {
+    private static final ZonedDateTime START = ZonedDateTime.of(2018, 5, 9, 16, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.getDefault());
+
+    private static final int WINDOW = 10; // in seconds.
+    private static final int ALERT_WINDOW = 120; // in seconds.
+    private static final int ALERT_THRESHOLD = 10; // requests per second.
+    private static final long ALLOWED_LATENESS = 5000; // in milliseconds.
+
+    /**
+     * Delay between the writing of a log line and its reading.
+     */
+    private static final long READ_DELAY = 500; // in milliseconds.
+
+    /**
+     * A window is emitted once the log time passed its end by the out-of-orderness bound (2 seconds) and the allowed
+     * lateness; when the log is idle, on the next tick (every second) of the clock.
+     */
+    private static final long EMISSION_DELAY = 2000 + ALLOWED_LATENESS + READ_DELAY;
+
+    /**
+     * Idle time simulated after the profile.
+     */
+    private static final int IDLE_SECONDS = 60;
+
+    /**
+     * Result of a simulation.
+     */
+    private static final class Simulation implements HTTPTrafficAlertsListener {
+        private final ManualClock clock = new ManualClock(START.toInstant().toEpochMilli());
+        private final List<HTTPTrafficStats> windows = new ArrayList<>();
+        private final List<Long> windowEmissionTimes = new ArrayList<>();
+        private final List<Long> alertTimes = new ArrayList<>();
+        private long dropped;
+
+        @Override
+        public void raiseAlert() {
+            alertTimes.add(clock.currentTimeMillis());
+        }
+
+        @Override
+        public void cancelAlert() {
+            alertTimes.add(clock.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Run a traffic profile for a duration, then one idle minute.
+     * @param requestsPerSecond number of requests of each second of the profile.
+     * @param seconds duration of the profile.
+     */
+    private static Simulation simulate(final IntUnaryOperator requestsPerSecond, final int seconds) {
+        final Simulation simulation = new Simulation();
+        final HTTPTrafficStatsManager statsManager =
+                new HTTPTrafficStatsManager(WINDOW, ALLOWED_LATENESS, simulation.clock, simulation.clock);
+        final HTTPTrafficAlertsManager alertsManager = new HTTPTrafficAlertsManager(ALERT_WINDOW, ALERT_THRESHOLD,
+                HTTPTrafficAlertsManager.DEFAULT_RESOLUTION, simulation.clock, simulation.clock);
+        statsManager.registerStatsListener(stats -> {
+            simulation.windows.add(stats);
+            simulation.windowEmissionTimes.add(simulation.clock.currentTimeMillis());
+        });
+        alertsManager.registerAlertsListener(simulation);
+
+        final LogEntryBroadcaster broadcaster = new LogEntryBroadcaster();
+        broadcaster.registerListener(statsManager);
+        broadcaster.registerListener(alertsManager);
+        final LogLineParserListener parser = new LogLineParserListener(broadcaster);
+
+        final String[] sections = {"/api", "/report", "/pages"};
+        for (int second = 0; second < seconds; second++) {
+            final String date = FORMATTER.format(START.plusSeconds(second));
+            final int requests = requestsPerSecond.applyAsInt(second);
+            final List<String> lines = new ArrayList<>(requests);
+            for (int request = 0; request < requests; request++) {
+                lines.add("127.0.0." + (request % 200) + " - - [" + date + "] \"GET " + sections[request % 3] +
+                        "/item HTTP/1.0\" 200 10");
+            }
+            simulation.clock.advanceTo(START.plusSeconds(second).toInstant().toEpochMilli() + READ_DELAY);
+            if (!lines.isEmpty()) {
+                parser.newLogFileLines(null, lines);
+            }
+        }
+        simulation.clock.advance(IDLE_SECONDS * 1000);
+        simulation.dropped = statsManager.getDroppedEntries();
+        return simulation;
+    }
+
+    /**
+     * Check the windows against the profile and the alert timings against the sliding average of the seconds.
+     */
+    private static void assertSimulation(final Simulation simulation, final IntUnaryOperator requestsPerSecond,
+                                         final int seconds, final int expectedAlertTransitions) {
+        assertEquals(0, simulation.dropped);
+        assertTrue(simulation.windows.size() >= seconds / WINDOW);
+
+        for (int window = 0; window < simulation.windows.size(); window++) {
+            final HTTPTrafficStats stats = simulation.windows.get(window);
+            final long windowStart = START.plusSeconds(window * WINDOW).toInstant().toEpochMilli();
+            assertEquals(windowStart, stats.getWindowStart().toEpochMilli());
+
+            long expectedRequests = 0;
+            for (int second = window * WINDOW; second < (window + 1) * WINDOW && second < seconds; second++) {
+                expectedRequests += requestsPerSecond.applyAsInt(second);
+            }
+            assertEquals(expectedRequests, stats.getTotalNumberOfHTTPRequests(), "window " + stats.getWindowStart());
+
+            final long windowEnd = windowStart + WINDOW * 1000;
+            final long emissionTime = simulation.windowEmissionTimes.get(window);
+            assertTrue(emissionTime >= windowEnd + EMISSION_DELAY && emissionTime < windowEnd + EMISSION_DELAY + 1000,
+                    "window " + stats.getWindowStart() + " emitted at " + emissionTime);
+        }
+
+        // the alert follows the requests of the last ALERT_WINDOW seconds, within a second of their reading.
+        final List<Long> expectedAlertSeconds = new ArrayList<>();
+        long requestsInAlertWindow = 0;
+        boolean alert = false;
+        for (int second = 0; second < seconds + IDLE_SECONDS - 1; second++) {
+            requestsInAlertWindow += second < seconds ? requestsPerSecond.applyAsInt(second) : 0;
+            if (second >= ALERT_WINDOW && second - ALERT_WINDOW < seconds) {
+                requestsInAlertWindow -= requestsPerSecond.applyAsInt(second - ALERT_WINDOW);
+            }
+            if (alert != (requestsInAlertWindow >= (long) ALERT_THRESHOLD * ALERT_WINDOW)) {
+                alert = !alert;
+                expectedAlertSeconds.add(START.plusSeconds(second).toInstant().toEpochMilli());
+            }
+        }
+        assertEquals(expectedAlertTransitions, expectedAlertSeconds.size());
+        assertEquals(expectedAlertTransitions, simulation.alertTimes.size(), simulation.alertTimes.toString());
+        for (int transition = 0; transition < expectedAlertTransitions; transition++) {
+            final long alertTime = simulation.alertTimes.get(transition);
+            final long expectedTime = expectedAlertSeconds.get(transition) + READ_DELAY;
+            assertTrue(alertTime >= expectedTime && alertTime < expectedTime + 1000,
+                    "alert transition " + transition + " at " + alertTime + " instead of " + expectedTime);
+        }
+    }
+
+    @Test
+    void testRamp() {
+        // from 1 to 31 requests per second in 10 minutes, then back to 0.
+        final IntUnaryOperator ramp = second -> second < 600 ? 1 + second / 20 : Math.max(0, 31 - (second - 600) / 20);
+        final Simulation simulation = simulate(ramp, 1200);
+        assertSimulation(simulation, ramp, 1200, 2);
+    }
+
+    @Test
+    void testSpike() {
+        // 2 requests per second, with a 20 seconds spike at 200 requests per second.
+        final IntUnaryOperator spike = second -> second >= 300 && second < 320 ? 200 : 2;
+        final Simulation simulation = simulate(spike, 900);
+        assertSimulation(simulation, spike, 900, 2);
+
+        // raised with the 5th second of the spike (238 + 5 x 200 requests >= 1200), as soon as it is read; cancelled
+        // once only 4 of its seconds are left in the alert window.
+        final long spikeStart = START.plusSeconds(300).toInstant().toEpochMilli();
+        final long spikeEnd = START.plusSeconds(320).toInstant().toEpochMilli();
+        assertEquals(spikeStart + 4000 + READ_DELAY, (long) simulation.alertTimes.get(0));
+        assertEquals(spikeEnd + (ALERT_WINDOW - 5) * 1000 + READ_DELAY, (long) simulation.alertTimes.get(1));
+    }
+
+    @Test
+    void testDiurnalCurveWithIdleNight() {
+        // a day compressed into an hour, twice : busy in the middle, idle at night.
+        final IntUnaryOperator diurnal = second ->
+                (int) Math.max(0, Math.round(2 + 20 * Math.sin(2 * Math.PI * (second % 3600) / 3600.0)));
+        final Simulation simulation = simulate(diurnal, 7200);
+        assertSimulation(simulation, diurnal, 7200, 4);
+    }
+}
@@ -1,6 +1,7 @@
 package com.homework.monitoring.alerts;
 
 import com.homework.monitoring.stats.HTTPTrafficStats;
+import com.homework.monitoring.time.ManualClock;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -90,6 +91,33 @@ class HTTPTrafficAlertsManagerTest {
         assertEquals(47, alertsManager.getNumberOfRequestsInWindow());
     }
 
+    @Test
+    void testPerSecondWindowSlidesWithTheClock() {
+        final ManualClock clock = new ManualClock(0);
+        final HTTPTrafficAlertsManager manager = new HTTPTrafficAlertsManager(MONITORING_WINDOW, ALERT_THRESHOLD,
+                500, clock, clock);
+        manager.registerAlertsListener(alertsListener);
+
+        // 59 requests in 30 seconds : just under 2 requests per second; the 60th raises the alert at once.
+        manager.recordRequests(1_000, 59);
+        assertFalse(alertRaised);
+        manager.recordRequests(20_200, 1);
+        assertTrue(alertRaised);
+        assertEquals(60, manager.getNumberOfRequestsInWindow());
+
+        // requests older than the window are ignored.
+        manager.recordRequests(-40_000, 100);
+        assertEquals(60, manager.getNumberOfRequestsInWindow());
+
+        // the window covers ]1.0s, 31.0s] once the log time reaches 31 s : the first requests leave it.
+        manager.advanceTime(30_999);
+        assertTrue(alertRaised);
+        manager.advanceTime(31_000);
+        assertFalse(alertRaised);
+        assertEquals(1, manager.getNumberOfRequestsInWindow());
+        assertEquals(31_000, manager.getLogTime());
+    }
+
     /**
      * More tests can be added to verify that listeners are correctly registered (and test null, duplicated and invalid
      * listeners), test alerts manager constructor with invalid data and mock it with the other managers.
@@ -0,0 +1,223 @@
+package com.homework.monitoring.alerts.rules;
+
+import com.clfparser.CLFLogEntry;
+import com.clfparser.CLFLogParser;
+import com.homework.monitoring.alerts.HTTPTrafficAlertsListener;
+import com.homework.monitoring.time.ManualClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertRuleEngineTest {
+    private static final ZonedDateTime START = ZonedDateTime.of(2018, 5, 9, 16, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.getDefault());
+
+    /**
+     * Alert transitions received : "+rule=value" or "-rule=value".
+     */
+    private final List<String> transitions = new ArrayList<>();
+
+    private final HTTPTrafficAlertsListener listener = new HTTPTrafficAlertsListener() {
+        @Override
+        public void raiseAlert() {
+            fail("the rule should be given");
+        }
+
+        @Override
+        public void cancelAlert() {
+            fail("the rule should be given");
+        }
+
+        @Override
+        public void raiseAlert(final AlertRule rule, final double value, final long time) {
+            transitions.add("+" + rule.getName() + "=" + rule.format(value));
+        }
+
+        @Override
+        public void cancelAlert(final AlertRule rule, final double value, final long time) {
+            transitions.add("-" + rule.getName() + "=" + rule.format(value));
+        }
+    };
+
+    private static CLFLogEntry entry(final int second, final String resource, final int status, final int size) {
+        return CLFLogParser.parse("127.0.0.1 - - [" + FORMATTER.format(START.plusSeconds(second)) + "] \"GET " +
+                resource + " HTTP/1.0\" " + status + " " + size);
+    }
+
+    @Test
+    void testParseRules() {
+        final AlertRule errors = AlertRule.parse("api-errors : serverErrorRatio /api > 2% over 60s");
+        assertEquals("api-errors", errors.getName());
+        assertEquals(AlertMetric.SERVER_ERROR_RATIO, errors.getMetric());
+        assertEquals("/api", errors.getSection());
+        assertEquals(0.02, errors.getThreshold(), 1e-9);
+        assertEquals(60, errors.getWindowSeconds());
+        assertFalse(errors.isBreachedBy(0.02));
+        assertTrue(errors.isBreachedBy(0.021));
+
+        final AlertRule traffic = AlertRule.parse("traffic:requestsPerSecond >= 10");
+        assertNull(traffic.getSection());
+        assertEquals(AlertRule.DEFAULT_WINDOW, traffic.getWindowSeconds());
+        assertTrue(traffic.isBreachedBy(10));
+        assertEquals("traffic : requestsPerSecond >= 10.00 over 120s", traffic.toString());
+
+        final AlertRule anomaly = AlertRule.parse("api-anomaly : serverErrorRatio /* anomaly 3 seasonal over 60s");
+        assertTrue(anomaly.isAnomaly());
+        assertTrue(anomaly.isSeasonal());
+        assertEquals(AlertRule.EACH_SECTION, anomaly.getSection());
+        assertTrue(anomaly.isBreachedBy(-3.5));
+        assertFalse(anomaly.isBreachedBy(3));
+        assertEquals("api-anomaly : serverErrorRatio /* anomaly 3.0 seasonal over 60s", anomaly.toString());
+
+        for (final String invalid : new String[]{"requestsPerSecond > 10", "x : latency > 10", "x : hits /api < 10",
+                "x : hits > ten", "x : hits > 10 over", "x : hits > 10 over 0s", "x : bytesPerSecond > 5%",
+                "x : hits anomaly 0", "x : hits > 10 seasonal"}) {
+            assertThrows(IllegalArgumentException.class, () -> AlertRule.parse(invalid), invalid);
+        }
+    }
+
+    @Test
+    void testRulesOfEachDimension() {
+        final ManualClock clock = new ManualClock(START.toInstant().toEpochMilli());
+        final AlertRuleEngine engine = new AlertRuleEngine(Arrays.asList(
+                AlertRule.parse("api-errors : serverErrorRatio /api > 2% over 10s"),
+                AlertRule.parse("report-hits : hits /report >= 5 over 10s"),
+                AlertRule.parse("bandwidth : bytesPerSecond > 100 over 10s")), clock, clock);
+        engine.registerAlertsListener(listener);
+        assertEquals(3, engine.getNumberOfRules());
+        assertEquals(3, engine.getNumberOfDimensions());
+
+        // errors on other sections do not count for /api.
+        final List<CLFLogEntry> entries = new ArrayList<>();
+        for (int request = 0; request < 50; request++) {
+            entries.add(entry(0, "/api/user", 200, 10));
+            entries.add(entry(0, "/pages/" + request, 503, 10));
+        }
+        clock.advance(500);
+        engine.processBatch(entries);
+        assertEquals(Arrays.asList(), transitions);
+
+        // 2 errors out of 51 requests on /api, 1000 bytes over 10 seconds.
+        clock.advance(1000);
+        engine.processBatch(Arrays.asList(entry(1, "/api/user", 500, 0), entry(1, "/api/user", 500, 0)));
+        engine.process(entry(1, "/report", 200, 0));
+        assertEquals(Arrays.asList("+api-errors=3.85%"), transitions);
+
+        clock.advance(1000);
+        engine.processBatch(Arrays.asList(entry(2, "/report", 200, 0), entry(2, "/report", 404, 0),
+                entry(2, "/report", 200, 0), entry(2, "/report", 200, 10), entry(2, "/other", 200, 2)));
+        assertEquals(Arrays.asList("+api-errors=3.85%", "+bandwidth=101.20", "+report-hits=5.00"), transitions);
+
+        // once idle, the log time follows the clock and the requests leave the windows second after second.
+        transitions.clear();
+        clock.advance(8000);
+        assertEquals(Arrays.asList(), transitions);
+        clock.advance(500);
+        assertEquals(Arrays.asList("-bandwidth=1.20"), transitions);
+        clock.advance(1000);
+        assertEquals(Arrays.asList("-bandwidth=1.20", "-api-errors=0.00%", "-report-hits=4.00"), transitions);
+        clock.advance(10_000);
+        assertEquals(3, transitions.size());
+    }
+
+    @Test
+    void testAnomalyRuleOfEachSection() {
+        final ManualClock clock = new ManualClock(START.toInstant().toEpochMilli());
+        final AlertRuleEngine engine = new AlertRuleEngine(Arrays.asList(
+                AlertRule.parse("section-anomaly : requestsPerSecond /* anomaly 4 over 10s")), clock, clock);
+        engine.registerAlertsListener(listener);
+
+        // 10 minutes of steady traffic, then a spike of /api for 10 seconds.
+        clock.advance(500);
+        for (int second = 0; second < 630; second++) {
+            final boolean spike = second >= 600 && second < 610;
+            final List<CLFLogEntry> entries = new ArrayList<>();
+            for (int request = 0; request < (spike ? 40 : 10 + second % 3); request++) {
+                entries.add(entry(second, "/api/user", 200, 10));
+            }
+            for (int request = 0; request < 5; request++) {
+                entries.add(entry(second, "/pages/" + request, 200, 10));
+            }
+            engine.processBatch(entries);
+            if (second == 599) {
+                assertEquals(Arrays.asList(), transitions);
+                assertEquals(2, engine.getNumberOfDimensions());
+            }
+            clock.advance(1000);
+        }
+        assertEquals(2, transitions.size(), transitions.toString());
+        assertTrue(transitions.get(0).startsWith("+section-anomaly="), transitions.toString());
+        assertTrue(transitions.get(1).startsWith("-section-anomaly="), transitions.toString());
+    }
+
+    @Test
+    void testIdleSectionsGiveTheirPlace() {
+        final ManualClock clock = new ManualClock(START.toInstant().toEpochMilli());
+        final AlertRuleEngine engine = new AlertRuleEngine(Arrays.asList(
+                AlertRule.parse("section-hits : hits /* >= 5 over 10s")), clock, clock);
+        engine.registerAlertsListener(listener);
+
+        clock.advance(500);
+        final List<CLFLogEntry> hot = new ArrayList<>();
+        for (int request = 0; request < 5; request++) {
+            hot.add(entry(0, "/hot", 200, 10));
+        }
+        engine.processBatch(hot);
+        assertEquals(Arrays.asList("+section-hits=5.00"), transitions);
+
+        // a crawler fills the sections watched : "/hot", whose alert is raised, keeps its place.
+        clock.advance(1000);
+        final List<CLFLogEntry> crawled = new ArrayList<>();
+        for (int section = 0; section < AlertRuleEngine.MAX_SECTION_DIMENSIONS; section++) {
+            crawled.add(entry(1, "/crawled" + section, 404, 10));
+        }
+        engine.processBatch(crawled);
+        assertEquals(AlertRuleEngine.MAX_SECTION_DIMENSIONS, engine.getNumberOfDimensions());
+
+        // "/hot" cools down; a section seen later is still watched, in place of an idle one.
+        clock.advance(19_000);
+        assertEquals(Arrays.asList("+section-hits=5.00", "-section-hits=0.00"), transitions);
+        final List<CLFLogEntry> api = new ArrayList<>();
+        for (int request = 0; request < 5; request++) {
+            api.add(entry(20, "/api", 200, 10));
+        }
+        engine.processBatch(api);
+        assertEquals(Arrays.asList("+section-hits=5.00", "-section-hits=0.00", "+section-hits=5.00"), transitions);
+        assertEquals(AlertRuleEngine.MAX_SECTION_DIMENSIONS, engine.getNumberOfDimensions());
+    }
+
+    @Test
+    void testSeasonalBaseline() {
+        final AnomalyBaseline seasonal = new AnomalyBaseline(true, AnomalyBaseline.DEFAULT_ALPHA);
+        final AnomalyBaseline overall = new AnomalyBaseline(false, AnomalyBaseline.DEFAULT_ALPHA);
+        final long monday = START.minusDays(2).withHour(0).toInstant().toEpochMilli();
+        assertEquals(0, AnomalyBaseline.hourOfWeek(monday));
+        assertEquals(167, AnomalyBaseline.hourOfWeek(monday - 1));
+        assertTrue(Double.isNaN(seasonal.score(100, monday)));
+
+        // busy days (100 requests per second), quiet nights (10), a sample per minute for 2 weeks.
+        for (long time = monday; time < monday + 14 * 24 * 3_600_000L; time += 60_000) {
+            final double value = (time - monday) % (24 * 3_600_000L) < 12 * 3_600_000L ? 100 : 10;
+            seasonal.update(value, time, 4);
+            overall.update(value, time, 4);
+        }
+        final long day = monday + 15 * 24 * 3_600_000L + 3_600_000L;
+        final long night = day + 12 * 3_600_000L;
+        assertEquals(0, seasonal.score(100, day), 0.5);
+        assertEquals(0, seasonal.score(10, night), 0.5);
+        assertTrue(seasonal.score(100, night) > 4);
+        assertTrue(seasonal.score(10, day) < -4);
+        // without seasonality, the nights of the last samples are the baseline.
+        assertTrue(Math.abs(overall.score(100, day)) > 4);
+    }
+}
@@ -0,0 +1,109 @@
+package com.homework.monitoring.metrics;
+
+import com.homework.monitoring.LogEntryBroadcaster;
+import com.homework.monitoring.LogLineParserListener;
+import com.homework.monitoring.time.ManualClock;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+    private static MetricsRegistry parserMetrics(final LogLineParserListener parser, final ManualClock clock) {
+        return new MetricsRegistry()
+                .counter("logmonitor_lines_parsed_total", "Log lines parsed", parser::getParsedLines)
+                .rate("logmonitor_lines_parsed_per_second", "Log lines parsed during the last second",
+                        parser::getParsedLines, clock)
+                .counter("logmonitor_malformed_lines_total", "Malformed log lines\\discarded", parser::getMalformedLines);
+    }
+
+    @Test
+    void testPrometheusTextAndRates() {
+        final LogLineParserListener parser = new LogLineParserListener(new LogEntryBroadcaster());
+        final ManualClock clock = new ManualClock(0);
+        final MetricsRegistry metrics = parserMetrics(parser, clock);
+
+        parser.newLogFileLines(null, Arrays.asList(
+                "10.0.0.1 - - [09/May/2018:16:00:01 +0000] \"GET /api/user HTTP/1.0\" 200 100",
+                "not a log line",
+                "10.0.0.2 - - [09/May/2018:16:00:02 +0000] \"GET /api/user HTTP/1.0\" 503 10"));
+        parser.newLogFileLine("10.0.0.2 - - [09/May/2018:16:00:03 +0000] \"GET /report HTTP/1.0\" 200 50");
+        clock.advance(1000);
+
+        assertEquals("# HELP logmonitor_lines_parsed_total Log lines parsed\n" +
+                "# TYPE logmonitor_lines_parsed_total counter\n" +
+                "logmonitor_lines_parsed_total 4\n" +
+                "# HELP logmonitor_lines_parsed_per_second Log lines parsed during the last second\n" +
+                "# TYPE logmonitor_lines_parsed_per_second gauge\n" +
+                "logmonitor_lines_parsed_per_second 4\n" +
+                "# HELP logmonitor_malformed_lines_total Malformed log lines\\\\discarded\n" +
+                "# TYPE logmonitor_malformed_lines_total counter\n" +
+                "logmonitor_malformed_lines_total 1\n", metrics.toPrometheusText());
+
+        // nothing parsed during the next second.
+        clock.advance(1000);
+        assertEquals(0, metrics.getMetric("logmonitor_lines_parsed_per_second").getValue());
+        assertEquals(4, metrics.getMetric("logmonitor_lines_parsed_total").getValue());
+
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("logmonitor_malformed_lines_total", "", () -> 0));
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("logmonitor-lag", "", () -> 0));
+    }
+
+    @Test
+    void testExportOverHttpAndJmx() throws Exception {
+        final AtomicLong lag = new AtomicLong(42);
+        final MetricsRegistry metrics = new MetricsRegistry()
+                .gauge("logmonitor_read_lag_bytes", "Bytes written to the log files and not read yet", lag::get);
+
+        final PrometheusMetricsServer server = new PrometheusMetricsServer(metrics, 0);
+        server.start();
+        try {
+            final HttpURLConnection connection = (HttpURLConnection)
+                    new URL("http://localhost:" + server.getPort() + PrometheusMetricsServer.METRICS_PATH).openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"), connection.getContentType());
+            assertTrue(read(connection.getInputStream()).endsWith("\nlogmonitor_read_lag_bytes 42\n"));
+
+            final HttpURLConnection otherPath = (HttpURLConnection)
+                    new URL("http://localhost:" + server.getPort() + "/metrics/other").openConnection();
+            assertEquals(404, otherPath.getResponseCode());
+        } finally {
+            server.stop();
+        }
+
+        final JmxMetricsExporter exporter = new JmxMetricsExporter(metrics);
+        assertTrue(exporter.register("com.homework.monitoring:type=PipelineTest"));
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName("com.homework.monitoring:type=PipelineTest");
+            lag.set(7);
+            assertEquals(7L, mBeanServer.getAttribute(name, "logmonitor_read_lag_bytes"));
+            assertEquals("logmonitor_read_lag_bytes", mBeanServer.getMBeanInfo(name).getAttributes()[0].getName());
+        } finally {
+            exporter.unregister();
+        }
+    }
+
+    private static String read(final InputStream input) throws IOException {
+        try (InputStream stream = input) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.homework.monitoring.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRingBufferTest {
+    private static List<Integer> batch(final Integer... items) {
+        return Arrays.asList(items);
+    }
+
+    private static List<List<Integer>> drain(final BatchRingBuffer<Integer> buffer) throws InterruptedException {
+        buffer.close();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final BatchRingBuffer.Batch<Integer> taken = new BatchRingBuffer.Batch<>();
+        while (buffer.take(taken)) {
+            batches.add(new ArrayList<>(taken.getItems()));
+        }
+        return batches;
+    }
+
+    @Test
+    void testDropOldestKeepsTheMostRecentBatches() throws InterruptedException {
+        final BatchRingBuffer<Integer> buffer = new BatchRingBuffer<>("test", 2, BackpressurePolicy.DROP_OLDEST);
+        buffer.publish("a", batch(1, 2));
+        buffer.publish("a", batch(3));
+        buffer.publish("a", batch(4));
+        assertEquals(2, buffer.getOccupancy());
+        assertEquals(2, buffer.getDroppedItems());
+
+        assertEquals(Arrays.asList(batch(3), batch(4)), drain(buffer));
+        assertEquals(0, buffer.getOccupancy());
+    }
+
+    @Test
+    void testSampleKeepsOneBatchInTen() throws InterruptedException {
+        final BatchRingBuffer<Integer> buffer = new BatchRingBuffer<>("test", 1, BackpressurePolicy.SAMPLE);
+        for (int item = 0; item < 21; item++) {
+            buffer.publish(null, Collections.singletonList(item));
+        }
+        // the first batch fills the buffer, then one in ten replaces it.
+        assertEquals(Collections.singletonList(batch(20)), drain(buffer));
+        assertEquals(20, buffer.getDroppedItems());
+    }
+
+    @Test
+    void testBlockWaitsForTheConsumer() throws InterruptedException {
+        final BatchRingBuffer<Integer> buffer = new BatchRingBuffer<>("test", 1, BackpressurePolicy.BLOCK);
+        buffer.publish("a", batch(1));
+
+        final CountDownLatch published = new CountDownLatch(1);
+        final Thread producer = new Thread(() -> {
+            try {
+                buffer.publish("b", batch(2));
+                published.countDown();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        assertFalse(published.await(100, TimeUnit.MILLISECONDS));
+
+        final BatchRingBuffer.Batch<Integer> taken = new BatchRingBuffer.Batch<>();
+        assertTrue(buffer.take(taken));
+        assertEquals("a", taken.getSource());
+        assertEquals(batch(1), taken.getItems());
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+
+        assertTrue(buffer.take(taken));
+        assertEquals("b", taken.getSource());
+        assertEquals(batch(2), taken.getItems());
+        assertEquals(0, buffer.getDroppedItems());
+    }
+}
@@ -0,0 +1,78 @@
+package com.homework.monitoring.pipeline;
+
+import com.clfparser.CLFLogEntry;
+import com.homework.monitoring.LogEntryBroadcaster;
+import com.homework.monitoring.LogEntryListener;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parsing throughput of the {@link ParallelParseStage} with 1, 2, 4... workers (up to the number of processors) on N
+ * synthetic log lines (first argument, default 10 000 000), handed over by batches of 2000 lines as read chunks are.
+ *
+ * Launch from the project's root folder (after mvn test-compile) with :
+ * java -cp target/classes:target/test-classes:&lt;log4j jars&gt; com.homework.monitoring.pipeline.ParallelParseBenchmark [lines]
+ */
+public class ParallelParseBenchmark {
+    private static final int BATCH_SIZE = 2000;
+
+    private static final String[] SECTIONS = {"/report", "/api/user", "/api/order", "/pages/create", "/static/app.js"};
+
+    public static void main(String[] args) throws InterruptedException {
+        final long totalLines = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        // the per entry debug logs would measure the log appender, not the parsing.
+        Configurator.setLevel("com.homework", Level.INFO);
+
+        // distinct lines (hosts, seconds, sections, sizes vary), replayed to reach the requested number of lines.
+        final List<List<String>> batches = new ArrayList<>();
+        for (int batch = 0; batch < 50; batch++) {
+            final List<String> lines = new ArrayList<>(BATCH_SIZE);
+            for (int line = 0; line < BATCH_SIZE; line++) {
+                final int index = batch * BATCH_SIZE + line;
+                lines.add("10.0." + (index % 256) + "." + (index % 7) + " - user" + (index % 13) +
+                        " [09/May/2018:16:" + String.format("%02d:%02d", (index / 60) % 60, index % 60) +
+                        " +0000] \"GET " + SECTIONS[index % SECTIONS.length] + "/" + index + " HTTP/1.1\" 200 " + index);
+            }
+            batches.add(lines);
+        }
+        final long batchCount = totalLines / BATCH_SIZE;
+
+        for (int workers = 1; workers <= Runtime.getRuntime().availableProcessors(); workers *= 2) {
+            final AtomicLong entries = new AtomicLong();
+            final CountDownLatch done = new CountDownLatch(1);
+            final LogEntryBroadcaster broadcaster = new LogEntryBroadcaster();
+            broadcaster.registerListener(new LogEntryListener() {
+                @Override
+                public void process(final CLFLogEntry entry) {
+                    if (entries.incrementAndGet() == batchCount * BATCH_SIZE) {
+                        done.countDown();
+                    }
+                }
+
+                @Override
+                public void processBatch(final List<CLFLogEntry> batch) {
+                    if (entries.addAndGet(batch.size()) == batchCount * BATCH_SIZE) {
+                        done.countDown();
+                    }
+                }
+            });
+
+            final ParallelParseStage stage = new ParallelParseStage(broadcaster, workers);
+            final long start = System.nanoTime();
+            for (long batch = 0; batch < batchCount; batch++) {
+                stage.newLogFileLines("access.log", batches.get((int) (batch % batches.size())));
+            }
+            done.await();
+            final long elapsed = System.nanoTime() - start;
+            stage.close();
+
+            System.out.println(String.format("%2d worker(s) : %,d lines in %,d ms, %,.0f lines/s", workers,
+                    entries.get(), elapsed / 1_000_000, entries.get() * 1e9 / elapsed));
+        }
+    }
+}
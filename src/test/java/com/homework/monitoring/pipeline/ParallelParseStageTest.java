@@ -0,0 +1,40 @@
+package com.homework.monitoring.pipeline;
+
+import com.homework.monitoring.LogEntryBroadcaster;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelParseStageTest {
+    @Test
+    void testEntriesAreBroadcastInLineOrder() throws InterruptedException {
+        final List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        final LogEntryBroadcaster broadcaster = new LogEntryBroadcaster();
+        broadcaster.registerListener(entry -> sizes.add(entry.getResponseSize()));
+
+        final ParallelParseStage stage = new ParallelParseStage(broadcaster, 4);
+        final List<Integer> expected = new ArrayList<>();
+        int size = 0;
+        for (int batch = 0; batch < 500; batch++) {
+            final List<String> lines = new ArrayList<>();
+            // batches of different lengths, so the workers finish out of order.
+            for (int line = 0; line < 1 + (batch * 37) % 50; line++, size++) {
+                lines.add("127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 " + size);
+                expected.add(size);
+            }
+            lines.add("malformed line");
+            stage.newLogFileLines("access.log", lines);
+        }
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (sizes.size() < expected.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        stage.close();
+        assertEquals(expected, sizes);
+    }
+}
@@ -0,0 +1,104 @@
+package com.homework.monitoring.stats;
+
+import com.clfparser.CLFLogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HTTPTrafficStatsManagerTest {
+    private static final ZonedDateTime WINDOW_START = ZonedDateTime.of(2018, 5, 9, 16, 0, 0, 0, ZoneOffset.UTC);
+
+    /**
+     * The entries are read one hour after they were written (the reading lags behind).
+     */
+    private static final long NOW = WINDOW_START.toInstant().toEpochMilli() + 3600_000;
+
+    private static CLFLogEntry entryAt(final int second) {
+        return new CLFLogEntry("127.0.0.1", "-", "-", WINDOW_START.plusSeconds(second), "GET", "/report", "HTTP/1.0",
+                200, 1);
+    }
+
+    @Test
+    void testWindowsFollowTheLogTime() {
+        final HTTPTrafficStatsManager manager = new HTTPTrafficStatsManager(10, 5000, false);
+        final List<HTTPTrafficStats> emitted = new ArrayList<>();
+        manager.registerStatsListener(emitted::add);
+
+        manager.processEntry(entryAt(1), NOW);
+        manager.processEntry(entryAt(9), NOW);
+        manager.processEntry(entryAt(12), NOW);
+        // after the end of its window, within the allowed lateness.
+        manager.processEntry(entryAt(8), NOW);
+        assertTrue(emitted.isEmpty());
+
+        // the watermark (17 - 2 seconds) passes the end of the first window by the allowed lateness.
+        manager.processEntry(entryAt(17), NOW);
+        assertEquals(1, emitted.size());
+        assertEquals(3, emitted.get(0).getTotalNumberOfHTTPRequests());
+        assertEquals(WINDOW_START.toInstant(), emitted.get(0).getWindowStart());
+        assertEquals(WINDOW_START.plusSeconds(10).toInstant(), emitted.get(0).getWindowEnd());
+
+        // too late : the first window was emitted.
+        manager.processEntry(entryAt(5), NOW);
+        assertEquals(1, manager.getLateEntries());
+        assertEquals(1, manager.getDroppedEntries());
+
+        // no entry for 30 seconds : the watermark follows the wall clock.
+        manager.advanceTime(NOW + 30_000);
+        assertEquals(4, emitted.size());
+        assertEquals(2, emitted.get(1).getTotalNumberOfHTTPRequests());
+        assertEquals(0, emitted.get(2).getTotalNumberOfHTTPRequests());
+        assertEquals(0, emitted.get(3).getTotalNumberOfHTTPRequests());
+        assertEquals(WINDOW_START.plusSeconds(30).toInstant(), emitted.get(3).getWindowStart());
+
+        // entries from the future are discarded.
+        manager.processEntry(new CLFLogEntry("127.0.0.1", "-", "-",
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(NOW + 60_000), ZoneOffset.UTC), "GET", "/report",
+                "HTTP/1.0", 200, 1), NOW);
+        assertEquals(WINDOW_START.toInstant().toEpochMilli() + 45_000, manager.getWatermark());
+    }
+
+    @Test
+    void testSlowListenerDoesNotStallTheEntries() throws InterruptedException {
+        final HTTPTrafficStatsManager manager = new HTTPTrafficStatsManager(10, 5000, false);
+        final CountDownLatch notified = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<HTTPTrafficStats> emitted = new ArrayList<>();
+        manager.registerStatsListener(statistics -> {
+            notified.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            emitted.add(statistics);
+        });
+
+        manager.processEntry(entryAt(1), NOW);
+        final Thread emitter = new Thread(() -> manager.processEntry(entryAt(17), NOW));
+        emitter.start();
+        assertTrue(notified.await(10, TimeUnit.SECONDS));
+
+        // the listener is still busy with the first window : the entries and the metrics go on.
+        manager.processBatch(Arrays.asList(entryAt(18), entryAt(19)));
+        assertEquals(0, manager.getLateEntries());
+        assertEquals(0, manager.getEmittedWindows());
+        release.countDown();
+        emitter.join(10_000);
+
+        assertEquals(1, manager.getEmittedWindows());
+        assertEquals(1, emitted.get(0).getTotalNumberOfHTTPRequests());
+        manager.flush();
+        assertEquals(2, emitted.size());
+        assertEquals(3, emitted.get(1).getTotalNumberOfHTTPRequests());
+    }
+}
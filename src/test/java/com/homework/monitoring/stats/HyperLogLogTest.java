@@ -0,0 +1,55 @@
+package com.homework.monitoring.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+    /**
+     * Three standard errors of the default precision.
+     */
+    private static final double TOLERANCE = 3 * 1.04 / Math.sqrt(1 << HyperLogLog.DEFAULT_PRECISION);
+
+    private static void assertEstimate(final long expected, final HyperLogLog sketch) {
+        final long estimate = sketch.estimate();
+        assertTrue(Math.abs(estimate - expected) <= Math.max(1, expected * TOLERANCE),
+                "expected ~" + expected + " but was " + estimate);
+    }
+
+    @Test
+    void testEstimates() {
+        final HyperLogLog sketch = new HyperLogLog();
+        assertTrue(sketch.isEmpty());
+        assertEquals(0, sketch.estimate());
+
+        long distinct = 0;
+        for (final long cardinality : new long[]{1, 10, 100, 1_000, 10_000, 100_000, 1_000_000}) {
+            for (; distinct < cardinality; distinct++) {
+                // packed IPv4 addresses, each offered twice.
+                sketch.offer(0x0A000000L + distinct);
+                sketch.offer(0x0A000000L + distinct);
+            }
+            assertEstimate(cardinality, sketch);
+        }
+        sketch.clear();
+        assertEquals(0, sketch.estimate());
+    }
+
+    @Test
+    void testMergeGivesTheUnion() {
+        final HyperLogLog first = new HyperLogLog();
+        final HyperLogLog second = new HyperLogLog();
+        for (int user = 0; user < 30_000; user++) {
+            first.offer("user" + user);
+        }
+        for (int user = 20_000; user < 50_000; user++) {
+            second.offer("user" + user);
+        }
+        assertEstimate(30_000, first);
+        final HyperLogLog union = new HyperLogLog().merge(first).merge(second);
+        assertEstimate(50_000, union);
+        assertEquals(union.estimate(), first.merge(second).estimate());
+
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(10)));
+    }
+}
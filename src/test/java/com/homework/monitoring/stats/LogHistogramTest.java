@@ -0,0 +1,80 @@
+package com.homework.monitoring.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogHistogramTest {
+    /**
+     * Relative error of the default precision.
+     */
+    private static final double RELATIVE_ERROR = 1.0 / (1 << LogHistogram.DEFAULT_PRECISION);
+
+    private static long exactPercentile(final long[] sortedValues, final double percentile) {
+        final int rank = (int) Math.max(1, Math.ceil(percentile / 100 * sortedValues.length));
+        return sortedValues[rank - 1];
+    }
+
+    @Test
+    void testPercentilesWithinPrecision() {
+        // mostly small responses, with a long tail of large objects.
+        final Random random = new Random(20200513);
+        final long[] values = new long[100_000];
+        final LogHistogram histogram = LogHistogram.ofSizes();
+        for (int index = 0; index < values.length; index++) {
+            values[index] = random.nextInt(20) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(5000);
+            histogram.record(values[index]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getTotalCount());
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (final double percentile : new double[]{1, 50, 90, 95, 99, 99.9, 100}) {
+            final long exact = exactPercentile(values, percentile);
+            final long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact + exact * RELATIVE_ERROR,
+                    "p" + percentile + " : exact " + exact + ", reported " + reported);
+        }
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        final LogHistogram histogram = LogHistogram.ofSizes();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (int value = 0; value < 10; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-1);
+        assertEquals(0, histogram.getMin());
+        assertEquals(4, histogram.getValueAtPercentile(50));
+        assertEquals(9, histogram.getValueAtPercentile(100));
+        assertEquals(45 / 11.0, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    void testMergeAndBeyondTheHighestValue() {
+        final LogHistogram first = LogHistogram.ofDurations();
+        final LogHistogram second = LogHistogram.ofDurations();
+        for (int value = 1; value <= 50; value++) {
+            first.record(value * 1000);
+            second.record((value + 50) * 1000);
+        }
+        // longer than the highest tracked duration : counted in the last bucket, the maximum stays exact.
+        second.record(10 * LogHistogram.HIGHEST_DURATION);
+
+        first.merge(second);
+        assertEquals(101, first.getTotalCount());
+        assertEquals(10 * LogHistogram.HIGHEST_DURATION, first.getMax());
+        final long median = first.getValueAtPercentile(50);
+        assertTrue(median >= 51_000 && median <= 51_000 * (1 + RELATIVE_ERROR), String.valueOf(median));
+        assertThrows(IllegalArgumentException.class, () -> first.merge(LogHistogram.ofSizes()));
+
+        first.clear();
+        assertEquals(0, first.getTotalCount());
+        assertEquals(0, first.getMax());
+    }
+}
@@ -0,0 +1,174 @@
+package com.homework.monitoring.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SectionHitsTest {
+    /**
+     * 10 popular sections and a crawler hitting random ones.
+     */
+    private static Map<String, Long> hitAll(final SectionHits sectionHits, final int hits) {
+        final Random random = new Random(20200513);
+        final Map<String, Long> actualHits = new HashMap<>();
+        for (int hit = 0; hit < hits; hit++) {
+            final String section = random.nextInt(3) == 0 ?
+                    "/crawled" + random.nextInt(1_000_000) : "/popular" + (int) Math.sqrt(random.nextInt(100));
+            sectionHits.increment(section);
+            actualHits.merge(section, 1L, Long::sum);
+        }
+        return actualHits;
+    }
+
+    @Test
+    void testExactTopSections() {
+        final ExactSectionHits sectionHits = new ExactSectionHits();
+        final Map<String, Long> actualHits = hitAll(sectionHits, 30_000);
+
+        assertEquals(actualHits, sectionHits.asMap());
+        assertEquals(actualHits.size(), sectionHits.size());
+        final List<SectionCount> top = sectionHits.top(10);
+        assertEquals(10, top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            assertEquals("/popular" + (9 - rank), top.get(rank).getSection());
+            assertEquals((long) actualHits.get(top.get(rank).getSection()), top.get(rank).getHits());
+            assertEquals(0, top.get(rank).getError());
+        }
+    }
+
+    @Test
+    void testSpaceSavingTopSectionsWithinErrorBounds() {
+        final int numberOfCounters = 100;
+        final int hits = 30_000;
+        final SpaceSavingSectionHits sectionHits = new SpaceSavingSectionHits(numberOfCounters);
+        final Map<String, Long> actualHits = hitAll(sectionHits, hits);
+
+        assertEquals(numberOfCounters, sectionHits.size());
+        final List<SectionCount> counted = sectionHits.top(numberOfCounters);
+        long previousHits = Long.MAX_VALUE;
+        long totalHits = 0;
+        for (final SectionCount count : counted) {
+            final long actual = actualHits.get(count.getSection());
+            assertTrue(count.getGuaranteedHits() <= actual && actual <= count.getHits(), count.toString());
+            assertTrue(count.getError() <= hits / numberOfCounters, count.toString());
+            assertTrue(count.getHits() <= previousHits);
+            previousHits = count.getHits();
+            totalHits += count.getHits();
+        }
+        assertEquals(hits, totalHits);
+
+        // the popular sections have more hits than the error bound : they are the top ones, in order.
+        final List<SectionCount> top = sectionHits.top(10);
+        for (int rank = 0; rank < top.size(); rank++) {
+            assertEquals("/popular" + (9 - rank), top.get(rank).getSection());
+        }
+    }
+
+    @Test
+    void testSpaceSavingMerge() {
+        final SpaceSavingSectionHits merged = new SpaceSavingSectionHits(3);
+        final SpaceSavingSectionHits first = new SpaceSavingSectionHits(3);
+        final SpaceSavingSectionHits second = new SpaceSavingSectionHits(3);
+        first.add("/api", 10, 0);
+        first.add("/report", 5, 0);
+        second.add("/api", 2, 0);
+        second.add("/pages", 4, 0);
+        second.add("/users", 1, 0);
+        merged.addAll(first);
+        merged.addAll(second);
+
+        // "/report" may have had up to 1 hit in the second (full) summary, like "/users" it was merged with.
+        assertEquals("[/api=12, /report=6 (+/-1), /pages=4]", merged.top(3).toString());
+        merged.clear();
+        assertEquals(0, merged.size());
+        assertTrue(merged.top(3).isEmpty());
+    }
+
+    @Test
+    void testSpaceSavingMergeNeverUnderestimates() {
+        final SpaceSavingSectionHits merged = new SpaceSavingSectionHits(2);
+        merged.add("/api", 100, 0);
+        merged.add("/report", 100, 0);
+        // "/api" had 5 hits in the other summary, then "/crawled" took over its only counter.
+        final SpaceSavingSectionHits other = new SpaceSavingSectionHits(1);
+        for (int hit = 0; hit < 5; hit++) {
+            other.increment("/api");
+        }
+        for (int hit = 0; hit < 6; hit++) {
+            other.increment("/crawled");
+        }
+        merged.addAll(other);
+
+        final Map<String, Long> actualHits = new HashMap<>();
+        actualHits.put("/api", 105L);
+        actualHits.put("/report", 100L);
+        actualHits.put("/crawled", 6L);
+        assertEquals(2, merged.size());
+        for (final SectionCount count : merged.top(2)) {
+            final long actual = actualHits.get(count.getSection());
+            assertTrue(count.getGuaranteedHits() <= actual && actual <= count.getHits(), count.toString());
+        }
+    }
+
+    @Test
+    void testSpaceSavingMergesWithinErrorBounds() {
+        // per-second summaries merged into windows, themselves merged into a history, like the stats.
+        final int numberOfCounters = 20;
+        final Random random = new Random(20200514);
+        final Map<String, Long> actualHits = new HashMap<>();
+        final SpaceSavingSectionHits history = new SpaceSavingSectionHits(numberOfCounters);
+        long totalHits = 0;
+        for (int window = 0; window < 6; window++) {
+            final SpaceSavingSectionHits windowHits = new SpaceSavingSectionHits(numberOfCounters);
+            for (int second = 0; second < 10; second++) {
+                final SpaceSavingSectionHits secondHits = new SpaceSavingSectionHits(numberOfCounters);
+                final int hits = 200 + random.nextInt(300);
+                for (int hit = 0; hit < hits; hit++) {
+                    // skewed hits over 200 sections : the least hit ones fall out of the per-second summaries.
+                    final String section = "/section" + (int) (200 * Math.pow(random.nextDouble(), 3));
+                    secondHits.increment(section);
+                    actualHits.merge(section, 1L, Long::sum);
+                }
+                totalHits += hits;
+                windowHits.addAll(secondHits);
+            }
+            history.addAll(windowHits);
+        }
+
+        assertEquals(numberOfCounters, history.size());
+        for (final SectionCount count : history.top(numberOfCounters)) {
+            final long actual = actualHits.getOrDefault(count.getSection(), 0L);
+            assertTrue(count.getGuaranteedHits() <= actual && actual <= count.getHits(), count.toString());
+            assertTrue(count.getError() <= totalHits / numberOfCounters, count.toString());
+        }
+        for (final Map.Entry<String, Long> actual : actualHits.entrySet()) {
+            if (actual.getValue() > totalHits / numberOfCounters) {
+                assertTrue(history.asMap().containsKey(actual.getKey()), actual.toString());
+            }
+        }
+    }
+
+    @Test
+    void testExactMerge() {
+        final ExactSectionHits merged = new ExactSectionHits();
+        final ExactSectionHits exact = new ExactSectionHits();
+        final SpaceSavingSectionHits bounded = new SpaceSavingSectionHits(2);
+        exact.add("/api", 10, 0);
+        exact.add("/report", 5, 0);
+        bounded.add("/api", 2, 0);
+        bounded.add("/pages", 4, 0);
+        merged.addAll(exact);
+        merged.addAll(bounded);
+
+        final Map<String, Long> expected = new HashMap<>();
+        expected.put("/api", 12L);
+        expected.put("/report", 5L);
+        expected.put("/pages", 4L);
+        assertEquals(expected, merged.asMap());
+    }
+}
@@ -0,0 +1,116 @@
+package com.homework.monitoring.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsRollupStoreTest {
+    /**
+     * A minute of 10 seconds windows, then 3 minutes.
+     */
+    private final StatsRollupStore store = new StatsRollupStore(new TrafficStatsOptions(),
+            new long[]{10_000, 60_000}, new int[]{6, 3});
+
+    /**
+     * Send 30 windows of 10 seconds (5 minutes), window i having i + 1 requests.
+     */
+    private void sendWindows() {
+        for (int window = 0; window < 30; window++) {
+            store.processTrafficStatistics(new HTTPTrafficStats(window + 1, 0, Collections.singletonMap("/api", window + 1L))
+                    .setWindow(Instant.ofEpochMilli(window * 10_000L), Instant.ofEpochMilli((window + 1) * 10_000L)));
+        }
+    }
+
+    /**
+     * @return the number of requests of the windows from first to last (inclusive).
+     */
+    private static long requests(final int first, final int last) {
+        return (long) (last + 1) * (last + 2) / 2 - (long) first * (first + 1) / 2;
+    }
+
+    @Test
+    void testRingsKeepTheLatestSlots() {
+        assertNull(store.getLast(60_000));
+        sendWindows();
+
+        final List<HTTPTrafficStats> windows = store.getSlots(0, 10);
+        assertEquals(6, windows.size());
+        for (int index = 0; index < windows.size(); index++) {
+            assertEquals(Instant.ofEpochMilli((24 + index) * 10_000L), windows.get(index).getWindowStart());
+            assertEquals(25 + index, windows.get(index).getTotalNumberOfHTTPRequests());
+        }
+
+        final List<HTTPTrafficStats> minutes = store.getSlots(1, 10);
+        assertEquals(3, minutes.size());
+        for (int index = 0; index < minutes.size(); index++) {
+            assertEquals(Instant.ofEpochMilli((2 + index) * 60_000L), minutes.get(index).getWindowStart());
+            assertEquals(Instant.ofEpochMilli((3 + index) * 60_000L), minutes.get(index).getWindowEnd());
+            assertEquals(requests(12 + index * 6, 17 + index * 6), minutes.get(index).getTotalNumberOfHTTPRequests());
+            assertEquals(requests(12 + index * 6, 17 + index * 6),
+                    (long) minutes.get(index).getHitsPerWebsiteSections().get("/api"));
+        }
+    }
+
+    @Test
+    void testLastPeriodsMergedFromTheFinestCoveringTier() {
+        sendWindows();
+
+        final HTTPTrafficStats lastThirtySeconds = store.getLast(30_000);
+        assertEquals(requests(27, 29), lastThirtySeconds.getTotalNumberOfHTTPRequests());
+        assertEquals(Instant.ofEpochMilli(270_000), lastThirtySeconds.getWindowStart());
+        assertEquals(Instant.ofEpochMilli(300_000), lastThirtySeconds.getWindowEnd());
+
+        // beyond the minute of 10 seconds windows : whole minutes.
+        final HTTPTrafficStats lastTwoMinutes = store.getLast(120_000);
+        assertEquals(requests(18, 29), lastTwoMinutes.getTotalNumberOfHTTPRequests());
+        assertEquals(Instant.ofEpochMilli(180_000), lastTwoMinutes.getWindowStart());
+
+        // beyond the history : everything kept.
+        final HTTPTrafficStats lastHour = store.getLast(3_600_000);
+        assertEquals(requests(12, 29), lastHour.getTotalNumberOfHTTPRequests());
+        assertEquals(Instant.ofEpochMilli(120_000), lastHour.getWindowStart());
+    }
+
+    @Test
+    void testOlderWindowIgnored() {
+        sendWindows();
+        store.processTrafficStatistics(new HTTPTrafficStats(100, 0, null)
+                .setWindow(Instant.ofEpochMilli(250_000), Instant.ofEpochMilli(260_000)));
+        assertEquals(requests(24, 29), store.getLast(60_000).getTotalNumberOfHTTPRequests());
+    }
+
+    @Test
+    void testLongPeriodsMergeBoundedNumberOfSlots() {
+        // 13 hours of 10 seconds windows of one request each, starting and ending within an hour.
+        final StatsRollupStore history = new StatsRollupStore(new TrafficStatsOptions());
+        final long first = (37 * 60 + 20) * 1000L;
+        final int windows = 13 * 360 + 17;
+        for (int window = 0; window < windows; window++) {
+            history.processTrafficStatistics(new HTTPTrafficStats(1, 0, Collections.singletonMap("/api", 1L))
+                    .setWindow(Instant.ofEpochMilli(first + window * 10_000L),
+                            Instant.ofEpochMilli(first + (window + 1) * 10_000L)));
+        }
+        final long latestEnd = first + windows * 10_000L;
+
+        // the newest (partial) hour, then minutes and 10 seconds windows : not the 360 windows of the hour.
+        final HTTPTrafficStats lastHour = history.getLast(3_600_000);
+        assertEquals(360, lastHour.getTotalNumberOfHTTPRequests());
+        assertEquals(360, (long) lastHour.getHitsPerWebsiteSections().get("/api"));
+        assertEquals(Instant.ofEpochMilli(latestEnd - 3_600_000), lastHour.getWindowStart());
+        assertTrue(history.getSlotsCovering(latestEnd - 3_600_000).size() <= 1 + 59 + 5);
+
+        // hours, then minutes back to the oldest one kept : not 720 minutes.
+        final HTTPTrafficStats lastTwelveHours = history.getLast(12 * 3_600_000);
+        final long start = lastTwelveHours.getWindowStart().toEpochMilli();
+        assertTrue(Math.abs(start - (latestEnd - 12 * 3_600_000)) < 60_000);
+        assertEquals((latestEnd - start) / 10_000, lastTwelveHours.getTotalNumberOfHTTPRequests());
+        assertTrue(history.getSlotsCovering(latestEnd - 12 * 3_600_000).size() <= 12 + 60);
+
+        // a period within the newest hour : its windows only.
+        assertEquals(3, history.getSlotsCovering(latestEnd - 30_000).size());
+    }
+}
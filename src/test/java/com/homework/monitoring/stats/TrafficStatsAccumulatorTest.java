@@ -0,0 +1,98 @@
+package com.homework.monitoring.stats;
+
+import com.clfparser.CLFLogEntry;
+import com.clfparser.CLFLogParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficStatsAccumulatorTest {
+    private static List<CLFLogEntry> entries() {
+        final List<CLFLogEntry> entries = new ArrayList<>();
+        final int[] statuses = {200, 302, 404, 500, 503, 101};
+        final String[] resources = {"/report", "/api/user", "/api/order", "garbage"};
+        for (int index = 0; index < 1000; index++) {
+            entries.add(CLFLogParser.parse("10.0." + index % 3 + "." + index % 50 + " - " +
+                    (index % 7 == 0 ? "-" : "user" + index % 20) + " [09/May/2018:16:" + (10 + index % 40) + ":00 +0000] \"GET " +
+                    resources[index % resources.length] + " HTTP/1.0\" " + statuses[index % statuses.length] + " " +
+                    (2_000_000_000 - index), index % 3 == 0 ? null : "access" + index % 2 + ".log"));
+        }
+        return entries;
+    }
+
+    private static void assertSameStats(final HTTPTrafficStats expected, final HTTPTrafficStats actual) {
+        assertEquals(expected.getTotalNumberOfHTTPRequests(), actual.getTotalNumberOfHTTPRequests());
+        assertEquals(expected.getTotalSizeOfRequestsInBytes(), actual.getTotalSizeOfRequestsInBytes());
+        assertEquals(expected.getTotalNumberOfValidHTTPRequests(), actual.getTotalNumberOfValidHTTPRequests());
+        assertEquals(expected.getTotalNumberOfClientErrorHTTPRequests(), actual.getTotalNumberOfClientErrorHTTPRequests());
+        assertEquals(expected.getTotalNumberOfServerErrorHTTPRequests(), actual.getTotalNumberOfServerErrorHTTPRequests());
+        assertEquals(expected.getHitsPerWebsiteSections(), actual.getHitsPerWebsiteSections());
+        assertEquals(expected.getHitsPerSource(), actual.getHitsPerSource());
+        // the sketches of the buckets merge into the same registers as the sketch of all the entries.
+        assertEquals(expected.getDistinctClients().estimate(), actual.getDistinctClients().estimate());
+        assertEquals(expected.getDistinctUsers().estimate(), actual.getDistinctUsers().estimate());
+        assertEquals(expected.getResponseSizes().toString(), actual.getResponseSizes().toString());
+        assertEquals(String.valueOf(expected.getResponseSizes("/api")), String.valueOf(actual.getResponseSizes("/api")));
+    }
+
+    @Test
+    void testSnapshotAggregatesLikeTheEntryByEntryStats() throws InterruptedException {
+        final List<CLFLogEntry> entries = entries();
+        final HTTPTrafficStats expected = new HTTPTrafficStats(new ExactSectionHits(), true);
+        for (final CLFLogEntry entry : entries) {
+            expected.processNewLogEntry(entry);
+        }
+        // the sizes add up beyond the int range.
+        assertTrue(expected.getTotalSizeOfRequestsInBytes() > Integer.MAX_VALUE);
+
+        // fewer buckets than seconds, and concurrent additions.
+        final TrafficStatsAccumulator accumulator = new TrafficStatsAccumulator(16,
+                new TrafficStatsOptions().setResponseSizesPerSection(true));
+        final Thread other = new Thread(() -> accumulator.addAll(entries.subList(0, 500)));
+        other.start();
+        for (final CLFLogEntry entry : entries.subList(500, entries.size())) {
+            accumulator.add(entry);
+        }
+        other.join();
+
+        assertSameStats(expected, accumulator.snapshot());
+        assertSameStats(new HTTPTrafficStats(), accumulator.snapshot());
+    }
+
+    @Test
+    void testSectionHistogramsAreBounded() {
+        final TrafficStatsAccumulator accumulator = new TrafficStatsAccumulator(16,
+                new TrafficStatsOptions().setResponseSizesPerSection(true));
+        final List<CLFLogEntry> entries = new ArrayList<>();
+        for (int second = 0; second < 10; second++) {
+            // a crawler hitting 30 random paths, then 5 popular sections hit 5 times each.
+            for (int hit = 0; hit < 30; hit++) {
+                entries.add(CLFLogParser.parse("10.0.0.1 - - [09/May/2018:16:00:0" + second + " +0000] \"GET /crawled" +
+                        (second * 30 + hit) + " HTTP/1.0\" 404 10"));
+            }
+            for (int hit = 0; hit < 25; hit++) {
+                entries.add(CLFLogParser.parse("10.0.0.2 - - [09/May/2018:16:00:0" + second + " +0000] \"GET /popular" +
+                        hit % 5 + " HTTP/1.0\" 200 " + (1000 * (hit % 5 + 1))));
+            }
+        }
+        accumulator.addAll(entries);
+
+        final HTTPTrafficStats statistics = accumulator.snapshot();
+        assertEquals(305, statistics.getSectionHits().size());
+        for (int section = 0; section < 5; section++) {
+            final LogHistogram sizes = statistics.getResponseSizes("/popular" + section);
+            assertNotNull(sizes, "/popular" + section);
+            assertEquals(1000 * (section + 1), sizes.getMax());
+        }
+        assertNull(statistics.getResponseSizes("/crawled0"));
+
+        // the history keeps no response sizes per section.
+        final StatsRollupStore history = new StatsRollupStore(new TrafficStatsOptions().setResponseSizesPerSection(true));
+        history.processTrafficStatistics(statistics);
+        assertNull(history.getLast(10_000).getResponseSizes("/popular0"));
+        assertEquals(statistics.getResponseSizes().getMax(), history.getLast(10_000).getResponseSizes().getMax());
+    }
+}
@@ -0,0 +1,114 @@
+package com.homework.monitoring.stats.groupby;
+
+import com.clfparser.CLFLogEntry;
+import com.clfparser.CLFLogParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupByEngineTest {
+    private static CLFLogEntry entry(final String client, final String method, final String resource, final int status,
+                                     final int size) {
+        return CLFLogParser.parse(client + " - - [09/May/2018:16:00:39 +0000] \"" + method + " " + resource +
+                " HTTP/1.0\" " + status + " " + size);
+    }
+
+    private static List<String> groups(final List<GroupCount> top) {
+        final List<String> groups = new ArrayList<>();
+        for (final GroupCount count : top) {
+            groups.add(count.getGroup());
+        }
+        return groups;
+    }
+
+    @Test
+    void testParseSpec() {
+        final GroupBySpec spec = GroupBySpec.parse("client, status:serverErrors,requests");
+        assertEquals(Arrays.asList(GroupByDimension.CLIENT, GroupByDimension.STATUS_CLASS), spec.getDimensions());
+        assertEquals(Arrays.asList(GroupByMetric.SERVER_ERRORS, GroupByMetric.REQUESTS), spec.getMetrics());
+        assertEquals("client,status:serverErrors,requests", spec.toString());
+        assertEquals(Arrays.asList(GroupByMetric.REQUESTS, GroupByMetric.BYTES), GroupBySpec.parse("section").getMetrics());
+
+        for (final String invalid : new String[]{"", "host", "client:latency", "client,client", "client:bytes:requests"}) {
+            assertThrows(IllegalArgumentException.class, () -> GroupBySpec.parse(invalid), invalid);
+        }
+    }
+
+    @Test
+    void testGroupsOfSeveralDimensions() {
+        final GroupByEngine engine = new GroupByEngine(GroupBySpec.parse("section,method,status:requests,bytes,maxSize"));
+        engine.processBatch(Arrays.asList(
+                entry("10.0.0.1", "GET", "/api/user", 200, 100),
+                entry("10.0.0.2", "GET", "/api/order", 201, 300),
+                entry("10.0.0.1", "POST", "/api/user", 500, 10),
+                entry("host.example.com", "GET", "/report", 404, 0),
+                entry("10.0.0.3", "GET", "/api", 302, 50)));
+        engine.process(entry("::1", "PROPFIND", "/report", 404, 20));
+
+        final List<GroupCount> top = engine.top(10);
+        assertEquals("/api GET 2xx", top.get(0).getGroup());
+        assertEquals(new HashSet<>(Arrays.asList("/api GET 3xx", "/api POST 5xx", "/report GET 4xx", "/report PROPFIND 4xx")),
+                new HashSet<>(groups(top).subList(1, top.size())));
+        assertEquals(5, engine.getNumberOfGroups());
+        assertEquals("/api GET 2xx requests=2 bytes=400 maxSize=300", top.get(0).toString());
+        assertEquals(0, engine.getEvictions());
+
+        final GroupByEngine clients = new GroupByEngine(GroupBySpec.parse("client,user:serverErrors"));
+        clients.process(entry("10.0.0.1", "GET", "/api/user", 500, 100));
+        clients.process(entry("10.0.0.1", "GET", "/api/user", 503, 100));
+        clients.process(entry("::1", "GET", "/api/user", 500, 100));
+        assertEquals("10.0.0.1 - serverErrors=2", clients.top(1).get(0).toString());
+        assertEquals(2, clients.top(1).get(0).getValue(GroupByMetric.SERVER_ERRORS));
+        assertThrows(IllegalArgumentException.class, () -> clients.top(1).get(0).getValue(GroupByMetric.BYTES));
+    }
+
+    @Test
+    void testLeastCountEvictionKeepsTheHeaviestGroups() {
+        final GroupByEngine engine = new GroupByEngine(GroupBySpec.parse("client").setMaxGroups(100));
+        final List<CLFLogEntry> entries = new ArrayList<>();
+        for (int request = 0; request < 100; request++) {
+            for (int client = 1; client <= 10; client++) {
+                entries.add(entry("10.0.0." + client, "GET", "/api", 200, 10));
+            }
+        }
+        engine.processBatch(entries);
+
+        // a scanner hitting from 100 000 clients once each.
+        for (int client = 0; client < 100_000; client++) {
+            engine.process(entry("172." + (client >> 16) + "." + ((client >> 8) & 255) + "." + (client & 255), "GET",
+                    "/admin", 404, 0));
+        }
+        assertEquals(100, engine.getNumberOfGroups());
+        final List<GroupCount> top = engine.top(10);
+        for (final GroupCount group : top) {
+            assertTrue(group.getGroup().startsWith("10.0.0."), group.toString());
+            assertEquals(100, group.getValue(GroupByMetric.REQUESTS));
+        }
+
+        // the metrics of the evicted groups keep the totals exact.
+        long requests = engine.getEvictedGroups().getValue(GroupByMetric.REQUESTS);
+        for (final GroupCount group : engine.top(100)) {
+            requests += group.getValue(GroupByMetric.REQUESTS);
+        }
+        assertEquals(1000 + 100_000, requests);
+        assertEquals(100_000 + 10 - 100, engine.getEvictions());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        final GroupByEngine engine = new GroupByEngine(
+                GroupBySpec.parse("client").setMaxGroups(3).setEvictionPolicy(EvictionPolicy.LEAST_RECENTLY_USED));
+        for (final String client : new String[]{"10.0.0.1", "10.0.0.2", "10.0.0.3", "10.0.0.1", "10.0.0.4", "10.0.0.2"}) {
+            engine.process(entry(client, "GET", "/api", 200, 10));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("10.0.0.1", "10.0.0.4", "10.0.0.2")), new HashSet<>(groups(engine.top(3))));
+        assertEquals("10.0.0.1", engine.top(1).get(0).getGroup());
+        assertEquals(2, engine.getEvictions());
+        assertEquals(20, engine.getEvictedGroups().getValue(GroupByMetric.BYTES));
+    }
+}
@@ -0,0 +1,29 @@
+package com.homework.monitoring.time;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SystemSchedulerTest {
+    @Test
+    void testFailingTaskKeepsItsSchedule() throws InterruptedException {
+        final SystemScheduler scheduler = new SystemScheduler("scheduler-test");
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch thirdRun = new CountDownLatch(1);
+        try {
+            scheduler.scheduleAtFixedRate(() -> {
+                if (runs.incrementAndGet() >= 3) {
+                    thirdRun.countDown();
+                }
+                throw new IllegalStateException("listener failure");
+            }, 10);
+            assertTrue(thirdRun.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-line cost of the date parsing before (date formatter) and after (cached fixed layout decoding) on the
+ * timestamps of the bundled input/logs.txt file, parsed N times (first argument, default 200).
+ *
+ * Launch from the project's root folder (after mvn test-compile) with :
+ * java -cp target/classes:target/test-classes:&lt;log4j jars&gt; com.utils.ConversionUtilsBenchmark [rounds]
+ */
+public class ConversionUtilsBenchmark {
+    private static final DateTimeFormatter FORMATTER = new DateTimeFormatterBuilder()
+            .appendOptional(DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z"))
+            .appendOptional(DateTimeFormatter.ofPattern("dd/MMMM/yyyy:HH:mm:ss Z"))
+            .appendOptional(DateTimeFormatter.ofPattern("dd/MMMMM/yyyy:HH:mm:ss Z"))
+            .toFormatter(Locale.getDefault());
+
+    public static void main(String[] args) throws IOException {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final List<String> lines = Files.readAllLines(Paths.get("input", "logs.txt"), StandardCharsets.UTF_8);
+
+        // each line keeps its own date text, as when it is read from the file.
+        final String[] lineArray = lines.toArray(new String[0]);
+        final int[] starts = new int[lineArray.length];
+        final int[] ends = new int[lineArray.length];
+        for (int i = 0; i < lineArray.length; i++) {
+            starts[i] = lineArray[i].indexOf('[') + 1;
+            ends[i] = lineArray[i].indexOf(']');
+        }
+        final long totalLines = (long) rounds * lineArray.length;
+
+        for (int warmUp = 0; warmUp < 3; warmUp++) {
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < lineArray.length; i++) {
+                    final ZonedDateTime date = ZonedDateTime.parse(lineArray[i].substring(starts[i], ends[i]), FORMATTER);
+                    checksum += date.toEpochSecond();
+                }
+            }
+            report("DateTimeFormatter      ", totalLines, System.nanoTime() - start, checksum);
+
+            checksum = 0;
+            start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < lineArray.length; i++) {
+                    checksum += ConversionUtils.parseDate(lineArray[i], starts[i], ends[i]).toEpochSecond();
+                }
+            }
+            report("ConversionUtils (cache)", totalLines, System.nanoTime() - start, checksum);
+        }
+    }
+
+    private static void report(final String name, final long lines, final long elapsedNanos, final long checksum) {
+        System.out.println(String.format("%s : %.1f ns/line (%d lines, checksum %d)",
+                name, (double) elapsedNanos / lines, lines, checksum));
+    }
+}
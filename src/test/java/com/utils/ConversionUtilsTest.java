@@ -2,6 +2,14 @@ package com.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Month;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ConversionUtilsTest {
@@ -28,4 +36,85 @@ class ConversionUtilsTest {
         assertEquals("/pages", ConversionUtils.extractHTTPSectionFromRequest("/pages/create"));
         assertEquals("/api", ConversionUtils.extractHTTPSectionFromRequest("/api/user"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Date formatter used before the fixed layout decoding was introduced.
+     */
+    private static final DateTimeFormatter REFERENCE_FORMATTER = new DateTimeFormatterBuilder()
+            .appendOptional(DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z"))
+            .appendOptional(DateTimeFormatter.ofPattern("dd/MMMM/yyyy:HH:mm:ss Z"))
+            .appendOptional(DateTimeFormatter.ofPattern("dd/MMMMM/yyyy:HH:mm:ss Z"))
+            .toFormatter(Locale.getDefault());
+
+    private static ZonedDateTime referenceParse(final String date) {
+        try {
+            return ZonedDateTime.parse(date, REFERENCE_FORMATTER);
+        } catch (final RuntimeException exception) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime parse(final String date) {
+        try {
+            return ConversionUtils.parseDate(date);
+        } catch (final RuntimeException exception) {
+            return null;
+        }
+    }
+
+    @Test
+    public void parseDateSameAsFormatter() {
+        final String[] dates = {
+                "09/May/2018:16:00:39 +0000",
+                "09/May/2018:16:00:39 +0000",
+                "13/May/2020:13:07:15 -0730",
+                "29/Feb/2020:23:59:59 +0100",
+                "29/Feb/2019:23:59:59 +0100",
+                "31/Apr/2019:10:00:00 +0000",
+                "00/Jan/2019:10:00:00 +0000",
+                "10/Jan/2019:24:00:00 +0000",
+                "10/Jan/2019:10:60:00 +0000",
+                "10/Jan/0000:10:00:00 +0000",
+                "10/Jan/12019:10:00:00 +0000",
+                "10/Jan/2019:10:00:00 +1900",
+                "10/Jan/2019:10:00:00 +1860",
+                "10/Jan/2019:10:00:00\t+0000",
+                "10/jan/2019:10:00:00 +0000",
+                "10/Janu/2019:10:00:00 +0000",
+                "1/Jan/2019:10:00:00 +0000",
+                "10/Jan/2019:10:00:00 +00000",
+                "10/Jan/2019:10:0a:00 +0000",
+                "",
+        };
+        for (final String date : dates) {
+            assertEquals(referenceParse(date), parse(date), date);
+        }
+        for (final Month month : Month.values()) {
+            final String date = "01/" + month.getDisplayName(TextStyle.FULL, Locale.getDefault()) + "/2018:00:00:00 +0200";
+            assertEquals(referenceParse(date), parse(date), date);
+        }
+    }
+
+    @Test
+    public void parseDateFromLinePart() {
+        final String line = "127.0.0.1 - - [09/May/2018:16:00:39 +0000] \"GET / HTTP/1.0\" 200 1";
+        assertEquals(referenceParse("09/May/2018:16:00:39 +0000"), ConversionUtils.parseDate(line, 15, 41));
+        assertEquals(referenceParse("09/May/2018:16:00:39 +0000").toInstant().toEpochMilli(),
+                ConversionUtils.parseDateToEpochMillis(line, 15, 41));
+        // a date cut before its month end is left to the formatter, even when the rest of the line holds a '/'.
+        assertThrows(DateTimeParseException.class, () -> ConversionUtils.parseDate(line, 15, 20));
+        assertThrows(DateTimeParseException.class, () -> ConversionUtils.parseDate(line, 15, 16));
+    }
+
+    @Test
+    public void packIPv4Addresses() {
+        assertEquals(0x7F000001L, ConversionUtils.parseIPv4("127.0.0.1", 0, 9));
+        assertEquals(0xFFFFFFFFL, ConversionUtils.parseIPv4("x255.255.255.255", 1, 16));
+        assertEquals("255.255.255.255", ConversionUtils.formatIPv4(0xFFFFFFFFL));
+        assertEquals("10.0.12.1", ConversionUtils.formatIPv4(ConversionUtils.parseIPv4("10.0.12.1", 0, 9)));
+        for (final String notPacked : new String[]{"", "127.0.0", "127.0.0.1.", "127.0.0.01", "256.0.0.1", "::1",
+                "1.2.3.4a", "localhost", "1..2.3"}) {
+            assertEquals(-1, ConversionUtils.parseIPv4(notPacked, 0, notPacked.length()), notPacked);
+        }
+    }
+}